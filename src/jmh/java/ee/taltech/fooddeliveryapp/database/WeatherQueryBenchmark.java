@@ -0,0 +1,113 @@
+package ee.taltech.fooddeliveryapp.database;
+
+import ee.taltech.fooddeliveryapp.Application;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.orm.jpa.SharedEntityManagerCreator;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of looking up the observation of a past hourly slot against an H2 database holding hourly observations of
+ * 30 stations for one and for five years: loading the slot's WeatherData entities, as lookups did before, next to
+ * the single-row reading projection.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class WeatherQueryBenchmark {
+    private static final int STATIONS = 30;
+    private static final int FIRST_WMO_CODE = 26000;
+    private static final long START = 1577836800L;
+    private static final long SLOT_LENGTH = 3600;
+    private static final String[] PHENOMENA = {"Clear", "Few clouds", "Overcast", "Light rain", "Light snow shower"};
+
+    @Param({"8760", "43800"})
+    private int hoursPerStation;
+
+    private ConfigurableApplicationContext context;
+    private WeatherDataRepository weatherDataRepository;
+    private EntityManager entityManager;
+    private TransactionTemplate readOnly;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = new SpringApplicationBuilder(Application.class)
+                .web(WebApplicationType.NONE)
+                .run("--spring.datasource.url=jdbc:h2:mem:benchmark;DB_CLOSE_DELAY=-1",
+                        "--spring.jpa.hibernate.ddl-auto=create-drop",
+                        "--weather.service-url=http://localhost:1/");
+        weatherDataRepository = context.getBean(WeatherDataRepository.class);
+        entityManager = SharedEntityManagerCreator.createSharedEntityManager(
+                context.getBean(EntityManagerFactory.class));
+        readOnly = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+        readOnly.setReadOnly(true);
+
+        Random random = new Random(hoursPerStation);
+        JdbcTemplate jdbc = context.getBean(JdbcTemplate.class);
+        for (int station = 0; station < STATIONS; station++) {
+            List<Object[]> rows = new ArrayList<>(hoursPerStation);
+            for (int hour = 0; hour < hoursPerStation; hour++) {
+                rows.add(new Object[]{"Station-" + station, FIRST_WMO_CODE + station,
+                        random.nextDouble() * 40 - 20, random.nextDouble() * 25,
+                        PHENOMENA[random.nextInt(PHENOMENA.length)], START + hour * SLOT_LENGTH + 900, 1L});
+            }
+            jdbc.batchUpdate("insert into weather_data (station_name, wmo_code, air_temperature, wind_speed, "
+                    + "weather_phenomenon, time_stamp, snapshot_version) values (?, ?, ?, ?, ?, ?, ?)", rows);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public WeatherData loadEntities() {
+        long slotStart = randomSlotStart();
+        int wmoCode = randomWmoCode();
+        List<WeatherData> weatherData = readOnly.execute(status -> entityManager.createQuery(
+                        "select w from WeatherData w where w.wmoCode = :wmoCode "
+                                + "and w.timeStamp between :start and :end order by w.timeStamp desc",
+                        WeatherData.class)
+                .setParameter("wmoCode", wmoCode)
+                .setParameter("start", slotStart)
+                .setParameter("end", slotStart + SLOT_LENGTH)
+                .getResultList());
+        return weatherData.isEmpty() ? null : weatherData.get(0);
+    }
+
+    @Benchmark
+    public WeatherReading readProjection() {
+        long slotStart = randomSlotStart();
+        return weatherDataRepository.findLatestReadingBetween(randomWmoCode(), slotStart, slotStart + SLOT_LENGTH);
+    }
+
+    private long randomSlotStart() {
+        return START + ThreadLocalRandom.current().nextInt(hoursPerStation) * SLOT_LENGTH;
+    }
+
+    private static int randomWmoCode() {
+        return FIRST_WMO_CODE + ThreadLocalRandom.current().nextInt(STATIONS);
+    }
+}
@@ -0,0 +1,120 @@
+package ee.taltech.fooddeliveryapp.database;
+
+import ee.taltech.fooddeliveryapp.Application;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * The same lookups against every weather store, holding hourly observations of 30 stations for one year saved as
+ * daily imports: the latest observation of a station, the observation of a past hourly slot and the observations
+ * of a day.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class WeatherStoreBenchmark {
+    private static final int STATIONS = 30;
+    private static final int HOURS = 8760;
+    private static final int FIRST_WMO_CODE = 26000;
+    private static final long START = 1577836800L;
+    private static final long SLOT_LENGTH = 3600;
+    private static final String[] PHENOMENA = {"Clear", "Few clouds", "Overcast", "Light rain", "Light snow shower"};
+
+    @Param({"jpa", "mapped"})
+    private String store;
+
+    private Path directory;
+    private ConfigurableApplicationContext context;
+    private WeatherStore weatherStore;
+    private TransactionTemplate readOnly;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("weather-store");
+        context = new SpringApplicationBuilder(Application.class)
+                .web(WebApplicationType.NONE)
+                .run("--spring.datasource.url=jdbc:h2:mem:store;DB_CLOSE_DELAY=-1",
+                        "--spring.jpa.hibernate.ddl-auto=create-drop",
+                        "--weather.service-url=http://localhost:1/",
+                        "--weather.store=" + store,
+                        "--weather.store.directory=" + directory);
+        weatherStore = context.getBean(WeatherStore.class);
+        readOnly = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+        readOnly.setReadOnly(true);
+
+        Random random = new Random(HOURS);
+        for (int day = 0; day < HOURS / 24; day++) {
+            List<WeatherData> weatherData = new ArrayList<>(24 * STATIONS);
+            for (int hour = day * 24; hour < (day + 1) * 24; hour++) {
+                for (int station = 0; station < STATIONS; station++) {
+                    WeatherData observation = new WeatherData("Station-" + station, FIRST_WMO_CODE + station,
+                            random.nextDouble() * 40 - 20, random.nextDouble() * 25,
+                            PHENOMENA[random.nextInt(PHENOMENA.length)], START + hour * SLOT_LENGTH + 900);
+                    observation.setSnapshotVersion(day + 1L);
+                    weatherData.add(observation);
+                }
+            }
+            weatherStore.saveAll(weatherData);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        context.close();
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    @Benchmark
+    public WeatherReading latestReading() {
+        return weatherStore.findLatestReading(randomWmoCode());
+    }
+
+    @Benchmark
+    public WeatherReading slotReading() {
+        long slotStart = START + ThreadLocalRandom.current().nextInt(HOURS) * SLOT_LENGTH;
+        return weatherStore.findLatestReadingBetween(randomWmoCode(), slotStart, slotStart + SLOT_LENGTH);
+    }
+
+    @Benchmark
+    public long streamDay() {
+        long dayStart = START + ThreadLocalRandom.current().nextInt(HOURS / 24) * 24 * SLOT_LENGTH;
+        return readOnly.execute(status -> {
+            try (Stream<WeatherData> day = weatherStore.streamBetween(randomWmoCode(), dayStart,
+                    dayStart + 24 * SLOT_LENGTH)) {
+                return day.count();
+            }
+        });
+    }
+
+    private static int randomWmoCode() {
+        return FIRST_WMO_CODE + ThreadLocalRandom.current().nextInt(STATIONS);
+    }
+}
@@ -0,0 +1,111 @@
+package ee.taltech.fooddeliveryapp.scheduler;
+
+import ee.taltech.fooddeliveryapp.database.Station;
+import ee.taltech.fooddeliveryapp.scheduler.WeatherFeedParser.WeatherFeed;
+import ee.taltech.fooddeliveryapp.service.StationIds;
+import ee.taltech.fooddeliveryapp.service.StationIndex;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+import org.w3c.dom.Document;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of one weather import without the database: parsing the whole feed, assigning station IDs and rebuilding
+ * the spatial index. The real feed has about 100 stations, 1000 is ten times that. Per-station cost should stay
+ * flat between the two sizes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class WeatherFeedBenchmark {
+    private static final String[] PHENOMENA = {"Clear", "Few clouds", "Overcast", "Light rain", "Light snow shower"};
+
+    @Param({"100", "1000"})
+    private int stations;
+
+    private Document document;
+    private WeatherFeed feed;
+    private StationIds ids;
+    private int[] lookups;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        Random random = new Random(stations);
+        StringBuilder xml = new StringBuilder("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n")
+                .append("<observations timestamp=\"1678818585\">\n");
+        for (int i = 0; i < stations; i++) {
+            xml.append("<station><name>Station-").append(i).append("</name>")
+                    .append("<wmocode>").append(20000 + i * 7).append("</wmocode>")
+                    .append("<longitude>").append(21.8 + random.nextDouble() * 6.2).append("</longitude>")
+                    .append("<latitude>").append(57.5 + random.nextDouble() * 2.1).append("</latitude>")
+                    .append("<phenomenon>").append(PHENOMENA[random.nextInt(PHENOMENA.length)]).append("</phenomenon>")
+                    .append("<visibility>20.0</visibility><airpressure>1012</airpressure>")
+                    .append("<airtemperature>").append(String.format(Locale.ROOT, "%.1f", random.nextDouble() * 30 - 15))
+                    .append("</airtemperature>")
+                    .append("<windspeed>").append(String.format(Locale.ROOT, "%.1f", random.nextDouble() * 20))
+                    .append("</windspeed><windspeedmax>20.1</windspeedmax></station>\n");
+        }
+        xml.append("</observations>\n");
+
+        document = DocumentBuilderFactory.newInstance().newDocumentBuilder()
+                .parse(new ByteArrayInputStream(xml.toString().getBytes(StandardCharsets.UTF_8)));
+        feed = WeatherFeedParser.parse(document, wmoCode -> true);
+        ids = stationIds(feed.stations());
+
+        lookups = new int[1024];
+        for (int i = 0; i < lookups.length; i++) {
+            lookups[i] = 20000 + random.nextInt(stations) * 7;
+        }
+    }
+
+    @Benchmark
+    public WeatherFeed parse() {
+        return WeatherFeedParser.parse(document, wmoCode -> true);
+    }
+
+    @Benchmark
+    public StationIds assignStationIds() {
+        return stationIds(feed.stations());
+    }
+
+    @Benchmark
+    public StationIndex buildIndex() {
+        List<Station> located = feed.stations();
+        int[] codes = new int[located.size()];
+        double[] latitudes = new double[located.size()];
+        double[] longitudes = new double[located.size()];
+        for (int i = 0; i < codes.length; i++) {
+            codes[i] = located.get(i).getWmoCode();
+            latitudes[i] = located.get(i).getLatitude();
+            longitudes[i] = located.get(i).getLongitude();
+        }
+        return StationIndex.build(codes, latitudes, longitudes);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public void lookupStationIds(Blackhole blackhole) {
+        for (int wmoCode : lookups) {
+            blackhole.consume(ids.indexOf(wmoCode));
+        }
+    }
+
+    private static StationIds stationIds(List<Station> stations) {
+        return StationIds.of(stations.stream().mapToInt(Station::getWmoCode).toArray());
+    }
+}
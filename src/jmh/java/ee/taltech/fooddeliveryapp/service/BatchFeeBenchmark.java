@@ -0,0 +1,75 @@
+package ee.taltech.fooddeliveryapp.service;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of evaluating the bike fee rules for a batch of a million observations: one observation at a time through
+ * the rules, as analytics used to, with the scalar batch loop, and with the vectorized batch evaluator. Bikes have
+ * every weather rule, so they are the most expensive vehicle type.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class BatchFeeBenchmark {
+    private static final int SIZE = 1_000_000;
+
+    private final BatchFeeEvaluator scalar = new ScalarBatchFeeEvaluator();
+    private final BatchFeeEvaluator vector = new VectorBatchFeeEvaluator();
+    private final FeeRules rules = FeeRules.DEFAULT;
+    private final FeeRules.VehicleRules bike = rules.vehicles().get("bike");
+    private final long fixedFee = rules.baseFee() + rules.cityFees().get("tallinn") + bike.fee();
+
+    private Observation[] observations;
+    private double[] airTemperatures;
+    private double[] windSpeeds;
+    private int[] phenomena;
+    private long[] fees;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        // Estonian weather of a year, repeated: mostly mild, a cold winter, wind up to storms and any phenomenon
+        Random random = new Random(42);
+        observations = new Observation[SIZE];
+        airTemperatures = new double[SIZE];
+        windSpeeds = new double[SIZE];
+        phenomena = new int[SIZE];
+        fees = new long[SIZE];
+        for (int i = 0; i < SIZE; i++) {
+            airTemperatures[i] = random.nextGaussian() * 10 + 5;
+            windSpeeds[i] = Math.abs(random.nextGaussian() * 7);
+            phenomena[i] = random.nextInt(4);
+            observations[i] = new Observation(26038, airTemperatures[i], windSpeeds[i], phenomena[i], i,
+                    Observation.NO_VERSION);
+        }
+    }
+
+    @Benchmark
+    public long[] perObservation() {
+        for (int i = 0; i < SIZE; i++) {
+            fees[i] = rules.feeCents(fixedFee, bike, observations[i]);
+        }
+        return fees;
+    }
+
+    @Benchmark
+    public long[] scalarBatch() {
+        scalar.evaluate(rules, fixedFee, bike, airTemperatures, windSpeeds, phenomena, 0, SIZE, fees);
+        return fees;
+    }
+
+    @Benchmark
+    public long[] vectorBatch() {
+        vector.evaluate(rules, fixedFee, bike, airTemperatures, windSpeeds, phenomena, 0, SIZE, fees);
+        return fees;
+    }
+}
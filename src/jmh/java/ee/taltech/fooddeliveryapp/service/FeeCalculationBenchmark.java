@@ -0,0 +1,61 @@
+package ee.taltech.fooddeliveryapp.service;
+
+import ee.taltech.fooddeliveryapp.config.WeatherDataConstants;
+import ee.taltech.fooddeliveryapp.database.WeatherData;
+import ee.taltech.fooddeliveryapp.exceptions.InvalidTimeStampException;
+import ee.taltech.fooddeliveryapp.exceptions.NoWeatherFoundException;
+import ee.taltech.fooddeliveryapp.exceptions.UnknownCityException;
+import ee.taltech.fooddeliveryapp.exceptions.UnknownVehicleException;
+import ee.taltech.fooddeliveryapp.exceptions.VehicleForbiddenException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of quoting the latest fee from the cached snapshot, the path every request without a timestamp takes, next
+ * to calculating the same fee from a WeatherData entity. Run with {@code -prof gc} to compare the allocation rate
+ * per operation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class FeeCalculationBenchmark {
+    private DeliveryFeeCalculator calculator;
+    private WeatherData weatherData;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        weatherData = new WeatherData("Tallinn-Harku", WeatherDataConstants.TALLINN_HARKU, -4.2, 12.5,
+                "Light snow shower", 1678818585L);
+        weatherData.setSnapshotVersion(1L);
+        WeatherDataSnapshot snapshot = WeatherDataSnapshot.EMPTY.merge(List.of(weatherData), 1L);
+
+        WeatherDataService weatherDataService = new WeatherDataService(null, null, null, null) {
+            @Override
+            public WeatherDataSnapshot getLatestSnapshot() {
+                return snapshot;
+            }
+        };
+        calculator = new DeliveryFeeCalculator(weatherDataService, new StationRegistry(null));
+    }
+
+    @Benchmark
+    public FeeQuote quoteLatest() throws UnknownCityException, UnknownVehicleException, VehicleForbiddenException,
+            NoWeatherFoundException, InvalidTimeStampException {
+        return calculator.quoteFee("tallinn", "bike", null, null, null);
+    }
+
+    @Benchmark
+    public BigDecimal calculateFromEntity() throws VehicleForbiddenException {
+        return calculator.calculateFee("tallinn", "bike", weatherData);
+    }
+}
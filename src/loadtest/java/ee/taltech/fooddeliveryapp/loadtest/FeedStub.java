@@ -0,0 +1,165 @@
+package ee.taltech.fooddeliveryapp.loadtest;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Local stand-in for the ilmateenistus.ee observations feed.
+ * Serves a generated observations document with a configurable number of stations, response latency
+ * and failure rate, so imports can be exercised without touching the real service.
+ */
+public class FeedStub implements AutoCloseable {
+    public static final String PATH = "/ilma_andmed/xml/observations.php";
+
+    private static final int[] REAL_WMO_CODES = {26038, 26242, 41803};
+    private static final String[] REAL_NAMES = {"Tallinn-Harku", "Tartu-Tõravere", "Pärnu"};
+    private static final String[] PHENOMENA = {"Clear", "Few clouds", "Overcast", "Light rain", "Light shower",
+            "Light snowfall", "Light sleet", "Mist", "Glaze", "Thunder"};
+
+    /**
+     * Ways in which a failed response can be served.
+     */
+    public enum FailureMode {
+        /** Responds with HTTP 503 and an empty body. */
+        STATUS,
+        /** Responds with HTTP 200 and a body that is not XML. */
+        GARBAGE,
+        /** Responds with HTTP 200 and a document that is cut off halfway. */
+        TRUNCATED
+    }
+
+    private final HttpServer server;
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+    private final int stationCount;
+    private final long latencyMillis;
+    private final double failureRate;
+    private final FailureMode failureMode;
+    private final AtomicLong served = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+
+    /**
+     * Starts the stub on the given port.
+     *
+     * @param port Port to listen on, 0 picks a free port
+     * @param stationCount Number of stations in the document, the first three are the real Tallinn, Tartu and Pärnu
+     * @param latencyMillis Delay before every response is written
+     * @param failureRate Share of responses between 0 and 1 that fail
+     * @param failureMode How failing responses look
+     * @throws IOException If the server socket can't be opened
+     */
+    public FeedStub(int port, int stationCount, long latencyMillis, double failureRate, FailureMode failureMode)
+            throws IOException {
+        this.stationCount = Math.max(stationCount, REAL_WMO_CODES.length);
+        this.latencyMillis = latencyMillis;
+        this.failureRate = failureRate;
+        this.failureMode = failureMode;
+
+        server = HttpServer.create(new InetSocketAddress("localhost", port), 0);
+        server.createContext(PATH, this::handle);
+        server.setExecutor(executor);
+        server.start();
+    }
+
+    /**
+     * @return URL that the application should use as {@code weather.service-url}
+     */
+    public String getUrl() {
+        return "http://localhost:" + server.getAddress().getPort() + PATH;
+    }
+
+    public long getServed() {
+        return served.get();
+    }
+
+    public long getFailed() {
+        return failed.get();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if (latencyMillis > 0) {
+                Thread.sleep(latencyMillis);
+            }
+            served.incrementAndGet();
+
+            byte[] body = buildDocument(Instant.now().getEpochSecond()).getBytes(StandardCharsets.UTF_8);
+            if (ThreadLocalRandom.current().nextDouble() < failureRate) {
+                failed.incrementAndGet();
+                switch (failureMode) {
+                    case STATUS -> {
+                        exchange.sendResponseHeaders(503, -1);
+                        return;
+                    }
+                    case GARBAGE -> body = "<html>Service temporarily unavailable".getBytes(StandardCharsets.UTF_8);
+                    case TRUNCATED -> body = Arrays.copyOf(body, body.length / 2);
+                }
+            }
+
+            exchange.getResponseHeaders().set("Content-Type", "text/xml; charset=UTF-8");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Builds an observations document in the same shape as the real feed.
+     *
+     * @param timeStamp UNIX timestamp of the observations
+     * @return XML document as a string
+     */
+    String buildDocument(long timeStamp) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        StringBuilder xml = new StringBuilder(stationCount * 256);
+        xml.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<observations timestamp=\"")
+                .append(timeStamp).append("\">\n");
+
+        for (int i = 0; i < stationCount; i++) {
+            boolean real = i < REAL_WMO_CODES.length;
+            String name = real ? REAL_NAMES[i] : "Station-" + i;
+            int wmoCode = real ? REAL_WMO_CODES[i] : 90000 + i;
+            // Station positions stay the same between documents, only the weather changes
+            Random position = new Random(wmoCode);
+
+            xml.append("\t<station>\n")
+                    .append("\t\t<name>").append(name).append("</name>\n")
+                    .append("\t\t<wmocode>").append(wmoCode).append("</wmocode>\n")
+                    .append("\t\t<longitude>").append(21.8 + position.nextDouble() * 6.2).append("</longitude>\n")
+                    .append("\t\t<latitude>").append(57.5 + position.nextDouble() * 2.1).append("</latitude>\n")
+                    .append("\t\t<phenomenon>").append(PHENOMENA[random.nextInt(PHENOMENA.length)])
+                    .append("</phenomenon>\n")
+                    .append("\t\t<airtemperature>").append(format(random.nextDouble(-25, 25)))
+                    .append("</airtemperature>\n")
+                    .append("\t\t<windspeed>").append(format(random.nextDouble(0, 25))).append("</windspeed>\n")
+                    .append("\t</station>\n");
+        }
+
+        return xml.append("</observations>\n").toString();
+    }
+
+    private static String format(double value) {
+        return String.format(Locale.ROOT, "%.1f", value);
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+}
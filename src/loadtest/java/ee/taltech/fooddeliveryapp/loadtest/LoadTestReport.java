@@ -0,0 +1,147 @@
+package ee.taltech.fooddeliveryapp.loadtest;
+
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Collects the outcome of every request sent during a load test and summarizes them as
+ * throughput, latency percentiles and error rates.
+ * Latencies are kept raw (not bucketed) so that p999 stays exact for runs of a few million requests.
+ */
+public class LoadTestReport {
+    private final long[] latencies;
+    private final AtomicInteger recorded = new AtomicInteger();
+    private final AtomicLong dropped = new AtomicLong();
+    private final LongAdder transportErrors = new LongAdder();
+    private final Map<Integer, LongAdder> statusCounts = new ConcurrentHashMap<>();
+    private volatile long elapsedNanos;
+
+    /**
+     * @param capacity Maximum number of latencies that can be recorded, further samples are counted as dropped
+     */
+    public LoadTestReport(int capacity) {
+        this.latencies = new long[capacity];
+    }
+
+    /**
+     * Records a completed request.
+     *
+     * @param status HTTP status code of the response
+     * @param latencyNanos Time from the scheduled send time to the end of the response
+     */
+    public void recordResponse(int status, long latencyNanos) {
+        statusCounts.computeIfAbsent(status, k -> new LongAdder()).increment();
+        record(latencyNanos);
+    }
+
+    /**
+     * Records a request that failed before a response was received (connection refused, timeout, ...).
+     *
+     * @param latencyNanos Time from the scheduled send time until the failure
+     */
+    public void recordTransportError(long latencyNanos) {
+        transportErrors.increment();
+        record(latencyNanos);
+    }
+
+    private void record(long latencyNanos) {
+        int index = recorded.getAndIncrement();
+        if (index < latencies.length) {
+            latencies[index] = latencyNanos;
+        } else {
+            dropped.incrementAndGet();
+        }
+    }
+
+    /**
+     * Marks the run as finished.
+     *
+     * @param elapsedNanos Wall-clock duration of the run
+     */
+    public void finish(long elapsedNanos) {
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    /**
+     * Builds a human-readable summary of the run.
+     *
+     * @return Report text
+     */
+    public String summarize() {
+        int count = Math.min(recorded.get(), latencies.length);
+        long[] sorted = Arrays.copyOf(latencies, count);
+        Arrays.sort(sorted);
+
+        long total = recorded.get();
+        long serverErrors = 0;
+        long clientErrors = 0;
+        Map<Integer, Long> statuses = new TreeMap<>();
+        for (Map.Entry<Integer, LongAdder> entry : statusCounts.entrySet()) {
+            long value = entry.getValue().sum();
+            statuses.put(entry.getKey(), value);
+            if (entry.getKey() >= 500) {
+                serverErrors += value;
+            } else if (entry.getKey() >= 400) {
+                clientErrors += value;
+            }
+        }
+        long errors = serverErrors + transportErrors.sum();
+
+        StringBuilder output = new StringBuilder();
+        output.append(String.format(Locale.ROOT, "requests:        %d%n", total));
+        output.append(String.format(Locale.ROOT, "duration:        %.2f s%n", elapsedNanos / 1e9));
+        output.append(String.format(Locale.ROOT, "throughput:      %.1f req/s%n", total / (elapsedNanos / 1e9)));
+        output.append(String.format(Locale.ROOT, "latency p50:     %.3f ms%n", percentile(sorted, 0.50) / 1e6));
+        output.append(String.format(Locale.ROOT, "latency p99:     %.3f ms%n", percentile(sorted, 0.99) / 1e6));
+        output.append(String.format(Locale.ROOT, "latency p999:    %.3f ms%n", percentile(sorted, 0.999) / 1e6));
+        output.append(String.format(Locale.ROOT, "latency max:     %.3f ms%n",
+                (count == 0 ? 0 : sorted[count - 1]) / 1e6));
+        output.append(String.format(Locale.ROOT, "error rate:      %.3f %% (5xx and transport errors)%n",
+                ratio(errors, total)));
+        output.append(String.format(Locale.ROOT, "rejection rate:  %.3f %% (4xx)%n", ratio(clientErrors, total)));
+        output.append(String.format(Locale.ROOT, "transport errors: %d%n", transportErrors.sum()));
+        output.append("status codes:    ").append(statuses).append(System.lineSeparator());
+        if (dropped.get() > 0) {
+            output.append(String.format(Locale.ROOT, "latency samples dropped: %d (capacity %d)%n",
+                    dropped.get(), latencies.length));
+        }
+
+        return output.toString();
+    }
+
+    /**
+     * @return Number of requests that got a response or failed while waiting for one
+     */
+    public long getTotal() {
+        return recorded.get();
+    }
+
+    /**
+     * @return Number of requests that got a 5xx response or no response at all
+     */
+    public long getErrorCount() {
+        long serverErrors = statusCounts.entrySet().stream()
+                .filter(entry -> entry.getKey() >= 500)
+                .mapToLong(entry -> entry.getValue().sum())
+                .sum();
+        return serverErrors + transportErrors.sum();
+    }
+
+    private static double percentile(long[] sorted, double percentile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(percentile * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(index, sorted.length - 1))];
+    }
+
+    private static double ratio(long part, long total) {
+        return total == 0 ? 0 : part * 100.0 / total;
+    }
+}
@@ -0,0 +1,148 @@
+package ee.taltech.fooddeliveryapp.loadtest;
+
+import ee.taltech.fooddeliveryapp.Application;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Entry point of the load test. Run with {@code gradle loadTest --args="..."}.
+ * <p>
+ * Without {@code --target} the application is started in-process on a random port against an in-memory
+ * database, with its weather feed pointed at a local FeedStub. With {@code --target} an already running
+ * instance is tested and the feed stub options are ignored.
+ * <p>
+ * Options (all optional, given as {@code --name=value}):
+ * <ul>
+ *     <li>target - base URL of a running application</li>
+ *     <li>rate - requests per second, default 200</li>
+ *     <li>duration - seconds of recorded load, default 60</li>
+ *     <li>warmup - seconds of unrecorded load before the run, default 10</li>
+ *     <li>max-in-flight - upper bound for outstanding requests, default 512</li>
+ *     <li>record - file with one FeeRequest JSON per line to replay instead of synthetic traffic</li>
+ *     <li>cities - weighted city mix, default tallinn:5,tartu:3,pärnu:2</li>
+ *     <li>vehicles - weighted vehicle mix, default car:5,scooter:3,bike:2</li>
+ *     <li>historical-share - share of requests with a historical timestamp, default 0.2</li>
+ *     <li>history-hours - how far back historical timestamps reach, default 24</li>
+ *     <li>feed-stations - stations in the stub document, default 3</li>
+ *     <li>feed-latency-ms - stub response delay, default 0</li>
+ *     <li>feed-failure-rate - share of failing stub responses, default 0</li>
+ *     <li>feed-failure-mode - STATUS, GARBAGE or TRUNCATED, default STATUS</li>
+ *     <li>report - file to also write the report to</li>
+ *     <li>max-error-rate - percentage of errors above which the run exits with status 1, default 1.0</li>
+ * </ul>
+ */
+public class LoadTestRunner {
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parseOptions(args);
+
+        RequestMix mix = options.containsKey("record")
+                ? RequestMix.recorded(Path.of(options.get("record")))
+                : RequestMix.synthetic(
+                        parseWeights(options.getOrDefault("cities", "tallinn:5,tartu:3,pärnu:2")),
+                        parseWeights(options.getOrDefault("vehicles", "car:5,scooter:3,bike:2")),
+                        Double.parseDouble(options.getOrDefault("historical-share", "0.2")),
+                        Integer.parseInt(options.getOrDefault("history-hours", "24")));
+
+        int rate = Integer.parseInt(options.getOrDefault("rate", "200"));
+        int maxInFlight = Integer.parseInt(options.getOrDefault("max-in-flight", "512"));
+        Duration duration = Duration.ofSeconds(Long.parseLong(options.getOrDefault("duration", "60")));
+        Duration warmup = Duration.ofSeconds(Long.parseLong(options.getOrDefault("warmup", "10")));
+
+        FeedStub stub = null;
+        ConfigurableApplicationContext context = null;
+        String target = options.get("target");
+        try {
+            if (target == null) {
+                stub = new FeedStub(0,
+                        Integer.parseInt(options.getOrDefault("feed-stations", "3")),
+                        Long.parseLong(options.getOrDefault("feed-latency-ms", "0")),
+                        Double.parseDouble(options.getOrDefault("feed-failure-rate", "0")),
+                        FeedStub.FailureMode.valueOf(options.getOrDefault("feed-failure-mode", "STATUS")
+                                .toUpperCase(Locale.ROOT)));
+                context = startApplication(stub.getUrl());
+                target = "http://localhost:" + context.getEnvironment().getProperty("local.server.port");
+            }
+
+            System.out.printf("Load testing %s at %d req/s for %s%n", target, rate, duration);
+            LoadTestReport report = new TrafficGenerator(target, mix, rate, maxInFlight).run(duration, warmup);
+            String summary = report.summarize();
+            if (stub != null) {
+                summary += String.format("feed stub:       %d served, %d failed%n", stub.getServed(), stub.getFailed());
+            }
+            System.out.print(summary);
+            writeReport(options.get("report"), summary);
+
+            double maxErrorRate = Double.parseDouble(options.getOrDefault("max-error-rate", "1.0"));
+            if (report.getErrorCount() * 100.0 / Math.max(1, report.getTotal()) > maxErrorRate) {
+                System.err.println("Error rate above " + maxErrorRate + " %");
+                System.exit(1);
+            }
+        } finally {
+            if (context != null) {
+                context.close();
+            }
+            if (stub != null) {
+                stub.close();
+            }
+        }
+        System.exit(0);
+    }
+
+    private static ConfigurableApplicationContext startApplication(String feedUrl) {
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("server.port", 0);
+        properties.put("weather.service-url", feedUrl);
+        properties.put("spring.datasource.url", "jdbc:h2:mem:loadtest");
+        properties.put("spring.jpa.hibernate.ddl-auto", "create-drop");
+        // All load comes from one client, which the per-client rate limit would turn down
+        properties.put("admission.rate.per-second", 0);
+        properties.put("audit.directory",
+                Path.of(System.getProperty("java.io.tmpdir"), "fee-audit-loadtest").toString());
+
+        SpringApplication application = new SpringApplication(Application.class);
+        application.setDefaultProperties(properties);
+        return application.run();
+    }
+
+    private static void writeReport(String file, String report) throws IOException {
+        if (file != null) {
+            Path path = Path.of(file);
+            if (path.getParent() != null) {
+                Files.createDirectories(path.getParent());
+            }
+            Files.writeString(path, report, StandardCharsets.UTF_8);
+        }
+    }
+
+    private static Map<String, String> parseOptions(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("Options must be given as --name=value, got: " + arg);
+            }
+            int separator = arg.indexOf('=');
+            options.put(arg.substring(2, separator), arg.substring(separator + 1));
+        }
+        return options;
+    }
+
+    private static Map<String, Integer> parseWeights(String mix) {
+        Map<String, Integer> weights = new LinkedHashMap<>();
+        for (String entry : mix.split(",")) {
+            String[] parts = entry.split(":");
+            weights.put(parts[0].trim(), parts.length > 1 ? Integer.parseInt(parts[1].trim()) : 1);
+        }
+        return weights;
+    }
+}
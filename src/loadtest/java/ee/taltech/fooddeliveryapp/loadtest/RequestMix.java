@@ -0,0 +1,106 @@
+package ee.taltech.fooddeliveryapp.loadtest;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Source of FeeRequest JSON bodies for the traffic generator.
+ * Either replays a recorded file (one FeeRequest JSON object per line) in a loop,
+ * or draws synthetic requests from weighted city and vehicle mixes.
+ */
+public abstract class RequestMix {
+
+    /**
+     * @return JSON body of the next request to send
+     */
+    public abstract String next();
+
+    /**
+     * Creates a mix that replays recorded requests in file order, starting over once the file is exhausted.
+     *
+     * @param file File with one FeeRequest JSON object per line, blank lines and lines starting with # are skipped
+     * @return Replaying request mix
+     * @throws IOException If the file can't be read
+     */
+    public static RequestMix recorded(Path file) throws IOException {
+        List<String> lines = new ArrayList<>();
+        for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+            String trimmed = line.trim();
+            if (!trimmed.isEmpty() && !trimmed.startsWith("#")) {
+                lines.add(trimmed);
+            }
+        }
+        if (lines.isEmpty()) {
+            throw new IllegalArgumentException("No requests recorded in " + file);
+        }
+
+        String[] bodies = lines.toArray(new String[0]);
+        AtomicLong position = new AtomicLong();
+        return new RequestMix() {
+            @Override
+            public String next() {
+                return bodies[(int) (position.getAndIncrement() % bodies.length)];
+            }
+        };
+    }
+
+    /**
+     * Creates a mix of synthetic requests.
+     *
+     * @param cityWeights Relative weights of cities, e.g. {tallinn=5, tartu=3, pärnu=2}
+     * @param vehicleWeights Relative weights of vehicle types
+     * @param historicalShare Share of requests between 0 and 1 that carry a historical timestamp
+     * @param historyHours How far back historical timestamps may reach
+     * @return Synthetic request mix
+     */
+    public static RequestMix synthetic(Map<String, Integer> cityWeights, Map<String, Integer> vehicleWeights,
+                                       double historicalShare, int historyHours) {
+        String[] cities = expand(cityWeights);
+        String[] vehicles = expand(vehicleWeights);
+
+        return new RequestMix() {
+            @Override
+            public String next() {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                String city = cities[random.nextInt(cities.length)];
+                String vehicle = vehicles[random.nextInt(vehicles.length)];
+
+                String timeStamp = "null";
+                if (random.nextDouble() < historicalShare) {
+                    LocalDateTime time = LocalDateTime.now()
+                            .minusMinutes(random.nextLong(Math.max(historyHours, 1) * 60L))
+                            .truncatedTo(ChronoUnit.SECONDS);
+                    timeStamp = "\"" + time + "\"";
+                }
+
+                return "{\"city\":\"" + city + "\",\"vehicleType\":\"" + vehicle + "\",\"timeStamp\":" + timeStamp + "}";
+            }
+        };
+    }
+
+    /**
+     * Expands a weight map into an array where each key occurs as many times as its weight,
+     * so that a uniform pick from the array honours the weights.
+     */
+    private static String[] expand(Map<String, Integer> weights) {
+        List<String> output = new ArrayList<>();
+        weights.forEach((key, weight) -> {
+            for (int i = 0; i < weight; i++) {
+                output.add(key);
+            }
+        });
+        if (output.isEmpty()) {
+            throw new IllegalArgumentException("Mix must contain at least one entry with a positive weight");
+        }
+        return output.toArray(new String[0]);
+    }
+}
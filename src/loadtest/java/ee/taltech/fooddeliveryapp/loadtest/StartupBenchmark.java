@@ -0,0 +1,130 @@
+package ee.taltech.fooddeliveryapp.loadtest;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Measures the time from launching the application in a fresh JVM to its first successful fee quote.
+ * Run with {@code gradle startupBenchmark --args="..."}.
+ * <p>
+ * Every run starts the application as a child process against an empty in-memory database, with its weather feed
+ * pointed at a local FeedStub, and polls {@code POST /delivery/fee} until it answers with 200. Startup therefore
+ * includes creating the schema and the first weather import.
+ * <p>
+ * Options (all optional, given as {@code --name=value}):
+ * <ul>
+ *     <li>runs - number of launches, default 5</li>
+ *     <li>profile - Spring profile of the application, default prod</li>
+ *     <li>jvm-args - space-separated JVM options of the application, e.g. -Dspring.aot.enabled=true</li>
+ *     <li>classpath - class path of the application, default the class path of the benchmark, empty for none
+ *     when jvm-args already has one</li>
+ *     <li>timeout - seconds to wait for the first quote of a run, default 120</li>
+ * </ul>
+ */
+public class StartupBenchmark {
+    private static final String REQUEST = "{\"city\":\"Tallinn\",\"vehicleType\":\"car\"}";
+    private static final long POLL_INTERVAL_MILLIS = 10;
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parseOptions(args);
+        int runs = Integer.parseInt(options.getOrDefault("runs", "5"));
+        Duration timeout = Duration.ofSeconds(Long.parseLong(options.getOrDefault("timeout", "120")));
+
+        List<Long> results = new ArrayList<>();
+        try (FeedStub stub = new FeedStub(0, 3, 0, 0, FeedStub.FailureMode.STATUS)) {
+            for (int run = 1; run <= runs; run++) {
+                long millis = measure(options, stub.getUrl(), timeout);
+                System.out.printf("run %d: first quote after %d ms%n", run, millis);
+                results.add(millis);
+            }
+        }
+
+        results.sort(null);
+        System.out.printf("time to first quote: min %d ms, median %d ms, max %d ms%n",
+                results.get(0), results.get(results.size() / 2), results.get(results.size() - 1));
+        System.exit(0);
+    }
+
+    private static long measure(Map<String, String> options, String feedUrl, Duration timeout) throws Exception {
+        int port = freePort();
+        List<String> command = new ArrayList<>();
+        command.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+        String jvmArgs = options.getOrDefault("jvm-args", "").trim();
+        if (!jvmArgs.isEmpty()) {
+            command.addAll(Arrays.asList(jvmArgs.split("\\s+")));
+        }
+        String classpath = options.getOrDefault("classpath", System.getProperty("java.class.path"));
+        if (!classpath.isEmpty()) {
+            command.add("-cp");
+            command.add(classpath);
+        }
+        command.add("ee.taltech.fooddeliveryapp.Application");
+        command.add("--spring.profiles.active=" + options.getOrDefault("profile", "prod"));
+        command.add("--server.port=" + port);
+        command.add("--weather.service-url=" + feedUrl);
+        command.add("--spring.datasource.url=jdbc:h2:mem:startup");
+        command.add("--audit.node-id=0");
+
+        HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(1)).build();
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/delivery/fee"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(REQUEST))
+                .build();
+
+        long start = System.nanoTime();
+        Process process = new ProcessBuilder(command)
+                .redirectErrorStream(true)
+                .redirectOutput(new File(System.getProperty("java.io.tmpdir"), "startup-benchmark.log"))
+                .start();
+        try {
+            long deadline = start + timeout.toNanos();
+            while (System.nanoTime() < deadline) {
+                if (!process.isAlive()) {
+                    throw new IllegalStateException("Application exited with status " + process.exitValue());
+                }
+                try {
+                    if (client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode() == 200) {
+                        return (System.nanoTime() - start) / 1_000_000;
+                    }
+                } catch (IOException e) {
+                    // Not listening yet
+                }
+                Thread.sleep(POLL_INTERVAL_MILLIS);
+            }
+            throw new IllegalStateException("No successful quote within " + timeout);
+        } finally {
+            process.destroy();
+            process.waitFor();
+        }
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    private static Map<String, String> parseOptions(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("Options must be given as --name=value, got: " + arg);
+            }
+            int separator = arg.indexOf('=');
+            options.put(arg.substring(2, separator), arg.substring(separator + 1));
+        }
+        return options;
+    }
+}
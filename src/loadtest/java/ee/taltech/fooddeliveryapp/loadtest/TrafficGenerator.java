@@ -0,0 +1,98 @@
+package ee.taltech.fooddeliveryapp.loadtest;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Sends fee requests at a fixed target rate (open loop) and records the outcomes into a LoadTestReport.
+ * Latency is measured from the moment a request was scheduled to be sent rather than from the moment it was
+ * actually sent, so a stalled server shows up in the percentiles instead of silently lowering the send rate.
+ */
+public class TrafficGenerator {
+    private final URI target;
+    private final RequestMix mix;
+    private final int requestsPerSecond;
+    private final int maxInFlight;
+    private final HttpClient client;
+
+    /**
+     * @param baseUrl Base URL of the running application, e.g. http://localhost:8080
+     * @param mix Source of request bodies
+     * @param requestsPerSecond Target send rate
+     * @param maxInFlight Upper bound for requests waiting on a response
+     */
+    public TrafficGenerator(String baseUrl, RequestMix mix, int requestsPerSecond, int maxInFlight) {
+        this.target = URI.create(baseUrl + "/delivery/fee");
+        this.mix = mix;
+        this.requestsPerSecond = requestsPerSecond;
+        this.maxInFlight = maxInFlight;
+        this.client = HttpClient.newBuilder()
+                .executor(Executors.newFixedThreadPool(Math.max(2, Runtime.getRuntime().availableProcessors())))
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+    }
+
+    /**
+     * Sends requests for the given duration and waits for the outstanding ones to finish.
+     *
+     * @param duration How long to keep sending
+     * @param warmup How long to send before recording starts
+     * @return Report of the recorded part of the run
+     * @throws InterruptedException If interrupted while waiting
+     */
+    public LoadTestReport run(Duration duration, Duration warmup) throws InterruptedException {
+        if (!warmup.isZero()) {
+            send(warmup, new LoadTestReport((int) Math.min(Integer.MAX_VALUE - 8,
+                    warmup.toSeconds() * requestsPerSecond + requestsPerSecond)));
+        }
+
+        LoadTestReport report = new LoadTestReport((int) Math.min(Integer.MAX_VALUE - 8,
+                duration.toSeconds() * requestsPerSecond + requestsPerSecond));
+        report.finish(send(duration, report));
+        return report;
+    }
+
+    private long send(Duration duration, LoadTestReport report) throws InterruptedException {
+        Semaphore inFlight = new Semaphore(maxInFlight);
+        long interval = TimeUnit.SECONDS.toNanos(1) / requestsPerSecond;
+        long start = System.nanoTime();
+        long end = start + duration.toNanos();
+
+        for (long scheduled = start; scheduled < end; scheduled += interval) {
+            long wait = scheduled - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            inFlight.acquire();
+
+            long intendedStart = scheduled;
+            HttpRequest request = HttpRequest.newBuilder(target)
+                    .timeout(Duration.ofSeconds(10))
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString(mix.next()))
+                    .build();
+
+            client.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+                    .whenComplete((response, error) -> {
+                        long latency = System.nanoTime() - intendedStart;
+                        if (error != null) {
+                            report.recordTransportError(latency);
+                        } else {
+                            report.recordResponse(response.statusCode(), latency);
+                        }
+                        inFlight.release();
+                    });
+        }
+
+        inFlight.acquire(maxInFlight);
+        inFlight.release(maxInFlight);
+        return System.nanoTime() - start;
+    }
+}
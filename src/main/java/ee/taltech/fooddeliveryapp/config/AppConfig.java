@@ -1,6 +1,9 @@
 package ee.taltech.fooddeliveryapp.config;
 
+import ee.taltech.fooddeliveryapp.scheduler.WeatherFetcher;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
 import org.springframework.scheduling.annotation.EnableScheduling;
 
 /**
@@ -10,4 +13,20 @@ import org.springframework.scheduling.annotation.EnableScheduling;
 @EnableScheduling
 public class AppConfig {
 
+    /**
+     * @return Fetcher of the observations of the weather service
+     */
+    @Bean
+    @Primary
+    public WeatherFetcher weatherFetcher() {
+        return new WeatherFetcher();
+    }
+
+    /**
+     * @return Fetcher of the forecasts, with a circuit breaker and threads apart from the weather service's
+     */
+    @Bean
+    public WeatherFetcher forecastFetcher() {
+        return new WeatherFetcher();
+    }
 }
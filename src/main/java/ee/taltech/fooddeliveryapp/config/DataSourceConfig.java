@@ -0,0 +1,86 @@
+package ee.taltech.fooddeliveryapp.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.util.Map;
+
+/**
+ * Separate connection pools for imports and fee reads, so a long import or retention delete doesn't hold up fee
+ * lookups. Read-only transactions, which include every query method of the repositories, take their connection from
+ * the read pool, everything else from the small write pool. Enabled with {@code weather.datasource.split}.
+ * <p>
+ * Both pools connect to {@code spring.datasource.url} unless {@code weather.datasource.read.url} names a separate
+ * read database.
+ */
+@Configuration
+@ConditionalOnProperty(name = "weather.datasource.split", havingValue = "true")
+public class DataSourceConfig {
+
+    /**
+     * @param properties Connection properties of the database
+     * @param poolSize Number of connections, 1 for a single writer
+     * @param isolation Transaction isolation of the connections, e.g. TRANSACTION_READ_COMMITTED
+     * @return Pool of the connections that write
+     */
+    @Bean
+    public HikariDataSource writeDataSource(
+            DataSourceProperties properties,
+            @Value("${weather.datasource.write.pool-size:1}") int poolSize,
+            @Value("${weather.datasource.write.isolation:TRANSACTION_READ_COMMITTED}") String isolation) {
+        return pool(properties, properties.determineUrl(), poolSize, isolation, "weather-write");
+    }
+
+    /**
+     * @param properties Connection properties of the database
+     * @param url URL of the read database, empty for the database written to
+     * @param poolSize Number of connections
+     * @param isolation Transaction isolation of the connections, e.g. TRANSACTION_READ_COMMITTED
+     * @return Pool of the connections of read-only transactions
+     */
+    @Bean
+    public HikariDataSource readDataSource(
+            DataSourceProperties properties,
+            @Value("${weather.datasource.read.url:}") String url,
+            @Value("${weather.datasource.read.pool-size:10}") int poolSize,
+            @Value("${weather.datasource.read.isolation:TRANSACTION_READ_COMMITTED}") String isolation) {
+        return pool(properties, url.isEmpty() ? properties.determineUrl() : url, poolSize, isolation, "weather-read");
+    }
+
+    /**
+     * @param writeDataSource Pool of the connections that write
+     * @param readDataSource Pool of the connections of read-only transactions
+     * @return Data source used by JPA, Flyway and everything else
+     */
+    @Bean
+    @Primary
+    public DataSource dataSource(@Qualifier("writeDataSource") DataSource writeDataSource,
+                                 @Qualifier("readDataSource") DataSource readDataSource) {
+        ReadWriteRoutingDataSource routing = new ReadWriteRoutingDataSource();
+        routing.setTargetDataSources(Map.of(ReadWriteRoutingDataSource.Route.WRITE, writeDataSource,
+                ReadWriteRoutingDataSource.Route.READ, readDataSource));
+        routing.setDefaultTargetDataSource(writeDataSource);
+        routing.afterPropertiesSet();
+        return new LazyConnectionDataSourceProxy(routing);
+    }
+
+    private static HikariDataSource pool(DataSourceProperties properties, String url, int poolSize,
+                                         String isolation, String name) {
+        HikariDataSource pool = properties.initializeDataSourceBuilder()
+                .type(HikariDataSource.class)
+                .url(url)
+                .build();
+        pool.setPoolName(name);
+        pool.setMaximumPoolSize(Math.max(1, poolSize));
+        pool.setTransactionIsolation(isolation);
+        return pool;
+    }
+}
@@ -1,23 +1,24 @@
 package ee.taltech.fooddeliveryapp.config;
 
-import java.math.BigDecimal;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
 
 /**
  * Holds constants of business rules used for calculating the delivery fee.
+ * Fees are in cents.
  */
 public class DeliveryDataConstants {
-    public static final HashMap<String, BigDecimal> CITY_FEES = new HashMap<>() {{
-        put("tallinn", BigDecimal.ONE);
-        put("tartu", new BigDecimal("0.5"));
-        put("pärnu", BigDecimal.ZERO);
+    public static final long BASE_FEE = 200;
+    public static final HashMap<String, Long> CITY_FEES = new HashMap<>() {{
+        put("tallinn", 100L);
+        put("tartu", 50L);
+        put("pärnu", 0L);
     }};
-    public static final HashMap<String, BigDecimal> VEHICLE_FEES = new HashMap<>() {{
-        put("car", BigDecimal.ONE);
-        put("scooter", new BigDecimal("0.5"));
-        put("bike", BigDecimal.ZERO);
+    public static final HashMap<String, Long> VEHICLE_FEES = new HashMap<>() {{
+        put("car", 100L);
+        put("scooter", 50L);
+        put("bike", 0L);
     }};
     public static final HashMap<String, Integer> WMO_CODES = new HashMap<>() {{
         put("tallinn", WeatherDataConstants.TALLINN_HARKU);
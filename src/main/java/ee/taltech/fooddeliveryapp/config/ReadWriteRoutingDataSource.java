@@ -0,0 +1,25 @@
+package ee.taltech.fooddeliveryapp.config;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Sends the connections of read-only transactions to the read pool and all others to the write pool.
+ * Must be wrapped in a LazyConnectionDataSourceProxy, so the connection is only taken once the transaction has
+ * been marked read-only.
+ */
+public class ReadWriteRoutingDataSource extends AbstractRoutingDataSource {
+
+    /**
+     * Pool a connection is taken from.
+     */
+    public enum Route {
+        READ,
+        WRITE
+    }
+
+    @Override
+    protected Route determineCurrentLookupKey() {
+        return TransactionSynchronizationManager.isCurrentTransactionReadOnly() ? Route.READ : Route.WRITE;
+    }
+}
@@ -0,0 +1,39 @@
+package ee.taltech.fooddeliveryapp.config;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+/**
+ * Stops the application as soon as it is ready when {@code startup.exit-on-ready} is set, for the training run that
+ * records the class data sharing archive. The archive is written when the JVM exits.
+ * <p>
+ * The property is read when the application is ready instead of in a condition, so an AOT build with the property
+ * unset still honours it.
+ */
+@Component
+public class TrainingRunExit {
+    private final ConfigurableApplicationContext context;
+
+    @Value("${startup.exit-on-ready:false}")
+    private boolean exitOnReady;
+
+    @Autowired
+    public TrainingRunExit(ConfigurableApplicationContext context) {
+        this.context = context;
+    }
+
+    /**
+     * Closes the application and exits the JVM if this is a training run.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void exitIfTrainingRun() {
+        if (exitOnReady) {
+            System.exit(SpringApplication.exit(context));
+        }
+    }
+}
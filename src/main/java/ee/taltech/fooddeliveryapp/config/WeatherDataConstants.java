@@ -5,6 +5,7 @@ package ee.taltech.fooddeliveryapp.config;
  *
  * WMO codes for weather stations we're interested in. (Tallinn-Harku, Tartu-Tõravere, and Pärnu)
  * Link to the service that serves weather data
+ * Number of upcoming hours for which fees are precomputed from the forecast
  */
 public class WeatherDataConstants {
     public final static int TALLINN_HARKU = 26038;
@@ -12,4 +13,5 @@ public class WeatherDataConstants {
     public final static int PARNU = 41803;
     public final static int[] WMO_CODES = {TALLINN_HARKU, TARTU_TORAVERE, PARNU};
     public final static String WEATHER_SERVICE = "https://www.ilmateenistus.ee/ilma_andmed/xml/observations.php";
+    public final static int FORECAST_HOURS = 48;
 }
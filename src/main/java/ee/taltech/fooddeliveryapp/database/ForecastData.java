@@ -0,0 +1,83 @@
+package ee.taltech.fooddeliveryapp.database;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.Objects;
+
+/**
+ * Holds a forecast of the weather at a weather station for the hour starting at validFrom.
+ */
+@NoArgsConstructor
+@Getter
+@Setter
+@Entity
+@Table(name = "WEATHER_FORECAST", indexes = @Index(name = "IDX_FORECAST_VALID_FROM", columnList = "validFrom"))
+public class ForecastData {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    private Integer wmoCode;
+    private Double airTemperature;
+    private Double windSpeed;
+    private String weatherPhenomenon;
+    private Long validFrom;
+    private Long issuedAt;
+
+    /**
+     * Constructs a ForecastData object with all fields but the ID set.
+     *
+     * @param wmoCode WMO code of the station
+     * @param airTemperature Forecast air temperature
+     * @param windSpeed Forecast wind speed
+     * @param weatherPhenomenon Any forecast weather phenomena
+     * @param validFrom UNIX time from which the forecast is valid
+     * @param issuedAt UNIX time at which the forecast was issued
+     */
+    public ForecastData(Integer wmoCode, Double airTemperature, Double windSpeed, String weatherPhenomenon,
+                        Long validFrom, Long issuedAt) {
+        this.wmoCode = wmoCode;
+        this.airTemperature = airTemperature;
+        this.windSpeed = windSpeed;
+        this.weatherPhenomenon = weatherPhenomenon;
+        this.validFrom = validFrom;
+        this.issuedAt = issuedAt;
+    }
+
+    /**
+     * Converts the forecast to a WeatherData object, so the fee rules can be applied to it.
+     *
+     * @return Unsaved WeatherData with the forecast values
+     */
+    public WeatherData toWeatherData() {
+        return new WeatherData("Forecast", wmoCode, airTemperature, windSpeed, weatherPhenomenon, validFrom);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        ForecastData that = (ForecastData) o;
+        return Objects.equals(id, that.id) &&
+                Objects.equals(wmoCode, that.wmoCode) &&
+                Objects.equals(airTemperature, that.airTemperature) &&
+                Objects.equals(windSpeed, that.windSpeed) &&
+                Objects.equals(weatherPhenomenon, that.weatherPhenomenon) &&
+                Objects.equals(validFrom, that.validFrom) &&
+                Objects.equals(issuedAt, that.issuedAt);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(id, wmoCode, airTemperature, windSpeed, weatherPhenomenon, validFrom, issuedAt);
+    }
+}
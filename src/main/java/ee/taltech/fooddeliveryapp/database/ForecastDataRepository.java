@@ -0,0 +1,38 @@
+package ee.taltech.fooddeliveryapp.database;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+/**
+ * Interface for the ForecastData object. Provides CRUD operations for manipulating data in the database.
+ */
+@Repository
+public interface ForecastDataRepository extends JpaRepository<ForecastData, Long> {
+
+    /**
+     * Returns all forecasts valid from the given time onward, ordered by the time they are valid from.
+     * The method is auto generated by Spring Boot because of the naming scheme.
+     *
+     * @param validFrom UNIX time from which on forecasts are returned
+     * @return Forecasts in ascending order of validity
+     */
+    List<ForecastData> findByValidFromGreaterThanEqualOrderByValidFromAsc(long validFrom);
+
+    /**
+     * Deletes all forecasts valid from the given time onward, as they are superseded by a newer forecast.
+     * The method is auto generated by Spring Boot because of the naming scheme.
+     *
+     * @param validFrom UNIX time from which on forecasts are deleted
+     */
+    void deleteByValidFromGreaterThanEqual(long validFrom);
+
+    /**
+     * Deletes all forecasts valid before the given time, as they are no longer needed for quoting.
+     * The method is auto generated by Spring Boot because of the naming scheme.
+     *
+     * @param validFrom UNIX time before which forecasts are deleted
+     */
+    void deleteByValidFromLessThan(long validFrom);
+}
@@ -0,0 +1,28 @@
+package ee.taltech.fooddeliveryapp.database;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * A lease on a job that only one node of the cluster may run at a time, like importing the weather.
+ * The node named by holder owns the job until expiresAt, unless it renews the lease before then.
+ */
+@NoArgsConstructor
+@AllArgsConstructor
+@Getter
+@Setter
+@Entity
+@Table(name = "IMPORT_LEASE")
+public class ImportLease {
+    @Id
+    private String name;
+
+    private String holder;
+    private Long expiresAt;
+}
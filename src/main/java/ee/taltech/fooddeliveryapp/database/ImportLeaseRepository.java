@@ -0,0 +1,44 @@
+package ee.taltech.fooddeliveryapp.database;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Interface for the ImportLease object. Provides CRUD operations for manipulating data in the database.
+ */
+@Repository
+public interface ImportLeaseRepository extends JpaRepository<ImportLease, String> {
+
+    /**
+     * Takes or renews a lease in a single conditional update, so of the nodes trying at the same time only one
+     * succeeds. The lease is taken if the node already holds it or if it has expired.
+     *
+     * @param name Name of the lease
+     * @param holder Node trying to take the lease
+     * @param now Current time in UNIX milliseconds
+     * @param expiresAt Time the lease runs out if not renewed, in UNIX milliseconds
+     * @return 1 if the node holds the lease now, 0 otherwise
+     */
+    @Modifying
+    @Transactional
+    @Query("update ImportLease l set l.holder = :holder, l.expiresAt = :expiresAt " +
+            "where l.name = :name and (l.holder = :holder or l.expiresAt < :now)")
+    int acquire(@Param("name") String name, @Param("holder") String holder, @Param("now") long now,
+                @Param("expiresAt") long expiresAt);
+
+    /**
+     * Gives up a lease held by the node, so another node can take it right away.
+     *
+     * @param name Name of the lease
+     * @param holder Node giving up the lease
+     * @return 1 if the node held the lease, 0 otherwise
+     */
+    @Modifying
+    @Transactional
+    @Query("update ImportLease l set l.expiresAt = 0 where l.name = :name and l.holder = :holder")
+    int release(@Param("name") String name, @Param("holder") String holder);
+}
@@ -0,0 +1,67 @@
+package ee.taltech.fooddeliveryapp.database;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Keeps the weather observations in the database, shared by all nodes. The default store.
+ */
+@Component
+@ConditionalOnProperty(name = "weather.store", havingValue = "jpa", matchIfMissing = true)
+public class JpaWeatherStore implements WeatherStore {
+    private final WeatherDataRepository weatherDataRepository;
+
+    @Autowired
+    public JpaWeatherStore(WeatherDataRepository weatherDataRepository) {
+        this.weatherDataRepository = weatherDataRepository;
+    }
+
+    @Override
+    public void saveAll(List<WeatherData> weatherData) {
+        weatherDataRepository.saveAll(weatherData);
+    }
+
+    @Override
+    public WeatherData findLatest(int wmoCode) {
+        return weatherDataRepository.findFirstByWmoCodeOrderByTimeStampDesc(wmoCode);
+    }
+
+    @Override
+    public WeatherReading findLatestReading(int wmoCode) {
+        return weatherDataRepository.findLatestReading(wmoCode);
+    }
+
+    @Override
+    public WeatherReading findLatestReadingBetween(int wmoCode, long start, long end) {
+        return weatherDataRepository.findLatestReadingBetween(wmoCode, start, end);
+    }
+
+    @Override
+    public Stream<WeatherData> streamBetween(int wmoCode, long start, long end) {
+        return weatherDataRepository.streamByWmoCodeAndTimeStampBetween(wmoCode, start, end);
+    }
+
+    @Override
+    public List<WeatherData> findBySnapshotVersion(long snapshotVersion) {
+        return weatherDataRepository.findBySnapshotVersion(snapshotVersion);
+    }
+
+    @Override
+    public List<WeatherData> findBySnapshotVersionGreaterThan(long snapshotVersion) {
+        return weatherDataRepository.findBySnapshotVersionGreaterThanOrderBySnapshotVersionAsc(snapshotVersion);
+    }
+
+    @Override
+    public void deleteBySnapshotVersion(long snapshotVersion) {
+        weatherDataRepository.deleteBySnapshotVersion(snapshotVersion);
+    }
+
+    @Override
+    public void deleteAll() {
+        weatherDataRepository.deleteAll();
+    }
+}
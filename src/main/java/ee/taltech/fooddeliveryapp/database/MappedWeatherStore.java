@@ -0,0 +1,525 @@
+package ee.taltech.fooddeliveryapp.database;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+/**
+ * Keeps the weather observations of this node in an append-only log of fixed-size records in a memory-mapped file,
+ * outside of the Java heap. The heap only holds an index of every station's time stamps in ascending order, so the
+ * latest observation and the observation at a point in time are a binary search and a single record read.
+ * <p>
+ * Station names and weather phenomena are stored once in a string table and referenced by number. Deleting an
+ * import only records its version as deleted, its records are skipped from then on. Imports must be saved one at a
+ * time in ascending order of version, which {@code WeatherDataService} does. Entries without a WMO code or time
+ * stamp can't be looked up and aren't stored.
+ * <p>
+ * Inside a transaction, saving and deleting take part in it: saved records are staged after the end of the log and
+ * only counted, and so found, once the transaction commits; if it rolls back they are dropped, so their version can
+ * be used again. Deleting is only recorded on commit.
+ * <p>
+ * The files are local to the node, so unlike {@link JpaWeatherStore} this store isn't shared by several nodes.
+ * <pre>
+ * observations.dat   i32 magic, i32 record size, i64 record count of committed records, then the records:
+ *                    i32 WMO code, i32 station name, i64 time stamp, f64 air temperature, f64 wind speed,
+ *                    i32 weather phenomenon, i32 unused, i64 snapshot version
+ * strings.dat        u16 length followed by the UTF-8 bytes, numbered from 0 in order
+ * deleted.dat        i64 versions of deleted imports
+ * </pre>
+ * Missing numbers are stored as NaN and missing strings as -1.
+ */
+@Component
+@ConditionalOnProperty(name = "weather.store", havingValue = "mapped")
+public class MappedWeatherStore implements WeatherStore {
+    static final int MAGIC = 0x57535430;
+    static final int HEADER_SIZE = 16;
+    static final int RECORD_SIZE = 48;
+    private static final int COUNT_OFFSET = 8;
+    private static final int INITIAL_CAPACITY = 4096;
+    private static final int NO_STRING = -1;
+
+    private final FileChannel observationsChannel;
+    private final FileChannel stringsChannel;
+    private final FileChannel deletedChannel;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private MappedByteBuffer observations;
+    private int count;
+    /** End of the written records, after count while an import is staged. */
+    private int staged;
+    private final List<String> strings = new ArrayList<>();
+    private final Map<String, Integer> stringIds = new HashMap<>();
+    private final Set<Long> deletedVersions = new HashSet<>();
+    private final Map<Integer, StationIndex> stations = new HashMap<>();
+
+    /**
+     * Opens the store in the directory, creating it if it doesn't exist yet, and indexes the stored observations.
+     *
+     * @param directory Directory of the store's files
+     * @throws UncheckedIOException Thrown when the files can't be read or created
+     * @throws IllegalStateException Thrown when the directory holds files of a different format
+     */
+    @Autowired
+    public MappedWeatherStore(@Value("${weather.store.directory:${user.home}/weather-store}") String directory) {
+        try {
+            Path path = Files.createDirectories(Path.of(directory));
+            observationsChannel = open(path.resolve("observations.dat"));
+            stringsChannel = open(path.resolve("strings.dat"));
+            deletedChannel = open(path.resolve("deleted.dat"));
+            load();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not open the weather store in " + directory, e);
+        }
+    }
+
+    @Override
+    public void saveAll(List<WeatherData> weatherData) {
+        int first;
+        int end;
+        lock.writeLock().lock();
+        try {
+            if (staged != count) {
+                throw new IllegalStateException("Another import is still being saved");
+            }
+            ensureCapacity(count + weatherData.size());
+            first = count;
+            end = first;
+            for (WeatherData data : weatherData) {
+                if (data.getWmoCode() != null && data.getTimeStamp() != null) {
+                    write(end++, data);
+                }
+            }
+            observations.force();
+            staged = end;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not save weather data", e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        onCompletion(() -> commitStaged(first, end), () -> dropStaged(first, end));
+    }
+
+    @Override
+    public WeatherData findLatest(int wmoCode) {
+        lock.readLock().lock();
+        try {
+            int record = findLatestRecord(wmoCode, Long.MIN_VALUE, Long.MAX_VALUE);
+            return record >= 0 ? readWeatherData(record) : null;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public WeatherReading findLatestReading(int wmoCode) {
+        return findLatestReadingBetween(wmoCode, Long.MIN_VALUE, Long.MAX_VALUE);
+    }
+
+    @Override
+    public WeatherReading findLatestReadingBetween(int wmoCode, long start, long end) {
+        lock.readLock().lock();
+        try {
+            int record = findLatestRecord(wmoCode, start, end);
+            return record >= 0 ? readReading(record) : null;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public Stream<WeatherData> streamBetween(int wmoCode, long start, long end) {
+        lock.readLock().lock();
+        try {
+            StationIndex station = stations.get(wmoCode);
+            if (station == null) {
+                return Stream.empty();
+            }
+            List<WeatherData> weatherData = new ArrayList<>();
+            for (int i = station.firstNotBefore(start); i < station.size && station.timeStamps[i] <= end; i++) {
+                if (!isDeleted(station.records[i])) {
+                    weatherData.add(readWeatherData(station.records[i]));
+                }
+            }
+            return weatherData.stream();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<WeatherData> findBySnapshotVersion(long snapshotVersion) {
+        return findByVersion(snapshotVersion, true);
+    }
+
+    @Override
+    public List<WeatherData> findBySnapshotVersionGreaterThan(long snapshotVersion) {
+        return findByVersion(snapshotVersion, false);
+    }
+
+    @Override
+    public void deleteBySnapshotVersion(long snapshotVersion) {
+        onCompletion(() -> recordDeleted(snapshotVersion), () -> { });
+    }
+
+    @Override
+    public void deleteAll() {
+        lock.writeLock().lock();
+        try {
+            count = 0;
+            staged = 0;
+            observations.putLong(COUNT_OFFSET, 0);
+            observations.force();
+            deletedChannel.truncate(0);
+            deletedChannel.force(false);
+            deletedVersions.clear();
+            stations.clear();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not delete weather data", e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Writes the stored observations to disk and closes the files.
+     */
+    @PreDestroy
+    public void close() throws IOException {
+        lock.writeLock().lock();
+        try {
+            observations.force();
+            observationsChannel.close();
+            stringsChannel.close();
+            deletedChannel.close();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Makes the staged records of a committed import visible: indexes them and counts them in the header.
+     */
+    private void commitStaged(int first, int end) {
+        lock.writeLock().lock();
+        try {
+            for (int record = first; record < end; record++) {
+                index(record);
+            }
+            count = end;
+            observations.putLong(COUNT_OFFSET, count);
+            observations.force();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Drops the staged records of an import that didn't commit. They were never counted, so they are overwritten by
+     * the next import, which may reuse their version.
+     */
+    private void dropStaged(int first, int end) {
+        lock.writeLock().lock();
+        try {
+            if (staged == end && count == first) {
+                staged = first;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void recordDeleted(long snapshotVersion) {
+        lock.writeLock().lock();
+        try {
+            if (deletedVersions.add(snapshotVersion)) {
+                ByteBuffer entry = ByteBuffer.allocate(Long.BYTES).putLong(0, snapshotVersion);
+                deletedChannel.write(entry, deletedChannel.size());
+                deletedChannel.force(false);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not delete weather data", e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void load() throws IOException {
+        if (observationsChannel.size() == 0) {
+            observations = observationsChannel.map(FileChannel.MapMode.READ_WRITE, 0,
+                    HEADER_SIZE + (long) INITIAL_CAPACITY * RECORD_SIZE);
+            observations.putInt(0, MAGIC).putInt(4, RECORD_SIZE).putLong(COUNT_OFFSET, 0);
+            observations.force();
+        } else {
+            observations = observationsChannel.map(FileChannel.MapMode.READ_WRITE, 0, observationsChannel.size());
+            if (observations.getInt(0) != MAGIC || observations.getInt(4) != RECORD_SIZE) {
+                throw new IllegalStateException("Not a weather store file of this version");
+            }
+            count = Math.toIntExact(observations.getLong(COUNT_OFFSET));
+        }
+        // Records after the count were staged by an import that never committed
+        staged = count;
+
+        ByteBuffer stringTable = read(stringsChannel);
+        while (stringTable.remaining() >= Short.BYTES) {
+            byte[] bytes = new byte[Short.toUnsignedInt(stringTable.getShort())];
+            if (bytes.length > stringTable.remaining()) {
+                // Cut off while being written, never referenced
+                break;
+            }
+            stringTable.get(bytes);
+            addString(new String(bytes, StandardCharsets.UTF_8));
+        }
+
+        ByteBuffer deleted = read(deletedChannel);
+        while (deleted.remaining() >= Long.BYTES) {
+            deletedVersions.add(deleted.getLong());
+        }
+
+        for (int record = 0; record < count; record++) {
+            index(record);
+        }
+    }
+
+    private void ensureCapacity(int records) throws IOException {
+        long required = HEADER_SIZE + (long) records * RECORD_SIZE;
+        if (required > Integer.MAX_VALUE) {
+            throw new IllegalStateException("Weather store is full");
+        }
+        if (required > observations.capacity()) {
+            long capacity = Math.min(Math.max(required, 2L * observations.capacity()), Integer.MAX_VALUE);
+            observations.force();
+            observations = observationsChannel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+        }
+    }
+
+    private void write(int record, WeatherData data) throws IOException {
+        int position = HEADER_SIZE + record * RECORD_SIZE;
+        observations.putInt(position, data.getWmoCode())
+                .putInt(position + 4, stringId(data.getStationName()))
+                .putLong(position + 8, data.getTimeStamp())
+                .putDouble(position + 16, data.getAirTemperature() != null ? data.getAirTemperature() : Double.NaN)
+                .putDouble(position + 24, data.getWindSpeed() != null ? data.getWindSpeed() : Double.NaN)
+                .putInt(position + 32, stringId(data.getWeatherPhenomenon()))
+                .putInt(position + 36, 0)
+                .putLong(position + 40, data.getSnapshotVersion() != null ? data.getSnapshotVersion() : 0L);
+    }
+
+    private void index(int record) {
+        int position = HEADER_SIZE + record * RECORD_SIZE;
+        stations.computeIfAbsent(observations.getInt(position), wmoCode -> new StationIndex())
+                .add(observations.getLong(position + 8), record);
+    }
+
+    /**
+     * @return Latest record of the station in the range that wasn't deleted, -1 if there is none
+     */
+    private int findLatestRecord(int wmoCode, long start, long end) {
+        StationIndex station = stations.get(wmoCode);
+        if (station == null) {
+            return -1;
+        }
+        for (int i = station.firstAfter(end) - 1; i >= 0 && station.timeStamps[i] >= start; i--) {
+            if (!isDeleted(station.records[i])) {
+                return station.records[i];
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Reads the records of one version or of all newer versions, walking back from the end of the log as far as
+     * the versions are newer.
+     */
+    private List<WeatherData> findByVersion(long snapshotVersion, boolean exact) {
+        lock.readLock().lock();
+        try {
+            List<WeatherData> weatherData = new ArrayList<>();
+            for (int record = count - 1; record >= 0; record--) {
+                long version = version(record);
+                if (version < snapshotVersion || (!exact && version == snapshotVersion)) {
+                    break;
+                }
+                if ((!exact || version == snapshotVersion) && !deletedVersions.contains(version)) {
+                    weatherData.add(readWeatherData(record));
+                }
+            }
+            Collections.reverse(weatherData);
+            return weatherData;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private boolean isDeleted(int record) {
+        return !deletedVersions.isEmpty() && deletedVersions.contains(version(record));
+    }
+
+    private long version(int record) {
+        return observations.getLong(HEADER_SIZE + record * RECORD_SIZE + 40);
+    }
+
+    private WeatherReading readReading(int record) {
+        int position = HEADER_SIZE + record * RECORD_SIZE;
+        return new WeatherReading(number(observations.getDouble(position + 16)),
+                number(observations.getDouble(position + 24)), string(observations.getInt(position + 32)),
+                observations.getLong(position + 8), observations.getLong(position + 40));
+    }
+
+    private WeatherData readWeatherData(int record) {
+        int position = HEADER_SIZE + record * RECORD_SIZE;
+        WeatherData weatherData = new WeatherData(string(observations.getInt(position + 4)),
+                observations.getInt(position), number(observations.getDouble(position + 16)),
+                number(observations.getDouble(position + 24)), string(observations.getInt(position + 32)),
+                observations.getLong(position + 8));
+        weatherData.setSnapshotVersion(observations.getLong(position + 40));
+        return weatherData;
+    }
+
+    private int stringId(String value) throws IOException {
+        if (value == null) {
+            return NO_STRING;
+        }
+        Integer id = stringIds.get(value);
+        if (id != null) {
+            return id;
+        }
+
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > 0xFFFF) {
+            throw new IllegalArgumentException("String too long to store: " + bytes.length + " bytes");
+        }
+        ByteBuffer entry = ByteBuffer.allocate(Short.BYTES + bytes.length).putShort((short) bytes.length).put(bytes);
+        stringsChannel.write(entry.flip(), stringsChannel.size());
+        stringsChannel.force(false);
+        return addString(value);
+    }
+
+    private int addString(String value) {
+        strings.add(value);
+        stringIds.put(value, strings.size() - 1);
+        return strings.size() - 1;
+    }
+
+    private String string(int id) {
+        return id != NO_STRING ? strings.get(id) : null;
+    }
+
+    private static Double number(double value) {
+        return Double.isNaN(value) ? null : value;
+    }
+
+    /**
+     * Runs the commit action once the current transaction commits and the rollback action if it doesn't, or the
+     * commit action right away outside a transaction.
+     */
+    private static void onCompletion(Runnable commit, Runnable rollback) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            commit.run();
+            return;
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                commit.run();
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                if (status != STATUS_COMMITTED) {
+                    rollback.run();
+                }
+            }
+        });
+    }
+
+    private static FileChannel open(Path file) throws IOException {
+        return FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    }
+
+    private static ByteBuffer read(FileChannel channel) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(Math.toIntExact(channel.size()));
+        while (buffer.hasRemaining() && channel.read(buffer, buffer.position()) >= 0) {
+            // Read until full
+        }
+        return buffer.flip();
+    }
+
+    /**
+     * Time stamps of a station in ascending order with their records. Records with the same time stamp are in the
+     * order they were saved, so the latest saved comes last.
+     */
+    private static final class StationIndex {
+        private long[] timeStamps = new long[16];
+        private int[] records = new int[16];
+        private int size;
+
+        void add(long timeStamp, int record) {
+            if (size == timeStamps.length) {
+                timeStamps = Arrays.copyOf(timeStamps, size * 2);
+                records = Arrays.copyOf(records, size * 2);
+            }
+            // Observations mostly arrive in order of time, so this is usually an append
+            int i = size > 0 && timeStamps[size - 1] > timeStamp ? firstAfter(timeStamp) : size;
+            System.arraycopy(timeStamps, i, timeStamps, i + 1, size - i);
+            System.arraycopy(records, i, records, i + 1, size - i);
+            timeStamps[i] = timeStamp;
+            records[i] = record;
+            size++;
+        }
+
+        /**
+         * @return Index of the first time stamp after the given one, size if there is none
+         */
+        int firstAfter(long timeStamp) {
+            return search(timeStamp, true);
+        }
+
+        /**
+         * @return Index of the first time stamp that isn't before the given one, size if there is none
+         */
+        int firstNotBefore(long timeStamp) {
+            return search(timeStamp, false);
+        }
+
+        private int search(long timeStamp, boolean skipEqual) {
+            int low = 0;
+            int high = size;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (timeStamps[middle] < timeStamp || (skipEqual && timeStamps[middle] == timeStamp)) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            return low;
+        }
+    }
+}
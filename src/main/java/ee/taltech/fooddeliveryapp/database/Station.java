@@ -0,0 +1,46 @@
+package ee.taltech.fooddeliveryapp.database;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.Objects;
+
+/**
+ * Holds the name and location of a weather station, as reported by the weather service.
+ */
+@NoArgsConstructor
+@AllArgsConstructor
+@Getter
+@Setter
+@Entity
+@Table(name = "WEATHER_STATION")
+public class Station {
+    @Id
+    private Integer wmoCode;
+
+    private String name;
+    private Double latitude;
+    private Double longitude;
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        Station that = (Station) o;
+        return Objects.equals(wmoCode, that.wmoCode) &&
+                Objects.equals(name, that.name) &&
+                Objects.equals(latitude, that.latitude) &&
+                Objects.equals(longitude, that.longitude);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(wmoCode, name, latitude, longitude);
+    }
+}
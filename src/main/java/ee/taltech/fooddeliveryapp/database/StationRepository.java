@@ -0,0 +1,11 @@
+package ee.taltech.fooddeliveryapp.database;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Interface for the Station object. Provides CRUD operations for manipulating data in the database.
+ */
+@Repository
+public interface StationRepository extends JpaRepository<Station, Integer> {
+}
@@ -4,6 +4,7 @@ import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.Table;
 
 import lombok.NoArgsConstructor;
@@ -19,7 +20,12 @@ import java.util.Objects;
 @Getter
 @Setter
 @Entity
-@Table(name = "WEATHER_DATA")
+@Table(name = "WEATHER_DATA", indexes = {
+        @Index(name = "IDX_WEATHER_SNAPSHOT_VERSION", columnList = "snapshotVersion"),
+        // Covers the reading projections, so they can be answered from the index alone
+        @Index(name = "IDX_WEATHER_STATION_TIME", columnList = "wmoCode, timeStamp, airTemperature, windSpeed, "
+                + "weatherPhenomenon, snapshotVersion")
+})
 public class WeatherData {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -33,6 +39,9 @@ public class WeatherData {
     private String weatherPhenomenon;
     private Long timeStamp;
 
+    /** Version of the import that saved the observation, see WeatherSnapshot. */
+    private Long snapshotVersion;
+
     /**
      * Constructs a WeatherData object with all fields but the ID set.
      *
@@ -64,11 +73,13 @@ public class WeatherData {
                 Objects.equals(airTemperature, that.airTemperature) &&
                 Objects.equals(windSpeed, that.windSpeed) &&
                 Objects.equals(weatherPhenomenon, that.weatherPhenomenon) &&
-                Objects.equals(timeStamp, that.timeStamp);
+                Objects.equals(timeStamp, that.timeStamp) &&
+                Objects.equals(snapshotVersion, that.snapshotVersion);
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(id, stationName, wmoCode, airTemperature, windSpeed, weatherPhenomenon, timeStamp);
+        return Objects.hash(id, stationName, wmoCode, airTemperature, windSpeed, weatherPhenomenon, timeStamp,
+                snapshotVersion);
     }
 }
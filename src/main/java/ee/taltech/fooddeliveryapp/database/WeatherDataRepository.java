@@ -1,9 +1,16 @@
 package ee.taltech.fooddeliveryapp.database;
 
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
+import java.util.stream.Stream;
 
 /**
  * Interface for the WeatherData object. Provides CRUD operations for manipulating data in the database.
@@ -21,14 +28,73 @@ public interface WeatherDataRepository extends JpaRepository<WeatherData, Long>
     WeatherData findFirstByWmoCodeOrderByTimeStampDesc(Integer wmoCode);
 
     /**
-     * Returns the weather data for a given city by the weather station's WMO code.
-     * The weather data returned is from a range between the 2 provided time stamps.
-     * The method is auto generated by Spring Boot because of the naming scheme.
+     * Returns the fields fees are calculated from of the latest observation of a weather station.
      *
      * @param wmoCode WMO code of the weather station
-     * @param start Targeted start time for the weather data
-     * @param end Targeted end time for the weather data
-     * @return Closest matching weather data for the targeted time
+     * @return Latest reading of the station, null if there is none
+     */
+    @Query("select new ee.taltech.fooddeliveryapp.database.WeatherReading(w.airTemperature, w.windSpeed, " +
+            "w.weatherPhenomenon, w.timeStamp, w.snapshotVersion) from WeatherData w " +
+            "where w.wmoCode = :wmoCode order by w.timeStamp desc limit 1")
+    WeatherReading findLatestReading(@Param("wmoCode") Integer wmoCode);
+
+    /**
+     * Returns the fields fees are calculated from of the latest observation of a weather station between the 2
+     * provided time stamps. Served by the station and time index, reading a single row.
+     *
+     * @param wmoCode WMO code of the weather station
+     * @param start Start of the range (inclusive)
+     * @param end End of the range (inclusive)
+     * @return Latest reading of the station in the range, null if there is none
+     */
+    @Query("select new ee.taltech.fooddeliveryapp.database.WeatherReading(w.airTemperature, w.windSpeed, " +
+            "w.weatherPhenomenon, w.timeStamp, w.snapshotVersion) from WeatherData w " +
+            "where w.wmoCode = :wmoCode and w.timeStamp between :start and :end order by w.timeStamp desc limit 1")
+    WeatherReading findLatestReadingBetween(@Param("wmoCode") Integer wmoCode, @Param("start") long start,
+                                            @Param("end") long end);
+
+    /**
+     * Streams the weather data of a weather station between the 2 provided time stamps, oldest first.
+     * Rows are read from the database in batches and returned as detached objects, so the persistence context
+     * doesn't grow with the size of the range. Must be consumed inside a transaction and closed afterwards.
+     *
+     * @param wmoCode WMO code of the weather station
+     * @param start Start of the range (inclusive)
+     * @param end End of the range (inclusive)
+     * @return Weather data in ascending order of time
+     */
+    @Query("select new ee.taltech.fooddeliveryapp.database.WeatherData(w.stationName, w.wmoCode, " +
+            "w.airTemperature, w.windSpeed, w.weatherPhenomenon, w.timeStamp) from WeatherData w " +
+            "where w.wmoCode = :wmoCode and w.timeStamp between :start and :end order by w.timeStamp asc")
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    Stream<WeatherData> streamByWmoCodeAndTimeStampBetween(@Param("wmoCode") Integer wmoCode,
+                                                           @Param("start") long start, @Param("end") long end);
+
+    /**
+     * Returns the weather data saved by one import.
+     * The method is auto generated by Spring Boot because of the naming scheme.
+     *
+     * @param snapshotVersion Version of the import
+     * @return Weather data of the import
+     */
+    List<WeatherData> findBySnapshotVersion(Long snapshotVersion);
+
+    /**
+     * Returns the weather data saved by the imports after the given one, oldest import first.
+     * The method is auto generated by Spring Boot because of the naming scheme.
+     *
+     * @param snapshotVersion Version of the last import already loaded
+     * @return Weather data of the newer imports in ascending order of version
+     */
+    List<WeatherData> findBySnapshotVersionGreaterThanOrderBySnapshotVersionAsc(Long snapshotVersion);
+
+    /**
+     * Deletes the weather data saved by one import.
+     *
+     * @param snapshotVersion Version of the import
+     * @return Number of deleted rows
      */
-    List<WeatherData> findByWmoCodeAndTimeStampBetweenOrderByTimeStampDesc(Integer wmoCode, long start, long end);
+    @Modifying
+    @Query("delete from WeatherData w where w.snapshotVersion = :snapshotVersion")
+    int deleteBySnapshotVersion(@Param("snapshotVersion") Long snapshotVersion);
 }
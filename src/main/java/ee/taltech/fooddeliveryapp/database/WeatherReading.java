@@ -0,0 +1,15 @@
+package ee.taltech.fooddeliveryapp.database;
+
+/**
+ * The fields of a stored weather observation that fees are calculated from. Read by projection queries, which skip
+ * the rest of the columns, entity mapping and the persistence context.
+ *
+ * @param airTemperature Air temperature of the observation
+ * @param windSpeed Wind speed of the observation
+ * @param weatherPhenomenon Any weather phenomena present
+ * @param timeStamp UNIX time the observation was taken
+ * @param snapshotVersion Version of the import that saved the observation
+ */
+public record WeatherReading(Double airTemperature, Double windSpeed, String weatherPhenomenon, Long timeStamp,
+                             Long snapshotVersion) {
+}
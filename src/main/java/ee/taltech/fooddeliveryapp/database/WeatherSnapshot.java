@@ -0,0 +1,32 @@
+package ee.taltech.fooddeliveryapp.database;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * Records one weather import. Every WeatherData row of the import carries its version, so other nodes can tell
+ * from the highest version whether they are behind and load just the rows of the newer imports.
+ * Versions only grow, also when an import is rolled back.
+ */
+@NoArgsConstructor
+@AllArgsConstructor
+@Getter
+@Setter
+@Entity
+@Table(name = "WEATHER_SNAPSHOT")
+public class WeatherSnapshot {
+    @Id
+    private Long version;
+
+    private Long importedAt;
+    private Integer observationCount;
+
+    /** Whether the import was rolled back, in which case its weather data is gone and the version is skipped. */
+    private Boolean rolledBack;
+}
@@ -0,0 +1,61 @@
+package ee.taltech.fooddeliveryapp.database;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+/**
+ * Interface for the WeatherSnapshot object. Provides CRUD operations for manipulating data in the database.
+ */
+@Repository
+public interface WeatherSnapshotRepository extends JpaRepository<WeatherSnapshot, Long> {
+
+    /**
+     * Returns the version of the latest import that wasn't rolled back. Reads a single value through the primary
+     * key index, so it is cheap enough to poll every few seconds.
+     *
+     * @return Latest version, null if nothing was imported yet
+     */
+    @Query("select max(s.version) from WeatherSnapshot s where s.rolledBack is null or s.rolledBack = false")
+    Long findLatestVersion();
+
+    /**
+     * Returns the version of the latest import before the given one that wasn't rolled back.
+     *
+     * @param version Version to look before
+     * @return Previous version, null if there is none
+     */
+    @Query("select max(s.version) from WeatherSnapshot s " +
+            "where s.version < :version and (s.rolledBack is null or s.rolledBack = false)")
+    Long findLatestVersionBefore(@Param("version") long version);
+
+    /**
+     * Returns the highest version ever used, including rolled back imports, so that versions are never reused.
+     *
+     * @return Highest version, null if nothing was imported yet
+     */
+    @Query("select max(s.version) from WeatherSnapshot s")
+    Long findMaxVersion();
+
+    /**
+     * Marks an import as rolled back.
+     *
+     * @param version Version of the import
+     * @return Number of snapshots marked
+     */
+    @Modifying
+    @Query("update WeatherSnapshot s set s.rolledBack = true where s.version = :version")
+    int markRolledBack(@Param("version") long version);
+
+    /**
+     * Returns the 10 latest imports, including rolled back ones.
+     * The method is auto generated by Spring Boot because of the naming scheme.
+     *
+     * @return Imports in descending order of version
+     */
+    List<WeatherSnapshot> findTop10ByOrderByVersionDesc();
+}
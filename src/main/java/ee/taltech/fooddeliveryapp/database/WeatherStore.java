@@ -0,0 +1,78 @@
+package ee.taltech.fooddeliveryapp.database;
+
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Storage of the imported weather observations. The hot lookups are the latest observation of a station and the
+ * latest observation of a station at a point in time, both keyed by WMO code and time stamp.
+ * <p>
+ * The implementation is chosen with {@code weather.store}: {@code jpa} (default) keeps the observations in the
+ * database through {@link WeatherDataRepository}, {@code mapped} in the memory-mapped files of
+ * {@link MappedWeatherStore}.
+ */
+public interface WeatherStore {
+
+    /**
+     * Saves the weather data of an import. The snapshot version of every entry must already be set.
+     *
+     * @param weatherData Weather data to save
+     */
+    void saveAll(List<WeatherData> weatherData);
+
+    /**
+     * @param wmoCode WMO code of the weather station
+     * @return Latest weather data of the station, null if there is none
+     */
+    WeatherData findLatest(int wmoCode);
+
+    /**
+     * @param wmoCode WMO code of the weather station
+     * @return Fields fees are calculated from of the latest observation of the station, null if there is none
+     */
+    WeatherReading findLatestReading(int wmoCode);
+
+    /**
+     * @param wmoCode WMO code of the weather station
+     * @param start Start of the range (inclusive)
+     * @param end End of the range (inclusive)
+     * @return Fields fees are calculated from of the latest observation of the station in the range, null if there
+     * is none
+     */
+    WeatherReading findLatestReadingBetween(int wmoCode, long start, long end);
+
+    /**
+     * Streams the weather data of a weather station between the 2 provided time stamps, oldest first.
+     * Must be consumed inside a transaction and closed afterwards.
+     *
+     * @param wmoCode WMO code of the weather station
+     * @param start Start of the range (inclusive)
+     * @param end End of the range (inclusive)
+     * @return Weather data in ascending order of time
+     */
+    Stream<WeatherData> streamBetween(int wmoCode, long start, long end);
+
+    /**
+     * @param snapshotVersion Version of the import
+     * @return Weather data saved by the import
+     */
+    List<WeatherData> findBySnapshotVersion(long snapshotVersion);
+
+    /**
+     * @param snapshotVersion Version of the last import already loaded
+     * @return Weather data saved by the imports after the given one, oldest import first
+     */
+    List<WeatherData> findBySnapshotVersionGreaterThan(long snapshotVersion);
+
+    /**
+     * Deletes the weather data saved by one import.
+     *
+     * @param snapshotVersion Version of the import
+     */
+    void deleteBySnapshotVersion(long snapshotVersion);
+
+    /**
+     * Deletes all weather data.
+     */
+    void deleteAll();
+}
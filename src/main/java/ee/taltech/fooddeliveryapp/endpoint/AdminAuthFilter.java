@@ -0,0 +1,63 @@
+package ee.taltech.fooddeliveryapp.endpoint;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+
+/**
+ * Lets requests to the {@code /admin} endpoints through only with the token of {@code admin.token} in the
+ * {@code X-Admin-Token} header. They roll imports back, change limits and show the locations of quoted deliveries,
+ * so without a configured token they are turned down altogether.
+ */
+@Component
+public class AdminAuthFilter extends OncePerRequestFilter {
+    static final String TOKEN_HEADER = "X-Admin-Token";
+    private static final String ADMIN_PATH = "/admin";
+
+    private final byte[] token;
+
+    /**
+     * @param token Token admin requests have to send, empty to turn the admin endpoints off
+     */
+    public AdminAuthFilter(@Value("${admin.token:}") String token) {
+        this.token = token.isBlank() ? null : token.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        return !path.equals(ADMIN_PATH) && !path.startsWith(ADMIN_PATH + "/");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        if (token == null) {
+            reject(response, HttpStatus.FORBIDDEN, "Admin endpoints are turned off");
+            return;
+        }
+        String sent = request.getHeader(TOKEN_HEADER);
+        // Compared in constant time, so the token can't be guessed from how long a rejection takes
+        if (sent == null || !MessageDigest.isEqual(token, sent.getBytes(StandardCharsets.UTF_8))) {
+            reject(response, HttpStatus.UNAUTHORIZED, "Admin token missing or wrong");
+            return;
+        }
+        chain.doFilter(request, response);
+    }
+
+    private static void reject(HttpServletResponse response, HttpStatus status, String message) throws IOException {
+        response.setStatus(status.value());
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.getOutputStream().write(("{\"errorMessage\":\"" + message + "\"}").getBytes(StandardCharsets.UTF_8));
+    }
+}
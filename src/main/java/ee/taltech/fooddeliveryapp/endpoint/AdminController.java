@@ -0,0 +1,171 @@
+package ee.taltech.fooddeliveryapp.endpoint;
+
+import ee.taltech.fooddeliveryapp.scheduler.RuntimeConfigWatcher;
+import ee.taltech.fooddeliveryapp.scheduler.WeatherFetcher;
+import ee.taltech.fooddeliveryapp.service.FeeAuditLog;
+import ee.taltech.fooddeliveryapp.service.WeatherDataService;
+import ee.taltech.fooddeliveryapp.service.WeatherEventBus;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * Endpoints for operating the application, guarded by {@link AdminAuthFilter}.
+ */
+@RestController
+@RequestMapping("/admin")
+public class AdminController {
+
+    private final WeatherDataService weatherDataService;
+    private final WeatherFetcher weatherFetcher;
+    private final WeatherEventBus weatherEventBus;
+    private final AdmissionFilter admissionFilter;
+    private final FeeAuditLog feeAuditLog;
+    private final RuntimeConfigWatcher runtimeConfigWatcher;
+
+    @Autowired
+    AdminController(WeatherDataService weatherDataService, WeatherFetcher weatherFetcher,
+                    WeatherEventBus weatherEventBus, AdmissionFilter admissionFilter, FeeAuditLog feeAuditLog,
+                    RuntimeConfigWatcher runtimeConfigWatcher) {
+        this.weatherDataService = weatherDataService;
+        this.weatherFetcher = weatherFetcher;
+        this.weatherEventBus = weatherEventBus;
+        this.admissionFilter = admissionFilter;
+        this.feeAuditLog = feeAuditLog;
+        this.runtimeConfigWatcher = runtimeConfigWatcher;
+    }
+
+    /**
+     * Lists the latest weather snapshots and the version this node is serving.
+     *
+     * @return a ResponseEntity containing the active version and the latest snapshots, newest first
+     */
+    @GetMapping("/snapshots")
+    public ResponseEntity<Object> getSnapshots() {
+        return ResponseEntity.ok(Map.of(
+                "activeVersion", weatherDataService.getSnapshotVersion(),
+                "snapshots", weatherDataService.getRecentSnapshots()));
+    }
+
+    /**
+     * Rolls the latest weather import back to the previous snapshot, on this and every other node.
+     *
+     * @return a ResponseEntity containing the version now in use, or an error message if there is no earlier one
+     */
+    @PostMapping("/snapshots/rollback")
+    public ResponseEntity<Object> rollbackSnapshot() {
+        try {
+            return ResponseEntity.ok(Map.of("activeVersion", weatherDataService.rollbackLatestSnapshot()));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of("errorMessage", e.getMessage()));
+        }
+    }
+
+    /**
+     * Shows how fetching from the weather service has gone on this node.
+     *
+     * @return a ResponseEntity containing the state of the circuit breaker and the counts of fetches
+     */
+    @GetMapping("/upstream")
+    public ResponseEntity<Object> getUpstreamStats() {
+        return ResponseEntity.ok(weatherFetcher.getStats());
+    }
+
+    /**
+     * Shows how the subscribers to weather changes are keeping up on this node.
+     *
+     * @return a ResponseEntity containing the queued, delivered, merged, dropped and failed events of every subscriber
+     */
+    @GetMapping("/events")
+    public ResponseEntity<Object> getEventStats() {
+        return ResponseEntity.ok(weatherEventBus.getStats());
+    }
+
+    /**
+     * Shows the rate and concurrency limits of the delivery endpoints on this node and how often they turned
+     * requests down.
+     *
+     * @return a ResponseEntity containing the limits in use, the current concurrency limit and the request counts
+     */
+    @GetMapping("/admission")
+    public ResponseEntity<Object> getAdmissionStats() {
+        return ResponseEntity.ok(admissionFilter.getStats());
+    }
+
+    /**
+     * Replaces the rate or concurrency limits of the delivery endpoints on this node, without a restart.
+     *
+     * @param limits New limits, either may be left out to keep it
+     * @return a ResponseEntity containing the limits now in use, or an error message if a limit is out of range
+     */
+    @PutMapping("/admission")
+    public ResponseEntity<Object> setAdmissionLimits(@RequestBody AdmissionFilter.AdmissionLimits limits) {
+        try {
+            admissionFilter.setLimits(limits);
+            return ResponseEntity.ok(admissionFilter.getLimits());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("errorMessage", e.getMessage()));
+        }
+    }
+
+    /**
+     * Shows how the audit log of quoted fees is keeping up on this node.
+     *
+     * @return a ResponseEntity containing the queued, written, dropped and failed records
+     */
+    @GetMapping("/audit")
+    public ResponseEntity<Object> getAuditStats() {
+        return ResponseEntity.ok(feeAuditLog.getStats());
+    }
+
+    /**
+     * Looks a quoted fee up in the audit log of this node.
+     *
+     * @param quoteId Quote ID the fee was returned with
+     * @return a ResponseEntity containing the quote and the weather it was calculated from, or an error message if
+     * the node has no record of it
+     */
+    @GetMapping("/audit/{quoteId}")
+    public ResponseEntity<Object> getAuditRecord(@PathVariable long quoteId) {
+        try {
+            return feeAuditLog.find(quoteId)
+                    .<ResponseEntity<Object>>map(ResponseEntity::ok)
+                    .orElseGet(() -> ResponseEntity.status(HttpStatus.NOT_FOUND)
+                            .body(Map.of("errorMessage", "No quote with ID " + quoteId + " on this node")));
+        } catch (IOException e) {
+            return ResponseEntity.internalServerError().body(Map.of("errorMessage", "Audit log can't be read"));
+        }
+    }
+
+    /**
+     * Shows the runtime configuration this node is using and whether the configuration file was last rejected.
+     *
+     * @return a ResponseEntity containing the active configuration version, its settings and the last error
+     */
+    @GetMapping("/config")
+    public ResponseEntity<Object> getConfig() {
+        return ResponseEntity.ok(runtimeConfigWatcher.getStatus());
+    }
+
+    /**
+     * Reads the runtime configuration file right away instead of waiting for it to be noticed, for file systems
+     * that don't report changes.
+     *
+     * @return a ResponseEntity containing the state of the runtime configuration after reading the file
+     */
+    @PostMapping("/config/reload")
+    public ResponseEntity<Object> reloadConfig() {
+        runtimeConfigWatcher.reload();
+        return ResponseEntity.ok(runtimeConfigWatcher.getStatus());
+    }
+}
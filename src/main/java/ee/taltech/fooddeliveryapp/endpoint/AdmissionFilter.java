@@ -0,0 +1,193 @@
+package ee.taltech.fooddeliveryapp.endpoint;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Turns requests to the {@code /delivery} endpoints down with {@code 429 Too Many Requests} before any work is
+ * done for them: requests of a client over its rate, and fee quotes over the adaptive concurrency limit.
+ * <p>
+ * Clients with one of the API keys of {@code admission.api-keys} in the {@code X-Api-Key} header are told apart by
+ * it, every other client by its address. Headers the client chooses freely aren't trusted, as a new value would buy
+ * a fresh burst and push the buckets of other clients out. Behind a load balancer every request comes from the
+ * balancer, so for requests from one of the addresses of {@code admission.trusted-proxies} the client's address is
+ * taken from the {@code X-Forwarded-For} header instead: the last address in it that isn't a trusted proxy.
+ * Only {@code POST /delivery/fee} counts toward the concurrency limit; the streaming endpoints run for as long as
+ * their clients keep sending or listening, which says nothing about how loaded the node is.
+ */
+@Component
+public class AdmissionFilter extends OncePerRequestFilter {
+    static final String API_KEY_HEADER = "X-Api-Key";
+    static final String FORWARDED_FOR_HEADER = "X-Forwarded-For";
+    private static final String LIMITED_PATH = "/delivery/";
+    private static final String FEE_PATH = "/delivery/fee";
+
+    private final RateLimiter rateLimiter;
+    private final ConcurrencyLimiter concurrencyLimiter;
+    private final Set<String> apiKeys;
+    private final Set<String> trustedProxies;
+
+    /**
+     * Limits of both limiters.
+     *
+     * @param rate Limits of every client
+     * @param concurrency Limits of the fee quotes handled at once
+     */
+    public record AdmissionLimits(RateLimiter.Limits rate, ConcurrencyLimiter.Limits concurrency) {
+    }
+
+    /**
+     * @param rate Rate limiting of the clients
+     * @param concurrency Concurrency limiting of the fee quotes
+     */
+    public record AdmissionStats(RateLimiter.Stats rate, ConcurrencyLimiter.Stats concurrency) {
+    }
+
+    @Autowired
+    public AdmissionFilter(@Value("${admission.api-keys:}") String apiKeys,
+                           @Value("${admission.trusted-proxies:}") String trustedProxies,
+                           @Value("${admission.rate.per-second:100}") double ratePerSecond,
+                           @Value("${admission.rate.burst:200}") double burst,
+                           @Value("${admission.rate.max-clients:100000}") int maxClients,
+                           @Value("${admission.concurrency.initial-limit:64}") int initialLimit,
+                           @Value("${admission.concurrency.min-limit:8}") int minLimit,
+                           @Value("${admission.concurrency.max-limit:512}") int maxLimit,
+                           @Value("${admission.concurrency.target-latency:200}") long targetLatency) {
+        this(new RateLimiter(new RateLimiter.Limits(ratePerSecond, burst, maxClients)),
+                new ConcurrencyLimiter(new ConcurrencyLimiter.Limits(initialLimit, minLimit, maxLimit,
+                        targetLatency)),
+                split(apiKeys), split(trustedProxies));
+    }
+
+    /**
+     * @param apiKeys API keys clients are told apart by
+     * @param trustedProxies Addresses of the proxies whose {@code X-Forwarded-For} header is trusted
+     */
+    AdmissionFilter(RateLimiter rateLimiter, ConcurrencyLimiter concurrencyLimiter, Set<String> apiKeys,
+                    Set<String> trustedProxies) {
+        this.rateLimiter = rateLimiter;
+        this.concurrencyLimiter = concurrencyLimiter;
+        this.apiKeys = apiKeys;
+        this.trustedProxies = trustedProxies;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !path(request).startsWith(LIMITED_PATH);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        if (!rateLimiter.tryAcquire(clientId(request))) {
+            double rate = rateLimiter.getLimits().ratePerSecond();
+            reject(response, "Too many requests", (long) Math.ceil(1 / rate));
+            return;
+        }
+        if (!FEE_PATH.equals(path(request))) {
+            chain.doFilter(request, response);
+            return;
+        }
+
+        if (!concurrencyLimiter.tryAcquire()) {
+            reject(response, "Too many requests in progress", 1);
+            return;
+        }
+        long start = System.nanoTime();
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            concurrencyLimiter.release(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * @return Limits in use
+     */
+    public AdmissionLimits getLimits() {
+        return new AdmissionLimits(rateLimiter.getLimits(), concurrencyLimiter.getLimits());
+    }
+
+    /**
+     * Replaces the limits while running. Either of them may be left out to keep it.
+     *
+     * @param limits New limits
+     * @throws IllegalArgumentException Thrown when a limit is out of range
+     */
+    public void setLimits(AdmissionLimits limits) {
+        if (limits.rate() != null) {
+            rateLimiter.setLimits(limits.rate());
+        }
+        if (limits.concurrency() != null) {
+            concurrencyLimiter.setLimits(limits.concurrency());
+        }
+    }
+
+    /**
+     * @return Limits in use and the counts of requests let through and turned down
+     */
+    public AdmissionStats getStats() {
+        return new AdmissionStats(rateLimiter.getStats(), concurrencyLimiter.getStats());
+    }
+
+    private String clientId(HttpServletRequest request) {
+        String apiKey = request.getHeader(API_KEY_HEADER);
+        if (apiKey != null && apiKeys.contains(apiKey)) {
+            return "key:" + apiKey;
+        }
+        return "address:" + clientAddress(request);
+    }
+
+    private String clientAddress(HttpServletRequest request) {
+        String address = request.getRemoteAddr();
+        String forwardedFor = request.getHeader(FORWARDED_FOR_HEADER);
+        if (forwardedFor == null || !trustedProxies.contains(address)) {
+            return address;
+        }
+        // Each proxy appends the address it got the request from, so only the end of the list can be trusted
+        String[] hops = forwardedFor.split(",");
+        for (int i = hops.length - 1; i >= 0; i--) {
+            String hop = hops[i].trim();
+            if (hop.isEmpty()) {
+                break;
+            }
+            address = hop;
+            if (!trustedProxies.contains(hop)) {
+                break;
+            }
+        }
+        return address;
+    }
+
+    private static Set<String> split(String values) {
+        return Arrays.stream(values.split(",")).map(String::trim).filter(value -> !value.isEmpty())
+                .collect(Collectors.toUnmodifiableSet());
+    }
+
+    private static String path(HttpServletRequest request) {
+        return request.getRequestURI().substring(request.getContextPath().length());
+    }
+
+    private static void reject(HttpServletResponse response, String message, long retryAfterSeconds)
+            throws IOException {
+        response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, Long.toString(Math.max(1, retryAfterSeconds)));
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.getOutputStream().write(("{\"errorMessage\":\"" + message + "\"}").getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,128 @@
+package ee.taltech.fooddeliveryapp.endpoint;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Limits the number of requests handled at once, and adapts the limit to how long they take.
+ * <p>
+ * Requests over the limit are turned down right away instead of waiting. While requests finish within the target
+ * latency and at least half of the limit is in use, the limit grows by one with every request. When a request takes
+ * longer, the limit shrinks by a tenth, at most once per target latency so that one slow burst doesn't shrink it all
+ * the way down.
+ */
+public class ConcurrencyLimiter {
+
+    /**
+     * @param initialLimit Limit to start from
+     * @param minLimit Lowest the limit shrinks to
+     * @param maxLimit Highest the limit grows to
+     * @param targetLatencyMillis Time in milliseconds a request may take before the limit shrinks
+     */
+    public record Limits(int initialLimit, int minLimit, int maxLimit, long targetLatencyMillis) {
+    }
+
+    /**
+     * @param limits Limits in use
+     * @param limit Current limit
+     * @param inFlight Requests being handled
+     * @param allowed Requests let through
+     * @param rejected Requests turned down
+     */
+    public record Stats(Limits limits, int limit, int inFlight, long allowed, long rejected) {
+    }
+
+    private final LongSupplier clock;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final LongAdder allowed = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private volatile Limits limits;
+    private volatile int limit;
+    private long lastDecrease;
+
+    /**
+     * @param limits Limits
+     */
+    public ConcurrencyLimiter(Limits limits) {
+        this(limits, System::nanoTime);
+    }
+
+    ConcurrencyLimiter(Limits limits, LongSupplier clock) {
+        this.clock = clock;
+        this.lastDecrease = clock.getAsLong();
+        setLimits(limits);
+    }
+
+    /**
+     * Asks for permission to handle a request, which must be followed by {@link #release(long)} once it is done.
+     *
+     * @return Whether the request may be handled
+     */
+    public boolean tryAcquire() {
+        while (true) {
+            int current = inFlight.get();
+            if (current >= limit) {
+                rejected.increment();
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                allowed.increment();
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Reports a handled request and adapts the limit to its latency.
+     *
+     * @param latencyNanos Time the request took in nanoseconds
+     */
+    public void release(long latencyNanos) {
+        int current = inFlight.getAndDecrement();
+        Limits settings = limits;
+        long target = settings.targetLatencyMillis() * 1_000_000;
+        if (latencyNanos > target) {
+            synchronized (this) {
+                long now = clock.getAsLong();
+                if (now - lastDecrease >= target) {
+                    limit = Math.max(settings.minLimit(), limit * 9 / 10);
+                    lastDecrease = now;
+                }
+            }
+        } else if (current * 2 >= limit && limit < settings.maxLimit()) {
+            synchronized (this) {
+                limit = Math.min(settings.maxLimit(), limit + 1);
+            }
+        }
+    }
+
+    /**
+     * Changes the limits and starts over from the initial limit.
+     *
+     * @param limits New limits
+     * @throws IllegalArgumentException Thrown when the limits are out of range or out of order
+     */
+    public synchronized void setLimits(Limits limits) {
+        if (limits.minLimit() < 1 || limits.initialLimit() < limits.minLimit()
+                || limits.maxLimit() < limits.initialLimit() || limits.targetLatencyMillis() < 1) {
+            throw new IllegalArgumentException("Limits must be 1 <= min <= initial <= max, target latency at least 1");
+        }
+        this.limits = limits;
+        this.limit = limits.initialLimit();
+    }
+
+    /**
+     * @return Limits in use
+     */
+    public Limits getLimits() {
+        return limits;
+    }
+
+    /**
+     * @return Limits in use, the current limit and the counts of requests
+     */
+    public Stats getStats() {
+        return new Stats(limits, limit, inFlight.get(), allowed.sum(), rejected.sum());
+    }
+}
@@ -1,72 +1,312 @@
 package ee.taltech.fooddeliveryapp.endpoint;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import ee.taltech.fooddeliveryapp.config.DeliveryDataConstants;
 import ee.taltech.fooddeliveryapp.exceptions.InvalidTimeStampException;
 import ee.taltech.fooddeliveryapp.service.DeliveryFeeCalculator;
+import ee.taltech.fooddeliveryapp.service.FeeAuditLog;
+import ee.taltech.fooddeliveryapp.service.FeeAuditRecord;
+import ee.taltech.fooddeliveryapp.service.FeeQuote;
+import ee.taltech.fooddeliveryapp.service.SlotWeatherCache;
 import ee.taltech.fooddeliveryapp.exceptions.NoWeatherFoundException;
 import ee.taltech.fooddeliveryapp.exceptions.UnknownCityException;
 import ee.taltech.fooddeliveryapp.exceptions.UnknownVehicleException;
 import ee.taltech.fooddeliveryapp.exceptions.VehicleForbiddenException;
+import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
-import java.math.BigDecimal;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
 
 @RestController
 @RequestMapping("/delivery")
 public class DeliveryFeeController {
+    /** Longest request line accepted by the bulk endpoint, in bytes. */
+    public static final int MAX_LINE_LENGTH = 64 * 1024;
+    /** Number of station slots whose weather the bulk endpoint remembers. */
+    static final int BULK_CACHE_SLOTS = 4096;
 
     private final DeliveryFeeCalculator calculator;
-    private final FeeResponse response;
+    private final ObjectMapper objectMapper;
+    private final FeeAuditLog auditLog;
 
     @Autowired
-    DeliveryFeeController(DeliveryFeeCalculator calculator, FeeResponse response) {
+    DeliveryFeeController(DeliveryFeeCalculator calculator, ObjectMapper objectMapper, FeeAuditLog auditLog) {
         this.calculator = calculator;
-        this.response = response;
+        this.objectMapper = objectMapper;
+        this.auditLog = auditLog;
     }
 
     /**
-     * This method calculates the delivery fee based on the provided FeeRequest object and returns a FeeResponse object.
+     * This method calculates the delivery fee based on the provided FeeRequest object and returns a FeeResponse object
+     * that also tells which weather snapshot the fee was calculated from.
+     * If the request has a delivery location, the weather of the stations nearest to it is used.
+     * Every response has a quote ID, under which the quote and its weather are kept in the {@link FeeAuditLog}, unless
+     * the audit log couldn't take the record.
      *
-     * @param request FeeRequest object containing the city, vehicle type, and timestamp information for the delivery
+     * @param request FeeRequest object containing the city, vehicle type, timestamp and location information for
+     *                the delivery
      * @return a ResponseEntity containing the calculated delivery fee and an error message if an error occurs
      */
     @PostMapping("/fee")
     public ResponseEntity<FeeResponse> calculateFee(@RequestBody FeeRequest request) {
-        try {
-            BigDecimal deliveryFee = calculator.calculateFee(request.getCity(), request.getVehicleType(), request.getTimeStamp());
-            response.setFee(deliveryFee);
-            response.setErrorMessage(null);
+        return quote(request, null);
+    }
+
+    /**
+     * Calculates the delivery fees of a stream of newline-delimited FeeRequest objects and streams a FeeResponse
+     * line back for every request, in the same order, while the requests are still being read. Requests that fail
+     * get a response with their error message, a line that can't be read or isn't a request gets one saying so.
+     * <p>
+     * One request is read at a time and the next one only once the previous response has been written, so a caller
+     * that sends faster than it reads is held back, and memory use doesn't depend on the size of the body. The
+     * weather of past slots is looked up once per station and slot while it is in the cache, so requests sorted or
+     * grouped by time share their lookups.
+     *
+     * @param body Newline-delimited FeeRequest objects, lines of at most {@link #MAX_LINE_LENGTH} bytes
+     * @param response Response to stream the FeeResponse lines to
+     * @throws IOException Thrown when reading the requests or writing the responses fails
+     */
+    @PostMapping(value = "/fee/bulk", consumes = "application/x-ndjson")
+    public void calculateFeesBulk(InputStream body, HttpServletResponse response) throws IOException {
+        response.setContentType(FeeAnalyticsController.APPLICATION_NDJSON.toString());
+        SlotWeatherCache cache = new SlotWeatherCache(BULK_CACHE_SLOTS);
+        OutputStream out = new BufferedOutputStream(response.getOutputStream());
+        LineReader reader = new LineReader(body, out);
 
-            return ResponseEntity.ok(response);
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (line.isBlank() && !reader.isTooLong()) {
+                continue;
+            }
+
+            FeeResponse feeResponse;
+            if (reader.isTooLong()) {
+                feeResponse = error("Request line is too long");
+            } else {
+                try {
+                    // A line of null is valid JSON but no request
+                    FeeRequest request = objectMapper.readValue(line, FeeRequest.class);
+                    feeResponse = request != null ? quote(request, cache).getBody() : error("Malformed request");
+                } catch (JsonProcessingException e) {
+                    feeResponse = error("Malformed request");
+                }
+            }
+            out.write(objectMapper.writeValueAsBytes(feeResponse));
+            out.write('\n');
+        }
+        out.flush();
+    }
+
+    private ResponseEntity<FeeResponse> quote(FeeRequest request, SlotWeatherCache cache) {
+        FeeResponse response = new FeeResponse();
+        FeeQuote quote = null;
+        ResponseEntity<FeeResponse> entity;
+        try {
+            quote = cache == null
+                    ? calculator.quoteFee(request.getCity(), request.getVehicleType(),
+                    request.getTimeStamp(), request.getLatitude(), request.getLongitude())
+                    : calculator.quoteFee(request.getCity(), request.getVehicleType(),
+                    request.getTimeStamp(), request.getLatitude(), request.getLongitude(), cache);
+            response.setFee(quote.fee());
+            response.setSnapshotVersion(quote.snapshotVersion());
+            entity = ResponseEntity.ok(response);
         } catch (UnknownCityException e) {
-            response.setFee(null);
             response.setErrorMessage("Unknown city: " + request.getCity());
-            return ResponseEntity.badRequest().body(response);
+            entity = ResponseEntity.badRequest().body(response);
         } catch (UnknownVehicleException e) {
-            response.setFee(null);
             response.setErrorMessage("Unknown vehicle type: " + request.getVehicleType());
-            return ResponseEntity.badRequest().body(response);
+            entity = ResponseEntity.badRequest().body(response);
         } catch (VehicleForbiddenException e) {
-            response.setFee(null);
             response.setErrorMessage("Usage of selected vehicle type is forbidden");
-            return ResponseEntity.badRequest().body(response);
+            entity = ResponseEntity.badRequest().body(response);
         } catch (InvalidTimeStampException e) {
-            response.setFee(null);
             response.setErrorMessage("No valid weather data for selected time for city: " + request.getCity());
-            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(response);
+            entity = ResponseEntity.status(HttpStatus.NOT_FOUND).body(response);
         } catch (NoWeatherFoundException e) {
-            response.setFee(null);
             response.setErrorMessage("Database contains no weather data for city: " + request.getCity());
-            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(response);
+            entity = ResponseEntity.status(HttpStatus.NOT_FOUND).body(response);
         } catch (Exception e) {
-            response.setFee(null);
             response.setErrorMessage("An unexpected error occurred");
-            return ResponseEntity.internalServerError().body(response);
+            entity = ResponseEntity.internalServerError().body(response);
+        }
+
+        long quoteId = auditLog.nextQuoteId();
+        if (auditLog.record(new FeeAuditRecord(quoteId, System.currentTimeMillis(), request.getCity(),
+                request.getVehicleType(), request.getTimeStamp() != null ? request.getTimeStamp().toString() : null,
+                request.getLatitude(), request.getLongitude(), entity.getStatusCode().value(),
+                quote != null ? quote.feeCents() : 0, quote != null ? quote.observation() : null))) {
+            response.setQuoteId(quoteId);
+        }
+        return entity;
+    }
+
+    /**
+     * Calculates delivery fees like {@link #calculateFee(FeeRequest)} from a body in the binary format of
+     * {@link FeeWireFormat}, chosen with its content type. A body may hold several requests, every one of which
+     * gets a response with its own status and is recorded in the {@link FeeAuditLog}, with its quote ID in the
+     * response unless the audit log couldn't take the record.
+     *
+     * @param body Requests in the binary format
+     * @return a ResponseEntity containing a response for every request, or a bad request status if the body is
+     * malformed
+     */
+    @PostMapping(value = "/fee", consumes = FeeWireFormat.MEDIA_TYPE, produces = FeeWireFormat.MEDIA_TYPE)
+    public ResponseEntity<byte[]> calculateFeeBinary(@RequestBody byte[] body) {
+        List<FeeWireFormat.Request> requests;
+        try {
+            requests = FeeWireFormat.readRequests(body);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        ByteBuffer output = ByteBuffer.allocate(FeeWireFormat.responseSize(requests.size()));
+        for (FeeWireFormat.Request request : requests) {
+            quoteBinary(request, output);
+        }
+        return ResponseEntity.ok().contentType(MediaType.parseMediaType(FeeWireFormat.MEDIA_TYPE))
+                .body(output.array());
+    }
+
+    private void quoteBinary(FeeWireFormat.Request request, ByteBuffer output) {
+        List<String> cities = DeliveryDataConstants.CITY_LIST;
+        List<String> vehicles = DeliveryDataConstants.VEHICLE_TYPE_LIST;
+        FeeQuote quote = null;
+        int status;
+        if (request.city() >= cities.size()) {
+            status = FeeWireFormat.UNKNOWN_CITY;
+        } else if (request.vehicle() >= vehicles.size()) {
+            status = FeeWireFormat.UNKNOWN_VEHICLE;
+        } else {
+            try {
+                quote = calculator.quoteFeeAt(cities.get(request.city()), vehicles.get(request.vehicle()),
+                        request.timeStamp(), request.latitude(), request.longitude());
+                status = FeeWireFormat.OK;
+            } catch (UnknownCityException e) {
+                status = FeeWireFormat.UNKNOWN_CITY;
+            } catch (UnknownVehicleException e) {
+                status = FeeWireFormat.UNKNOWN_VEHICLE;
+            } catch (VehicleForbiddenException e) {
+                status = FeeWireFormat.VEHICLE_FORBIDDEN;
+            } catch (InvalidTimeStampException e) {
+                status = FeeWireFormat.NO_WEATHER_FOR_TIME;
+            } catch (NoWeatherFoundException e) {
+                status = FeeWireFormat.NO_WEATHER;
+            } catch (Exception e) {
+                status = FeeWireFormat.ERROR;
+            }
+        }
+
+        long quoteId = auditLog.nextQuoteId();
+        // IDs out of range are recorded as sent
+        boolean recorded = auditLog.record(new FeeAuditRecord(quoteId, System.currentTimeMillis(),
+                request.city() < cities.size() ? cities.get(request.city()) : String.valueOf(request.city()),
+                request.vehicle() < vehicles.size() ? vehicles.get(request.vehicle())
+                        : String.valueOf(request.vehicle()),
+                request.timeStamp() != null ? request.timeStamp().toString() : null,
+                request.latitude(), request.longitude(), httpStatus(status),
+                quote != null ? quote.feeCents() : 0, quote != null ? quote.observation() : null));
+        FeeWireFormat.writeResponse(output, status, quote != null ? quote.feeCents() : 0,
+                quote != null && quote.snapshotVersion() != null ? quote.snapshotVersion() : 0,
+                recorded ? quoteId : 0);
+    }
+
+    /**
+     * @return HTTP status the JSON endpoint answers a quote of the binary status with, as kept in the audit log
+     */
+    private static int httpStatus(int status) {
+        return switch (status) {
+            case FeeWireFormat.OK -> HttpStatus.OK.value();
+            case FeeWireFormat.UNKNOWN_CITY, FeeWireFormat.UNKNOWN_VEHICLE, FeeWireFormat.VEHICLE_FORBIDDEN ->
+                    HttpStatus.BAD_REQUEST.value();
+            case FeeWireFormat.NO_WEATHER_FOR_TIME, FeeWireFormat.NO_WEATHER -> HttpStatus.NOT_FOUND.value();
+            default -> HttpStatus.INTERNAL_SERVER_ERROR.value();
+        };
+    }
+
+    private static FeeResponse error(String message) {
+        FeeResponse response = new FeeResponse();
+        response.setErrorMessage(message);
+        return response;
+    }
+
+    /**
+     * Reads UTF-8 lines without holding more than {@link #MAX_LINE_LENGTH} bytes of a line. The rest of a longer
+     * line is skipped. Before waiting for more input, the responses written so far are flushed, so a caller that
+     * waits for them before sending more isn't kept waiting.
+     */
+    private static final class LineReader {
+        private final InputStream input;
+        private final Flushable output;
+        private final byte[] buffer = new byte[8192];
+        private final ByteArrayOutputStream line = new ByteArrayOutputStream();
+        private int position;
+        private int limit;
+        private boolean tooLong;
+
+        LineReader(InputStream input, Flushable output) {
+            this.input = input;
+            this.output = output;
+        }
+
+        /**
+         * @return Next line without its line terminator, null at the end of the input. Only part of the line if it
+         * {@link #isTooLong()}
+         */
+        String readLine() throws IOException {
+            line.reset();
+            tooLong = false;
+            while (true) {
+                if (position == limit) {
+                    output.flush();
+                    limit = Math.max(0, input.read(buffer));
+                    position = 0;
+                    if (limit == 0) {
+                        return line.size() > 0 || tooLong ? toLine() : null;
+                    }
+                }
+
+                int start = position;
+                while (position < limit && buffer[position] != '\n') {
+                    position++;
+                }
+                if (!tooLong && line.size() + position - start > MAX_LINE_LENGTH) {
+                    tooLong = true;
+                } else if (!tooLong) {
+                    line.write(buffer, start, position - start);
+                }
+                if (position < limit) {
+                    position++;
+                    return toLine();
+                }
+            }
+        }
+
+        /**
+         * @return Whether the line last read was longer than {@link #MAX_LINE_LENGTH} bytes
+         */
+        boolean isTooLong() {
+            return tooLong;
+        }
+
+        private String toLine() {
+            String output = line.toString(StandardCharsets.UTF_8);
+            return output.endsWith("\r") ? output.substring(0, output.length() - 1) : output;
         }
     }
 }
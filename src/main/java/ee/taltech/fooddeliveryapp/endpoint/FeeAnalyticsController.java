@@ -0,0 +1,227 @@
+package ee.taltech.fooddeliveryapp.endpoint;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import ee.taltech.fooddeliveryapp.exceptions.UnknownCityException;
+import ee.taltech.fooddeliveryapp.exceptions.UnknownVehicleException;
+import ee.taltech.fooddeliveryapp.service.DeliveryFeeCalculator;
+import ee.taltech.fooddeliveryapp.service.FeeAnalyticsService;
+import ee.taltech.fooddeliveryapp.service.FeeRules;
+import ee.taltech.fooddeliveryapp.service.OrderVolumes;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestPart;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/delivery/analytics")
+public class FeeAnalyticsController {
+    public static final MediaType APPLICATION_NDJSON = MediaType.parseMediaType("application/x-ndjson");
+
+    private final FeeAnalyticsService analyticsService;
+    private final DeliveryFeeCalculator calculator;
+    private final ObjectMapper objectMapper;
+
+    @Autowired
+    FeeAnalyticsController(FeeAnalyticsService analyticsService, DeliveryFeeCalculator calculator,
+                           ObjectMapper objectMapper) {
+        this.analyticsService = analyticsService;
+        this.calculator = calculator;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Aggregates what the delivery fee would have been in every hourly slot of the requested range:
+     * average, minimum and maximum fee and how often the vehicle was forbidden, per city and vehicle type.
+     *
+     * @param request Cities, vehicle types and the time range to evaluate
+     * @return a ResponseEntity containing the aggregates or an error message if the request is invalid
+     */
+    @PostMapping("/fees")
+    public ResponseEntity<Object> aggregateFees(@RequestBody FeeAnalyticsRequest request) {
+        try {
+            return ResponseEntity.ok(analyticsService.aggregateFees(request.getCities(), request.getVehicleTypes(),
+                    request.getFrom(), request.getTo()));
+        } catch (UnknownCityException e) {
+            return ResponseEntity.badRequest().body(error("Unknown city: " + e.getMessage()));
+        } catch (UnknownVehicleException e) {
+            return ResponseEntity.badRequest().body(error("Unknown vehicle type: " + e.getMessage()));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(error(e.getMessage()));
+        }
+    }
+
+    /**
+     * Streams the delivery fee of every hourly slot of the requested range as newline-delimited JSON,
+     * one line per city, vehicle type and slot with weather data. The response is written while the stored
+     * observations are read, so ranges of any length can be requested.
+     *
+     * @param request Cities, vehicle types and the time range to evaluate
+     * @return a ResponseEntity streaming the slot fees or an error message if the request is invalid
+     */
+    @PostMapping("/fees/slots")
+    public ResponseEntity<StreamingResponseBody> slotFees(@RequestBody FeeAnalyticsRequest request) {
+        try {
+            analyticsService.validate(request.getCities(), request.getVehicleTypes(),
+                    request.getFrom(), request.getTo());
+        } catch (UnknownCityException e) {
+            return streamedError("Unknown city: " + e.getMessage());
+        } catch (UnknownVehicleException e) {
+            return streamedError("Unknown vehicle type: " + e.getMessage());
+        } catch (IllegalArgumentException e) {
+            return streamedError(e.getMessage());
+        }
+
+        StreamingResponseBody body = outputStream -> {
+            OutputStream out = new BufferedOutputStream(outputStream);
+            try {
+                analyticsService.forEachSlotFee(request.getCities(), request.getVehicleTypes(),
+                        request.getFrom(), request.getTo(), slotFee -> {
+                            try {
+                                out.write(objectMapper.writeValueAsBytes(slotFee));
+                                out.write('\n');
+                            } catch (IOException e) {
+                                throw new UncheckedIOException(e);
+                            }
+                        });
+            } catch (UnknownCityException | UnknownVehicleException e) {
+                // Already validated above
+                throw new IllegalStateException(e);
+            }
+            out.flush();
+        };
+
+        return ResponseEntity.ok().contentType(APPLICATION_NDJSON).body(body);
+    }
+
+    /**
+     * Simulates what variants of the fee rules would have charged in every hourly slot of the requested range,
+     * next to the rules in use: revenue, average fee and how often each vehicle would have been forbidden, per
+     * city and vehicle type and in total. Every slot counts as one order.
+     *
+     * @param request Cities, vehicle types, the time range and the variants of the rules to evaluate
+     * @return a ResponseEntity containing the simulations or an error message if the request is invalid
+     */
+    @PostMapping(value = "/simulation", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<Object> simulate(@RequestBody FeeSimulationRequest request) {
+        return simulate(request, OrderVolumes.UNIFORM);
+    }
+
+    /**
+     * Simulates variants of the fee rules like {@link #simulate(FeeSimulationRequest)}, weighing the fee of every
+     * slot by the orders of an order volume file, see {@link OrderVolumes#parse(BufferedReader)}.
+     *
+     * @param request Cities, vehicle types, the time range and the variants of the rules to evaluate
+     * @param orders CSV file of the orders per slot, every slot counts as one order without it
+     * @return a ResponseEntity containing the simulations or an error message if the request is invalid
+     */
+    @PostMapping(value = "/simulation", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<Object> simulate(@RequestPart("request") FeeSimulationRequest request,
+                                           @RequestPart(value = "orders", required = false) MultipartFile orders) {
+        if (orders == null) {
+            return simulate(request, OrderVolumes.UNIFORM);
+        }
+
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(orders.getInputStream(),
+                StandardCharsets.UTF_8))) {
+            return simulate(request, OrderVolumes.parse(reader));
+        } catch (IOException e) {
+            return ResponseEntity.badRequest().body(error("Order volumes can't be read"));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(error(e.getMessage()));
+        }
+    }
+
+    private ResponseEntity<Object> simulate(FeeSimulationRequest request, OrderVolumes orders) {
+        FeeRules current = calculator.getRules();
+        Map<String, FeeRules> variants = new LinkedHashMap<>();
+        if (request.getVariants() != null) {
+            for (Map.Entry<String, JsonNode> variant : request.getVariants().entrySet()) {
+                try {
+                    variants.put(variant.getKey(), applyChanges(current, variant.getValue()));
+                } catch (JsonProcessingException | IllegalArgumentException e) {
+                    return ResponseEntity.badRequest().body(error("Invalid rules of variant " + variant.getKey()
+                            + ": " + rootMessage(e)));
+                }
+            }
+        }
+
+        try {
+            return ResponseEntity.ok(analyticsService.simulate(request.getCities(), request.getVehicleTypes(),
+                    request.getFrom(), request.getTo(), variants, orders));
+        } catch (UnknownCityException e) {
+            return ResponseEntity.badRequest().body(error("Unknown city: " + e.getMessage()));
+        } catch (UnknownVehicleException e) {
+            return ResponseEntity.badRequest().body(error("Unknown vehicle type: " + e.getMessage()));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(error(e.getMessage()));
+        }
+    }
+
+    /**
+     * Merges changes into rules, field by field. Fields left out keep the value of the rules.
+     *
+     * @throws JsonProcessingException Thrown when the changes don't fit the rules
+     * @throws IllegalArgumentException Thrown when the changes aren't an object
+     */
+    private FeeRules applyChanges(FeeRules rules, JsonNode changes) throws JsonProcessingException {
+        if (changes == null || changes.isNull()) {
+            return rules;
+        } else if (!changes.isObject()) {
+            throw new IllegalArgumentException("Changes must be an object");
+        }
+        ObjectNode merged = objectMapper.valueToTree(rules);
+        merge(merged, changes);
+        return objectMapper.treeToValue(merged, FeeRules.class);
+    }
+
+    private static void merge(ObjectNode target, JsonNode changes) {
+        changes.fields().forEachRemaining(field -> {
+            if (target.get(field.getKey()) instanceof ObjectNode object && field.getValue().isObject()) {
+                merge(object, field.getValue());
+            } else {
+                target.set(field.getKey(), field.getValue());
+            }
+        });
+    }
+
+    /**
+     * @return Message of the innermost cause, which tells which rule is invalid rather than where parsing failed
+     */
+    private static String rootMessage(Exception e) {
+        Throwable cause = e;
+        while (cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        return cause instanceof IllegalArgumentException ? cause.getMessage()
+                : e instanceof JsonProcessingException processing ? processing.getOriginalMessage() : e.getMessage();
+    }
+
+    private ResponseEntity<StreamingResponseBody> streamedError(String message) {
+        return ResponseEntity.badRequest()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(outputStream -> objectMapper.writeValue(outputStream, error(message)));
+    }
+
+    private static Map<String, String> error(String message) {
+        return Map.of("errorMessage", message);
+    }
+}
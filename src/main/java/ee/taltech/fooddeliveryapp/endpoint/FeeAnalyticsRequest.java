@@ -0,0 +1,21 @@
+package ee.taltech.fooddeliveryapp.endpoint;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Represents a request for fee analytics over a time range. Empty city or vehicle type lists select all of them.
+ */
+@Getter
+@Setter
+@AllArgsConstructor
+public class FeeAnalyticsRequest {
+    private List<String> cities;
+    private List<String> vehicleTypes;
+    private LocalDateTime from;
+    private LocalDateTime to;
+}
@@ -2,18 +2,26 @@ package ee.taltech.fooddeliveryapp.endpoint;
 
 import lombok.AllArgsConstructor;
 import lombok.Getter;
+import lombok.NoArgsConstructor;
 import lombok.Setter;
 
 import java.time.LocalDateTime;
 
 /**
- * Represents a request data for a REST endpoint with an optional timestamp field.
+ * Represents a request data for a REST endpoint with an optional timestamp field and an optional delivery location.
  */
 @Getter
 @Setter
+@NoArgsConstructor
 @AllArgsConstructor
 public class FeeRequest {
     private String city;
     private String vehicleType;
     private LocalDateTime timeStamp;
+    private Double latitude;
+    private Double longitude;
+
+    public FeeRequest(String city, String vehicleType, LocalDateTime timeStamp) {
+        this(city, vehicleType, timeStamp, null, null);
+    }
 }
@@ -2,17 +2,18 @@ package ee.taltech.fooddeliveryapp.endpoint;
 
 import lombok.Getter;
 import lombok.Setter;
-import org.springframework.stereotype.Component;
 
 import java.math.BigDecimal;
 
 /**
- * Holds response data for a REST endpoint with a fee amount and error message fields.
+ * Holds response data for a REST endpoint with a fee amount, the weather snapshot version the fee was calculated
+ * from, the ID the quote is kept under in the audit log and error message fields. Created for every request.
  */
 @Getter
 @Setter
-@Component
 public class FeeResponse {
     private BigDecimal fee;
+    private Long snapshotVersion;
     private String errorMessage;
+    private Long quoteId;
 }
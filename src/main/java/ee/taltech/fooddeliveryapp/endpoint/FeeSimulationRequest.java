@@ -0,0 +1,28 @@
+package ee.taltech.fooddeliveryapp.endpoint;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Represents a request to simulate variants of the fee rules over a time range. Each variant is given by name as
+ * the changes to the rules in use, in the shape of {@link ee.taltech.fooddeliveryapp.service.FeeRules}, such as
+ * {@code {"windyAbove": 12}}. Empty city or vehicle type lists select all of them.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class FeeSimulationRequest {
+    private List<String> cities;
+    private List<String> vehicleTypes;
+    private LocalDateTime from;
+    private LocalDateTime to;
+    private Map<String, JsonNode> variants;
+}
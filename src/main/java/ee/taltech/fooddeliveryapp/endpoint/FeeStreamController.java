@@ -0,0 +1,276 @@
+package ee.taltech.fooddeliveryapp.endpoint;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import ee.taltech.fooddeliveryapp.config.DeliveryDataConstants;
+import ee.taltech.fooddeliveryapp.service.FeeChangeBroadcaster;
+import ee.taltech.fooddeliveryapp.service.LiveFee;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayDeque;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Pushes fee changes to clients over server-sent events, so they don't have to poll {@code /delivery/fee}.
+ * <p>
+ * Writing to a stream blocks while the client's connection is full, so events are only queued for every stream,
+ * at most {@code fee-stream.queue-size} of them, and written on {@code fee-stream.send-threads} threads of their
+ * own. Neither the weather event bus nor the scheduler ever waits for a client; a stream whose queue overflows is
+ * ended instead, and its client reconnects.
+ */
+@RestController
+@RequestMapping("/delivery")
+public class FeeStreamController {
+
+    private final FeeChangeBroadcaster broadcaster;
+    private final ObjectMapper objectMapper;
+    private final Executor sender;
+    /** Subscribers by city and vehicle type. */
+    private final Map<String, Set<Subscriber>> subscribers = new ConcurrentHashMap<>();
+    private final Set<Subscriber> connected = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger connections = new AtomicInteger();
+
+    @Value("${fee-stream.max-connections:50000}")
+    private int maxConnections = 50000;
+
+    @Value("${fee-stream.timeout:3600000}")
+    private long timeout = 3600000;
+
+    @Value("${fee-stream.queue-size:32}")
+    private int queueSize = 32;
+
+    @Autowired
+    FeeStreamController(FeeChangeBroadcaster broadcaster, ObjectMapper objectMapper,
+                        @Value("${fee-stream.send-threads:4}") int sendThreads) {
+        this(broadcaster, objectMapper, newExecutor(sendThreads));
+    }
+
+    /**
+     * @param sender Runs the writes to the streams
+     */
+    FeeStreamController(FeeChangeBroadcaster broadcaster, ObjectMapper objectMapper, Executor sender) {
+        this.broadcaster = broadcaster;
+        this.objectMapper = objectMapper;
+        this.sender = sender;
+        broadcaster.addListener(this::broadcast);
+    }
+
+    /**
+     * Opens a stream of the fees of the given cities and vehicle types. The current fee of each is sent right away,
+     * then a {@code fee} event whenever the fee or the forbidden status of one changes after a weather import, with
+     * the snapshot version as its id. The stream ends after {@code fee-stream.timeout} milliseconds, after which
+     * clients reconnect.
+     *
+     * @param subscriptions City and vehicle type pairs, as {@code city:vehicleType}
+     * @return a ResponseEntity with the event stream, a bad request status if a pair is malformed or unknown, or a
+     * service unavailable status if the node has {@code fee-stream.max-connections} streams open already
+     */
+    @GetMapping("/fee/stream")
+    public ResponseEntity<SseEmitter> streamFees(@RequestParam("subscribe") List<String> subscriptions) {
+        Set<String> keys = new LinkedHashSet<>();
+        for (String subscription : subscriptions) {
+            String key = subscription.toLowerCase();
+            String[] pair = key.split(":", -1);
+            if (pair.length != 2 || !DeliveryDataConstants.CITY_LIST.contains(pair[0])
+                    || !DeliveryDataConstants.VEHICLE_TYPE_LIST.contains(pair[1])) {
+                return ResponseEntity.badRequest().build();
+            }
+            keys.add(key);
+        }
+        if (keys.isEmpty()) {
+            return ResponseEntity.badRequest().build();
+        }
+        if (connections.incrementAndGet() > maxConnections) {
+            connections.decrementAndGet();
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+
+        Subscriber subscriber = new Subscriber(new SseEmitter(timeout), List.copyOf(keys));
+        subscriber.emitter.onCompletion(subscriber::close);
+        subscriber.emitter.onTimeout(subscriber::close);
+        subscriber.emitter.onError(e -> subscriber.close());
+        connected.add(subscriber);
+        for (String key : keys) {
+            subscribers.computeIfAbsent(key, k -> ConcurrentHashMap.newKeySet()).add(subscriber);
+        }
+
+        // Sent after subscribing, so a change made meanwhile is either in the current fee or sent after it
+        for (String key : keys) {
+            String[] pair = key.split(":");
+            LiveFee fee = broadcaster.getFee(pair[0], pair[1]);
+            if (fee != null) {
+                subscriber.send(fee, toJson(fee));
+            }
+        }
+        return ResponseEntity.ok(subscriber.emitter);
+    }
+
+    /**
+     * Sends a comment to every stream, so connections that were dropped without closing are noticed and closed.
+     */
+    @Scheduled(fixedDelayString = "${fee-stream.heartbeat-interval:30000}")
+    public void sendHeartbeats() {
+        for (Subscriber subscriber : connected) {
+            subscriber.send(SseEmitter.event().comment("heartbeat"));
+        }
+    }
+
+    /**
+     * Stops the sending threads, events still queued are not sent.
+     */
+    @PreDestroy
+    public void shutdown() {
+        if (sender instanceof ExecutorService executorService) {
+            executorService.shutdownNow();
+        }
+    }
+
+    private void broadcast(List<LiveFee> fees) {
+        for (LiveFee fee : fees) {
+            Set<Subscriber> listening = subscribers.get(fee.city() + ':' + fee.vehicleType());
+            if (listening == null || listening.isEmpty()) {
+                continue;
+            }
+
+            // Serialized once for all subscribers
+            String json = toJson(fee);
+            for (Subscriber subscriber : listening) {
+                subscriber.send(fee, json);
+            }
+        }
+    }
+
+    private String toJson(LiveFee fee) {
+        try {
+            return objectMapper.writeValueAsString(fee);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static ExecutorService newExecutor(int threads) {
+        AtomicInteger count = new AtomicInteger();
+        return Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "fee-stream-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * An open stream, the city and vehicle type pairs it listens to and the events waiting to be written to it.
+     */
+    private final class Subscriber {
+        private final SseEmitter emitter;
+        private final List<String> keys;
+        private final AtomicBoolean closed = new AtomicBoolean();
+        private final ArrayDeque<SseEmitter.SseEventBuilder> queue = new ArrayDeque<>();
+        private boolean draining;
+        /** Whether the stream is ended once the events written before are, because it fell behind. */
+        private boolean ending;
+
+        Subscriber(SseEmitter emitter, List<String> keys) {
+            this.emitter = emitter;
+            this.keys = keys;
+        }
+
+        void send(LiveFee fee, String json) {
+            send(SseEmitter.event().name("fee").id(Long.toString(fee.snapshotVersion())).data(json));
+        }
+
+        /**
+         * Queues an event to be written, without waiting for it. Ends the stream if its queue is full.
+         */
+        void send(SseEmitter.SseEventBuilder event) {
+            synchronized (this) {
+                if (closed.get()) {
+                    return;
+                }
+                if (queue.size() < queueSize) {
+                    queue.addLast(event);
+                } else {
+                    // The client doesn't keep up, its fees would only get older
+                    queue.clear();
+                    ending = true;
+                    close();
+                }
+                if (draining) {
+                    return;
+                }
+                draining = true;
+            }
+
+            try {
+                sender.execute(this::drain);
+            } catch (RejectedExecutionException e) {
+                synchronized (this) {
+                    draining = false;
+                }
+            }
+        }
+
+        private void drain() {
+            while (true) {
+                SseEmitter.SseEventBuilder event;
+                boolean end;
+                synchronized (this) {
+                    event = queue.pollFirst();
+                    end = event == null && ending;
+                    if (event == null) {
+                        draining = false;
+                    }
+                }
+
+                if (end) {
+                    // Completed here rather than where it overflowed, as it waits for a write still blocked
+                    emitter.complete();
+                }
+                if (event == null) {
+                    return;
+                }
+                try {
+                    emitter.send(event);
+                } catch (IOException | IllegalStateException e) {
+                    // The connection is gone, the container completes the stream
+                    close();
+                }
+            }
+        }
+
+        void close() {
+            if (!closed.compareAndSet(false, true)) {
+                return;
+            }
+            connected.remove(this);
+            for (String key : keys) {
+                Set<Subscriber> listening = subscribers.get(key);
+                if (listening != null) {
+                    listening.remove(this);
+                }
+            }
+            connections.decrementAndGet();
+        }
+    }
+}
@@ -0,0 +1,191 @@
+package ee.taltech.fooddeliveryapp.endpoint;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compact binary alternative to the JSON fee request and response, for internal callers quoting fees in bulk.
+ * <p>
+ * A body is a sequence of frames, each an unsigned 16-bit payload length followed by the payload, all big-endian.
+ * A request body may hold up to {@link #MAX_REQUESTS} requests, and the response holds one response per request in
+ * the same order. Payloads may be longer than described here; readers skip the bytes they don't know.
+ * <pre>
+ * request payload (27 bytes)         response payload (21 bytes)
+ *   u8   city ID                       u8   status
+ *   u8   vehicle ID                    i32  fee in cents, 0 unless the status is OK
+ *   u8   flags                         i64  snapshot version, 0 if none
+ *   i64  timestamp, UNIX seconds       i64  quote ID in the audit log, 0 if none
+ *   f64  latitude
+ *   f64  longitude
+ * </pre>
+ * City IDs are 0 Tallinn, 1 Tartu and 2 Pärnu, vehicle IDs 0 car, 1 scooter and 2 bike. The timestamp is only read
+ * if flag {@link #HAS_TIMESTAMP} is set, the location only if flag {@link #HAS_LOCATION} is set. Responses of servers
+ * from before quote IDs end after the snapshot version; their quote ID is read as 0.
+ */
+public final class FeeWireFormat {
+    public static final String MEDIA_TYPE = "application/x-fee-quote";
+    public static final int MAX_REQUESTS = 1024;
+
+    public static final int HAS_TIMESTAMP = 1;
+    public static final int HAS_LOCATION = 2;
+
+    public static final int OK = 0;
+    public static final int UNKNOWN_CITY = 1;
+    public static final int UNKNOWN_VEHICLE = 2;
+    public static final int VEHICLE_FORBIDDEN = 3;
+    public static final int NO_WEATHER_FOR_TIME = 4;
+    public static final int NO_WEATHER = 5;
+    public static final int ERROR = 6;
+
+    static final int REQUEST_LENGTH = 27;
+    static final int RESPONSE_LENGTH = 21;
+    /** Length of a response without the quote ID. */
+    static final int MIN_RESPONSE_LENGTH = 13;
+    private static final int LENGTH_PREFIX = 2;
+
+    private FeeWireFormat() {
+    }
+
+    /**
+     * A decoded fee request.
+     *
+     * @param city City ID
+     * @param vehicle Vehicle ID
+     * @param timeStamp UNIX time of the delivery in seconds, null for the latest weather
+     * @param latitude Latitude of the delivery location, null without a location
+     * @param longitude Longitude of the delivery location, null without a location
+     */
+    public record Request(int city, int vehicle, Long timeStamp, Double latitude, Double longitude) {
+    }
+
+    /**
+     * A decoded fee response.
+     *
+     * @param status Status of the quote, {@link #OK} or one of the error statuses
+     * @param feeCents Calculated fee in cents
+     * @param snapshotVersion Version of the weather import the fee was calculated from, 0 if none
+     * @param quoteId ID the quote is kept under in the audit log, 0 if none
+     */
+    public record Response(int status, int feeCents, long snapshotVersion, long quoteId) {
+    }
+
+    /**
+     * @param body Request body
+     * @return Requests of the body in order
+     * @throws IllegalArgumentException Thrown when the body is cut off, a payload is too short or there are too
+     * many requests
+     */
+    public static List<Request> readRequests(byte[] body) {
+        ByteBuffer buffer = ByteBuffer.wrap(body);
+        List<Request> requests = new ArrayList<>();
+        try {
+            while (buffer.hasRemaining()) {
+                if (requests.size() == MAX_REQUESTS) {
+                    throw new IllegalArgumentException("More than " + MAX_REQUESTS + " requests");
+                }
+                int end = payloadEnd(buffer, REQUEST_LENGTH);
+
+                int city = Byte.toUnsignedInt(buffer.get());
+                int vehicle = Byte.toUnsignedInt(buffer.get());
+                int flags = Byte.toUnsignedInt(buffer.get());
+                long timeStamp = buffer.getLong();
+                double latitude = buffer.getDouble();
+                double longitude = buffer.getDouble();
+                buffer.position(end);
+
+                boolean located = (flags & HAS_LOCATION) != 0;
+                requests.add(new Request(city, vehicle, (flags & HAS_TIMESTAMP) != 0 ? timeStamp : null,
+                        located ? latitude : null, located ? longitude : null));
+            }
+        } catch (BufferUnderflowException e) {
+            throw new IllegalArgumentException("Request body is cut off");
+        }
+        return requests;
+    }
+
+    /**
+     * Writes a request, for callers of the binary endpoint.
+     *
+     * @param buffer Buffer with room for {@link #requestSize(int)} of one request
+     * @param request Request to write
+     */
+    public static void writeRequest(ByteBuffer buffer, Request request) {
+        int flags = (request.timeStamp() != null ? HAS_TIMESTAMP : 0)
+                | (request.latitude() != null && request.longitude() != null ? HAS_LOCATION : 0);
+        buffer.putShort((short) REQUEST_LENGTH)
+                .put((byte) request.city())
+                .put((byte) request.vehicle())
+                .put((byte) flags)
+                .putLong(request.timeStamp() != null ? request.timeStamp() : 0L)
+                .putDouble((flags & HAS_LOCATION) != 0 ? request.latitude() : 0.0)
+                .putDouble((flags & HAS_LOCATION) != 0 ? request.longitude() : 0.0);
+    }
+
+    /**
+     * @param buffer Buffer with room for {@link #responseSize(int)} of one response
+     * @param status Status of the quote
+     * @param feeCents Calculated fee in cents
+     * @param snapshotVersion Version of the weather import, 0 if none
+     * @param quoteId ID of the quote in the audit log, 0 if none
+     */
+    public static void writeResponse(ByteBuffer buffer, int status, long feeCents, long snapshotVersion,
+                                     long quoteId) {
+        buffer.putShort((short) RESPONSE_LENGTH)
+                .put((byte) status)
+                .putInt(Math.toIntExact(feeCents))
+                .putLong(snapshotVersion)
+                .putLong(quoteId);
+    }
+
+    /**
+     * Reads the responses, for callers of the binary endpoint.
+     *
+     * @param body Response body
+     * @return Responses of the body in order
+     * @throws IllegalArgumentException Thrown when the body is cut off or a payload is too short
+     */
+    public static List<Response> readResponses(byte[] body) {
+        ByteBuffer buffer = ByteBuffer.wrap(body);
+        List<Response> responses = new ArrayList<>();
+        try {
+            while (buffer.hasRemaining()) {
+                int end = payloadEnd(buffer, MIN_RESPONSE_LENGTH);
+                int status = Byte.toUnsignedInt(buffer.get());
+                int feeCents = buffer.getInt();
+                long snapshotVersion = buffer.getLong();
+                long quoteId = end - buffer.position() >= Long.BYTES ? buffer.getLong() : 0;
+                responses.add(new Response(status, feeCents, snapshotVersion, quoteId));
+                buffer.position(end);
+            }
+        } catch (BufferUnderflowException e) {
+            throw new IllegalArgumentException("Response body is cut off");
+        }
+        return responses;
+    }
+
+    /**
+     * @param count Number of requests
+     * @return Size in bytes of a body with the requests
+     */
+    public static int requestSize(int count) {
+        return count * (LENGTH_PREFIX + REQUEST_LENGTH);
+    }
+
+    /**
+     * @param count Number of responses
+     * @return Size in bytes of a body with the responses
+     */
+    public static int responseSize(int count) {
+        return count * (LENGTH_PREFIX + RESPONSE_LENGTH);
+    }
+
+    private static int payloadEnd(ByteBuffer buffer, int minLength) {
+        int length = Short.toUnsignedInt(buffer.getShort());
+        if (length < minLength || length > buffer.remaining()) {
+            throw new IllegalArgumentException("Invalid payload length " + length);
+        }
+        return buffer.position() + length;
+    }
+}
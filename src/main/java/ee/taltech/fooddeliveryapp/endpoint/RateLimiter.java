@@ -0,0 +1,161 @@
+package ee.taltech.fooddeliveryapp.endpoint;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Token buckets of the clients of the application. Every client may make {@code burst} requests at once and then
+ * {@code ratePerSecond} requests a second.
+ * <p>
+ * The buckets are spread over a fixed number of stripes by client, each with a lock of its own, so requests of
+ * different clients rarely wait for each other. A stripe keeps at most its share of {@code maxClients} buckets and
+ * evicts the least recently used one beyond that; an evicted client starts over with a full bucket.
+ */
+public class RateLimiter {
+    private static final int STRIPES = 64;
+
+    /**
+     * Limits of every client.
+     *
+     * @param ratePerSecond Requests a second, 0 turns the limit off
+     * @param burst Requests that may be made at once
+     * @param maxClients Number of clients whose buckets are kept
+     */
+    public record Limits(double ratePerSecond, double burst, int maxClients) {
+    }
+
+    /**
+     * @param limits Limits in use
+     * @param clients Number of clients whose buckets are kept
+     * @param allowed Requests let through
+     * @param rejected Requests turned down
+     * @param evicted Buckets evicted
+     */
+    public record Stats(Limits limits, int clients, long allowed, long rejected, long evicted) {
+    }
+
+    private final LongSupplier clock;
+    private final Stripe[] stripes = new Stripe[STRIPES];
+    private final LongAdder allowed = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder evicted = new LongAdder();
+    private volatile Limits limits;
+
+    /**
+     * @param limits Limits of every client
+     */
+    public RateLimiter(Limits limits) {
+        this(limits, System::nanoTime);
+    }
+
+    RateLimiter(Limits limits, LongSupplier clock) {
+        this.clock = clock;
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Stripe();
+        }
+        setLimits(limits);
+    }
+
+    /**
+     * Takes a token from the client's bucket.
+     *
+     * @param clientId Client making the request
+     * @return Whether the request may be made
+     */
+    public boolean tryAcquire(String clientId) {
+        Limits current = limits;
+        if (current.ratePerSecond() <= 0) {
+            allowed.increment();
+            return true;
+        }
+
+        int hash = clientId.hashCode();
+        Stripe stripe = stripes[(hash ^ (hash >>> 16)) & (STRIPES - 1)];
+        long now = clock.getAsLong();
+        boolean permitted;
+        synchronized (stripe) {
+            Bucket bucket = stripe.get(clientId);
+            if (bucket == null) {
+                bucket = new Bucket(current.burst(), now);
+                stripe.put(clientId, bucket);
+            }
+            permitted = bucket.tryTake(current, now);
+        }
+
+        (permitted ? allowed : rejected).increment();
+        return permitted;
+    }
+
+    /**
+     * Changes the limits. Buckets keep their tokens, up to the new burst.
+     *
+     * @param limits New limits
+     * @throws IllegalArgumentException Thrown when a limit is out of range
+     */
+    public void setLimits(Limits limits) {
+        if (limits.ratePerSecond() < 0 || limits.burst() < 1 || limits.maxClients() < 1) {
+            throw new IllegalArgumentException("Rate must not be negative, burst and clients must be at least 1");
+        }
+        this.limits = limits;
+    }
+
+    /**
+     * @return Limits in use
+     */
+    public Limits getLimits() {
+        return limits;
+    }
+
+    /**
+     * @return Limits in use and the counts of requests and buckets
+     */
+    public Stats getStats() {
+        int clients = 0;
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                clients += stripe.size();
+            }
+        }
+        return new Stats(limits, clients, allowed.sum(), rejected.sum(), evicted.sum());
+    }
+
+    /**
+     * Buckets of some of the clients, least recently used first.
+     */
+    private final class Stripe extends LinkedHashMap<String, Bucket> {
+        Stripe() {
+            super(16, 0.75f, true);
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Bucket> eldest) {
+            if (size() > Math.max(1, limits.maxClients() / STRIPES)) {
+                evicted.increment();
+                return true;
+            }
+            return false;
+        }
+    }
+
+    private static final class Bucket {
+        private double tokens;
+        private long refilledAt;
+
+        Bucket(double tokens, long refilledAt) {
+            this.tokens = tokens;
+            this.refilledAt = refilledAt;
+        }
+
+        boolean tryTake(Limits limits, long now) {
+            tokens = Math.min(limits.burst(), tokens + (now - refilledAt) * limits.ratePerSecond() / 1e9);
+            refilledAt = now;
+            if (tokens < 1) {
+                return false;
+            }
+            tokens--;
+            return true;
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package ee.taltech.fooddeliveryapp.exceptions;
+
+/**
+ * Thrown when the weather service could not be fetched from, or its response could not be read.
+ */
+public class UpstreamUnavailableException extends Throwable {
+    private final String message;
+    private final Throwable cause;
+
+    public UpstreamUnavailableException(String message) {
+        this(message, null);
+    }
+
+    public UpstreamUnavailableException(String message, Throwable cause) {
+        this.message = message;
+        this.cause = cause;
+    }
+
+    @Override
+    public Throwable getCause() {
+        return cause;
+    }
+
+    @Override
+    public String getMessage() {
+        return message;
+    }
+}
@@ -0,0 +1,91 @@
+package ee.taltech.fooddeliveryapp.scheduler;
+
+import java.util.function.LongSupplier;
+
+/**
+ * Stops calling an upstream service after it has failed repeatedly.
+ * <p>
+ * The breaker starts closed. After {@code failureThreshold} failures in a row it opens and turns every call down
+ * for {@code openDuration} milliseconds. Then it lets a single probe call through (half-open): if the probe
+ * succeeds the breaker closes again, if it fails the breaker opens for another period.
+ */
+public class CircuitBreaker {
+
+    /**
+     * States of the breaker.
+     */
+    public enum State {
+        /** Calls go through. */
+        CLOSED,
+        /** Calls are turned down until the open period ends. */
+        OPEN,
+        /** A single probe call is going through. */
+        HALF_OPEN
+    }
+
+    private final int failureThreshold;
+    private final long openDuration;
+    private final LongSupplier clock;
+
+    private State state = State.CLOSED;
+    private int consecutiveFailures;
+    private long openedAt;
+
+    /**
+     * @param failureThreshold Number of failures in a row after which the breaker opens
+     * @param openDuration Time in milliseconds the breaker stays open before it lets a probe through
+     */
+    public CircuitBreaker(int failureThreshold, long openDuration) {
+        this(failureThreshold, openDuration, System::currentTimeMillis);
+    }
+
+    CircuitBreaker(int failureThreshold, long openDuration, LongSupplier clock) {
+        this.failureThreshold = Math.max(1, failureThreshold);
+        this.openDuration = openDuration;
+        this.clock = clock;
+    }
+
+    /**
+     * Asks for permission to make a call. Once the open period has ended, the first caller is let through as the
+     * probe and everyone else is turned down until the probe reports back.
+     *
+     * @return Whether the call may be made
+     */
+    public synchronized boolean tryAcquirePermission() {
+        if (state == State.CLOSED) {
+            return true;
+        }
+        if (state == State.OPEN && clock.getAsLong() - openedAt >= openDuration) {
+            state = State.HALF_OPEN;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Reports a successful call, which closes the breaker.
+     */
+    public synchronized void onSuccess() {
+        consecutiveFailures = 0;
+        state = State.CLOSED;
+    }
+
+    /**
+     * Reports a failed call. Opens the breaker if the probe failed or too many calls have failed in a row.
+     */
+    public synchronized void onFailure() {
+        consecutiveFailures++;
+        if (state == State.HALF_OPEN || consecutiveFailures >= failureThreshold) {
+            state = State.OPEN;
+            openedAt = clock.getAsLong();
+        }
+    }
+
+    /**
+     * @return Current state of the breaker, an open breaker whose period has ended still reads as open until the
+     * next call asks for permission
+     */
+    public synchronized State getState() {
+        return state;
+    }
+}
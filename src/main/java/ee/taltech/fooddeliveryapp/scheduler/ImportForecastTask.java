@@ -0,0 +1,178 @@
+package ee.taltech.fooddeliveryapp.scheduler;
+
+import ee.taltech.fooddeliveryapp.database.ForecastData;
+import ee.taltech.fooddeliveryapp.service.DeliveryFeeCalculator;
+import ee.taltech.fooddeliveryapp.service.ForecastService;
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.w3c.dom.Document;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+
+import javax.xml.xpath.XPath;
+import javax.xml.xpath.XPathConstants;
+import javax.xml.xpath.XPathExpressionException;
+import javax.xml.xpath.XPathFactory;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static java.util.function.Predicate.not;
+
+/**
+ * Imports hourly weather forecasts for the weather stations and precomputes the fees for the upcoming hours.
+ * <p>
+ * The forecast provider is configured with {@code weather.forecast-url}; without it forecast importing is
+ * disabled and future timestamps are handled like before. The provider serves a document of the form
+ * <pre>
+ * &lt;forecasts issued="1678818585"&gt;
+ *     &lt;station&gt;
+ *         &lt;wmocode&gt;26038&lt;/wmocode&gt;
+ *         &lt;forecast validfrom="1678820400"&gt;
+ *             &lt;phenomenon&gt;Light rain&lt;/phenomenon&gt;
+ *             &lt;airtemperature&gt;3.1&lt;/airtemperature&gt;
+ *             &lt;windspeed&gt;5.2&lt;/windspeed&gt;
+ *         &lt;/forecast&gt;
+ *     &lt;/station&gt;
+ * &lt;/forecasts&gt;
+ * </pre>
+ * with one forecast element per station and hour.
+ * <p>
+ * The forecast is downloaded through a {@link WeatherFetcher} of its own, with the same timeouts and limits as the
+ * observations but a separate circuit breaker, so a stalled provider holds up neither the scheduler nor the
+ * observation imports.
+ */
+@Getter
+@Setter
+@Component
+@Lazy(false)
+public class ImportForecastTask {
+
+    private final ForecastService forecastService;
+    private final DeliveryFeeCalculator calculator;
+    private final WeatherFetcher forecastFetcher;
+
+    @Value("${weather.forecast-url:}")
+    private String forecastServiceUrl = "";
+
+    @Autowired
+    public ImportForecastTask(ForecastService forecastService, DeliveryFeeCalculator calculator,
+                              @Qualifier("forecastFetcher") WeatherFetcher forecastFetcher) {
+        this.forecastService = forecastService;
+        this.calculator = calculator;
+        this.forecastFetcher = forecastFetcher;
+    }
+
+    /**
+     * Imports the forecast in the background once the application is ready, so future quotes are available soon
+     * without the startup waiting for the forecast provider.
+     * A failing forecast provider is retried on the next scheduled run.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void initializeForecast() {
+        updateForecast();
+    }
+
+    /**
+     * Gets the forecast document from the configured provider through the forecast fetcher, saves the forecasts
+     * into the database and precomputes the fees from them. Does nothing if no provider is configured.
+     * Returns right away, the import runs on a fetch thread. A failing forecast provider is retried on the next
+     * scheduled run, and the fees of the previous forecast stay in use until then.
+     */
+    @Scheduled(cron = "${weather.forecast-cron:0 20 * * * *}")
+    public void updateForecast() {
+        if (forecastServiceUrl == null || forecastServiceUrl.isEmpty()) {
+            return;
+        }
+
+        forecastFetcher.fetch(forecastServiceUrl, this::parseXML).thenAccept(this::saveForecasts);
+    }
+
+    /**
+     * Gets a forecast XML file as input. Then parses it, saves ForecastData into the database and precomputes
+     * the fees for the upcoming hours. Meant for testing as you can pass in a file as input.
+     *
+     * @param doc XML file to parse
+     */
+    public void updateForecast(Document doc) {
+        saveForecasts(parseXML(doc));
+    }
+
+    private void saveForecasts(List<ForecastData> forecasts) {
+        forecastService.saveAllForecastData(forecasts);
+        calculator.precomputeForecastFees(forecastService.getUpcomingForecasts(Instant.now().getEpochSecond()));
+    }
+
+    /**
+     * Loops over the stations of the Document and creates a ForecastData object for each forecast hour.
+     *
+     * @param doc XML Document containing the forecast.
+     * @return ForecastData list of all stations and hours.
+     */
+    private List<ForecastData> parseXML(Document doc) {
+        try {
+            List<ForecastData> output = new ArrayList<>();
+            XPath xpath = XPathFactory.newInstance().newXPath();
+
+            Long issuedAt = Optional.ofNullable(xpath.evaluate("/forecasts/@issued", doc))
+                    .filter(not(String::isEmpty))
+                    .map(Long::parseLong)
+                    .orElse(0L);
+
+            NodeList stations = (NodeList) xpath.evaluate("/forecasts/station", doc, XPathConstants.NODESET);
+            for (int i = 0; i < stations.getLength(); i++) {
+                Node station = stations.item(i);
+                Integer wmoCode = Optional.ofNullable(xpath.evaluate("wmocode", station))
+                        .filter(not(String::isEmpty))
+                        .map(Integer::parseInt)
+                        .orElse(0);
+
+                NodeList forecasts = (NodeList) xpath.evaluate("forecast", station, XPathConstants.NODESET);
+                for (int j = 0; j < forecasts.getLength(); j++) {
+                    output.add(createNotEmptyForecastData(wmoCode, issuedAt, forecasts.item(j), xpath));
+                }
+            }
+
+            return output;
+        } catch (XPathExpressionException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Creates a ForecastData object and makes sure the fields are not empty.
+     *
+     * @return ForecastData object from a parsed XML file.
+     */
+    private ForecastData createNotEmptyForecastData(Integer wmoCode, Long issuedAt, Node forecast, XPath xpath)
+            throws XPathExpressionException {
+
+        Long validFrom = Optional.of(xpath.evaluate("@validfrom", forecast))
+                .filter(not(String::isEmpty))
+                .map(Long::parseLong)
+                .orElse(0L);
+        String phenomenon = Optional.of(xpath.evaluate("phenomenon", forecast))
+                .filter(not(String::isEmpty))
+                .orElse("NaN");
+        Double airTemperature = Optional.of(xpath.evaluate("airtemperature", forecast))
+                .filter(not(String::isEmpty))
+                .map(Double::parseDouble)
+                .orElse(0.0);
+        Double windSpeed = Optional.of(xpath.evaluate("windspeed", forecast))
+                .filter(not(String::isEmpty))
+                .map(Double::parseDouble)
+                .orElse(0.0);
+
+        return new ForecastData(wmoCode, airTemperature, windSpeed, phenomenon, validFrom, issuedAt);
+    }
+}
@@ -1,177 +1,89 @@
 package ee.taltech.fooddeliveryapp.scheduler;
 
 import ee.taltech.fooddeliveryapp.config.WeatherDataConstants;
-import ee.taltech.fooddeliveryapp.database.WeatherData;
+import ee.taltech.fooddeliveryapp.scheduler.WeatherFeedParser.WeatherFeed;
+import ee.taltech.fooddeliveryapp.service.StationIds;
+import ee.taltech.fooddeliveryapp.service.StationRegistry;
 import ee.taltech.fooddeliveryapp.service.WeatherDataService;
 import lombok.Getter;
 import lombok.Setter;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 import org.w3c.dom.Document;
-import org.w3c.dom.Node;
-import org.w3c.dom.NodeList;
 
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
-import javax.xml.xpath.XPath;
-import javax.xml.xpath.XPathConstants;
-import javax.xml.xpath.XPathExpressionException;
-import javax.xml.xpath.XPathFactory;
-
-import java.io.InputStream;
-import java.net.URL;
-import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.Optional;
-
-import static java.util.function.Predicate.not;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.IntPredicate;
 
 @Getter
 @Setter
 @Component
 public class ImportWeatherTask {
-
-    private Document lastXML;
     private final WeatherDataService weatherDataService;
+    private final StationRegistry stationRegistry;
+    private final WeatherFetcher weatherFetcher;
+
+    @Value("${weather.service-url:" + WeatherDataConstants.WEATHER_SERVICE + "}")
+    private String weatherServiceUrl = WeatherDataConstants.WEATHER_SERVICE;
+
+    @Value("${weather.ingest-stations:all}")
+    private String ingestStations = "all";
+
+    private volatile StationIds configuredStations = StationIds.of(WeatherDataConstants.WMO_CODES);
 
     @Autowired
-    public ImportWeatherTask(WeatherDataService weatherDataService) {
+    public ImportWeatherTask(WeatherDataService weatherDataService, StationRegistry stationRegistry,
+                             WeatherFetcher weatherFetcher) {
         this.weatherDataService = weatherDataService;
+        this.stationRegistry = stationRegistry;
+        this.weatherFetcher = weatherFetcher;
     }
 
     /**
      * Gets an XML file from
-     * <a href="https://www.ilmateenistus.ee/ilma_andmed/xml/observations.php">the weather service.</a>
-     * Then parses the file and writes the weather data from the Tallinn-Harku, Tartu-Tõravere and Pärnu stations
-     * into the database.
+     * <a href="https://www.ilmateenistus.ee/ilma_andmed/xml/observations.php">the weather service</a>
+     * (or the URL configured with {@code weather.service-url}) through the {@link WeatherFetcher}.
+     * Then parses the file and writes the weather data of the stations into the database.
+     * Returns right away, the import runs on a fetch thread. If the weather service can't be reached or its
+     * response can't be read, nothing is imported and the previous weather stays in use.
+     *
+     * @return Future completing once the import is saved, failed if the fetch or the import failed
      */
-    public void updateWeather() {
-        Document doc = loadXML();
-        updateWeather(doc);
+    public CompletableFuture<Void> updateWeather() {
+        return weatherFetcher.fetch(weatherServiceUrl, this::parseFeed).thenAccept(this::saveFeed);
     }
 
     /**
-     * Gets an XML file as input. Then parses it and saves WeatherData into the database.
-     * Meant for testing as you can pass in a file as input.
+     * Gets an XML file as input. Then parses it, saves WeatherData into the database and updates the station
+     * locations. Meant for testing as you can pass in a file as input.
      *
      * @param doc XML file to parse
      */
     public void updateWeather(Document doc) {
-        WeatherData[] data = parseXML(doc);
-        weatherDataService.saveAllWeatherData(Arrays.asList(data));
+        saveFeed(parseFeed(doc));
     }
 
-    /**
-     * Gets the XML file of weather data from ilmateenistus.ee and returns it as a Document.
-     *
-     * @return Current weather data as a Document.
-     */
-    private Document loadXML() {
-        try {
-            DocumentBuilder builder = DocumentBuilderFactory.newInstance().newDocumentBuilder();
-
-            URL url = new URL(WeatherDataConstants.WEATHER_SERVICE);
-            InputStream stream = url.openStream();
-            Document doc = builder.parse(stream);
-            doc.getDocumentElement().normalize();
-
-            lastXML = doc;
-            return doc;
-        } catch (Exception e) {
-            if (lastXML == null) {
-                throw new RuntimeException();
-            }
-
-            return lastXML;
-        }
+    private WeatherFeed parseFeed(Document doc) {
+        return WeatherFeedParser.parse(doc, stationFilter());
     }
 
-    /**
-     * Loops over the Document and finds the required stations. Checks if values are empty in which case assigns
-     * default values. Instantiates WeatherData objects and returns them as an array.
-     *
-     * @param doc XML Document containing the current weather data.
-     * @return WeatherData array from Tallinn-Harku, Tartu-Tõravere, and Pärnu weather stations.
-     */
-    private WeatherData[] parseXML(Document doc) {
-        try {
-            ArrayList<WeatherData> output = new ArrayList<>();
-            XPath xpath = XPathFactory.newInstance().newXPath();
-
-            // Extract the timestamp and sanitize it
-            Long timeStamp = Optional.ofNullable(xpath.evaluate("/observations/@timestamp", doc))
-                    .filter(not(String::isEmpty))
-                    .map(Long::parseLong)
-                    .orElse(0L);
-
-            // Create and use an XPath expression on the document
-            String expression = buildXPathExpression();
-            NodeList stations = (NodeList) xpath.evaluate(expression, doc, XPathConstants.NODESET);
-
-            // Extract data from each station
-            for (int i = 0; i < stations.getLength(); i++) {
-                Node station = stations.item(i);
-
-                output.add(createNotEmptyWeatherData(timeStamp, station, xpath));
-            }
-
-            WeatherData[] result = new WeatherData[output.size()];
-            output.toArray(result);
-            return result;
-
-        } catch (XPathExpressionException e) {
-            throw new RuntimeException();
-        }
+    private void saveFeed(WeatherFeed feed) {
+        weatherDataService.saveAllWeatherData(feed.observations());
+        stationRegistry.updateStations(feed.stations());
     }
 
     /**
-     * Dynamically build an XPath expression for stations whose WMO codes we're interested in.
-     * Gets the WMO codes from a constant in WMOCodes class.
+     * Decides which stations of the feed are imported. With {@code weather.ingest-stations} set to {@code all}
+     * (the default) every station is kept, with {@code configured} only the configured stations, by default the ones
+     * in {@link WeatherDataConstants#WMO_CODES}.
      *
-     * @return XPath's expression that parses XML from ilmateenistus.ee
+     * @return Filter of the stations by WMO code
      */
-    private String buildXPathExpression() {
-        int[] codes = WeatherDataConstants.WMO_CODES;
-        StringBuilder expression = new StringBuilder("/observations/station[wmocode='");
-
-        for (int i = 0; i < codes.length; i++) {
-            expression.append(codes[i]);
-            if (i < codes.length - 1) {
-                expression.append("' or wmocode='");
-            }
+    private IntPredicate stationFilter() {
+        if ("configured".equalsIgnoreCase(ingestStations)) {
+            StationIds stations = configuredStations;
+            return wmoCode -> stations.indexOf(wmoCode) >= 0;
         }
-
-        return expression.append("']").toString();
+        return wmoCode -> true;
     }
-
-    /**
-     * Creates a WeatherData object and makes sure the fields are not empty.
-     *
-     * @return WeatherData object from a parsd XML file.
-     */
-    private WeatherData createNotEmptyWeatherData(Long timeStamp, Node station, XPath xpath)
-            throws XPathExpressionException {
-
-        String name = Optional.ofNullable(xpath.evaluate("name", station))
-                .filter(not(String::isEmpty))
-                .orElse("NaN");
-        Integer wmoCode = (Optional.ofNullable(xpath.evaluate("wmocode", station)))
-                .filter(not(String::isEmpty))
-                .map(Integer::parseInt)
-                .orElse(0);
-        String phenomenon = Optional.of(xpath.evaluate("phenomenon", station))
-                .filter(not(String::isEmpty))
-                .orElse("NaN");
-        Double airTemperature = Optional.of(xpath.evaluate("airtemperature", station))
-                .filter(not(String::isEmpty))
-                .map(Double::parseDouble)
-                .orElse(0.0);
-        Double windSpeed = Optional.of(xpath.evaluate("windspeed", station))
-                .filter(not(String::isEmpty))
-                .map(Double::parseDouble)
-                .orElse(0.0);
-
-        return new WeatherData(name, wmoCode, airTemperature, windSpeed, phenomenon, timeStamp);
-    }
-
 }
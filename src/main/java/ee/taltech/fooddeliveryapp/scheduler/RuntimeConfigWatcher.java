@@ -0,0 +1,321 @@
+package ee.taltech.fooddeliveryapp.scheduler;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import ee.taltech.fooddeliveryapp.database.ForecastData;
+import ee.taltech.fooddeliveryapp.service.DeliveryFeeCalculator;
+import ee.taltech.fooddeliveryapp.service.FeeChangeBroadcaster;
+import ee.taltech.fooddeliveryapp.service.FeeRules;
+import ee.taltech.fooddeliveryapp.service.ForecastService;
+import ee.taltech.fooddeliveryapp.service.RuntimeConfig;
+import ee.taltech.fooddeliveryapp.service.StationIds;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Reloads the runtime configuration from the JSON file {@code runtime-config.file} whenever it changes, without a
+ * restart. Leaving the property empty (the default) keeps the built-in configuration.
+ * <p>
+ * The file may hold {@code importCron}, {@code feeRules} and {@code cityStations}. Each of them is merged over the
+ * built-in configuration, so the file only needs what differs from it. A changed file is validated as a whole
+ * before anything is switched over; an invalid file leaves the active configuration in place and is reported in
+ * {@link #getStatus()}. A valid one becomes the next version: the forecast fees are precomputed with it, then the
+ * calculator switches over to it at once, the weather import is rescheduled and the live fees are recalculated.
+ */
+@Component
+@Lazy(false)
+public class RuntimeConfigWatcher {
+    private static final Set<String> SECTIONS = Set.of("importCron", "feeRules", "cityStations");
+    /** Editors save a file in several writes, so the file is read once it has been quiet for this long. */
+    private static final long SETTLE_MILLIS = 200;
+
+    private final DeliveryFeeCalculator calculator;
+    private final ForecastService forecastService;
+    private final FeeChangeBroadcaster feeChangeBroadcaster;
+    private final Scheduler scheduler;
+    private final ImportWeatherTask importWeatherTask;
+    private final ObjectMapper objectMapper;
+    private final Path file;
+
+    private volatile ConfigStatus status;
+    private WatchService watchService;
+
+    /**
+     * State of the runtime configuration.
+     *
+     * @param file File the configuration is read from, null if it isn't read from a file
+     * @param active Configuration in use
+     * @param activatedAt Time the configuration in use was switched over to, null for the built-in one
+     * @param lastError Why the file was last rejected, null if the latest file is in use
+     * @param lastErrorAt Time the file was last rejected
+     */
+    public record ConfigStatus(String file, RuntimeConfig active, Instant activatedAt, String lastError,
+                               Instant lastErrorAt) {
+    }
+
+    /**
+     * @param file Path of the configuration file, empty to keep the built-in configuration
+     */
+    @Autowired
+    public RuntimeConfigWatcher(DeliveryFeeCalculator calculator, ForecastService forecastService,
+                                FeeChangeBroadcaster feeChangeBroadcaster, Scheduler scheduler,
+                                ImportWeatherTask importWeatherTask, ObjectMapper objectMapper,
+                                @Value("${runtime-config.file:}") String file) {
+        this.calculator = calculator;
+        this.forecastService = forecastService;
+        this.feeChangeBroadcaster = feeChangeBroadcaster;
+        this.scheduler = scheduler;
+        this.importWeatherTask = importWeatherTask;
+        this.objectMapper = objectMapper;
+        this.file = file.isBlank() ? null : Path.of(file).toAbsolutePath();
+        this.status = new ConfigStatus(this.file != null ? this.file.toString() : null, calculator.getConfig(),
+                null, null, null);
+    }
+
+    /**
+     * Loads the configuration file once the application is ready and starts watching it for changes.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void start() {
+        if (file == null || watchService != null) {
+            return;
+        }
+        reload();
+
+        try {
+            watchService = file.getFileSystem().newWatchService();
+            file.getParent().register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_MODIFY);
+        } catch (IOException e) {
+            reject("Directory of the configuration file can't be watched: " + e.getMessage());
+            return;
+        }
+        Thread watchThread = new Thread(this::watch, "runtime-config-watcher");
+        watchThread.setDaemon(true);
+        watchThread.start();
+    }
+
+    /**
+     * Reads the configuration file and switches over to it if it changed since it was last read.
+     *
+     * @return Whether a new version of the configuration is now in use
+     */
+    public synchronized boolean reload() {
+        if (file == null) {
+            return false;
+        }
+
+        byte[] content;
+        try {
+            content = Files.readAllBytes(file);
+        } catch (NoSuchFileException e) {
+            reject("Configuration file not found");
+            return false;
+        } catch (IOException e) {
+            reject("Configuration file can't be read: " + e.getMessage());
+            return false;
+        }
+
+        String checksum = checksum(content);
+        RuntimeConfig active = status.active();
+        if (checksum.equals(active.checksum())) {
+            // Back to the file in use after a rejected one
+            if (status.lastError() != null) {
+                status = new ConfigStatus(status.file(), active, status.activatedAt(), null, null);
+            }
+            return false;
+        }
+
+        RuntimeConfig next;
+        List<ForecastData> forecasts;
+        try {
+            next = parse(content, active.version() + 1, checksum);
+            forecasts = forecastService.getUpcomingForecasts(Instant.now().getEpochSecond());
+        } catch (IllegalArgumentException e) {
+            reject("Invalid configuration: " + e.getMessage());
+            return false;
+        } catch (RuntimeException e) {
+            reject("Forecasts can't be read: " + e.getMessage());
+            return false;
+        }
+
+        calculator.applyConfig(next, forecasts);
+        importWeatherTask.setConfiguredStations(StationIds.of(next.stationCodes()));
+        scheduler.changeImportCron(next.importCron());
+        status = new ConfigStatus(status.file(), next, Instant.now(), null, null);
+        feeChangeBroadcaster.recalculate();
+        return true;
+    }
+
+    /**
+     * @return State of the runtime configuration
+     */
+    public ConfigStatus getStatus() {
+        return status;
+    }
+
+    /**
+     * Stops watching the configuration file.
+     */
+    @PreDestroy
+    public synchronized void close() {
+        if (watchService != null) {
+            try {
+                watchService.close();
+            } catch (IOException e) {
+                // The watch thread stops either way
+            }
+        }
+    }
+
+    /**
+     * Parses the configuration file, merging each of its sections over the built-in configuration.
+     *
+     * @throws IllegalArgumentException Thrown when the file isn't valid JSON, has unknown sections or the merged
+     * configuration is invalid
+     */
+    private RuntimeConfig parse(byte[] content, long version, String checksum) {
+        JsonNode root;
+        try {
+            root = objectMapper.readTree(content);
+        } catch (IOException e) {
+            throw new IllegalArgumentException(e instanceof JsonProcessingException processing
+                    ? processing.getOriginalMessage() : e.getMessage());
+        }
+        if (root == null || !root.isObject()) {
+            throw new IllegalArgumentException("Expected a JSON object");
+        }
+        for (Iterator<String> names = root.fieldNames(); names.hasNext(); ) {
+            String name = names.next();
+            if (!SECTIONS.contains(name)) {
+                throw new IllegalArgumentException("Unknown section " + name + ", expected one of " + SECTIONS);
+            }
+        }
+
+        RuntimeConfig defaults = RuntimeConfig.DEFAULT;
+        String importCron = root.hasNonNull("importCron") ? root.get("importCron").asText() : defaults.importCron();
+
+        FeeRules feeRules = defaults.feeRules();
+        Map<String, Integer> cityStations = new HashMap<>(defaults.cityStations());
+        try {
+            if (root.hasNonNull("feeRules")) {
+                ObjectNode merged = objectMapper.valueToTree(defaults.feeRules());
+                merge(merged, root.get("feeRules"));
+                feeRules = objectMapper.readerFor(FeeRules.class)
+                        .with(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES)
+                        .readValue(merged);
+            }
+            if (root.hasNonNull("cityStations")) {
+                for (Iterator<Map.Entry<String, JsonNode>> stations = root.get("cityStations").fields();
+                     stations.hasNext(); ) {
+                    Map.Entry<String, JsonNode> station = stations.next();
+                    if (!station.getValue().canConvertToInt()) {
+                        throw new IllegalArgumentException("WMO code of " + station.getKey() + " must be a number");
+                    }
+                    cityStations.put(station.getKey().toLowerCase(), station.getValue().intValue());
+                }
+            }
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Invalid fee rules: " + rootMessage(e));
+        }
+
+        return new RuntimeConfig(version, checksum, importCron, feeRules, cityStations);
+    }
+
+    private void watch() {
+        try {
+            while (true) {
+                WatchKey key = watchService.take();
+                boolean changed = false;
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    changed |= event.kind() == StandardWatchEventKinds.OVERFLOW
+                            || file.getFileName().equals(event.context());
+                }
+                key.reset();
+                if (!changed) {
+                    continue;
+                }
+
+                // Wait for the rest of the writes, then read the file once
+                WatchKey more;
+                do {
+                    Thread.sleep(SETTLE_MILLIS);
+                    more = watchService.poll();
+                    if (more != null) {
+                        more.pollEvents();
+                        more.reset();
+                    }
+                } while (more != null);
+                reload();
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // Stopped
+        }
+    }
+
+    private void reject(String message) {
+        ConfigStatus current = status;
+        status = new ConfigStatus(current.file(), current.active(), current.activatedAt(), message, Instant.now());
+    }
+
+    /**
+     * Merges the changes into the rules field by field, nested objects included.
+     */
+    private static void merge(ObjectNode target, JsonNode changes) {
+        if (!changes.isObject()) {
+            throw new IllegalArgumentException("Fee rules must be a JSON object");
+        }
+        changes.fields().forEachRemaining(field -> {
+            JsonNode existing = target.get(field.getKey());
+            if (existing instanceof ObjectNode object && field.getValue().isObject()) {
+                merge(object, field.getValue());
+            } else {
+                target.set(field.getKey(), field.getValue());
+            }
+        });
+    }
+
+    private static String rootMessage(IOException e) {
+        Throwable cause = e;
+        while (cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        return cause instanceof IllegalArgumentException ? cause.getMessage()
+                : e instanceof JsonProcessingException processing ? processing.getOriginalMessage() : e.getMessage();
+    }
+
+    private static String checksum(byte[] content) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(content));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
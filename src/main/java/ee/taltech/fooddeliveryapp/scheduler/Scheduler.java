@@ -1,15 +1,20 @@
 package ee.taltech.fooddeliveryapp.scheduler;
 
-import jakarta.annotation.PostConstruct;
+import ee.taltech.fooddeliveryapp.service.ImportLeaseService;
+import ee.taltech.fooddeliveryapp.service.RuntimeConfig;
 
 import lombok.Getter;
 import lombok.Setter;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.scheduling.TaskScheduler;
 import org.springframework.scheduling.concurrent.ConcurrentTaskScheduler;
 import org.springframework.scheduling.support.CronTrigger;
 import org.springframework.stereotype.Component;
 
+import java.time.Instant;
 import java.util.concurrent.ScheduledFuture;
 
 @Getter
@@ -21,10 +26,17 @@ public class Scheduler implements Runnable {
     private ScheduledFuture scheduledFuture;
     private TaskScheduler taskScheduler;
     private final ImportWeatherTask task;
+    private final ImportLeaseService leaseService;
+
+    @Value("${weather.startup-import-delay:0}")
+    private long startupImportDelay = 0;
+
+    private String importCron = RuntimeConfig.DEFAULT_IMPORT_CRON;
 
     @Autowired
-    Scheduler(ImportWeatherTask task) {
+    Scheduler(ImportWeatherTask task, ImportLeaseService leaseService) {
         this.task = task;
+        this.leaseService = leaseService;
     }
 
 
@@ -34,33 +46,63 @@ public class Scheduler implements Runnable {
      *
      * @param cronExpressionStr New cron expression to create schedule with
      */
-    public void reSchedule(String cronExpressionStr) {
+    public synchronized void reSchedule(String cronExpressionStr) {
         if (taskScheduler == null) {
             this.taskScheduler = new ConcurrentTaskScheduler();
         }
         if (this.scheduledFuture != null) {
             this.scheduledFuture.cancel(true);
         }
+        this.importCron = cronExpressionStr;
         this.scheduledFuture = this.taskScheduler.schedule(this, new CronTrigger(cronExpressionStr));
     }
 
+    /**
+     * Changes the timing of the weather import. Before the scheduler is initialized the cron expression is only
+     * kept for {@link #initializeScheduler()}. Afterwards the import is rescheduled, but unlike
+     * {@link #reSchedule(String)} an import that is already running is let to finish.
+     *
+     * @param cronExpressionStr New cron expression of the import
+     */
+    public synchronized void changeImportCron(String cronExpressionStr) {
+        if (this.scheduledFuture == null) {
+            this.importCron = cronExpressionStr;
+        } else if (!cronExpressionStr.equals(this.importCron)) {
+            this.scheduledFuture.cancel(false);
+            this.importCron = cronExpressionStr;
+            this.scheduledFuture = this.taskScheduler.schedule(this, new CronTrigger(cronExpressionStr));
+        }
+    }
+
     /**
      * Gets an XML file from
      * <a href="https://www.ilmateenistus.ee/ilma_andmed/xml/observations.php">the weather service.</a>
-     * Then parses the file and writes the weather data from the Tallinn-Harku, Tartu-Tõravere and Pärnu stations
-     * into the database.
+     * Then parses the file and writes the weather data of the stations into the database.
+     * Only the node holding the import lease does this, the other nodes pick the import up from the database.
+     * The import runs on a fetch thread, so a slow weather service doesn't hold up the scheduler thread.
      */
     @Override
     public void run() {
-        task.updateWeather();
+        if (leaseService.tryAcquire()) {
+            task.updateWeather();
+        }
     }
 
     /**
-     * Initializes the scheduler with the default timing for CronJob (HH:15:00)
+     * Initializes the scheduler with the configured timing, by default HH:15:00, once the application is ready, and
+     * starts the first import {@code weather.startup-import-delay} milliseconds later on the scheduler's thread,
+     * so neither the startup nor the first requests wait for the database or the weather service.
+     * A failing first import is retried on the next scheduled run.
      */
-    @PostConstruct
+    @EventListener(ApplicationReadyEvent.class)
     public void initializeScheduler() {
-        this.run();
-        this.reSchedule("0 15 * * * *");
+        this.reSchedule(this.importCron);
+        this.taskScheduler.schedule(() -> {
+            try {
+                this.run();
+            } catch (RuntimeException e) {
+                // Retried on the next scheduled run
+            }
+        }, Instant.now().plusMillis(startupImportDelay));
     }
 }
@@ -0,0 +1,43 @@
+package ee.taltech.fooddeliveryapp.scheduler;
+
+import ee.taltech.fooddeliveryapp.service.ImportLeaseService;
+import ee.taltech.fooddeliveryapp.service.StationRegistry;
+import ee.taltech.fooddeliveryapp.service.WeatherDataService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Keeps the node in step with the other nodes sharing the database. Every few seconds it renews or tries to take
+ * the import lease, and loads the weather imported by the leader as soon as its snapshot version appears.
+ */
+@Component
+@Lazy(false)
+public class SnapshotPoller {
+
+    private final ImportLeaseService leaseService;
+    private final WeatherDataService weatherDataService;
+    private final StationRegistry stationRegistry;
+
+    @Autowired
+    public SnapshotPoller(ImportLeaseService leaseService, WeatherDataService weatherDataService,
+                          StationRegistry stationRegistry) {
+        this.leaseService = leaseService;
+        this.weatherDataService = weatherDataService;
+        this.stationRegistry = stationRegistry;
+    }
+
+    /**
+     * Renews the lease and loads newer snapshots. Station locations are reloaded along with a new snapshot,
+     * since the leader saves them during the import.
+     */
+    @Scheduled(fixedDelayString = "${weather.snapshot-poll-interval:5000}")
+    public void poll() {
+        leaseService.tryAcquire();
+
+        if (weatherDataService.refreshLatestWeather()) {
+            stationRegistry.loadStations();
+        }
+    }
+}
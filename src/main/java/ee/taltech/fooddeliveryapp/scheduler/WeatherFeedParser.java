@@ -0,0 +1,108 @@
+package ee.taltech.fooddeliveryapp.scheduler;
+
+import ee.taltech.fooddeliveryapp.database.Station;
+import ee.taltech.fooddeliveryapp.database.WeatherData;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.IntPredicate;
+
+/**
+ * Reads the observations document of the weather service in a single pass over its elements.
+ * <p>
+ * Every station element is visited once and each of its fields read once, so the cost grows linearly with the
+ * number of stations in the feed. Stations without a WMO code are skipped, as they can't be told apart.
+ */
+public final class WeatherFeedParser {
+
+    private WeatherFeedParser() {
+    }
+
+    /**
+     * Observations and station locations read from one document, in document order.
+     *
+     * @param observations Weather observation of each station
+     * @param stations Name and location of each station
+     */
+    public record WeatherFeed(List<WeatherData> observations, List<Station> stations) {
+    }
+
+    /**
+     * Parses the document. Checks if values are empty in which case assigns default values, and leaves the
+     * location of a station null if it isn't given.
+     *
+     * @param doc XML Document containing the current weather data.
+     * @param include Tells by WMO code which stations to keep
+     * @return Observations and locations of the kept stations
+     */
+    public static WeatherFeed parse(Document doc, IntPredicate include) {
+        Element root = doc.getDocumentElement();
+        long timeStamp = parseLong(root.getAttribute("timestamp"), 0L);
+
+        List<WeatherData> observations = new ArrayList<>();
+        List<Station> stations = new ArrayList<>();
+
+        for (Node node = root.getFirstChild(); node != null; node = node.getNextSibling()) {
+            if (node.getNodeType() != Node.ELEMENT_NODE || !"station".equals(node.getNodeName())) {
+                continue;
+            }
+
+            String name = null;
+            String wmoCode = null;
+            String phenomenon = null;
+            String airTemperature = null;
+            String windSpeed = null;
+            String latitude = null;
+            String longitude = null;
+
+            for (Node field = node.getFirstChild(); field != null; field = field.getNextSibling()) {
+                if (field.getNodeType() != Node.ELEMENT_NODE) {
+                    continue;
+                }
+
+                String value = field.getTextContent().trim();
+                switch (field.getNodeName()) {
+                    case "name" -> name = value;
+                    case "wmocode" -> wmoCode = value;
+                    case "phenomenon" -> phenomenon = value;
+                    case "airtemperature" -> airTemperature = value;
+                    case "windspeed" -> windSpeed = value;
+                    case "latitude" -> latitude = value;
+                    case "longitude" -> longitude = value;
+                    default -> {
+                    }
+                }
+            }
+
+            if (wmoCode == null || wmoCode.isEmpty()) {
+                continue;
+            }
+            int code = Integer.parseInt(wmoCode);
+            if (!include.test(code)) {
+                continue;
+            }
+
+            String stationName = orDefault(name, "NaN");
+            observations.add(new WeatherData(stationName, code, parseDouble(airTemperature, 0.0),
+                    parseDouble(windSpeed, 0.0), orDefault(phenomenon, "NaN"), timeStamp));
+            stations.add(new Station(code, stationName, parseDouble(latitude, null), parseDouble(longitude, null)));
+        }
+
+        return new WeatherFeed(observations, stations);
+    }
+
+    private static String orDefault(String value, String defaultValue) {
+        return value == null || value.isEmpty() ? defaultValue : value;
+    }
+
+    private static Double parseDouble(String value, Double defaultValue) {
+        return value == null || value.isEmpty() ? defaultValue : Double.valueOf(value);
+    }
+
+    private static Long parseLong(String value, Long defaultValue) {
+        return value == null || value.isEmpty() ? defaultValue : Long.valueOf(value.trim());
+    }
+}
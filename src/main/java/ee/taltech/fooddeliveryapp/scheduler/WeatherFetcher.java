@@ -0,0 +1,185 @@
+package ee.taltech.fooddeliveryapp.scheduler;
+
+import ee.taltech.fooddeliveryapp.exceptions.UpstreamUnavailableException;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.w3c.dom.Document;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLConnection;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Fetches documents from the weather service on threads of its own, so a slow or broken service never holds up
+ * the scheduler or the threads serving requests.
+ * <p>
+ * At most {@code weather.fetch.max-concurrent} fetches run at once and {@code weather.fetch.queue-capacity} more
+ * wait; further fetches are turned down right away. Every fetch has connect and read timeouts, and a
+ * {@link CircuitBreaker} stops fetching for a while after repeated failures. Network failures (connection errors,
+ * timeouts, error statuses) and parse failures (responses that aren't a readable document) are counted apart.
+ * <p>
+ * Observations and forecasts are fetched by separate instances, see {@code AppConfig}, so a broken forecast
+ * provider doesn't open the circuit of the weather service.
+ */
+public class WeatherFetcher {
+
+    @Value("${weather.fetch.connect-timeout:5000}")
+    private int connectTimeout = 5000;
+
+    @Value("${weather.fetch.read-timeout:10000}")
+    private int readTimeout = 10000;
+
+    @Value("${weather.fetch.max-concurrent:1}")
+    private int maxConcurrent = 1;
+
+    @Value("${weather.fetch.queue-capacity:1}")
+    private int queueCapacity = 1;
+
+    @Value("${weather.fetch.failure-threshold:3}")
+    private int failureThreshold = 3;
+
+    @Value("${weather.fetch.open-duration:300000}")
+    private long openDuration = 300000;
+
+    private final AtomicLong successes = new AtomicLong();
+    private final AtomicLong networkFailures = new AtomicLong();
+    private final AtomicLong parseFailures = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong shortCircuited = new AtomicLong();
+
+    private ThreadPoolExecutor executor;
+    private CircuitBreaker circuitBreaker;
+
+    /**
+     * Creates the fetch threads and the circuit breaker from the configuration.
+     */
+    @PostConstruct
+    public void initialize() {
+        AtomicInteger threadCount = new AtomicInteger();
+        int threads = Math.max(1, maxConcurrent);
+        executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, queueCapacity)), runnable -> {
+                    Thread thread = new Thread(runnable, "weather-fetch-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        circuitBreaker = new CircuitBreaker(failureThreshold, openDuration);
+    }
+
+    /**
+     * Stops the fetch threads, interrupting a fetch in progress.
+     */
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Fetches and parses a document in the background. The reader runs on the fetch thread, and an exception
+     * thrown by it counts as a parse failure. Returns right away.
+     *
+     * @param url Address of the document
+     * @param reader Turns the document into the result
+     * @param <T> Type of the result
+     * @return Future of the result, failed with {@link UpstreamUnavailableException} if the fetch was turned down
+     * or failed
+     */
+    public <T> CompletableFuture<T> fetch(String url, Function<Document, T> reader) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        try {
+            executor.execute(() -> fetch(url, reader, result));
+        } catch (RejectedExecutionException e) {
+            rejected.incrementAndGet();
+            result.completeExceptionally(new UpstreamUnavailableException("Too many weather fetches pending", e));
+        }
+        return result;
+    }
+
+    private <T> void fetch(String url, Function<Document, T> reader, CompletableFuture<T> result) {
+        if (!circuitBreaker.tryAcquirePermission()) {
+            shortCircuited.incrementAndGet();
+            result.completeExceptionally(new UpstreamUnavailableException("Weather service circuit is open"));
+            return;
+        }
+
+        byte[] body;
+        try {
+            body = download(url);
+        } catch (IOException e) {
+            networkFailures.incrementAndGet();
+            circuitBreaker.onFailure();
+            result.completeExceptionally(new UpstreamUnavailableException("Weather service unreachable", e));
+            return;
+        }
+
+        T value;
+        try {
+            Document doc = DocumentBuilderFactory.newInstance().newDocumentBuilder()
+                    .parse(new ByteArrayInputStream(body));
+            doc.getDocumentElement().normalize();
+            value = reader.apply(doc);
+        } catch (Exception e) {
+            parseFailures.incrementAndGet();
+            circuitBreaker.onFailure();
+            result.completeExceptionally(new UpstreamUnavailableException("Weather service response unreadable", e));
+            return;
+        }
+
+        successes.incrementAndGet();
+        circuitBreaker.onSuccess();
+        result.complete(value);
+    }
+
+    private byte[] download(String url) throws IOException {
+        URLConnection connection = new URL(url).openConnection();
+        connection.setConnectTimeout(connectTimeout);
+        connection.setReadTimeout(readTimeout);
+
+        if (connection instanceof HttpURLConnection http) {
+            int status = http.getResponseCode();
+            if (status < 200 || status >= 300) {
+                http.disconnect();
+                throw new IOException("Weather service responded with status " + status);
+            }
+        }
+
+        try (InputStream stream = connection.getInputStream()) {
+            return stream.readAllBytes();
+        }
+    }
+
+    /**
+     * @return Counts of the fetches so far and the state of the circuit breaker
+     */
+    public FetchStats getStats() {
+        return new FetchStats(circuitBreaker.getState(), successes.get(), networkFailures.get(),
+                parseFailures.get(), rejected.get(), shortCircuited.get());
+    }
+
+    /**
+     * Counts of the fetches since startup.
+     *
+     * @param circuitState State of the circuit breaker
+     * @param successes Fetches that returned a readable document
+     * @param networkFailures Fetches that failed to connect, timed out or got an error status
+     * @param parseFailures Fetches whose response could not be read
+     * @param rejected Fetches turned down because too many were pending
+     * @param shortCircuited Fetches turned down because the circuit breaker was open
+     */
+    public record FetchStats(CircuitBreaker.State circuitState, long successes, long networkFailures,
+                             long parseFailures, long rejected, long shortCircuited) {
+    }
+}
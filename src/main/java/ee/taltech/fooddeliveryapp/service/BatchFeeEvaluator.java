@@ -0,0 +1,43 @@
+package ee.taltech.fooddeliveryapp.service;
+
+/**
+ * Applies the fee rules of a city and vehicle type to many observations at once, given as primitive arrays of
+ * their fields. The fees are exactly those of {@link FeeRules#feeCents(long, FeeRules.VehicleRules, double, double,
+ * int)} for each observation.
+ * <p>
+ * {@link #create()} uses SIMD instructions through the incubating Vector API when the {@code jdk.incubator.vector}
+ * module is added to the JVM ({@code --add-modules jdk.incubator.vector}), and a scalar loop otherwise.
+ */
+public interface BatchFeeEvaluator {
+
+    /**
+     * Calculates the fees of the observations {@code from} (inclusive) to {@code to} (exclusive).
+     *
+     * @param rules Fee rules
+     * @param fixedFee Base, city and vehicle fees in cents
+     * @param vehicle Rules of the vehicle type
+     * @param airTemperatures Air temperatures of the observations
+     * @param windSpeeds Wind speeds of the observations
+     * @param phenomena Phenomenon codes of the observations
+     * @param from Index of the first observation
+     * @param to Index after the last observation
+     * @param fees Receives the fee in cents of each observation at its index, {@link FeeRules#FORBIDDEN} if the
+     *             weather forbids the vehicle
+     */
+    void evaluate(FeeRules rules, long fixedFee, FeeRules.VehicleRules vehicle, double[] airTemperatures,
+                  double[] windSpeeds, int[] phenomena, int from, int to, long[] fees);
+
+    /**
+     * @return Vectorized evaluator if the Vector API is available, else the scalar one
+     */
+    static BatchFeeEvaluator create() {
+        if (ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent()) {
+            try {
+                return new VectorBatchFeeEvaluator();
+            } catch (LinkageError e) {
+                // The module is there but can't be used, the scalar loop gives the same fees
+            }
+        }
+        return new ScalarBatchFeeEvaluator();
+    }
+}
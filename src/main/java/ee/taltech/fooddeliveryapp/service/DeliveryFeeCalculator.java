@@ -1,6 +1,8 @@
 package ee.taltech.fooddeliveryapp.service;
 
 import ee.taltech.fooddeliveryapp.config.DeliveryDataConstants;
+import ee.taltech.fooddeliveryapp.config.WeatherDataConstants;
+import ee.taltech.fooddeliveryapp.database.ForecastData;
 import ee.taltech.fooddeliveryapp.database.WeatherData;
 import ee.taltech.fooddeliveryapp.exceptions.InvalidTimeStampException;
 import ee.taltech.fooddeliveryapp.exceptions.NoWeatherFoundException;
@@ -17,15 +19,26 @@ import java.time.LocalDateTime;
 import java.time.ZoneId;
 import java.time.temporal.ChronoUnit;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 @Service
 public class DeliveryFeeCalculator {
     private final WeatherDataService weatherDataService;
+    private final StationRegistry stationRegistry;
+    private volatile Settings settings = new Settings(RuntimeConfig.DEFAULT, ForecastFeeTable.EMPTY);
+
+    /**
+     * Configuration and the forecast fees precomputed with it, published together so a quote never mixes the
+     * rules of one version with the forecast fees of another.
+     */
+    private record Settings(RuntimeConfig config, ForecastFeeTable forecastFees) {
+    }
 
     @Autowired
-    public DeliveryFeeCalculator(WeatherDataService weatherDataService) {
+    public DeliveryFeeCalculator(WeatherDataService weatherDataService, StationRegistry stationRegistry) {
         this.weatherDataService = weatherDataService;
+        this.stationRegistry = stationRegistry;
     }
 
     /**
@@ -38,13 +51,118 @@ public class DeliveryFeeCalculator {
      * @throws UnknownVehicleException Thrown when the vehicle isn't a car, a scooter, or a bike
      * @throws NoWeatherFoundException Thrown when can't find any entries in the database for weather in the city
      * @throws VehicleForbiddenException Thrown when it is forbidden to deliver food with selected vehicle
-     * @throws InvalidTimeStampException WeatherData is not valid for the targeted time
+     * @throws InvalidTimeStampException WeatherData is not valid for the targeted time and, for future times,
+     * the forecast doesn't cover it
      */
     public BigDecimal calculateFee(String city, String vehicleType, LocalDateTime timeStamp)
             throws UnknownCityException, UnknownVehicleException, VehicleForbiddenException,
             NoWeatherFoundException, InvalidTimeStampException {
+        return calculateFee(city, vehicleType, timeStamp, null, null);
+    }
+
+    /**
+     * Calculates the delivery fee for a delivery location. The weather is taken from the weather stations nearest
+     * to the location instead of the city's station, see {@link StationRegistry#resolve(double, double)}.
+     * Without a location, or while no station locations are known, the city's station is used. The forecast is only
+     * kept for the city's station, so future times at a location resolved to other stations aren't quoted from it.
+     *
+     * @param city City to base the base fee off
+     * @param vehicleType Vehicle to base the calculations off
+     * @param timeStamp Time of the delivery, null for the latest weather
+     * @param latitude Latitude of the delivery location, may be null
+     * @param longitude Longitude of the delivery location, may be null
+     * @return Calculated fee
+     * @throws UnknownCityException Thrown when the city isn't Tallinn, Tartu, or Pärnu
+     * @throws UnknownVehicleException Thrown when the vehicle isn't a car, a scooter, or a bike
+     * @throws NoWeatherFoundException Thrown when can't find any entries in the database for weather of the station
+     * @throws VehicleForbiddenException Thrown when it is forbidden to deliver food with selected vehicle
+     * @throws InvalidTimeStampException WeatherData is not valid for the targeted time
+     */
+    public BigDecimal calculateFee(String city, String vehicleType, LocalDateTime timeStamp,
+                                   Double latitude, Double longitude)
+            throws UnknownCityException, UnknownVehicleException, VehicleForbiddenException,
+            NoWeatherFoundException, InvalidTimeStampException {
+        return quoteFee(city, vehicleType, timeStamp, latitude, longitude).fee();
+    }
+
+    /**
+     * Calculates the delivery fee like {@link #calculateFee(String, String, LocalDateTime, Double, Double)} and
+     * tells which weather snapshot it was calculated from. The latest weather is read from a single snapshot for
+     * the whole calculation, even if a newer import is published meanwhile.
+     *
+     * @param city City to base the base fee off
+     * @param vehicleType Vehicle to base the calculations off
+     * @param timeStamp Time of the delivery, null for the latest weather
+     * @param latitude Latitude of the delivery location, may be null
+     * @param longitude Longitude of the delivery location, may be null
+     * @return Calculated fee and its snapshot version
+     * @throws UnknownCityException Thrown when the city isn't Tallinn, Tartu, or Pärnu
+     * @throws UnknownVehicleException Thrown when the vehicle isn't a car, a scooter, or a bike
+     * @throws NoWeatherFoundException Thrown when can't find any entries in the database for weather of the station
+     * @throws VehicleForbiddenException Thrown when it is forbidden to deliver food with selected vehicle
+     * @throws InvalidTimeStampException WeatherData is not valid for the targeted time
+     */
+    public FeeQuote quoteFee(String city, String vehicleType, LocalDateTime timeStamp,
+                             Double latitude, Double longitude)
+            throws UnknownCityException, UnknownVehicleException, VehicleForbiddenException,
+            NoWeatherFoundException, InvalidTimeStampException {
+        return quoteFeeAt(city, vehicleType, parseTimeToLong(timeStamp), latitude, longitude, null);
+    }
+
+    /**
+     * Quotes the delivery fee like {@link #quoteFee(String, String, LocalDateTime, Double, Double)}, looking the
+     * weather of past slots up through a cache shared by a run of quotes.
+     *
+     * @param city City to base the base fee off
+     * @param vehicleType Vehicle to base the calculations off
+     * @param timeStamp Time of the delivery, null for the latest weather
+     * @param latitude Latitude of the delivery location, may be null
+     * @param longitude Longitude of the delivery location, may be null
+     * @param cache Observations already looked up for slots, may be null
+     * @return Calculated fee and its snapshot version
+     * @throws UnknownCityException Thrown when the city isn't Tallinn, Tartu, or Pärnu
+     * @throws UnknownVehicleException Thrown when the vehicle isn't a car, a scooter, or a bike
+     * @throws NoWeatherFoundException Thrown when can't find any entries in the database for weather of the station
+     * @throws VehicleForbiddenException Thrown when it is forbidden to deliver food with selected vehicle
+     * @throws InvalidTimeStampException WeatherData is not valid for the targeted time
+     */
+    public FeeQuote quoteFee(String city, String vehicleType, LocalDateTime timeStamp,
+                             Double latitude, Double longitude, SlotWeatherCache cache)
+            throws UnknownCityException, UnknownVehicleException, VehicleForbiddenException,
+            NoWeatherFoundException, InvalidTimeStampException {
+        return quoteFeeAt(city, vehicleType, parseTimeToLong(timeStamp), latitude, longitude, cache);
+    }
+
+    /**
+     * Quotes the delivery fee like {@link #quoteFee(String, String, LocalDateTime, Double, Double)} for a time given
+     * as a UNIX timestamp.
+     *
+     * @param city City to base the base fee off
+     * @param vehicleType Vehicle to base the calculations off
+     * @param unixTimeStamp UNIX time of the delivery in seconds, null for the latest weather
+     * @param latitude Latitude of the delivery location, may be null
+     * @param longitude Longitude of the delivery location, may be null
+     * @return Calculated fee and its snapshot version
+     * @throws UnknownCityException Thrown when the city isn't Tallinn, Tartu, or Pärnu
+     * @throws UnknownVehicleException Thrown when the vehicle isn't a car, a scooter, or a bike
+     * @throws NoWeatherFoundException Thrown when can't find any entries in the database for weather of the station
+     * @throws VehicleForbiddenException Thrown when it is forbidden to deliver food with selected vehicle
+     * @throws InvalidTimeStampException WeatherData is not valid for the targeted time
+     */
+    public FeeQuote quoteFeeAt(String city, String vehicleType, Long unixTimeStamp,
+                               Double latitude, Double longitude)
+            throws UnknownCityException, UnknownVehicleException, VehicleForbiddenException,
+            NoWeatherFoundException, InvalidTimeStampException {
+        return quoteFeeAt(city, vehicleType, unixTimeStamp, latitude, longitude, null);
+    }
+
+    private FeeQuote quoteFeeAt(String city, String vehicleType, Long unixTimeStamp,
+                                Double latitude, Double longitude, SlotWeatherCache cache)
+            throws UnknownCityException, UnknownVehicleException, VehicleForbiddenException,
+            NoWeatherFoundException, InvalidTimeStampException {
         city = city.toLowerCase();
         vehicleType = vehicleType.toLowerCase();
+        Settings current = settings;
 
         if (!DeliveryDataConstants.CITY_LIST.contains(city)) {
             throw new UnknownCityException("No such city found!");
@@ -52,147 +170,212 @@ public class DeliveryFeeCalculator {
             throw new UnknownVehicleException("No such vehicle found!");
         }
 
-        Long UNIXTimeStamp = parseTimeToLong(timeStamp);
-        BigDecimal baseFee = calculateBaseFee(city, vehicleType);
-        BigDecimal weatherFee = calculateWeatherFee(city, vehicleType, UNIXTimeStamp);
+        int cityStation = current.config().cityStations().get(city);
+        StationWeights stations = null;
+        if (latitude != null && longitude != null) {
+            stations = stationRegistry.resolve(latitude, longitude);
+        }
+        if (stations == null) {
+            stations = StationWeights.single(cityStation);
+        }
+
+        // Future deliveries are quoted from the precomputed forecast fees, if the forecast covers them. They are
+        // forecast for the city's station, so a location resolved to other stations is quoted from those instead
+        boolean cityWeather = stations.size() == 1 && stations.wmoCodes()[0] == cityStation;
+        if (cityWeather && unixTimeStamp != null && unixTimeStamp > Instant.now().getEpochSecond()) {
+            long forecastFee = current.forecastFees().lookup(city, vehicleType, unixTimeStamp);
+            if (forecastFee != ForecastFeeTable.NOT_COVERED) {
+                return new FeeQuote(forecastFee, null);
+            }
+        }
+
+        Observation observation = fetchWeatherData(stations, unixTimeStamp, cache);
 
-        return baseFee.add(weatherFee);
+        return new FeeQuote(calculateFeeCents(current.config().feeRules(), city, vehicleType, observation),
+                observation.knownSnapshotVersion(), observation);
     }
 
     /**
-     * Calculates the base fee from the selected city and selected vehicle type.
-     * Gets monetary values from the DeliveryData class.
+     * Calculates the delivery fee for the given weather observation without looking anything up from the database.
+     * Meant for evaluating many stored observations at once, so the city and vehicle type must already be
+     * validated and lower case.
      *
      * @param city Selected city
      * @param vehicleType Selected vehicle type
-     * @return Calculated base fee according to business rules.
+     * @param weatherData Weather observation to base the calculations off
+     * @return Calculated fee
+     * @throws VehicleForbiddenException Thrown when it is forbidden to deliver food with selected vehicle
      */
-    private BigDecimal calculateBaseFee(String city, String vehicleType) {
-        BigDecimal fee = new BigDecimal("2.0");
-        return fee.add(DeliveryDataConstants.CITY_FEES.get(city)).add(DeliveryDataConstants.
-                VEHICLE_FEES.get(vehicleType));
+    public BigDecimal calculateFee(String city, String vehicleType, WeatherData weatherData)
+            throws VehicleForbiddenException {
+        return Money.toBigDecimal(calculateFeeCents(city, vehicleType, Observation.of(weatherData)));
     }
 
     /**
-     * Calculates the additional weather fee according to current weather conditions in the selected city.
+     * Calculates the delivery fee in cents for the given weather observation, like
+     * {@link #calculateFee(String, String, WeatherData)}.
      *
-     * @param city Selected city
-     * @param vehicleType Selected vehicle type
-     * @return Additional weather fee according to current weather conditions.
-     * @throws NoWeatherFoundException No weather for the current city was found in the database.
-     * @throws VehicleForbiddenException According to business rules it is forbidden to use the selected vehicle
-     * @throws InvalidTimeStampException WeatherData is not valid for the targeted time
+     * @param city Validated, lower case city
+     * @param vehicleType Validated, lower case vehicle type
+     * @param observation Weather observation to base the calculations off
+     * @return Calculated fee in cents
+     * @throws VehicleForbiddenException Thrown when it is forbidden to deliver food with selected vehicle
      */
-    private BigDecimal calculateWeatherFee(String city, String vehicleType, Long timeStamp)
-            throws NoWeatherFoundException, InvalidTimeStampException, VehicleForbiddenException {
-        WeatherData data;
-
-        // If the timestamp is null, then fetch the latest weather data
-        if (timeStamp != null) {
-            data = fetchWeatherData(city, timeStamp);
-        } else {
-            data = fetchWeatherData(city);
-        }
-
-        Double airTemperature = data.getAirTemperature();
-        Double windSpeed = data.getWindSpeed();
-        String phenomenon = data.getWeatherPhenomenon();
-
-        BigDecimal airTemperatureFee = calculateAirTemperatureFee(vehicleType, airTemperature);
-        BigDecimal windSpeedFee = calculateWindSpeedFee(vehicleType, windSpeed);
-        BigDecimal phenomenonFee = calculatePhenomenonFee(vehicleType, phenomenon);
-
-        return airTemperatureFee.add(windSpeedFee).add(phenomenonFee);
+    long calculateFeeCents(String city, String vehicleType, Observation observation)
+            throws VehicleForbiddenException {
+        return calculateFeeCents(getRules(), city, vehicleType, observation);
     }
 
-    private BigDecimal calculateAirTemperatureFee(String vehicleType, Double airTemperature) {
-        if (vehicleType.equals("car")) {
-            return BigDecimal.ZERO;
-        }
-
-        if (airTemperature < 0 && airTemperature >= -10) {
-            return new BigDecimal("0.5");
-        } else if (airTemperature < -10) {
-            return BigDecimal.ONE;
+    private static long calculateFeeCents(FeeRules rules, String city, String vehicleType, Observation observation)
+            throws VehicleForbiddenException {
+        long fee = rules.feeCents(city, vehicleType, observation);
+        if (fee == FeeRules.FORBIDDEN) {
+            throw new VehicleForbiddenException("Usage of selected vehicle type is forbidden");
         }
+        return fee;
+    }
 
-        return BigDecimal.ZERO;
+    /**
+     * @return Fee rules quotes are calculated with
+     */
+    public FeeRules getRules() {
+        return settings.config().feeRules();
     }
 
-    private BigDecimal calculateWindSpeedFee(String vehicleType, Double windSpeed) throws VehicleForbiddenException {
-        if (!vehicleType.equals("bike")) {
-            return BigDecimal.ZERO;
-        }
+    /**
+     * @return Configuration quotes are calculated with
+     */
+    public RuntimeConfig getConfig() {
+        return settings.config();
+    }
 
-        if (windSpeed > 20) {
-            throw new VehicleForbiddenException("Usage of selected vehicle type is forbidden");
-        } else if (windSpeed > 10) {
-            return new BigDecimal("0.5");
-        }
+    /**
+     * Precomputes the fees of every city and vehicle type for the upcoming hours from the weather forecast.
+     * Replaces the previously precomputed fees once done, so quotes are never served from a half-built table.
+     *
+     * @param forecasts Upcoming forecasts in ascending order of validity
+     */
+    public synchronized void precomputeForecastFees(List<ForecastData> forecasts) {
+        RuntimeConfig config = settings.config();
+        settings = new Settings(config, buildForecastFees(config, forecasts));
+    }
 
-        return BigDecimal.ZERO;
+    /**
+     * Switches quotes over to a new configuration. The forecast fees are precomputed with the new configuration
+     * first, then both are replaced at once; quotes in progress finish with the configuration they started with.
+     *
+     * @param config New configuration
+     * @param forecasts Upcoming forecasts in ascending order of validity
+     */
+    public synchronized void applyConfig(RuntimeConfig config, List<ForecastData> forecasts) {
+        settings = new Settings(config, buildForecastFees(config, forecasts));
     }
 
-    private BigDecimal calculatePhenomenonFee(String vehicleType, String phenomenon) throws VehicleForbiddenException {
-        if (vehicleType.equals("car")) {
-            return BigDecimal.ZERO;
-        }
+    private static ForecastFeeTable buildForecastFees(RuntimeConfig config, List<ForecastData> forecasts) {
+        long start = Instant.now().truncatedTo(ChronoUnit.HOURS).getEpochSecond();
+        return ForecastFeeTable.build(start, WeatherDataConstants.FORECAST_HOURS, forecasts, config);
+    }
 
-        if (phenomenon.equalsIgnoreCase("glaze") || phenomenon.equalsIgnoreCase("hail")
-                || phenomenon.toLowerCase().contains("thunder")) {
-            throw new VehicleForbiddenException("Usage of selected vehicle is forbidden");
+    /**
+     * Fetches the weather of the given stations and blends it into a single observation. Air temperature and wind
+     * speed are averaged by the station weights, the phenomenon is taken from the first (nearest) station.
+     * Stations other than the first one are left out if they have no weather for the time.
+     *
+     * @param stations Stations and their weights, nearest first
+     * @param timeStamp the Unix timestamp to fetch the weather data for, null for the latest weather
+     * @param cache Observations already looked up for slots, may be null
+     * @return Blended observation
+     * @throws NoWeatherFoundException No weather for the nearest station was found in the database
+     * @throws InvalidTimeStampException WeatherData of the nearest station is not valid for the targeted time
+     */
+    private Observation fetchWeatherData(StationWeights stations, Long timeStamp, SlotWeatherCache cache)
+            throws NoWeatherFoundException, InvalidTimeStampException {
+        WeatherDataSnapshot snapshot = timeStamp == null ? weatherDataService.getLatestSnapshot() : null;
+        Observation nearest = fetchWeatherData(stations.wmoCodes()[0], timeStamp, snapshot, cache);
+        if (stations.size() == 1) {
+            return nearest;
         }
 
-        if (phenomenon.toLowerCase().contains("snow") || phenomenon.toLowerCase().contains("sleet")) {
-            return BigDecimal.ONE;
-        } else if (phenomenon.toLowerCase().contains("rain") || phenomenon.toLowerCase().contains("shower")) {
-            return new BigDecimal("0.5");
+        double airTemperature = 0;
+        double windSpeed = 0;
+        double totalWeight = 0;
+        for (int i = 0; i < stations.size(); i++) {
+            Observation data;
+            try {
+                data = i == 0 ? nearest : fetchWeatherData(stations.wmoCodes()[i], timeStamp, snapshot, cache);
+            } catch (NoWeatherFoundException | InvalidTimeStampException e) {
+                continue;
+            }
+
+            double weight = stations.weights()[i];
+            airTemperature += data.airTemperature() * weight;
+            windSpeed += data.windSpeed() * weight;
+            totalWeight += weight;
         }
 
-        return BigDecimal.ZERO;
+        return new Observation(nearest.wmoCode(), airTemperature / totalWeight, windSpeed / totalWeight,
+                nearest.phenomenon(), nearest.timeStamp(), nearest.snapshotVersion());
     }
 
     /**
-     * Fetches weather data for the selected city for the specified timestamp from the valid range for that timestamp.
-     * Example: time of 10:45:32 would yield the latest WeatherData from the range 10:15:00 to 11:15:00
+     * Fetches weather data of a station for the specified timestamp from the valid range for that timestamp.
+     * Example: time of 10:45:32 would yield the latest WeatherData from the range 10:15:00 to 11:15:00, unless a
+     * different {@link SlotSelection} is set.
      *
-     * @param city the name of the city to fetch the weather data for
-     * @param timeStamp the Unix timestamp to fetch the weather data for
-     * @return WeatherData for the specified city and timestamp
+     * @param wmoCode WMO code of the station to fetch the weather data for
+     * @param timeStamp the Unix timestamp to fetch the weather data for, null for the latest weather
+     * @param snapshot Snapshot to take the latest weather from, if it has the station
+     * @param cache Observations already looked up for slots, may be null
+     * @return Observation for the specified station and timestamp
+     * @throws NoWeatherFoundException No weather for the station was found in the database
      * @throws InvalidTimeStampException WeatherData is not valid for the targeted time
      */
-    private WeatherData fetchWeatherData(String city, Long timeStamp) throws InvalidTimeStampException {
-        long[] range = findClosestTimeStamps(timeStamp);
-        Optional<List<WeatherData>> weatherDataOptional = Optional.ofNullable(weatherDataService
-                .getWeatherDataByTimeStamp(DeliveryDataConstants.WMO_CODES.get(city), range[0], range[1]));
+    private Observation fetchWeatherData(int wmoCode, Long timeStamp, WeatherDataSnapshot snapshot,
+                                         SlotWeatherCache cache)
+            throws NoWeatherFoundException, InvalidTimeStampException {
+        if (timeStamp == null) {
+            Observation cached = snapshot != null ? snapshot.get(wmoCode) : null;
+            Optional<Observation> weatherDataOptional = Optional.ofNullable(cached != null ? cached
+                    : weatherDataService.getLatestObservation(wmoCode));
+
+            if (weatherDataOptional.isEmpty()) {
+                throw new NoWeatherFoundException("No weather for " + stationName(wmoCode) + " found in database!");
+            }
+
+            return weatherDataOptional.get();
+        }
 
-        if (weatherDataOptional.isEmpty()) {
-            throw new InvalidTimeStampException("No weather for " + city + " for requested time found in database!");
-        } else if (weatherDataOptional.get().isEmpty()) {
-            throw new InvalidTimeStampException("No weather for " + city + " for requested time found in database!");
+        long[] range = findClosestTimeStamps(timeStamp);
+        Observation observation;
+        if (weatherDataService.getSlotSelection() != SlotSelection.SLOT) {
+            // Depends on the time within the slot, so it can't be cached by slot
+            observation = weatherDataService.getObservationAt(wmoCode, timeStamp, range[0], range[1]);
+        } else if (cache != null && cache.contains(wmoCode, range[0])) {
+            observation = cache.get(wmoCode, range[0]);
+        } else {
+            observation = weatherDataService.getObservationByTimeStamp(wmoCode, range[0], range[1]);
+            if (cache != null) {
+                cache.put(wmoCode, range[0], observation);
+            }
         }
 
-        List<WeatherData> weatherDataList = weatherDataOptional.get();
+        if (observation == null) {
+            throw new InvalidTimeStampException("No weather for " + stationName(wmoCode)
+                    + " for requested time found in database!");
+        }
 
-        return weatherDataList.get(weatherDataList.size() - 1);
+        return observation;
     }
 
     /**
-     * Fetches the latest weather data for selected city.
-     *
-     * @param city City to fetch the weather for.
-     * @return The latest WeatherData for selected city
-     * @throws NoWeatherFoundException No weather for selected city was found in the database
+     * Names a station in error messages by its city, if it is a city's station.
      */
-    private WeatherData fetchWeatherData(String city) throws NoWeatherFoundException {
-        Optional<WeatherData> weatherDataOptional = Optional.ofNullable(weatherDataService
-                .getLatestWeatherData(DeliveryDataConstants.WMO_CODES.get(city)));
-
-        if (weatherDataOptional.isEmpty()) {
-            throw new NoWeatherFoundException("No weather for " + city + " found in database!");
-        }
-
-        return weatherDataOptional.get();
+    private String stationName(int wmoCode) {
+        return settings.config().cityStations().entrySet().stream()
+                .filter(entry -> entry.getValue() == wmoCode)
+                .map(Map.Entry::getKey)
+                .findFirst()
+                .orElse("station " + wmoCode);
     }
 
     /**
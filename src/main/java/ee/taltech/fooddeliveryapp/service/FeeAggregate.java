@@ -0,0 +1,76 @@
+package ee.taltech.fooddeliveryapp.service;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDateTime;
+
+/**
+ * Aggregated delivery fees of a city and vehicle type over a range of hourly slots.
+ */
+@Getter
+public class FeeAggregate {
+    private final String city;
+    private final String vehicleType;
+    private final LocalDateTime from;
+    private final LocalDateTime to;
+    private final long slots;
+    private long slotsWithoutData;
+    private long forbiddenSlots;
+    private BigDecimal minFee;
+    private BigDecimal maxFee;
+    private BigDecimal averageFee;
+    private double forbiddenPercentage;
+
+    @Getter(AccessLevel.NONE)
+    private long feeSum;
+    @Getter(AccessLevel.NONE)
+    private long feeCount;
+    @Getter(AccessLevel.NONE)
+    private long minCents = Long.MAX_VALUE;
+    @Getter(AccessLevel.NONE)
+    private long maxCents = Long.MIN_VALUE;
+
+    FeeAggregate(String city, String vehicleType, LocalDateTime from, LocalDateTime to, long slots) {
+        this.city = city;
+        this.vehicleType = vehicleType;
+        this.from = from;
+        this.to = to;
+        this.slots = slots;
+        this.slotsWithoutData = slots;
+    }
+
+    /**
+     * Adds the fee of a slot that has weather data.
+     *
+     * @param fee Calculated fee in cents or {@link FeeAnalyticsService#FORBIDDEN} if the vehicle was forbidden in
+     *            that slot
+     */
+    void add(long fee) {
+        slotsWithoutData--;
+        if (fee == FeeAnalyticsService.FORBIDDEN) {
+            forbiddenSlots++;
+            return;
+        }
+
+        feeCount++;
+        feeSum += fee;
+        minCents = Math.min(minCents, fee);
+        maxCents = Math.max(maxCents, fee);
+    }
+
+    /**
+     * Computes the fees in euros and the forbidden percentage once all slots are added.
+     */
+    void complete() {
+        long slotsWithData = slots - slotsWithoutData;
+        if (feeCount > 0) {
+            minFee = Money.toBigDecimal(minCents);
+            maxFee = Money.toBigDecimal(maxCents);
+            averageFee = BigDecimal.valueOf(feeSum, 2).divide(BigDecimal.valueOf(feeCount), 2, RoundingMode.HALF_UP);
+        }
+        forbiddenPercentage = slotsWithData == 0 ? 0 : forbiddenSlots * 100.0 / slotsWithData;
+    }
+}
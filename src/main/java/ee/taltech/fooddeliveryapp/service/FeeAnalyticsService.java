@@ -0,0 +1,424 @@
+package ee.taltech.fooddeliveryapp.service;
+
+import ee.taltech.fooddeliveryapp.config.DeliveryDataConstants;
+import ee.taltech.fooddeliveryapp.database.WeatherData;
+import ee.taltech.fooddeliveryapp.exceptions.UnknownCityException;
+import ee.taltech.fooddeliveryapp.exceptions.UnknownVehicleException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * Evaluates the delivery fee rules over every hourly slot of a time range.
+ * The stored observations of each station are streamed once in ascending order, the observation valid for each
+ * slot is picked on the fly, and the fee rules are applied to fixed-size chunks of slots in parallel on the
+ * fork-join pool, in batches over the primitive fields of the observations by a {@link BatchFeeEvaluator}. Memory
+ * use depends on the chunk size, not on the length of the range.
+ * <p>
+ * Simulations evaluate many variants of the fee rules in the same single scan, so adding a variant costs only the
+ * fee calculations, not another read of the observations.
+ */
+@Service
+public class FeeAnalyticsService {
+    static final int CHUNK_SIZE = 4096;
+    /** Slots of a chunk evaluated by one task. */
+    static final int BATCH_SIZE = 1024;
+    /** Fee of a slot in which the weather forbade the vehicle. */
+    static final long FORBIDDEN = FeeRules.FORBIDDEN;
+    /** Name of the rules in use in simulations. */
+    public static final String CURRENT_RULES = "current";
+    /** Most variants of the rules a simulation evaluates. */
+    public static final int MAX_VARIANTS = 64;
+    private static final long SLOT_LENGTH = 3600;
+    private static final BatchFeeEvaluator EVALUATOR = BatchFeeEvaluator.create();
+
+    private final WeatherDataService weatherDataService;
+    private final DeliveryFeeCalculator calculator;
+
+    @Autowired
+    public FeeAnalyticsService(WeatherDataService weatherDataService, DeliveryFeeCalculator calculator) {
+        this.weatherDataService = weatherDataService;
+        this.calculator = calculator;
+    }
+
+    /**
+     * Aggregates the fees of every city and vehicle type combination over the hourly slots of the time range.
+     *
+     * @param cities Cities to evaluate, all cities if empty
+     * @param vehicleTypes Vehicle types to evaluate, all vehicle types if empty
+     * @param from Start of the range
+     * @param to End of the range
+     * @return One aggregate per city and vehicle type
+     * @throws UnknownCityException Thrown when one of the cities isn't Tallinn, Tartu, or Pärnu
+     * @throws UnknownVehicleException Thrown when one of the vehicles isn't a car, a scooter, or a bike
+     */
+    @Transactional(readOnly = true)
+    public List<FeeAggregate> aggregateFees(List<String> cities, List<String> vehicleTypes,
+                                            LocalDateTime from, LocalDateTime to)
+            throws UnknownCityException, UnknownVehicleException {
+        List<String> cityList = normalizeCities(cities);
+        List<String> vehicleList = normalizeVehicles(vehicleTypes);
+        SlotRange range = SlotRange.of(from, to);
+
+        RuntimeConfig config = calculator.getConfig();
+        List<FeeAggregate> output = new ArrayList<>();
+        for (String city : cityList) {
+            FeeAggregate[] aggregates = new FeeAggregate[vehicleList.size()];
+            for (int v = 0; v < aggregates.length; v++) {
+                aggregates[v] = new FeeAggregate(city, vehicleList.get(v), from, to, range.count());
+            }
+
+            scan(config.cityStations().get(city), range, chunk -> evaluate(city, vehicleList, config.feeRules(), chunk,
+                    (slotStart, vehicle, fee) -> aggregates[vehicle].add(fee)));
+
+            for (FeeAggregate aggregate : aggregates) {
+                aggregate.complete();
+                output.add(aggregate);
+            }
+        }
+
+        return output;
+    }
+
+    /**
+     * Calculates the fee of every city and vehicle type combination for each hourly slot of the time range that
+     * has weather data, and hands them to the consumer in order of city, then slot.
+     *
+     * @param cities Cities to evaluate, all cities if empty
+     * @param vehicleTypes Vehicle types to evaluate, all vehicle types if empty
+     * @param from Start of the range
+     * @param to End of the range
+     * @param consumer Receives the fee of each slot
+     * @throws UnknownCityException Thrown when one of the cities isn't Tallinn, Tartu, or Pärnu
+     * @throws UnknownVehicleException Thrown when one of the vehicles isn't a car, a scooter, or a bike
+     */
+    @Transactional(readOnly = true)
+    public void forEachSlotFee(List<String> cities, List<String> vehicleTypes, LocalDateTime from, LocalDateTime to,
+                               Consumer<SlotFee> consumer) throws UnknownCityException, UnknownVehicleException {
+        List<String> cityList = normalizeCities(cities);
+        List<String> vehicleList = normalizeVehicles(vehicleTypes);
+        SlotRange range = SlotRange.of(from, to);
+
+        RuntimeConfig config = calculator.getConfig();
+        for (String city : cityList) {
+            scan(config.cityStations().get(city), range, chunk -> evaluate(city, vehicleList, config.feeRules(), chunk,
+                    (slotStart, vehicle, fee) -> consumer.accept(new SlotFee(city, vehicleList.get(vehicle),
+                            toLocalDateTime(slotStart), fee == FORBIDDEN ? null : Money.toBigDecimal(fee),
+                            fee == FORBIDDEN))));
+        }
+    }
+
+    /**
+     * Evaluates variants of the fee rules over the hourly slots of the time range and compares them to the rules
+     * in use, which are evaluated first as {@link #CURRENT_RULES}. The fee of each slot is weighed by its orders.
+     * The observations of each station are read once for all variants.
+     *
+     * @param cities Cities to evaluate, all cities if empty
+     * @param vehicleTypes Vehicle types to evaluate, all vehicle types if empty
+     * @param from Start of the range
+     * @param to End of the range
+     * @param variants Rules to evaluate by name
+     * @param orders Orders in each slot
+     * @return Fees of the rules in use, then of each variant in order
+     * @throws UnknownCityException Thrown when one of the cities isn't Tallinn, Tartu, or Pärnu
+     * @throws UnknownVehicleException Thrown when one of the vehicles isn't a car, a scooter, or a bike
+     * @throws IllegalArgumentException Thrown when the range is empty, there are too many variants or a variant is
+     * named like the rules in use
+     */
+    @Transactional(readOnly = true)
+    public List<FeeSimulation> simulate(List<String> cities, List<String> vehicleTypes, LocalDateTime from,
+                                        LocalDateTime to, Map<String, FeeRules> variants, OrderVolumes orders)
+            throws UnknownCityException, UnknownVehicleException {
+        List<String> cityList = normalizeCities(cities);
+        List<String> vehicleList = normalizeVehicles(vehicleTypes);
+        SlotRange range = SlotRange.of(from, to);
+        if (variants.size() > MAX_VARIANTS) {
+            throw new IllegalArgumentException("At most " + MAX_VARIANTS + " variants can be simulated at once");
+        } else if (variants.containsKey(CURRENT_RULES)) {
+            throw new IllegalArgumentException("Variant name '" + CURRENT_RULES + "' is taken by the rules in use");
+        }
+
+        RuntimeConfig config = calculator.getConfig();
+        List<String> names = new ArrayList<>();
+        List<FeeRules> rules = new ArrayList<>();
+        names.add(CURRENT_RULES);
+        rules.add(config.feeRules());
+        variants.forEach((name, variant) -> {
+            names.add(name);
+            rules.add(variant);
+        });
+
+        // fees[variant][city * vehicles + vehicle]
+        SimulatedFees[][] fees = new SimulatedFees[rules.size()][cityList.size() * vehicleList.size()];
+        for (int c = 0; c < cityList.size(); c++) {
+            String city = cityList.get(c);
+            int offset = c * vehicleList.size();
+            for (SimulatedFees[] variantFees : fees) {
+                for (int vehicle = 0; vehicle < vehicleList.size(); vehicle++) {
+                    variantFees[offset + vehicle] = new SimulatedFees(city, vehicleList.get(vehicle));
+                }
+            }
+            scan(config.cityStations().get(city), range,
+                    chunk -> simulate(city, vehicleList, rules, orders, chunk, fees, offset));
+        }
+
+        SimulatedFees[] totals = new SimulatedFees[fees.length];
+        for (int variant = 0; variant < fees.length; variant++) {
+            totals[variant] = new SimulatedFees(null, null);
+            for (SimulatedFees simulated : fees[variant]) {
+                totals[variant].add(simulated);
+            }
+        }
+
+        List<FeeSimulation> output = new ArrayList<>();
+        for (int variant = 0; variant < fees.length; variant++) {
+            for (int i = 0; i < fees[variant].length; i++) {
+                fees[variant][i].complete(fees[0][i]);
+            }
+            totals[variant].complete(totals[0]);
+            output.add(new FeeSimulation(names.get(variant), rules.get(variant), List.of(fees[variant]),
+                    totals[variant]));
+        }
+        return output;
+    }
+
+    /**
+     * Checks the parameters of an analytics request without evaluating anything, so that errors can be reported
+     * before a streamed response has started.
+     *
+     * @param cities Cities to evaluate
+     * @param vehicleTypes Vehicle types to evaluate
+     * @param from Start of the range
+     * @param to End of the range
+     * @throws UnknownCityException Thrown when one of the cities isn't Tallinn, Tartu, or Pärnu
+     * @throws UnknownVehicleException Thrown when one of the vehicles isn't a car, a scooter, or a bike
+     */
+    public void validate(List<String> cities, List<String> vehicleTypes, LocalDateTime from, LocalDateTime to)
+            throws UnknownCityException, UnknownVehicleException {
+        normalizeCities(cities);
+        normalizeVehicles(vehicleTypes);
+        SlotRange.of(from, to);
+    }
+
+    /**
+     * Streams the observations of a city's station once and picks the observation valid for each slot, the latest
+     * one of the slot, the same one a single fee request for that slot would use. Full chunks of slots are handed
+     * to the evaluator right away and emptied afterwards.
+     */
+    private void scan(int wmoCode, SlotRange range, Consumer<SlotChunk> evaluator) {
+        SlotChunk chunk = new SlotChunk();
+        long pendingSlot = -1;
+        WeatherData pending = null;
+
+        try (Stream<WeatherData> stream = weatherDataService.streamWeatherData(wmoCode, range.start(), range.end())) {
+            Iterator<WeatherData> iterator = stream.iterator();
+
+            while (iterator.hasNext()) {
+                WeatherData data = iterator.next();
+                long offset = data.getTimeStamp() - range.start();
+                long slot = Math.floorDiv(offset, SLOT_LENGTH);
+
+                // Slots are closed ranges, so an observation exactly on a boundary is also the latest one of the
+                // previous slot
+                long first = offset % SLOT_LENGTH == 0 ? Math.max(slot - 1, 0) : slot;
+                for (long target = first; target <= slot && target < range.count(); target++) {
+                    if (target > pendingSlot && pending != null
+                            && chunk.add(range.slotStart(pendingSlot), pending)) {
+                        evaluator.accept(chunk);
+                        chunk.clear();
+                    }
+                    pendingSlot = target;
+                    pending = data;
+                }
+            }
+        }
+
+        if (pending != null) {
+            chunk.add(range.slotStart(pendingSlot), pending);
+        }
+        if (chunk.size > 0) {
+            evaluator.accept(chunk);
+            chunk.clear();
+        }
+    }
+
+    /**
+     * Applies the fee rules to batches of slots of the chunk for every vehicle type in parallel, then hands the
+     * results to the handler in slot order.
+     */
+    private static void evaluate(String city, List<String> vehicles, FeeRules rules, SlotChunk chunk,
+                                 SlotFeeHandler handler) {
+        int size = chunk.size;
+        int batches = (size + BATCH_SIZE - 1) / BATCH_SIZE;
+        long[][] fees = new long[vehicles.size()][size];
+        IntStream.range(0, batches * vehicles.size()).parallel().forEach(i -> {
+            int vehicle = i / batches;
+            int from = i % batches * BATCH_SIZE;
+            FeeRules.VehicleRules vehicleRules = rules.vehicles().get(vehicles.get(vehicle));
+            EVALUATOR.evaluate(rules, rules.baseFee() + rules.cityFees().get(city) + vehicleRules.fee(),
+                    vehicleRules, chunk.airTemperatures, chunk.windSpeeds, chunk.phenomena, from,
+                    Math.min(from + BATCH_SIZE, size), fees[vehicle]);
+        });
+
+        for (int slot = 0; slot < size; slot++) {
+            for (int vehicle = 0; vehicle < fees.length; vehicle++) {
+                handler.accept(chunk.slotStarts[slot], vehicle, fees[vehicle][slot]);
+            }
+        }
+    }
+
+    /**
+     * Applies every variant of the rules to the slots of the chunk, with the variants and vehicle types in
+     * parallel. Each task adds up the fees of its own variant and vehicle type, so none of them share state.
+     */
+    private static void simulate(String city, List<String> vehicles, List<FeeRules> rules, OrderVolumes orders,
+                                 SlotChunk chunk, SimulatedFees[][] fees, int offset) {
+        int size = chunk.size;
+        long[][] slotOrders = new long[vehicles.size()][size];
+        for (int vehicle = 0; vehicle < vehicles.size(); vehicle++) {
+            for (int slot = 0; slot < size; slot++) {
+                slotOrders[vehicle][slot] = orders.orders(city, vehicles.get(vehicle), chunk.slotStarts[slot]);
+            }
+        }
+
+        IntStream.range(0, rules.size() * vehicles.size()).parallel().forEach(i -> {
+            int variant = i / vehicles.size();
+            int vehicle = i % vehicles.size();
+            FeeRules variantRules = rules.get(variant);
+            FeeRules.VehicleRules vehicleRules = variantRules.vehicles().get(vehicles.get(vehicle));
+            long fixedFee = variantRules.baseFee() + variantRules.cityFees().get(city) + vehicleRules.fee();
+            long[] slotFees = new long[size];
+            EVALUATOR.evaluate(variantRules, fixedFee, vehicleRules, chunk.airTemperatures, chunk.windSpeeds,
+                    chunk.phenomena, 0, size, slotFees);
+
+            SimulatedFees simulated = fees[variant][offset + vehicle];
+            for (int slot = 0; slot < size; slot++) {
+                simulated.add(slotFees[slot], slotOrders[vehicle][slot]);
+            }
+        });
+    }
+
+    private List<String> normalizeCities(List<String> cities) throws UnknownCityException {
+        if (cities == null || cities.isEmpty()) {
+            return DeliveryDataConstants.CITY_LIST;
+        }
+
+        List<String> output = new ArrayList<>();
+        for (String city : cities) {
+            String normalized = city.toLowerCase();
+            if (!DeliveryDataConstants.CITY_LIST.contains(normalized)) {
+                throw new UnknownCityException(city);
+            }
+            output.add(normalized);
+        }
+        return output;
+    }
+
+    private List<String> normalizeVehicles(List<String> vehicleTypes) throws UnknownVehicleException {
+        if (vehicleTypes == null || vehicleTypes.isEmpty()) {
+            return DeliveryDataConstants.VEHICLE_TYPE_LIST;
+        }
+
+        List<String> output = new ArrayList<>();
+        for (String vehicleType : vehicleTypes) {
+            String normalized = vehicleType.toLowerCase();
+            if (!DeliveryDataConstants.VEHICLE_TYPE_LIST.contains(normalized)) {
+                throw new UnknownVehicleException(vehicleType);
+            }
+            output.add(normalized);
+        }
+        return output;
+    }
+
+    /**
+     * @param time Time within a slot
+     * @return UNIX time of the start of the HH:15 to HH+1:15 slot holding the time
+     */
+    static long slotStartOf(LocalDateTime time) {
+        LocalDateTime start = time.truncatedTo(ChronoUnit.HOURS).plusMinutes(15);
+        if (start.isAfter(time)) {
+            start = start.minusHours(1);
+        }
+        return start.atZone(ZoneId.systemDefault()).toEpochSecond();
+    }
+
+    private static LocalDateTime toLocalDateTime(long unixTimeStamp) {
+        return LocalDateTime.ofInstant(Instant.ofEpochSecond(unixTimeStamp), ZoneId.systemDefault());
+    }
+
+    /**
+     * Receives the fee in cents of a vehicle type for a slot, {@link #FORBIDDEN} if the vehicle was forbidden.
+     */
+    @FunctionalInterface
+    private interface SlotFeeHandler {
+        void accept(long slotStart, int vehicle, long fee);
+    }
+
+    /**
+     * Hourly HH:15 to HH+1:15 slots covering a time range.
+     *
+     * @param start UNIX time of the start of the first slot
+     * @param count Number of slots
+     */
+    private record SlotRange(long start, long count) {
+
+        static SlotRange of(LocalDateTime from, LocalDateTime to) {
+            if (from == null || to == null || !from.isBefore(to)) {
+                throw new IllegalArgumentException("Start of the range must be before its end");
+            }
+
+            long start = slotStartOf(from);
+            long end = to.atZone(ZoneId.systemDefault()).toEpochSecond();
+            return new SlotRange(start, (end - start + SLOT_LENGTH - 1) / SLOT_LENGTH);
+        }
+
+        long slotStart(long slot) {
+            return start + slot * SLOT_LENGTH;
+        }
+
+        long end() {
+            return slotStart(count);
+        }
+    }
+
+    /**
+     * Reusable buffer of selected slots waiting to be evaluated, with the fields of their observations in arrays of
+     * their own for batch evaluation.
+     */
+    private static final class SlotChunk {
+        private final long[] slotStarts = new long[CHUNK_SIZE];
+        private final double[] airTemperatures = new double[CHUNK_SIZE];
+        private final double[] windSpeeds = new double[CHUNK_SIZE];
+        private final int[] phenomena = new int[CHUNK_SIZE];
+        private int size;
+
+        /**
+         * @return Whether the chunk is full after adding
+         */
+        boolean add(long slotStart, WeatherData data) {
+            Observation observation = Observation.of(data);
+            slotStarts[size] = slotStart;
+            airTemperatures[size] = observation.airTemperature();
+            windSpeeds[size] = observation.windSpeed();
+            phenomena[size] = observation.phenomenon();
+            size++;
+            return size == CHUNK_SIZE;
+        }
+
+        void clear() {
+            size = 0;
+        }
+    }
+}
@@ -0,0 +1,375 @@
+package ee.taltech.fooddeliveryapp.service;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Append-only log of every quoted fee and the weather it was calculated from, for settling disputes.
+ * <p>
+ * Quotes only put a record on a lock-free queue; a background thread writes the queued records in batches to
+ * gzip-compressed files in {@code audit.directory}, flushed after every batch. A new file is started once a file
+ * holds about {@code audit.max-file-size} bytes of records. At most {@code audit.queue-capacity} records wait at
+ * once; when the queue is full, quotes wait up to {@code audit.offer-timeout} milliseconds for room, which also slows
+ * a bulk quote stream down to the pace of the writer. Records that still don't fit are dropped and counted, and
+ * their quotes are answered without a quote ID. On shutdown every queued record is written before the files are
+ * closed.
+ * <p>
+ * Quote IDs are unique across nodes and grow with time on each node. The upper 41 bits are the time the quote was
+ * made in milliseconds since 2023, which {@link #find(Path, long)} uses to go straight to the file holding it, the
+ * next 10 bits the node ID {@code audit.node-id} and the lowest 12 bits a sequence number. The node ID must be
+ * unique among the nodes, so it has to be set: the log refuses to start without it, at startup even with lazy
+ * initialization, rather than give out IDs another node may give out too.
+ */
+@Component
+@Lazy(false)
+public class FeeAuditLog {
+    static final String FILE_PREFIX = "quotes-";
+    static final String FILE_SUFFIX = ".log.gz";
+    private static final int BATCH_SIZE = 1000;
+    /** Quote IDs count time from 2023-01-01T00:00:00Z. */
+    static final long EPOCH = 1672531200000L;
+    static final int NODE_BITS = 10;
+    private static final int SEQUENCE_BITS = 12;
+    private static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+
+    private final boolean enabled;
+    private final Path directory;
+    private final int capacity;
+    private final long maxFileSize;
+    private final long flushIntervalNanos;
+    private final long offerTimeoutNanos;
+    private final long nodeId;
+
+    private final ConcurrentLinkedQueue<FeeAuditRecord> queue = new ConcurrentLinkedQueue<>();
+    /** Room left in the queue. */
+    private final Semaphore space;
+    /** Time and sequence number of the last quote ID, without the node ID. */
+    private final AtomicLong lastSequence = new AtomicLong();
+    private final LongAdder written = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final Thread writerThread;
+    private volatile boolean stopping;
+
+    private Writer writer;
+    private long fileSize;
+
+    /**
+     * Statistics of the audit log.
+     *
+     * @param queued Records waiting to be written
+     * @param written Records written
+     * @param dropped Records dropped because the queue stayed full or the log closed
+     * @param failed Records lost to write errors
+     */
+    public record AuditStats(int queued, long written, long dropped, long failed) {
+    }
+
+    /**
+     * @param enabled Whether quotes are recorded
+     * @param directory Directory of the log files
+     * @param capacity Maximum number of records waiting to be written
+     * @param maxFileSize Bytes of records after which a new file is started
+     * @param flushInterval Milliseconds the writer waits for records when there are none
+     * @param offerTimeout Milliseconds a quote waits for room in a full queue
+     * @param nodeId Node ID in quote IDs from 0 to 1023, -1 if it isn't set
+     * @throws IllegalArgumentException Thrown when the log is enabled without a node ID, or the node ID is out of
+     * range
+     */
+    @Autowired
+    public FeeAuditLog(@Value("${audit.enabled:true}") boolean enabled,
+                       @Value("${audit.directory:${user.home}/fee-audit}") String directory,
+                       @Value("${audit.queue-capacity:100000}") int capacity,
+                       @Value("${audit.max-file-size:67108864}") long maxFileSize,
+                       @Value("${audit.flush-interval:200}") long flushInterval,
+                       @Value("${audit.offer-timeout:1000}") long offerTimeout,
+                       @Value("${audit.node-id:-1}") int nodeId) {
+        if (nodeId < -1 || nodeId >= 1 << NODE_BITS) {
+            throw new IllegalArgumentException("Audit node ID must be from 0 to " + ((1 << NODE_BITS) - 1));
+        }
+        if (enabled && nodeId == -1) {
+            throw new IllegalArgumentException("audit.node-id must be set to a node ID from 0 to "
+                    + ((1 << NODE_BITS) - 1) + " that no other node uses");
+        }
+        this.enabled = enabled;
+        this.directory = Path.of(directory);
+        this.capacity = capacity;
+        this.maxFileSize = maxFileSize;
+        this.flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(flushInterval);
+        this.offerTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(offerTimeout);
+        this.space = new Semaphore(capacity);
+        this.nodeId = Math.max(0, nodeId);
+        this.writerThread = new Thread(this::writeLoop, "fee-audit-writer");
+        this.writerThread.setDaemon(true);
+        if (enabled) {
+            writerThread.start();
+        }
+    }
+
+    /**
+     * @return New quote ID, unique across nodes and greater than every ID given out before on this node
+     */
+    public long nextQuoteId() {
+        // More than 4096 IDs in a millisecond borrow from the next one, never from the node ID
+        long earliest = (System.currentTimeMillis() - EPOCH) << SEQUENCE_BITS;
+        long sequence = lastSequence.accumulateAndGet(earliest, (last, time) -> Math.max(last + 1, time));
+        return (sequence >>> SEQUENCE_BITS) << (NODE_BITS + SEQUENCE_BITS)
+                | nodeId << SEQUENCE_BITS
+                | sequence & SEQUENCE_MASK;
+    }
+
+    /**
+     * @param quoteId Quote ID
+     * @return UNIX time in milliseconds the quote was made at
+     */
+    public static long quotedAt(long quoteId) {
+        return (quoteId >>> (NODE_BITS + SEQUENCE_BITS)) + EPOCH;
+    }
+
+    /**
+     * @param quoteId Quote ID
+     * @return ID of the node that made the quote
+     */
+    public static int nodeOf(long quoteId) {
+        return (int) (quoteId >>> SEQUENCE_BITS & ((1L << NODE_BITS) - 1));
+    }
+
+    /**
+     * Queues a record to be written, without waiting for it to be written. If the queue is full, waits for the
+     * writer to make room for up to {@code audit.offer-timeout} milliseconds.
+     *
+     * @param record Record of a quote
+     * @return Whether the record was queued, false if the log is disabled or closed or the queue stayed full. The
+     * quote ID of a record that wasn't queued can't be looked up and must not be given out
+     */
+    public boolean record(FeeAuditRecord record) {
+        if (!enabled) {
+            return false;
+        }
+        if (stopping || !awaitSpace()) {
+            dropped.increment();
+            return false;
+        }
+        queue.offer(record);
+        // A record queued while closing may have missed the writer's last drain. If it can still be taken back it
+        // won't be written, otherwise the writer has taken it and writes it before it stops
+        if (stopping && queue.remove(record)) {
+            space.release();
+            dropped.increment();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * @param quoteId Quote ID
+     * @return Record of the quote in the log directory of this node, if it has been written
+     * @throws IOException Thrown when the log files can't be read
+     */
+    public Optional<FeeAuditRecord> find(long quoteId) throws IOException {
+        return find(directory, quoteId);
+    }
+
+    /**
+     * @return Statistics of the log
+     */
+    public AuditStats getStats() {
+        return new AuditStats(capacity - space.availablePermits(), written.sum(), dropped.sum(), failed.sum());
+    }
+
+    /**
+     * Writes every queued record, then closes the current file.
+     */
+    @PreDestroy
+    public void close() {
+        stopping = true;
+        if (writerThread.isAlive()) {
+            LockSupport.unpark(writerThread);
+            try {
+                writerThread.join(TimeUnit.SECONDS.toMillis(30));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Looks a quote up in the log files of a directory. Only the files started at or after the time the quote was
+     * made, and the one before them, are read.
+     *
+     * @param directory Directory of the log files
+     * @param quoteId Quote ID
+     * @return Record of the quote, if it has been written
+     * @throws IOException Thrown when the log files can't be read
+     */
+    public static Optional<FeeAuditRecord> find(Path directory, long quoteId) throws IOException {
+        long quotedAt = quotedAt(quoteId);
+        List<Path> files = listFiles(directory);
+        int first = 0;
+        for (int i = 0; i < files.size(); i++) {
+            if (startOf(files.get(i)) <= quotedAt) {
+                first = i;
+            }
+        }
+
+        for (Path file : files.subList(first, files.size())) {
+            Optional<FeeAuditRecord> found = findInFile(file, quoteId);
+            if (found.isPresent()) {
+                return found;
+            }
+        }
+        return Optional.empty();
+    }
+
+    private static Optional<FeeAuditRecord> findInFile(Path file, long quoteId) throws IOException {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                new GZIPInputStream(Files.newInputStream(file)), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (!line.isEmpty() && FeeAuditRecord.parseQuoteId(line) == quoteId) {
+                    return Optional.of(FeeAuditRecord.parse(line));
+                }
+            }
+        } catch (EOFException e) {
+            // The file is still being written, everything flushed so far has been read
+        }
+        return Optional.empty();
+    }
+
+    private static List<Path> listFiles(Path directory) throws IOException {
+        List<Path> files = new ArrayList<>();
+        if (!Files.isDirectory(directory)) {
+            return files;
+        }
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, FILE_PREFIX + "*" + FILE_SUFFIX)) {
+            stream.forEach(files::add);
+        }
+        files.sort(Comparator.comparingLong(FeeAuditLog::startOf).thenComparing(Path::toString));
+        return files;
+    }
+
+    /**
+     * @return UNIX time in milliseconds the file was started at, from its name
+     */
+    private static long startOf(Path file) {
+        String name = file.getFileName().toString();
+        int end = name.indexOf('-', FILE_PREFIX.length());
+        return Long.parseLong(name.substring(FILE_PREFIX.length(),
+                end >= 0 ? end : name.length() - FILE_SUFFIX.length()));
+    }
+
+    private void writeLoop() {
+        List<FeeAuditRecord> batch = new ArrayList<>(BATCH_SIZE);
+        try {
+            while (true) {
+                boolean stop = stopping;
+                FeeAuditRecord record;
+                while (batch.size() < BATCH_SIZE && (record = queue.poll()) != null) {
+                    batch.add(record);
+                }
+                if (!batch.isEmpty()) {
+                    space.release(batch.size());
+                    write(batch);
+                    batch.clear();
+                } else if (stop) {
+                    return;
+                } else {
+                    LockSupport.parkNanos(flushIntervalNanos);
+                }
+            }
+        } finally {
+            closeFile();
+        }
+    }
+
+    private boolean awaitSpace() {
+        if (space.tryAcquire()) {
+            return true;
+        }
+        // The writer may be waiting for its flush interval, the queue is full now
+        LockSupport.unpark(writerThread);
+        try {
+            return space.tryAcquire(offerTimeoutNanos, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private void write(List<FeeAuditRecord> batch) {
+        try {
+            if (writer == null) {
+                openFile();
+            }
+            for (FeeAuditRecord record : batch) {
+                String line = record.toLine();
+                writer.write(line);
+                writer.write('\n');
+                fileSize += line.length() + 1;
+            }
+            writer.flush();
+            written.add(batch.size());
+        } catch (IOException e) {
+            failed.add(batch.size());
+            closeFile();
+            return;
+        }
+
+        if (fileSize >= maxFileSize) {
+            closeFile();
+        }
+    }
+
+    private void openFile() throws IOException {
+        Files.createDirectories(directory);
+        String start = String.format("%013d", System.currentTimeMillis());
+        Path file = directory.resolve(FILE_PREFIX + start + FILE_SUFFIX);
+        for (int i = 1; Files.exists(file); i++) {
+            file = directory.resolve(FILE_PREFIX + start + "-" + i + FILE_SUFFIX);
+        }
+        // Sync flush, so every batch can be read back while the file is still open
+        writer = new BufferedWriter(new OutputStreamWriter(new GZIPOutputStream(
+                Files.newOutputStream(file, StandardOpenOption.CREATE_NEW), 65536, true), StandardCharsets.UTF_8));
+        fileSize = 0;
+    }
+
+    private void closeFile() {
+        if (writer == null) {
+            return;
+        }
+        try {
+            writer.close();
+        } catch (IOException e) {
+            failed.increment();
+        }
+        writer = null;
+    }
+}
@@ -0,0 +1,36 @@
+package ee.taltech.fooddeliveryapp.service;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Optional;
+
+/**
+ * Looks quotes up in the audit log files of a directory without starting the application, e.g. in a directory
+ * the logs of all nodes were collected into. Run with {@code gradle auditQuery --args="<directory> <quoteId>..."}.
+ * Prints the record of every quote found and exits with status 1 if any is missing.
+ */
+public final class FeeAuditQuery {
+
+    private FeeAuditQuery() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: FeeAuditQuery <directory> <quoteId>...");
+            System.exit(2);
+        }
+
+        Path directory = Path.of(args[0]);
+        boolean missing = false;
+        for (int i = 1; i < args.length; i++) {
+            Optional<FeeAuditRecord> record = FeeAuditLog.find(directory, Long.parseLong(args[i]));
+            if (record.isPresent()) {
+                System.out.println(record.get());
+            } else {
+                System.out.println("No quote with ID " + args[i]);
+                missing = true;
+            }
+        }
+        System.exit(missing ? 1 : 0);
+    }
+}
@@ -0,0 +1,119 @@
+package ee.taltech.fooddeliveryapp.service;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A quoted fee and the weather it was calculated from, as kept in the {@link FeeAuditLog}. The weather row is
+ * identified by the station's WMO code, the time stamp of the observation and the snapshot version of its import.
+ *
+ * @param quoteId ID of the quote, returned to the client along with the fee
+ * @param quotedAt UNIX time in milliseconds the fee was quoted at
+ * @param city City as requested
+ * @param vehicleType Vehicle type as requested
+ * @param requestedTime Delivery time as requested, null for the latest weather
+ * @param latitude Latitude of the delivery location, may be null
+ * @param longitude Longitude of the delivery location, may be null
+ * @param status HTTP status of the response
+ * @param feeCents Quoted fee in cents, 0 if none was quoted
+ * @param observation Weather the fee was calculated from, null if it was quoted from the forecast or not at all
+ */
+public record FeeAuditRecord(long quoteId, long quotedAt, String city, String vehicleType, String requestedTime,
+                             Double latitude, Double longitude, int status, long feeCents, Observation observation) {
+    private static final int FIELDS = 15;
+
+    /**
+     * @return The record as a line of tab-separated fields, without a line terminator
+     */
+    public String toLine() {
+        StringBuilder line = new StringBuilder(160);
+        line.append(quoteId).append('\t').append(quotedAt).append('\t');
+        appendText(line, city);
+        appendText(line, vehicleType);
+        appendText(line, requestedTime);
+        line.append(latitude != null ? latitude : "").append('\t');
+        line.append(longitude != null ? longitude : "").append('\t');
+        line.append(status).append('\t').append(feeCents);
+        if (observation != null) {
+            line.append('\t').append(observation.wmoCode())
+                    .append('\t').append(observation.timeStamp())
+                    .append('\t').append(observation.snapshotVersion())
+                    .append('\t').append(observation.airTemperature())
+                    .append('\t').append(observation.windSpeed())
+                    .append('\t').append(observation.phenomenon());
+        } else {
+            line.append("\t\t\t\t\t\t");
+        }
+        return line.toString();
+    }
+
+    /**
+     * @param line Line written by {@link #toLine()}
+     * @return Record of the line
+     * @throws IllegalArgumentException Thrown when the line isn't a record
+     */
+    public static FeeAuditRecord parse(String line) {
+        List<String> fields = split(line);
+        if (fields.size() != FIELDS) {
+            throw new IllegalArgumentException("Not an audit record: " + line);
+        }
+
+        try {
+            Observation observation = fields.get(9).isEmpty() ? null : new Observation(
+                    Integer.parseInt(fields.get(9)),
+                    Double.parseDouble(fields.get(12)),
+                    Double.parseDouble(fields.get(13)),
+                    Integer.parseInt(fields.get(14)),
+                    Long.parseLong(fields.get(10)),
+                    Long.parseLong(fields.get(11)));
+            return new FeeAuditRecord(
+                    Long.parseLong(fields.get(0)),
+                    Long.parseLong(fields.get(1)),
+                    emptyToNull(fields.get(2)),
+                    emptyToNull(fields.get(3)),
+                    emptyToNull(fields.get(4)),
+                    fields.get(5).isEmpty() ? null : Double.valueOf(fields.get(5)),
+                    fields.get(6).isEmpty() ? null : Double.valueOf(fields.get(6)),
+                    Integer.parseInt(fields.get(7)),
+                    Long.parseLong(fields.get(8)),
+                    observation);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Not an audit record: " + line, e);
+        }
+    }
+
+    /**
+     * @param line Line written by {@link #toLine()}
+     * @return Quote ID of the line, without parsing the rest of it
+     */
+    static long parseQuoteId(String line) {
+        int end = line.indexOf('\t');
+        return Long.parseLong(end >= 0 ? line.substring(0, end) : line);
+    }
+
+    private static void appendText(StringBuilder line, String text) {
+        if (text != null) {
+            for (int i = 0; i < text.length(); i++) {
+                char c = text.charAt(i);
+                line.append(c == '\t' || c == '\n' || c == '\r' ? ' ' : c);
+            }
+        }
+        line.append('\t');
+    }
+
+    private static String emptyToNull(String text) {
+        return text.isEmpty() ? null : text;
+    }
+
+    private static List<String> split(String line) {
+        List<String> fields = new ArrayList<>(FIELDS);
+        int start = 0;
+        int end;
+        while ((end = line.indexOf('\t', start)) >= 0) {
+            fields.add(line.substring(start, end));
+            start = end + 1;
+        }
+        fields.add(line.substring(start));
+        return fields;
+    }
+}
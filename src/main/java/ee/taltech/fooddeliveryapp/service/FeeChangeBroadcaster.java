@@ -0,0 +1,111 @@
+package ee.taltech.fooddeliveryapp.service;
+
+import ee.taltech.fooddeliveryapp.config.DeliveryDataConstants;
+import ee.taltech.fooddeliveryapp.exceptions.InvalidTimeStampException;
+import ee.taltech.fooddeliveryapp.exceptions.NoWeatherFoundException;
+import ee.taltech.fooddeliveryapp.exceptions.UnknownCityException;
+import ee.taltech.fooddeliveryapp.exceptions.UnknownVehicleException;
+import ee.taltech.fooddeliveryapp.exceptions.VehicleForbiddenException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * Keeps the current fee of every city and vehicle type and tells its listeners when any of them changes.
+ * <p>
+ * The fees are recalculated once per weather change, on the {@link WeatherEventBus}, however many clients are
+ * listening. Changes that arrive while a recalculation is running are merged into a single next one.
+ */
+@Component
+@Lazy(false)
+public class FeeChangeBroadcaster {
+    private final DeliveryFeeCalculator calculator;
+    private final WeatherDataService weatherDataService;
+    private final List<Consumer<List<LiveFee>>> listeners = new CopyOnWriteArrayList<>();
+    private volatile Map<String, LiveFee> fees;
+
+    @Autowired
+    public FeeChangeBroadcaster(DeliveryFeeCalculator calculator, WeatherDataService weatherDataService,
+                                WeatherEventBus eventBus) {
+        this.calculator = calculator;
+        this.weatherDataService = weatherDataService;
+        eventBus.subscribe("fee-changes", 1, WeatherEventBus.Overflow.MERGE, event -> recalculate());
+    }
+
+    /**
+     * @param listener Receives the fees that changed with every weather change, on the thread of the recalculation
+     */
+    public void addListener(Consumer<List<LiveFee>> listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * @param city City, lower case
+     * @param vehicleType Vehicle type, lower case
+     * @return Current fee, null if there is no weather for the city
+     */
+    public LiveFee getFee(String city, String vehicleType) {
+        Map<String, LiveFee> current = fees;
+        if (current == null) {
+            current = recalculate();
+        }
+        return current.get(key(city, vehicleType));
+    }
+
+    /**
+     * Recalculates the fee of every city and vehicle type from the latest weather and hands the ones that changed
+     * to the listeners. The fees are replaced before the listeners are called, so {@link #getFee(String, String)}
+     * never returns an older fee than a listener was given. Also called when the fee rules change.
+     *
+     * @return Current fees by city and vehicle type
+     */
+    public synchronized Map<String, LiveFee> recalculate() {
+        Map<String, LiveFee> previous = fees != null ? fees : Map.of();
+        Map<String, LiveFee> current = new HashMap<>();
+        List<LiveFee> changed = new ArrayList<>();
+        for (String city : DeliveryDataConstants.CITY_LIST) {
+            for (String vehicleType : DeliveryDataConstants.VEHICLE_TYPE_LIST) {
+                LiveFee fee = quote(city, vehicleType);
+                if (fee == null) {
+                    continue;
+                }
+                current.put(key(city, vehicleType), fee);
+                if (fee.changedFrom(previous.get(key(city, vehicleType)))) {
+                    changed.add(fee);
+                }
+            }
+        }
+
+        fees = Map.copyOf(current);
+        if (!changed.isEmpty()) {
+            for (Consumer<List<LiveFee>> listener : listeners) {
+                listener.accept(List.copyOf(changed));
+            }
+        }
+        return fees;
+    }
+
+    private LiveFee quote(String city, String vehicleType) {
+        try {
+            FeeQuote quote = calculator.quoteFeeAt(city, vehicleType, null, null, null);
+            return new LiveFee(city, vehicleType, quote.fee(), false,
+                    quote.snapshotVersion() != null ? quote.snapshotVersion() : 0);
+        } catch (VehicleForbiddenException e) {
+            return new LiveFee(city, vehicleType, null, true, weatherDataService.getSnapshotVersion());
+        } catch (NoWeatherFoundException | InvalidTimeStampException | UnknownCityException
+                 | UnknownVehicleException e) {
+            return null;
+        }
+    }
+
+    private static String key(String city, String vehicleType) {
+        return city + ':' + vehicleType;
+    }
+}
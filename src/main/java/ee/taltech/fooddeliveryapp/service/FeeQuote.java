@@ -0,0 +1,29 @@
+package ee.taltech.fooddeliveryapp.service;
+
+import java.math.BigDecimal;
+
+/**
+ * A calculated delivery fee and the weather snapshot it was calculated from.
+ *
+ * @param feeCents Calculated fee in cents
+ * @param snapshotVersion Version of the weather import the observation came from, null if the fee was quoted from
+ *                        the forecast or from weather saved before snapshots were versioned
+ * @param observation Weather the fee was calculated from, null if the fee was quoted from the forecast
+ */
+public record FeeQuote(long feeCents, Long snapshotVersion, Observation observation) {
+
+    /**
+     * @param feeCents Calculated fee in cents
+     * @param snapshotVersion Version of the weather import the fee was calculated from, may be null
+     */
+    public FeeQuote(long feeCents, Long snapshotVersion) {
+        this(feeCents, snapshotVersion, null);
+    }
+
+    /**
+     * @return Calculated fee in euros
+     */
+    public BigDecimal fee() {
+        return Money.toBigDecimal(feeCents);
+    }
+}
@@ -0,0 +1,145 @@
+package ee.taltech.fooddeliveryapp.service;
+
+import ee.taltech.fooddeliveryapp.config.DeliveryDataConstants;
+
+import java.util.Map;
+
+/**
+ * Parameters of the delivery fee rules: the base fees, the weather thresholds and the extra fees of every vehicle
+ * type. {@link #DEFAULT} holds the business rules; other rules can be evaluated against the stored weather to see
+ * what a change would have done.
+ * <p>
+ * The air temperature fee is {@code coldFee} below {@code coldBelow} degrees and {@code freezingFee} below
+ * {@code freezingBelow} degrees. The wind speed fee is {@code windyFee} above {@code windyAbove} m/s, and above
+ * {@code stormAbove} m/s the vehicle is forbidden if it is {@code forbiddenInStorm}. Glaze, hail and thunder forbid
+ * vehicles that are {@code forbiddenInSevereWeather}.
+ *
+ * @param baseFee Fee of every delivery in cents
+ * @param cityFees Fee of each city in cents
+ * @param vehicles Rules of each vehicle type
+ * @param coldBelow Air temperature below which it is cold
+ * @param freezingBelow Air temperature below which it is freezing
+ * @param windyAbove Wind speed above which it is windy
+ * @param stormAbove Wind speed above which it is stormy
+ */
+public record FeeRules(long baseFee, Map<String, Long> cityFees, Map<String, VehicleRules> vehicles,
+                       double coldBelow, double freezingBelow, double windyAbove, double stormAbove) {
+    /** Fee of a vehicle that the weather forbids. */
+    public static final long FORBIDDEN = -1;
+
+    /** The business rules. */
+    public static final FeeRules DEFAULT = new FeeRules(DeliveryDataConstants.BASE_FEE,
+            DeliveryDataConstants.CITY_FEES,
+            Map.of("car", new VehicleRules(DeliveryDataConstants.VEHICLE_FEES.get("car"), 0, 0, 0, 0, 0, false, false),
+                    "scooter", new VehicleRules(DeliveryDataConstants.VEHICLE_FEES.get("scooter"), 50, 100, 0, 50, 100,
+                            false, true),
+                    "bike", new VehicleRules(DeliveryDataConstants.VEHICLE_FEES.get("bike"), 50, 100, 50, 50, 100,
+                            true, true)),
+            0, -10, 10, 20);
+
+    /**
+     * Fees of a vehicle type, all in cents.
+     *
+     * @param fee Fee of the vehicle type
+     * @param coldFee Extra fee when it is cold
+     * @param freezingFee Extra fee when it is freezing
+     * @param windyFee Extra fee when it is windy
+     * @param rainFee Extra fee in rain or showers
+     * @param snowFee Extra fee in snow or sleet
+     * @param forbiddenInStorm Whether the vehicle is forbidden when it is stormy
+     * @param forbiddenInSevereWeather Whether the vehicle is forbidden in glaze, hail or thunder
+     */
+    public record VehicleRules(long fee, long coldFee, long freezingFee, long windyFee, long rainFee, long snowFee,
+                               boolean forbiddenInStorm, boolean forbiddenInSevereWeather) {
+    }
+
+    /**
+     * @throws IllegalArgumentException Thrown when a city or vehicle type has no fees, a fee is negative or the
+     * thresholds are out of order
+     */
+    public FeeRules {
+        if (cityFees == null || !cityFees.keySet().containsAll(DeliveryDataConstants.CITY_LIST)) {
+            throw new IllegalArgumentException("Fees of every city are required: " + DeliveryDataConstants.CITY_LIST);
+        }
+        if (vehicles == null || !vehicles.keySet().containsAll(DeliveryDataConstants.VEHICLE_TYPE_LIST)) {
+            throw new IllegalArgumentException("Rules of every vehicle type are required: "
+                    + DeliveryDataConstants.VEHICLE_TYPE_LIST);
+        }
+        if (baseFee < 0 || cityFees.values().stream().anyMatch(fee -> fee == null || fee < 0)) {
+            throw new IllegalArgumentException("Fees must not be negative");
+        }
+        for (VehicleRules rules : vehicles.values()) {
+            if (rules == null || rules.fee() < 0 || rules.coldFee() < 0 || rules.freezingFee() < 0
+                    || rules.windyFee() < 0 || rules.rainFee() < 0 || rules.snowFee() < 0) {
+                throw new IllegalArgumentException("Fees must not be negative");
+            }
+        }
+        if (freezingBelow > coldBelow || windyAbove > stormAbove) {
+            throw new IllegalArgumentException("Freezing must be below cold and windy below stormy");
+        }
+        cityFees = Map.copyOf(cityFees);
+        vehicles = Map.copyOf(vehicles);
+    }
+
+    /**
+     * Calculates the fee of a delivery.
+     *
+     * @param city Validated, lower case city
+     * @param vehicleType Validated, lower case vehicle type
+     * @param observation Weather observation
+     * @return Fee in cents, {@link #FORBIDDEN} if the weather forbids the vehicle
+     */
+    public long feeCents(String city, String vehicleType, Observation observation) {
+        VehicleRules vehicle = vehicles.get(vehicleType);
+        return feeCents(baseFee + cityFees.get(city) + vehicle.fee(), vehicle, observation);
+    }
+
+    /**
+     * Calculates the fee of a delivery with the fees that don't depend on the weather already added up, for
+     * evaluating many observations of the same city and vehicle type.
+     *
+     * @param fixedFee Base, city and vehicle fees in cents
+     * @param vehicle Rules of the vehicle type
+     * @param observation Weather observation
+     * @return Fee in cents, {@link #FORBIDDEN} if the weather forbids the vehicle
+     */
+    public long feeCents(long fixedFee, VehicleRules vehicle, Observation observation) {
+        return feeCents(fixedFee, vehicle, observation.airTemperature(), observation.windSpeed(),
+                observation.phenomenon());
+    }
+
+    /**
+     * Calculates the fee of a delivery from the fields of an observation. This is the scalar form of the rules that
+     * {@link BatchFeeEvaluator} must match exactly.
+     *
+     * @param fixedFee Base, city and vehicle fees in cents
+     * @param vehicle Rules of the vehicle type
+     * @param airTemperature Air temperature of the observation
+     * @param windSpeed Wind speed of the observation
+     * @param phenomenon Phenomenon code of the observation
+     * @return Fee in cents, {@link #FORBIDDEN} if the weather forbids the vehicle
+     */
+    public long feeCents(long fixedFee, VehicleRules vehicle, double airTemperature, double windSpeed,
+                         int phenomenon) {
+        long fee = fixedFee;
+
+        if (airTemperature < freezingBelow) {
+            fee += vehicle.freezingFee();
+        } else if (airTemperature < coldBelow) {
+            fee += vehicle.coldFee();
+        }
+
+        if (windSpeed > stormAbove && vehicle.forbiddenInStorm()) {
+            return FORBIDDEN;
+        } else if (windSpeed > windyAbove) {
+            fee += vehicle.windyFee();
+        }
+
+        return switch (phenomenon) {
+            case Observation.FORBIDDEN -> vehicle.forbiddenInSevereWeather() ? FORBIDDEN : fee;
+            case Observation.SNOW -> fee + vehicle.snowFee();
+            case Observation.RAIN -> fee + vehicle.rainFee();
+            default -> fee;
+        };
+    }
+}
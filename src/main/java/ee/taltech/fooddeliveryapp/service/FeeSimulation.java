@@ -0,0 +1,14 @@
+package ee.taltech.fooddeliveryapp.service;
+
+import java.util.List;
+
+/**
+ * Outcome of evaluating a variant of the fee rules over the stored weather.
+ *
+ * @param name Name of the variant, {@link FeeAnalyticsService#CURRENT_RULES} for the rules in use
+ * @param rules Rules of the variant
+ * @param fees Fees per city and vehicle type
+ * @param total Fees of all cities and vehicle types together
+ */
+public record FeeSimulation(String name, FeeRules rules, List<SimulatedFees> fees, SimulatedFees total) {
+}
@@ -0,0 +1,128 @@
+package ee.taltech.fooddeliveryapp.service;
+
+import ee.taltech.fooddeliveryapp.config.DeliveryDataConstants;
+import ee.taltech.fooddeliveryapp.database.ForecastData;
+import ee.taltech.fooddeliveryapp.exceptions.VehicleForbiddenException;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Delivery fees in cents precomputed from the weather forecast for every city, vehicle type and upcoming hour.
+ * Built once per forecast import so that quoting a future time is a single array lookup.
+ * Instances are immutable and replaced as a whole.
+ */
+public final class ForecastFeeTable {
+    /** Forecasts older than this are not used for an hour. */
+    static final long MAX_FORECAST_AGE = 3 * 3600;
+    private static final long SLOT_LENGTH = 3600;
+
+    private static final byte MISSING = 0;
+    private static final byte ALLOWED = 1;
+    private static final byte FORBIDDEN = 2;
+
+    /** Returned by {@link #lookup(String, String, long)} for times the forecast doesn't cover. */
+    public static final long NOT_COVERED = -1;
+
+    public static final ForecastFeeTable EMPTY = new ForecastFeeTable(0, 0, new long[0], new byte[0]);
+
+    private final long start;
+    private final int hours;
+    private final long[] fees;
+    private final byte[] states;
+
+    private ForecastFeeTable(long start, int hours, long[] fees, byte[] states) {
+        this.start = start;
+        this.hours = hours;
+        this.fees = fees;
+        this.states = states;
+    }
+
+    /**
+     * Precomputes the fees for the given hours from the forecasts.
+     * Each hour uses the latest forecast of the city's station that is valid at its start.
+     *
+     * @param start UNIX time of the start of the first hour
+     * @param hours Number of hours to precompute
+     * @param forecasts Forecasts in ascending order of validity
+     * @param config Configuration whose fee rules and city stations are applied
+     * @return Table of precomputed fees
+     */
+    public static ForecastFeeTable build(long start, int hours, List<ForecastData> forecasts,
+                                         RuntimeConfig config) {
+        List<String> cities = DeliveryDataConstants.CITY_LIST;
+        List<String> vehicles = DeliveryDataConstants.VEHICLE_TYPE_LIST;
+        long[] fees = new long[cities.size() * vehicles.size() * hours];
+        byte[] states = new byte[fees.length];
+
+        for (int city = 0; city < cities.size(); city++) {
+            List<ForecastData> stationForecasts = forStation(forecasts,
+                    config.cityStations().get(cities.get(city)));
+
+            int next = 0;
+            ForecastData current = null;
+            for (int hour = 0; hour < hours; hour++) {
+                long hourStart = start + hour * SLOT_LENGTH;
+                while (next < stationForecasts.size() && stationForecasts.get(next).getValidFrom() <= hourStart) {
+                    current = stationForecasts.get(next++);
+                }
+                if (current == null || hourStart - current.getValidFrom() > MAX_FORECAST_AGE) {
+                    continue;
+                }
+
+                Observation observation = Observation.of(current.toWeatherData());
+                for (int vehicle = 0; vehicle < vehicles.size(); vehicle++) {
+                    int index = index(city, vehicle, hour, vehicles.size(), hours);
+                    long fee = config.feeRules().feeCents(cities.get(city), vehicles.get(vehicle), observation);
+                    if (fee == FeeRules.FORBIDDEN) {
+                        states[index] = FORBIDDEN;
+                    } else {
+                        fees[index] = fee;
+                        states[index] = ALLOWED;
+                    }
+                }
+            }
+        }
+
+        return new ForecastFeeTable(start, hours, fees, states);
+    }
+
+    /**
+     * Looks up the precomputed fee.
+     *
+     * @param city Validated, lower case city
+     * @param vehicleType Validated, lower case vehicle type
+     * @param timeStamp UNIX time of the delivery
+     * @return Precomputed fee in cents or {@link #NOT_COVERED} if the time isn't covered by the forecast
+     * @throws VehicleForbiddenException Thrown when the forecast weather forbids the selected vehicle
+     */
+    public long lookup(String city, String vehicleType, long timeStamp) throws VehicleForbiddenException {
+        long hour = Math.floorDiv(timeStamp - start, SLOT_LENGTH);
+        if (hour < 0 || hour >= hours) {
+            return NOT_COVERED;
+        }
+
+        int vehicles = DeliveryDataConstants.VEHICLE_TYPE_LIST.size();
+        int index = index(DeliveryDataConstants.CITY_LIST.indexOf(city),
+                DeliveryDataConstants.VEHICLE_TYPE_LIST.indexOf(vehicleType), (int) hour, vehicles, hours);
+
+        if (states[index] == FORBIDDEN) {
+            throw new VehicleForbiddenException("Usage of selected vehicle type is forbidden");
+        }
+        return states[index] == MISSING ? NOT_COVERED : fees[index];
+    }
+
+    private static int index(int city, int vehicle, int hour, int vehicles, int hours) {
+        return (city * vehicles + vehicle) * hours + hour;
+    }
+
+    private static List<ForecastData> forStation(List<ForecastData> forecasts, Integer wmoCode) {
+        List<ForecastData> output = new ArrayList<>();
+        for (ForecastData forecast : forecasts) {
+            if (wmoCode.equals(forecast.getWmoCode())) {
+                output.add(forecast);
+            }
+        }
+        return output;
+    }
+}
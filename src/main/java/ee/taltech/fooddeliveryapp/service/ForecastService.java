@@ -0,0 +1,54 @@
+package ee.taltech.fooddeliveryapp.service;
+
+import ee.taltech.fooddeliveryapp.database.ForecastData;
+import ee.taltech.fooddeliveryapp.database.ForecastDataRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+@Service
+public class ForecastService {
+    private static final long RETENTION_SECONDS = 24 * 3600;
+
+    private final ForecastDataRepository forecastDataRepository;
+
+    @Autowired
+    public ForecastService(ForecastDataRepository forecastDataRepository) {
+        this.forecastDataRepository = forecastDataRepository;
+    }
+
+    /**
+     * Replaces the stored forecasts with a newly issued forecast. Stored forecasts for the period the new forecast
+     * covers are deleted, as are forecasts that went out of date more than a day ago.
+     *
+     * @param forecastDataList ForecastData list to save
+     */
+    @Transactional
+    public void saveAllForecastData(List<ForecastData> forecastDataList) {
+        if (forecastDataList.isEmpty()) {
+            return;
+        }
+
+        long firstValidFrom = forecastDataList.stream()
+                .mapToLong(ForecastData::getValidFrom)
+                .min()
+                .getAsLong();
+
+        forecastDataRepository.deleteByValidFromGreaterThanEqual(firstValidFrom);
+        forecastDataRepository.deleteByValidFromLessThan(firstValidFrom - RETENTION_SECONDS);
+        forecastDataRepository.saveAll(forecastDataList);
+    }
+
+    /**
+     * Returns all forecasts that are valid at or after the given time, ordered by the time they are valid from.
+     * Includes forecasts that started up to an hour earlier, since they are still valid at the given time.
+     *
+     * @param from UNIX time to get the forecasts from
+     * @return Forecasts in ascending order of validity
+     */
+    public List<ForecastData> getUpcomingForecasts(long from) {
+        return forecastDataRepository.findByValidFromGreaterThanEqualOrderByValidFromAsc(from - 3600);
+    }
+}
@@ -0,0 +1,107 @@
+package ee.taltech.fooddeliveryapp.service;
+
+import ee.taltech.fooddeliveryapp.database.ImportLease;
+import ee.taltech.fooddeliveryapp.database.ImportLeaseRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.UUID;
+
+/**
+ * Elects the node that imports the weather when several nodes share the database. The leader holds a lease row
+ * in the database and renews it on every poll; if it stops renewing, another node takes over once the lease
+ * expires. A single node always holds the lease.
+ */
+@Service
+public class ImportLeaseService {
+    static final String WEATHER_IMPORT = "weather-import";
+
+    private final ImportLeaseRepository importLeaseRepository;
+
+    @Value("${weather.node-id:}")
+    private String nodeId = "";
+
+    @Value("${weather.lease-duration:30000}")
+    private long leaseDuration = 30000;
+
+    private volatile long leaderUntil;
+
+    @Autowired
+    public ImportLeaseService(ImportLeaseRepository importLeaseRepository) {
+        this.importLeaseRepository = importLeaseRepository;
+    }
+
+    /**
+     * Names the node after its host if {@code weather.node-id} isn't set. A random suffix keeps several nodes on
+     * one host apart.
+     */
+    @PostConstruct
+    public void initializeNodeId() {
+        if (nodeId != null && !nodeId.isEmpty()) {
+            return;
+        }
+
+        String host;
+        try {
+            host = InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException e) {
+            host = "node";
+        }
+        nodeId = host + "-" + UUID.randomUUID().toString().substring(0, 8);
+    }
+
+    /**
+     * Takes the weather import lease if it is free or expired, or renews it if this node already holds it.
+     *
+     * @return Whether this node holds the lease now
+     */
+    public boolean tryAcquire() {
+        long now = System.currentTimeMillis();
+        long expiresAt = now + leaseDuration;
+
+        boolean acquired = importLeaseRepository.acquire(WEATHER_IMPORT, nodeId, now, expiresAt) > 0;
+        if (!acquired && !importLeaseRepository.existsById(WEATHER_IMPORT)) {
+            try {
+                importLeaseRepository.saveAndFlush(new ImportLease(WEATHER_IMPORT, nodeId, expiresAt));
+                acquired = true;
+            } catch (DataIntegrityViolationException e) {
+                // Another node created the lease first
+            }
+        }
+
+        leaderUntil = acquired ? expiresAt : 0;
+        return acquired;
+    }
+
+    /**
+     * @return Whether this node held the lease when it last tried and the lease hasn't expired since
+     */
+    public boolean isLeader() {
+        return System.currentTimeMillis() < leaderUntil;
+    }
+
+    /**
+     * Gives up the lease on shutdown, so another node can take over without waiting for it to expire.
+     */
+    @PreDestroy
+    public void release() {
+        if (leaderUntil > 0) {
+            leaderUntil = 0;
+            try {
+                importLeaseRepository.release(WEATHER_IMPORT, nodeId);
+            } catch (RuntimeException e) {
+                // The lease expires on its own
+            }
+        }
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+}
@@ -0,0 +1,26 @@
+package ee.taltech.fooddeliveryapp.service;
+
+import java.math.BigDecimal;
+
+/**
+ * The fee of a delivery right now in a city with a vehicle type, from the latest weather.
+ *
+ * @param city City
+ * @param vehicleType Vehicle type
+ * @param fee Calculated fee, null if the vehicle type is forbidden
+ * @param forbidden Whether delivering with the vehicle type is forbidden in the current weather
+ * @param snapshotVersion Version of the weather import the fee was calculated from, 0 if unknown
+ */
+public record LiveFee(String city, String vehicleType, BigDecimal fee, boolean forbidden, long snapshotVersion) {
+
+    /**
+     * @param other Earlier fee of the same city and vehicle type, may be null
+     * @return Whether the fee or the forbidden status differ from the other fee's
+     */
+    public boolean changedFrom(LiveFee other) {
+        if (other == null || forbidden != other.forbidden) {
+            return true;
+        }
+        return fee != null ? other.fee == null || fee.compareTo(other.fee) != 0 : other.fee != null;
+    }
+}
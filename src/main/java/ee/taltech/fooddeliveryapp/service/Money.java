@@ -0,0 +1,46 @@
+package ee.taltech.fooddeliveryapp.service;
+
+import java.math.BigDecimal;
+
+/**
+ * Converts fees calculated in cents to BigDecimal for responses.
+ * <p>
+ * Fees are in whole cents and shown with one decimal place when they are a multiple of ten cents, as in
+ * {@code 4.5}, and with two otherwise. The few fees that occur are cached, so converting one allocates nothing.
+ */
+public final class Money {
+    /** Fees up to this many cents are cached. */
+    static final int MAX_CACHED_CENTS = 2000;
+
+    private static final BigDecimal[] CACHE = new BigDecimal[MAX_CACHED_CENTS + 1];
+
+    static {
+        for (int cents = 0; cents <= MAX_CACHED_CENTS; cents++) {
+            CACHE[cents] = create(cents);
+        }
+    }
+
+    private Money() {
+    }
+
+    /**
+     * @param cents Amount in cents
+     * @return Amount in euros
+     */
+    public static BigDecimal toBigDecimal(long cents) {
+        return cents >= 0 && cents <= MAX_CACHED_CENTS ? CACHE[(int) cents] : create(cents);
+    }
+
+    /**
+     * @param amount Amount in euros, with at most two decimal places
+     * @return Amount in cents
+     * @throws ArithmeticException Thrown when the amount has fractions of a cent
+     */
+    public static long toCents(BigDecimal amount) {
+        return amount.movePointRight(2).longValueExact();
+    }
+
+    private static BigDecimal create(long cents) {
+        return cents % 10 == 0 ? BigDecimal.valueOf(cents / 10, 1) : BigDecimal.valueOf(cents, 2);
+    }
+}
@@ -0,0 +1,93 @@
+package ee.taltech.fooddeliveryapp.service;
+
+import ee.taltech.fooddeliveryapp.database.WeatherData;
+import ee.taltech.fooddeliveryapp.database.WeatherReading;
+
+/**
+ * Compact, immutable weather observation that fees are calculated from. Unlike the {@link WeatherData} entity,
+ * which is kept for persistence, it has only primitive fields and the phenomenon is reduced to a code of the fee
+ * rule it falls under, so calculating a fee neither unboxes values nor compares strings. Observations are made
+ * once, when weather data is imported or loaded from the database.
+ *
+ * @param wmoCode WMO code of the station, the station's ID
+ * @param airTemperature Air temperature of the observation
+ * @param windSpeed Wind speed of the observation
+ * @param phenomenon Phenomenon code, one of {@link #CLEAR}, {@link #RAIN}, {@link #SNOW} and {@link #FORBIDDEN}
+ * @param timeStamp UNIX time the observation was taken
+ * @param snapshotVersion Version of the import that saved the observation, {@link #NO_VERSION} if unknown
+ */
+public record Observation(int wmoCode, double airTemperature, double windSpeed, int phenomenon, long timeStamp,
+                          long snapshotVersion) {
+    /** Phenomenon without a fee. */
+    public static final int CLEAR = 0;
+    /** Rain or shower. */
+    public static final int RAIN = 1;
+    /** Snow or sleet. */
+    public static final int SNOW = 2;
+    /** Glaze, hail or thunder, which forbid delivering by scooter or bike. */
+    public static final int FORBIDDEN = 3;
+
+    public static final long NO_VERSION = 0;
+
+    /**
+     * Makes an observation of an entity. Missing values are read as 0 and a missing phenomenon as clear.
+     *
+     * @param weatherData Weather data to convert
+     * @return Observation with the same weather
+     */
+    public static Observation of(WeatherData weatherData) {
+        return new Observation(
+                weatherData.getWmoCode() != null ? weatherData.getWmoCode() : 0,
+                weatherData.getAirTemperature() != null ? weatherData.getAirTemperature() : 0.0,
+                weatherData.getWindSpeed() != null ? weatherData.getWindSpeed() : 0.0,
+                phenomenonCode(weatherData.getWeatherPhenomenon()),
+                weatherData.getTimeStamp() != null ? weatherData.getTimeStamp() : 0L,
+                weatherData.getSnapshotVersion() != null ? weatherData.getSnapshotVersion() : NO_VERSION);
+    }
+
+    /**
+     * Makes an observation of a reading of a station, like {@link #of(WeatherData)}.
+     *
+     * @param wmoCode WMO code of the station the reading is of
+     * @param reading Reading to convert
+     * @return Observation with the same weather
+     */
+    public static Observation of(int wmoCode, WeatherReading reading) {
+        return new Observation(
+                wmoCode,
+                reading.airTemperature() != null ? reading.airTemperature() : 0.0,
+                reading.windSpeed() != null ? reading.windSpeed() : 0.0,
+                phenomenonCode(reading.weatherPhenomenon()),
+                reading.timeStamp() != null ? reading.timeStamp() : 0L,
+                reading.snapshotVersion() != null ? reading.snapshotVersion() : NO_VERSION);
+    }
+
+    /**
+     * Classifies a phenomenon reported by the weather service by the fee rule it falls under.
+     *
+     * @param phenomenon Phenomenon as reported, may be null
+     * @return Phenomenon code
+     */
+    public static int phenomenonCode(String phenomenon) {
+        if (phenomenon == null) {
+            return CLEAR;
+        }
+
+        String lowerCase = phenomenon.toLowerCase();
+        if (lowerCase.equals("glaze") || lowerCase.equals("hail") || lowerCase.contains("thunder")) {
+            return FORBIDDEN;
+        } else if (lowerCase.contains("snow") || lowerCase.contains("sleet")) {
+            return SNOW;
+        } else if (lowerCase.contains("rain") || lowerCase.contains("shower")) {
+            return RAIN;
+        }
+        return CLEAR;
+    }
+
+    /**
+     * @return Snapshot version, null if unknown
+     */
+    public Long knownSnapshotVersion() {
+        return snapshotVersion != NO_VERSION ? snapshotVersion : null;
+    }
+}
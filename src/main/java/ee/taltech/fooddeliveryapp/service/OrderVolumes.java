@@ -0,0 +1,92 @@
+package ee.taltech.fooddeliveryapp.service;
+
+import ee.taltech.fooddeliveryapp.config.DeliveryDataConstants;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Number of orders of every city and vehicle type in each hourly slot, which fee simulations weigh the fee of a
+ * slot by. {@link #UNIFORM} counts one order in every slot.
+ */
+public final class OrderVolumes {
+    /** One order of every city and vehicle type in every slot. */
+    public static final OrderVolumes UNIFORM = new OrderVolumes(null);
+
+    private final Map<String, Map<Long, Long>> orders;
+
+    private OrderVolumes(Map<String, Map<Long, Long>> orders) {
+        this.orders = orders;
+    }
+
+    /**
+     * Reads order volumes from CSV lines of {@code time,city,vehicleType[,orders]}, with an optional header line.
+     * The time is an ISO local date time within the slot, orders default to 1 so that a file may also list single
+     * orders, and lines of the same slot add up. Slots without lines have no orders.
+     *
+     * @param reader Reader of the CSV lines
+     * @return Order volumes of the lines
+     * @throws IOException Thrown when the lines can't be read
+     * @throws IllegalArgumentException Thrown when a line is malformed or has an unknown city or vehicle type
+     */
+    public static OrderVolumes parse(BufferedReader reader) throws IOException {
+        Map<String, Map<Long, Long>> orders = new HashMap<>();
+        String line;
+        int lineNumber = 0;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            line = line.strip();
+            if (line.isEmpty() || lineNumber == 1 && line.startsWith("time")) {
+                continue;
+            }
+
+            String[] fields = line.split(",");
+            if (fields.length < 3 || fields.length > 4) {
+                throw new IllegalArgumentException("Expected time,city,vehicleType[,orders] on line " + lineNumber);
+            }
+            String city = fields[1].strip().toLowerCase();
+            String vehicleType = fields[2].strip().toLowerCase();
+            if (!DeliveryDataConstants.CITY_LIST.contains(city)) {
+                throw new IllegalArgumentException("Unknown city on line " + lineNumber + ": " + fields[1]);
+            } else if (!DeliveryDataConstants.VEHICLE_TYPE_LIST.contains(vehicleType)) {
+                throw new IllegalArgumentException("Unknown vehicle type on line " + lineNumber + ": " + fields[2]);
+            }
+
+            long slotStart;
+            long count;
+            try {
+                slotStart = FeeAnalyticsService.slotStartOf(LocalDateTime.parse(fields[0].strip()));
+                count = fields.length == 4 ? Long.parseLong(fields[3].strip()) : 1;
+            } catch (DateTimeParseException | NumberFormatException e) {
+                throw new IllegalArgumentException("Malformed time or orders on line " + lineNumber);
+            }
+            if (count < 0) {
+                throw new IllegalArgumentException("Negative orders on line " + lineNumber);
+            }
+            orders.computeIfAbsent(key(city, vehicleType), k -> new HashMap<>()).merge(slotStart, count, Long::sum);
+        }
+        return new OrderVolumes(orders);
+    }
+
+    /**
+     * @param city Lower case city
+     * @param vehicleType Lower case vehicle type
+     * @param slotStart UNIX time of the start of the slot
+     * @return Number of orders in the slot
+     */
+    public long orders(String city, String vehicleType, long slotStart) {
+        if (orders == null) {
+            return 1;
+        }
+        Map<Long, Long> slots = orders.get(key(city, vehicleType));
+        return slots != null ? slots.getOrDefault(slotStart, 0L) : 0;
+    }
+
+    private static String key(String city, String vehicleType) {
+        return city + '/' + vehicleType;
+    }
+}
@@ -0,0 +1,55 @@
+package ee.taltech.fooddeliveryapp.service;
+
+import ee.taltech.fooddeliveryapp.config.DeliveryDataConstants;
+import org.springframework.scheduling.support.CronExpression;
+
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Settings that can be changed while the application runs. Every change is published as a new, immutable version,
+ * so a request always sees the settings of one version. {@link #DEFAULT} holds the built-in settings.
+ *
+ * @param version Version of the settings, 0 for the built-in ones and counted up with every change on this node
+ * @param checksum SHA-256 of the file the settings were read from, null for the built-in ones
+ * @param importCron Cron expression of the weather import
+ * @param feeRules Rules fees are calculated with
+ * @param cityStations WMO code of the weather station of each city
+ */
+public record RuntimeConfig(long version, String checksum, String importCron, FeeRules feeRules,
+                            Map<String, Integer> cityStations) {
+    /** Timing of the weather import unless configured otherwise, at quarter past every hour. */
+    public static final String DEFAULT_IMPORT_CRON = "0 15 * * * *";
+
+    /** The built-in settings. */
+    public static final RuntimeConfig DEFAULT = new RuntimeConfig(0, null, DEFAULT_IMPORT_CRON, FeeRules.DEFAULT,
+            DeliveryDataConstants.WMO_CODES);
+
+    /**
+     * @throws IllegalArgumentException Thrown when the cron expression is invalid, the fee rules are missing or the
+     * stations don't match the cities
+     */
+    public RuntimeConfig {
+        if (importCron == null || !CronExpression.isValidExpression(importCron)) {
+            throw new IllegalArgumentException("Invalid cron expression of the weather import: " + importCron);
+        }
+        if (feeRules == null) {
+            throw new IllegalArgumentException("Fee rules are required");
+        }
+        if (cityStations == null || !cityStations.keySet().equals(Set.copyOf(DeliveryDataConstants.CITY_LIST))) {
+            throw new IllegalArgumentException("Stations of exactly these cities are required: "
+                    + DeliveryDataConstants.CITY_LIST);
+        }
+        if (cityStations.values().stream().anyMatch(wmoCode -> wmoCode == null || wmoCode <= 0)) {
+            throw new IllegalArgumentException("WMO codes of the stations must be positive");
+        }
+        cityStations = Map.copyOf(cityStations);
+    }
+
+    /**
+     * @return WMO codes of the stations of the cities
+     */
+    public int[] stationCodes() {
+        return cityStations.values().stream().mapToInt(Integer::intValue).distinct().sorted().toArray();
+    }
+}
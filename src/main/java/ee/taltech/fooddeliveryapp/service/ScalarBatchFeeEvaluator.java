@@ -0,0 +1,15 @@
+package ee.taltech.fooddeliveryapp.service;
+
+/**
+ * Evaluates the fee rules one observation at a time, for JVMs without the Vector API.
+ */
+final class ScalarBatchFeeEvaluator implements BatchFeeEvaluator {
+
+    @Override
+    public void evaluate(FeeRules rules, long fixedFee, FeeRules.VehicleRules vehicle, double[] airTemperatures,
+                         double[] windSpeeds, int[] phenomena, int from, int to, long[] fees) {
+        for (int i = from; i < to; i++) {
+            fees[i] = rules.feeCents(fixedFee, vehicle, airTemperatures[i], windSpeeds[i], phenomena[i]);
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package ee.taltech.fooddeliveryapp.service;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Fees a variant of the fee rules would have charged for a city and vehicle type, or for all of them together,
+ * over the hourly slots with weather data, and how they compare to the rules in use.
+ */
+@Getter
+public class SimulatedFees {
+    private final String city;
+    private final String vehicleType;
+    private long slots;
+    private long forbiddenSlots;
+    private long orders;
+    private long forbiddenOrders;
+    private BigDecimal revenue;
+    private BigDecimal averageFee;
+    private double forbiddenPercentage;
+    private BigDecimal revenueChange;
+    private Double revenueChangePercentage;
+
+    @Getter(AccessLevel.NONE)
+    private long revenueCents;
+
+    /**
+     * @param city City, null for all cities together
+     * @param vehicleType Vehicle type, null for all vehicle types together
+     */
+    SimulatedFees(String city, String vehicleType) {
+        this.city = city;
+        this.vehicleType = vehicleType;
+    }
+
+    /**
+     * Adds the fee of a slot that has weather data.
+     *
+     * @param fee Fee in cents or {@link FeeRules#FORBIDDEN} if the vehicle was forbidden in that slot
+     * @param slotOrders Orders in the slot
+     */
+    void add(long fee, long slotOrders) {
+        slots++;
+        orders += slotOrders;
+        if (fee == FeeRules.FORBIDDEN) {
+            forbiddenSlots++;
+            forbiddenOrders += slotOrders;
+            return;
+        }
+        revenueCents += fee * slotOrders;
+    }
+
+    /**
+     * Adds up the fees of another city or vehicle type.
+     *
+     * @param other Fees to add
+     */
+    void add(SimulatedFees other) {
+        slots += other.slots;
+        forbiddenSlots += other.forbiddenSlots;
+        orders += other.orders;
+        forbiddenOrders += other.forbiddenOrders;
+        revenueCents += other.revenueCents;
+    }
+
+    /**
+     * Computes the amounts in euros, the percentages and the change from the rules in use once all slots are added.
+     *
+     * @param current Fees of the same city and vehicle type with the rules in use
+     */
+    void complete(SimulatedFees current) {
+        revenue = Money.toBigDecimal(revenueCents);
+        long deliveredOrders = orders - forbiddenOrders;
+        if (deliveredOrders > 0) {
+            averageFee = BigDecimal.valueOf(revenueCents, 2)
+                    .divide(BigDecimal.valueOf(deliveredOrders), 2, RoundingMode.HALF_UP);
+        }
+        forbiddenPercentage = slots == 0 ? 0 : forbiddenSlots * 100.0 / slots;
+        revenueChange = Money.toBigDecimal(revenueCents - current.revenueCents);
+        revenueChangePercentage = current.revenueCents == 0 ? null
+                : (revenueCents - current.revenueCents) * 100.0 / current.revenueCents;
+    }
+}
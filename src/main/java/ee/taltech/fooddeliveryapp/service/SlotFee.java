@@ -0,0 +1,16 @@
+package ee.taltech.fooddeliveryapp.service;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Delivery fee of a city and vehicle type for one hourly slot (HH:15 to HH+1:15).
+ *
+ * @param city City of the delivery
+ * @param vehicleType Vehicle of the delivery
+ * @param slotStart Start of the slot
+ * @param fee Calculated fee, null if the vehicle was forbidden
+ * @param forbidden Whether the weather forbade the vehicle
+ */
+public record SlotFee(String city, String vehicleType, LocalDateTime slotStart, BigDecimal fee, boolean forbidden) {
+}
@@ -0,0 +1,21 @@
+package ee.taltech.fooddeliveryapp.service;
+
+/**
+ * How the weather of a past time is chosen from the observations around it, set with
+ * {@code weather.slot-selection.strategy}. Every strategy but {@link #SLOT} only considers observations up to
+ * {@code weather.slot-selection.max-gap} seconds from the time and is served from the in-memory
+ * {@link WeatherReadModel}; for times it doesn't cover, {@link #SLOT} is used.
+ */
+public enum SlotSelection {
+    /** The latest observation of the hourly slot from HH:15 to HH:15 the time falls in. */
+    SLOT,
+    /** The latest observation at or before the time. */
+    PREVIOUS,
+    /** The observation closest to the time, the earlier one if both are as close. */
+    NEAREST,
+    /**
+     * Air temperature and wind speed linearly interpolated between the observations before and after the time, the
+     * phenomenon of the nearest one. With an observation on only one side of the time, that one.
+     */
+    INTERPOLATE
+}
@@ -0,0 +1,83 @@
+package ee.taltech.fooddeliveryapp.service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Remembers the observations looked up for hourly slots while quoting a long run of fees, so requests for the same
+ * station and slot query the database once. Stations without weather for a slot are remembered too.
+ * <p>
+ * Holds at most {@code capacity} slots and forgets the least recently used one first, so memory use stays the same
+ * however many fees are quoted. Not thread-safe, meant for a single run of quotes.
+ */
+public final class SlotWeatherCache {
+    private static final Observation MISSING = new Observation(0, 0, 0, Observation.CLEAR, 0, Observation.NO_VERSION);
+
+    private final Map<Key, Observation> observations;
+    private long hits;
+    private long misses;
+
+    /**
+     * @param capacity Maximum number of slots to remember
+     */
+    public SlotWeatherCache(int capacity) {
+        int maxSize = Math.max(1, capacity);
+        this.observations = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Observation> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    /**
+     * @param wmoCode WMO code of the station
+     * @param slotStart UNIX time of the start of the slot
+     * @return Whether the slot of the station has been looked up
+     */
+    boolean contains(int wmoCode, long slotStart) {
+        boolean found = observations.containsKey(new Key(wmoCode, slotStart));
+        if (found) {
+            hits++;
+        } else {
+            misses++;
+        }
+        return found;
+    }
+
+    /**
+     * @param wmoCode WMO code of the station
+     * @param slotStart UNIX time of the start of the slot
+     * @return Remembered observation, null if the station had no weather for the slot
+     */
+    Observation get(int wmoCode, long slotStart) {
+        Observation observation = observations.get(new Key(wmoCode, slotStart));
+        return observation != MISSING ? observation : null;
+    }
+
+    /**
+     * @param wmoCode WMO code of the station
+     * @param slotStart UNIX time of the start of the slot
+     * @param observation Observation valid for the slot, null if the station has no weather for it
+     */
+    void put(int wmoCode, long slotStart, Observation observation) {
+        observations.put(new Key(wmoCode, slotStart), observation != null ? observation : MISSING);
+    }
+
+    /**
+     * @return Number of lookups answered from the cache
+     */
+    public long getHits() {
+        return hits;
+    }
+
+    /**
+     * @return Number of lookups that had to query the database
+     */
+    public long getMisses() {
+        return misses;
+    }
+
+    private record Key(int wmoCode, long slotStart) {
+    }
+}
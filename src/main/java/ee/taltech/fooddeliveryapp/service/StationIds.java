@@ -0,0 +1,90 @@
+package ee.taltech.fooddeliveryapp.service;
+
+import java.util.Arrays;
+
+/**
+ * Immutable mapping from WMO codes to dense station IDs 0..size-1, in order of first appearance.
+ * <p>
+ * Lets per-station data be kept in plain arrays indexed by station ID. The lookup is an open-addressing hash table
+ * over primitive ints, so it doesn't box and stays a couple of array reads at any number of stations.
+ */
+public final class StationIds {
+    private static final int FREE = -1;
+
+    public static final StationIds EMPTY = of(new int[0]);
+
+    private final int[] codes;
+    private final int[] keys;
+    private final int[] values;
+    private final int mask;
+
+    private StationIds(int[] codes, int[] keys, int[] values) {
+        this.codes = codes;
+        this.keys = keys;
+        this.values = values;
+        this.mask = keys.length - 1;
+    }
+
+    /**
+     * Assigns station IDs to the WMO codes. A repeated code keeps the ID of its first appearance.
+     *
+     * @param wmoCodes WMO codes of the stations
+     * @return Station IDs of the codes
+     */
+    public static StationIds of(int[] wmoCodes) {
+        int capacity = Integer.highestOneBit(Math.max(wmoCodes.length, 1) * 2 - 1) << 1;
+        int[] keys = new int[capacity];
+        int[] values = new int[capacity];
+        Arrays.fill(values, FREE);
+
+        int[] codes = new int[wmoCodes.length];
+        int size = 0;
+        for (int wmoCode : wmoCodes) {
+            int slot = slot(wmoCode, keys, values, capacity - 1);
+            if (values[slot] == FREE) {
+                keys[slot] = wmoCode;
+                values[slot] = size;
+                codes[size++] = wmoCode;
+            }
+        }
+
+        return new StationIds(Arrays.copyOf(codes, size), keys, values);
+    }
+
+    /**
+     * @param wmoCode WMO code of a station
+     * @return Station ID of the code, -1 if the station is unknown
+     */
+    public int indexOf(int wmoCode) {
+        return values[slot(wmoCode, keys, values, mask)];
+    }
+
+    /**
+     * @param id Station ID
+     * @return WMO code of the station
+     */
+    public int codeAt(int id) {
+        return codes[id];
+    }
+
+    public int size() {
+        return codes.length;
+    }
+
+    /**
+     * Finds the slot that holds the code, or the free slot where it would be inserted.
+     * The table is at most half full, so a free slot is always found.
+     */
+    private static int slot(int wmoCode, int[] keys, int[] values, int mask) {
+        int slot = mix(wmoCode) & mask;
+        while (values[slot] != FREE && keys[slot] != wmoCode) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private static int mix(int value) {
+        int hash = value * 0x9E3779B9;
+        return hash ^ (hash >>> 16);
+    }
+}
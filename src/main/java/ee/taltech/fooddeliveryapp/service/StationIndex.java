@@ -0,0 +1,209 @@
+package ee.taltech.fooddeliveryapp.service;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.stream.IntStream;
+
+/**
+ * Immutable k-d tree over weather station locations for nearest-station lookups.
+ * <p>
+ * Locations are projected onto a plane (equirectangular around the stations' mean latitude), which is accurate
+ * to well under a percent over the size of Estonia. The tree is stored implicitly in flat arrays: the node of a
+ * range is its middle element, the left and right halves are its subtrees. Nearest lookups don't allocate.
+ */
+public final class StationIndex {
+    private static final double KM_PER_DEGREE = 111.195;
+
+    public static final StationIndex EMPTY = new StationIndex(new int[0], new double[0], new double[0], 1.0);
+
+    private final int[] wmoCodes;
+    private final double[] xs;
+    private final double[] ys;
+    private final double longitudeScale;
+
+    private StationIndex(int[] wmoCodes, double[] xs, double[] ys, double longitudeScale) {
+        this.wmoCodes = wmoCodes;
+        this.xs = xs;
+        this.ys = ys;
+        this.longitudeScale = longitudeScale;
+    }
+
+    /**
+     * Builds the index. The three arrays describe one station per position.
+     *
+     * @param wmoCodes WMO codes of the stations
+     * @param latitudes Latitudes of the stations in degrees
+     * @param longitudes Longitudes of the stations in degrees
+     * @return Index over the stations
+     */
+    public static StationIndex build(int[] wmoCodes, double[] latitudes, double[] longitudes) {
+        int size = wmoCodes.length;
+        if (size == 0) {
+            return EMPTY;
+        }
+
+        double meanLatitude = Arrays.stream(latitudes).average().orElse(0);
+        double longitudeScale = Math.cos(Math.toRadians(meanLatitude)) * KM_PER_DEGREE;
+
+        double[] x = new double[size];
+        double[] y = new double[size];
+        for (int i = 0; i < size; i++) {
+            x[i] = longitudes[i] * longitudeScale;
+            y[i] = latitudes[i] * KM_PER_DEGREE;
+        }
+
+        Integer[] order = IntStream.range(0, size).boxed().toArray(Integer[]::new);
+        arrange(order, 0, size, 0, x, y);
+
+        int[] treeCodes = new int[size];
+        double[] treeXs = new double[size];
+        double[] treeYs = new double[size];
+        for (int i = 0; i < size; i++) {
+            treeCodes[i] = wmoCodes[order[i]];
+            treeXs[i] = x[order[i]];
+            treeYs[i] = y[order[i]];
+        }
+
+        return new StationIndex(treeCodes, treeXs, treeYs, longitudeScale);
+    }
+
+    /**
+     * Orders the range so that its middle element splits it along the axis of the depth, then recurses.
+     */
+    private static void arrange(Integer[] order, int lo, int hi, int depth, double[] x, double[] y) {
+        if (hi - lo <= 1) {
+            return;
+        }
+
+        double[] axis = depth % 2 == 0 ? x : y;
+        Arrays.sort(order, lo, hi, Comparator.comparingDouble(i -> axis[i]));
+
+        int mid = (lo + hi) >>> 1;
+        arrange(order, lo, mid, depth + 1, x, y);
+        arrange(order, mid + 1, hi, depth + 1, x, y);
+    }
+
+    public int size() {
+        return wmoCodes.length;
+    }
+
+    /**
+     * Finds the station nearest to a location.
+     *
+     * @param latitude Latitude in degrees
+     * @param longitude Longitude in degrees
+     * @return WMO code of the nearest station, -1 if the index is empty
+     */
+    public int nearest(double latitude, double longitude) {
+        if (wmoCodes.length == 0) {
+            return -1;
+        }
+        return wmoCodes[searchNearest(0, wmoCodes.length, 0,
+                longitude * longitudeScale, latitude * KM_PER_DEGREE, -1)];
+    }
+
+    private int searchNearest(int lo, int hi, int depth, double x, double y, int best) {
+        if (lo >= hi) {
+            return best;
+        }
+
+        int mid = (lo + hi) >>> 1;
+        if (best < 0 || distanceSquared(mid, x, y) < distanceSquared(best, x, y)) {
+            best = mid;
+        }
+
+        double delta = depth % 2 == 0 ? x - xs[mid] : y - ys[mid];
+        if (delta < 0) {
+            best = searchNearest(lo, mid, depth + 1, x, y, best);
+            if (delta * delta < distanceSquared(best, x, y)) {
+                best = searchNearest(mid + 1, hi, depth + 1, x, y, best);
+            }
+        } else {
+            best = searchNearest(mid + 1, hi, depth + 1, x, y, best);
+            if (delta * delta < distanceSquared(best, x, y)) {
+                best = searchNearest(lo, mid, depth + 1, x, y, best);
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Finds the stations nearest to a location and weights them by inverse squared distance.
+     * A station closer than 100 m gets all the weight.
+     *
+     * @param latitude Latitude in degrees
+     * @param longitude Longitude in degrees
+     * @param count Maximum number of stations
+     * @return Nearest stations and their weights, nearest first, null if the index is empty
+     */
+    public StationWeights nearest(double latitude, double longitude, int count) {
+        int k = Math.min(count, wmoCodes.length);
+        if (k == 0) {
+            return null;
+        }
+
+        int[] best = new int[k];
+        double[] bestDistances = new double[k];
+        Arrays.fill(bestDistances, Double.POSITIVE_INFINITY);
+        searchNearest(0, wmoCodes.length, 0, longitude * longitudeScale, latitude * KM_PER_DEGREE,
+                best, bestDistances);
+
+        int[] codes = new int[k];
+        double[] weights = new double[k];
+        if (bestDistances[0] < 0.01) {
+            codes[0] = wmoCodes[best[0]];
+            return StationWeights.single(codes[0]);
+        }
+
+        double total = 0;
+        for (int i = 0; i < k; i++) {
+            codes[i] = wmoCodes[best[i]];
+            weights[i] = 1.0 / bestDistances[i];
+            total += weights[i];
+        }
+        for (int i = 0; i < k; i++) {
+            weights[i] /= total;
+        }
+        return new StationWeights(codes, weights);
+    }
+
+    /**
+     * Collects the nearest stations into the arrays, kept sorted by squared distance.
+     */
+    private void searchNearest(int lo, int hi, int depth, double x, double y, int[] best, double[] bestDistances) {
+        if (lo >= hi) {
+            return;
+        }
+
+        int mid = (lo + hi) >>> 1;
+        double distance = distanceSquared(mid, x, y);
+        int last = best.length - 1;
+        if (distance < bestDistances[last]) {
+            int i = last;
+            while (i > 0 && bestDistances[i - 1] > distance) {
+                best[i] = best[i - 1];
+                bestDistances[i] = bestDistances[i - 1];
+                i--;
+            }
+            best[i] = mid;
+            bestDistances[i] = distance;
+        }
+
+        double delta = depth % 2 == 0 ? x - xs[mid] : y - ys[mid];
+        int nearLo = delta < 0 ? lo : mid + 1;
+        int nearHi = delta < 0 ? mid : hi;
+        int farLo = delta < 0 ? mid + 1 : lo;
+        int farHi = delta < 0 ? hi : mid;
+
+        searchNearest(nearLo, nearHi, depth + 1, x, y, best, bestDistances);
+        if (delta * delta < bestDistances[last]) {
+            searchNearest(farLo, farHi, depth + 1, x, y, best, bestDistances);
+        }
+    }
+
+    private double distanceSquared(int node, double x, double y) {
+        double dx = xs[node] - x;
+        double dy = ys[node] - y;
+        return dx * dx + dy * dy;
+    }
+}
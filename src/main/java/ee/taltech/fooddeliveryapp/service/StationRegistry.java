@@ -0,0 +1,155 @@
+package ee.taltech.fooddeliveryapp.service;
+
+import ee.taltech.fooddeliveryapp.database.Station;
+import ee.taltech.fooddeliveryapp.database.StationRepository;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Keeps track of the weather stations reported by the weather service and resolves delivery coordinates to
+ * stations through a spatial index. The stations are held by dense station ID, and together with the index are
+ * rebuilt when the set of stations changes and swapped in as a whole, so lookups never see a half-built index.
+ * <p>
+ * Every imported station is known, but only the stations listed in {@code weather.served-stations} (all of them
+ * if it is empty) are used to resolve locations.
+ */
+@Service
+public class StationRegistry {
+    private final StationRepository stationRepository;
+
+    private volatile Snapshot snapshot = Snapshot.EMPTY;
+
+    @Value("${weather.station-resolution:nearest}")
+    private String resolution = "nearest";
+
+    @Value("${weather.station-blend-count:3}")
+    private int blendCount = 3;
+
+    @Value("${weather.served-stations:}")
+    private int[] servedStations = new int[0];
+
+    @Autowired
+    public StationRegistry(StationRepository stationRepository) {
+        this.stationRepository = stationRepository;
+    }
+
+    /**
+     * Loads the stations saved by earlier imports, so coordinates can be resolved before the first import.
+     */
+    @PostConstruct
+    public void loadStations() {
+        publish(stationRepository.findAll());
+    }
+
+    /**
+     * Updates the stations with the ones reported by the latest import.
+     * Only when a station was added, removed or moved are they saved and the index rebuilt.
+     *
+     * @param reportedStations Stations in the latest import
+     */
+    public synchronized void updateStations(List<Station> reportedStations) {
+        if (snapshot.differsFrom(reportedStations)) {
+            stationRepository.saveAll(reportedStations);
+            publish(reportedStations);
+        }
+    }
+
+    /**
+     * Resolves a location to the weather stations that describe its weather. Depending on
+     * {@code weather.station-resolution} this is the nearest station ({@code nearest}) or a distance-weighted
+     * blend of the nearest {@code weather.station-blend-count} stations ({@code blend}).
+     *
+     * @param latitude Latitude of the location in degrees
+     * @param longitude Longitude of the location in degrees
+     * @return Stations and their weights, null if no served station locations are known
+     */
+    public StationWeights resolve(double latitude, double longitude) {
+        StationIndex index = snapshot.index();
+        if (index.size() == 0) {
+            return null;
+        }
+
+        if ("blend".equalsIgnoreCase(resolution)) {
+            return index.nearest(latitude, longitude, blendCount);
+        }
+        return StationWeights.single(index.nearest(latitude, longitude));
+    }
+
+    /**
+     * @param wmoCode WMO code of a station
+     * @return The station, null if it is unknown
+     */
+    public Station getStation(int wmoCode) {
+        Snapshot current = snapshot;
+        int id = current.ids().indexOf(wmoCode);
+        return id >= 0 ? current.stations()[id] : null;
+    }
+
+    /**
+     * @return Number of stations currently known
+     */
+    public int getStationCount() {
+        return snapshot.ids().size();
+    }
+
+    private synchronized void publish(Iterable<Station> newStations) {
+        List<Station> known = new ArrayList<>();
+        for (Station station : newStations) {
+            if (station.getWmoCode() != null) {
+                known.add(station);
+            }
+        }
+
+        StationIds ids = StationIds.of(known.stream().mapToInt(Station::getWmoCode).toArray());
+        Station[] stations = new Station[ids.size()];
+        for (Station station : known) {
+            stations[ids.indexOf(station.getWmoCode())] = station;
+        }
+
+        StationIds served = servedStations.length > 0 ? StationIds.of(servedStations) : null;
+        int located = 0;
+        int[] wmoCodes = new int[stations.length];
+        double[] latitudes = new double[stations.length];
+        double[] longitudes = new double[stations.length];
+        for (Station station : stations) {
+            if (station.getLatitude() == null || station.getLongitude() == null
+                    || (served != null && served.indexOf(station.getWmoCode()) < 0)) {
+                continue;
+            }
+            wmoCodes[located] = station.getWmoCode();
+            latitudes[located] = station.getLatitude();
+            longitudes[located] = station.getLongitude();
+            located++;
+        }
+
+        StationIndex index = StationIndex.build(Arrays.copyOf(wmoCodes, located),
+                Arrays.copyOf(latitudes, located), Arrays.copyOf(longitudes, located));
+        snapshot = new Snapshot(ids, stations, index);
+    }
+
+    /**
+     * Stations by station ID and the spatial index of the served ones, replaced as a whole.
+     */
+    private record Snapshot(StationIds ids, Station[] stations, StationIndex index) {
+        static final Snapshot EMPTY = new Snapshot(StationIds.EMPTY, new Station[0], StationIndex.EMPTY);
+
+        boolean differsFrom(List<Station> reportedStations) {
+            if (reportedStations.size() != stations.length) {
+                return true;
+            }
+            for (Station station : reportedStations) {
+                int id = station.getWmoCode() != null ? ids.indexOf(station.getWmoCode()) : -1;
+                if (id < 0 || !stations[id].equals(station)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
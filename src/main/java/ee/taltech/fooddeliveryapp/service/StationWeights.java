@@ -0,0 +1,23 @@
+package ee.taltech.fooddeliveryapp.service;
+
+/**
+ * Weather stations that describe the weather at a location, nearest first, with the weight each station's
+ * observations should have. The weights add up to 1.
+ *
+ * @param wmoCodes WMO codes of the stations
+ * @param weights Weights of the stations
+ */
+public record StationWeights(int[] wmoCodes, double[] weights) {
+
+    /**
+     * @param wmoCode WMO code of the only station
+     * @return Weights that use a single station
+     */
+    public static StationWeights single(int wmoCode) {
+        return new StationWeights(new int[]{wmoCode}, new double[]{1.0});
+    }
+
+    public int size() {
+        return wmoCodes.length;
+    }
+}
@@ -0,0 +1,86 @@
+package ee.taltech.fooddeliveryapp.service;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorShape;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Evaluates the fee rules for as many observations at once as the CPU's vectors hold doubles. Instead of
+ * branching, each rule compares the whole vector to its threshold and blends its fee into the lanes that meet it,
+ * and the lanes where the vehicle is forbidden are collected in a mask. Fees are added up as doubles, which is
+ * exact as long as they stay below 2^53 cents; larger fees and the observations left over after the last full
+ * vector are evaluated by the scalar rules.
+ * <p>
+ * Only created by {@link BatchFeeEvaluator#create()} once the Vector API is known to be available.
+ */
+final class VectorBatchFeeEvaluator implements BatchFeeEvaluator {
+    private static final VectorSpecies<Double> DOUBLES = DoubleVector.SPECIES_PREFERRED;
+    private static final VectorSpecies<Long> LONGS = VectorSpecies.of(long.class, DOUBLES.vectorShape());
+    private static final VectorSpecies<Integer> INTS = VectorSpecies.of(int.class,
+            VectorShape.forBitSize(DOUBLES.vectorBitSize() / 2));
+    /** Largest fee in cents that doubles hold exactly. */
+    private static final long MAX_EXACT_FEE = 1L << 53;
+
+    @Override
+    public void evaluate(FeeRules rules, long fixedFee, FeeRules.VehicleRules vehicle, double[] airTemperatures,
+                         double[] windSpeeds, int[] phenomena, int from, int to, long[] fees) {
+        int i = from;
+        if (isExact(fixedFee, vehicle)) {
+            DoubleVector fixed = DoubleVector.broadcast(DOUBLES, fixedFee);
+            DoubleVector zero = DoubleVector.zero(DOUBLES);
+            int upperBound = from + DOUBLES.loopBound(to - from);
+            for (; i < upperBound; i += DOUBLES.length()) {
+                DoubleVector airTemperature = DoubleVector.fromArray(DOUBLES, airTemperatures, i);
+                DoubleVector windSpeed = DoubleVector.fromArray(DOUBLES, windSpeeds, i);
+                DoubleVector phenomenon = (DoubleVector) IntVector.fromArray(INTS, phenomena, i)
+                        .convertShape(VectorOperators.I2D, DOUBLES, 0);
+
+                DoubleVector temperatureFee = zero
+                        .blend(vehicle.coldFee(), airTemperature.lt(rules.coldBelow()))
+                        .blend(vehicle.freezingFee(), airTemperature.lt(rules.freezingBelow()));
+                DoubleVector windFee = zero
+                        .blend(vehicle.windyFee(), windSpeed.compare(VectorOperators.GT, rules.windyAbove()));
+                DoubleVector phenomenonFee = zero
+                        .blend(vehicle.rainFee(), phenomenon.eq(Observation.RAIN))
+                        .blend(vehicle.snowFee(), phenomenon.eq(Observation.SNOW));
+
+                VectorMask<Double> forbidden = DOUBLES.maskAll(false);
+                if (vehicle.forbiddenInStorm()) {
+                    forbidden = forbidden.or(windSpeed.compare(VectorOperators.GT, rules.stormAbove()));
+                }
+                if (vehicle.forbiddenInSevereWeather()) {
+                    forbidden = forbidden.or(phenomenon.eq(Observation.FORBIDDEN));
+                }
+
+                fixed.add(temperatureFee).add(windFee).add(phenomenonFee)
+                        .blend(FeeRules.FORBIDDEN, forbidden)
+                        .convertShape(VectorOperators.D2L, LONGS, 0)
+                        .reinterpretAsLongs()
+                        .intoArray(fees, i);
+            }
+        }
+
+        for (; i < to; i++) {
+            fees[i] = rules.feeCents(fixedFee, vehicle, airTemperatures[i], windSpeeds[i], phenomena[i]);
+        }
+    }
+
+    /**
+     * @return Whether every fee the rules can add up to is held exactly by a double
+     */
+    private static boolean isExact(long fixedFee, FeeRules.VehicleRules vehicle) {
+        long[] parts = {fixedFee, Math.max(vehicle.coldFee(), vehicle.freezingFee()), vehicle.windyFee(),
+                Math.max(vehicle.rainFee(), vehicle.snowFee())};
+        long total = 0;
+        for (long part : parts) {
+            if (part < 0 || part > MAX_EXACT_FEE - total) {
+                return false;
+            }
+            total += part;
+        }
+        return true;
+    }
+}
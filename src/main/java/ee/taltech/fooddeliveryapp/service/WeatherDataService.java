@@ -1,72 +1,372 @@
 package ee.taltech.fooddeliveryapp.service;
 
 import ee.taltech.fooddeliveryapp.database.WeatherData;
-import ee.taltech.fooddeliveryapp.database.WeatherDataRepository;
+import ee.taltech.fooddeliveryapp.database.WeatherReading;
+import ee.taltech.fooddeliveryapp.database.WeatherSnapshot;
+import ee.taltech.fooddeliveryapp.database.WeatherSnapshotRepository;
+import ee.taltech.fooddeliveryapp.database.WeatherStore;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
-import java.util.HashMap;
+import java.time.Instant;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.UnaryOperator;
+import java.util.stream.Stream;
 
 @Service
 public class WeatherDataService {
-    private final WeatherDataRepository weatherDataRepository;
-    private final HashMap<Integer, WeatherData> latestWeatherData = new HashMap<>();
+    private final WeatherStore weatherStore;
+    private final WeatherSnapshotRepository weatherSnapshotRepository;
+    private final WeatherReadModel readModel;
+    private final WeatherEventBus eventBus;
+    private volatile WeatherDataSnapshot latestWeatherData = WeatherDataSnapshot.EMPTY;
+
+    @Value("${weather.slot-cache.ttl:60000}")
+    private long slotCacheTtl = 60000;
+
+    @Value("${weather.slot-cache.max-size:10000}")
+    private int slotCacheMaxSize = 10000;
+
+    @Value("${weather.slot-selection.strategy:SLOT}")
+    private SlotSelection slotSelection = SlotSelection.SLOT;
+
+    @Value("${weather.slot-selection.max-gap:3600}")
+    private long slotSelectionMaxGap = 3600;
+
+    private final Map<SlotKey, CompletableFuture<Observation>> slotQueries = new ConcurrentHashMap<>();
+    private final Map<SlotKey, CachedSlot> slotCache = new ConcurrentHashMap<>();
+    /** Bumped whenever stored weather changes, so queries started before the change aren't cached. */
+    private final AtomicLong slotCacheGeneration = new AtomicLong();
 
     @Autowired
-    public WeatherDataService(WeatherDataRepository weatherDataRepository) {
-        this.weatherDataRepository = weatherDataRepository;
+    public WeatherDataService(WeatherStore weatherStore, WeatherSnapshotRepository weatherSnapshotRepository,
+                              WeatherReadModel readModel, WeatherEventBus eventBus) {
+        this.weatherStore = weatherStore;
+        this.weatherSnapshotRepository = weatherSnapshotRepository;
+        this.readModel = readModel;
+        this.eventBus = eventBus;
+    }
+
+    /**
+     * Returns the latest weather observation of the selected city (by WMO code)
+     * If the cache of the latest import has data for the specified WMO code, then return data from there.
+     * Otherwise, queries the weather store.
+     *
+     * @param wmoCode WMO code of the city to search
+     * @return Latest observation of the city, null if there is none
+     */
+    public Observation getLatestObservation(int wmoCode) {
+        Observation output = latestWeatherData.get(wmoCode);
+        if (output != null) {
+            return output;
+        }
+
+        WeatherReading stored = weatherStore.findLatestReading(wmoCode);
+        return stored != null ? Observation.of(wmoCode, stored) : null;
     }
 
     /**
-     * Returns the latest weather data for the selected city (by WMO code)
-     * If the cached HashMap has data for the specified WMO code, then return data from there.
-     * Otherwise, queries the database.
+     * Returns the latest weather data saved for the selected city (by WMO code) in the weather store.
      *
      * @param wmoCode WMO code of the city to search
      * @return Latest weather data for the city
      */
     public WeatherData getLatestWeatherData(Integer wmoCode) {
-        WeatherData output = latestWeatherData.getOrDefault(wmoCode, null);
-        return output != null ? output : weatherDataRepository.findFirstByWmoCodeOrderByTimeStampDesc(wmoCode);
+        return weatherStore.findLatest(wmoCode);
     }
 
     /**
-     * Save all WeatherData objects from the list into the H2 database.
-     * Additionally, save them to a HashMap for fast lookup.
+     * @return Snapshot of the latest weather of every station, to be used for the whole of a request
+     */
+    public WeatherDataSnapshot getLatestSnapshot() {
+        return latestWeatherData;
+    }
+
+    /**
+     * Save all WeatherData objects from the list into the weather store as a new snapshot version, which other
+     * nodes pick up with {@link #refreshLatestWeather()}.
+     * Additionally, cache them as observations by station ID for fast lookup. The cache is replaced as a whole and
+     * only once the transaction commits, so lookups never see it half filled and never see an import that failed
+     * to save. Then an {@link WeatherEvent.ObservationsIngested} event is published for everything derived from it.
      *
      * @param weatherDataList WeatherData list to save
      */
+    @Transactional
     public void saveAllWeatherData(List<WeatherData> weatherDataList) {
-        weatherDataRepository.saveAll(weatherDataList);
-
-        latestWeatherData.clear();
+        Long maxVersion = weatherSnapshotRepository.findMaxVersion();
+        long version = (maxVersion != null ? maxVersion : 0L) + 1;
 
         for (WeatherData weatherData : weatherDataList) {
-            Integer wmoCode = weatherData.getWmoCode();
-            if (wmoCode != null) {
-                latestWeatherData.put(wmoCode, weatherData);
-            }
+            weatherData.setSnapshotVersion(version);
         }
+        weatherSnapshotRepository.save(new WeatherSnapshot(version, Instant.now().getEpochSecond(),
+                weatherDataList.size(), false));
+        weatherStore.saveAll(weatherDataList);
+
+        afterCommit(() -> {
+            publish(current -> current.merge(weatherDataList, version));
+            eventBus.publish(WeatherEvent.ObservationsIngested.of(weatherDataList, version));
+        });
+    }
+
+    /**
+     * Rolls the latest import back. Its weather data is deleted and its snapshot marked as rolled back, so the
+     * cache and other nodes return to the previous snapshot. Version numbers of rolled back snapshots are not
+     * reused.
+     *
+     * @return Version of the snapshot now in use
+     * @throws IllegalStateException Thrown when there is no earlier snapshot to return to
+     */
+    @Transactional
+    public long rollbackLatestSnapshot() {
+        Long latestVersion = weatherSnapshotRepository.findLatestVersion();
+        Long previousVersion = latestVersion != null
+                ? weatherSnapshotRepository.findLatestVersionBefore(latestVersion) : null;
+        if (previousVersion == null) {
+            throw new IllegalStateException("No earlier snapshot to roll back to");
+        }
+
+        weatherSnapshotRepository.markRolledBack(latestVersion);
+        weatherStore.deleteBySnapshotVersion(latestVersion);
+        List<WeatherData> previous = weatherStore.findBySnapshotVersion(previousVersion);
+
+        afterCommit(() -> {
+            publish(current -> WeatherDataSnapshot.EMPTY.merge(previous, previousVersion));
+            eventBus.publish(new WeatherEvent.SnapshotRolledBack(previousVersion));
+        });
+        return previousVersion;
+    }
+
+    /**
+     * Catches up with the imports made by other nodes. Checks the latest snapshot version and, if it is newer
+     * than the cached one, loads only the weather data of the newer imports into the cache. On a node that has
+     * not loaded anything yet, or after a rollback, only the latest import is loaded.
+     *
+     * @return Whether the cache changed
+     */
+    public synchronized boolean refreshLatestWeather() {
+        Long latestVersion = weatherSnapshotRepository.findLatestVersion();
+        WeatherDataSnapshot current = latestWeatherData;
+        if (latestVersion == null || latestVersion == current.version()) {
+            return false;
+        }
+
+        if (current.version() == 0 || latestVersion < current.version()) {
+            List<WeatherData> latest = weatherStore.findBySnapshotVersion(latestVersion);
+            latestWeatherData = WeatherDataSnapshot.EMPTY.merge(latest, latestVersion);
+            eventBus.publish(new WeatherEvent.SnapshotRolledBack(latestVersion));
+            eventBus.publish(WeatherEvent.ObservationsIngested.of(latest, latestVersion));
+        } else {
+            List<WeatherData> delta = weatherStore.findBySnapshotVersionGreaterThan(current.version());
+            latestWeatherData = current.merge(delta, latestVersion);
+            eventBus.publish(WeatherEvent.ObservationsIngested.of(delta, latestVersion));
+        }
+        clearSlotCache();
+        return true;
+    }
+
+    /**
+     * @return Snapshot version of the cached weather data, 0 if nothing is cached
+     */
+    public long getSnapshotVersion() {
+        return latestWeatherData.version();
+    }
+
+    /**
+     * @return The latest snapshots, newest first
+     */
+    public List<WeatherSnapshot> getRecentSnapshots() {
+        return weatherSnapshotRepository.findTop10ByOrderByVersionDesc();
     }
 
     /**
      * Clears all entries of WeatherData.
      */
     public void clearAllWeatherData() {
-        weatherDataRepository.deleteAll();
+        weatherStore.deleteAll();
+        eventBus.publish(new WeatherEvent.ObservationsCleared());
+        clearSlotCache();
     }
 
     /**
-     * Fetches the weather data for a selected city (by WMO code).
-     * Returns valid weather for the selected time range.
+     * Fetches the latest observation of a selected city (by WMO code) in the selected time range. Only the fields
+     * fees are calculated from are read, of a single row.
+     * <p>
+     * Recent ranges, which the read model covers, are answered from it. As the read model is updated asynchronously,
+     * it may not have the latest imports yet: while it is behind the cached snapshot, or if it has no observation in
+     * the range, the store is asked instead, so its lag never turns into a missing observation. For older ranges,
+     * and when the read model can't answer, concurrent lookups of the same station and range share a single query:
+     * the first one queries the weather store and the others wait for its result. Results are kept for
+     * {@code weather.slot-cache.ttl} milliseconds, or until the next import or rollback, so the lookups of a busy
+     * slot don't reach the store at all.
      *
      * @param wmoCode WMO code of the weather station
      * @param start Targeted UNIX time for the start of the range
      * @param end Targeted UNIX time for the end of the range
-     * @return Closest WeatherData entry to the targeted time
+     * @return Latest observation in the range, null if there is none
      */
-    public List<WeatherData> getWeatherDataByTimeStamp(Integer wmoCode, long start, long end) {
-        return weatherDataRepository.findByWmoCodeAndTimeStampBetweenOrderByTimeStampDesc(wmoCode, start, end);
+    public Observation getObservationByTimeStamp(int wmoCode, long start, long end) {
+        WeatherReadModel.Projection projection = readModel.current();
+        if (projection.covers(start) && isCurrent(projection)) {
+            Observation output = projection.find(wmoCode, start, end);
+            if (output != null) {
+                return output;
+            }
+        }
+
+        SlotKey key = new SlotKey(wmoCode, start, end);
+        CachedSlot cached = slotCache.get(key);
+        if (cached != null && cached.expiresAt() > System.currentTimeMillis()) {
+            return cached.observation();
+        }
+
+        CompletableFuture<Observation> query = new CompletableFuture<>();
+        CompletableFuture<Observation> running = slotQueries.putIfAbsent(key, query);
+        if (running != null) {
+            return await(running);
+        }
+
+        try {
+            long generation = slotCacheGeneration.get();
+            WeatherReading stored = weatherStore.findLatestReadingBetween(wmoCode, start, end);
+            Observation output = stored != null ? Observation.of(wmoCode, stored) : null;
+            cacheSlot(key, output, generation);
+            query.complete(output);
+            return output;
+        } catch (RuntimeException e) {
+            query.completeExceptionally(e);
+            throw e;
+        } finally {
+            slotQueries.remove(key, query);
+        }
+    }
+
+    /**
+     * Selects the weather of a station for a past time with the strategy set in
+     * {@code weather.slot-selection.strategy}. Strategies other than {@link SlotSelection#SLOT} are served from the
+     * read model, neighbouring observations included, as long as it covers the time and isn't behind the cached
+     * snapshot; otherwise, when it selects nothing, and for {@link SlotSelection#SLOT}, the latest observation of the
+     * time's slot is looked up.
+     *
+     * @param wmoCode WMO code of the weather station
+     * @param timeStamp UNIX time to select the weather for
+     * @param slotStart UNIX time of the start of the time's slot
+     * @param slotEnd UNIX time of the end of the time's slot
+     * @return Selected weather, null if there is none
+     */
+    public Observation getObservationAt(int wmoCode, long timeStamp, long slotStart, long slotEnd) {
+        if (slotSelection != SlotSelection.SLOT) {
+            WeatherReadModel.Projection projection = readModel.current();
+            if (projection.covers(timeStamp - slotSelectionMaxGap) && isCurrent(projection)) {
+                Observation output = projection.select(wmoCode, timeStamp, slotSelection, slotSelectionMaxGap);
+                if (output != null) {
+                    return output;
+                }
+            }
+        }
+        return getObservationByTimeStamp(wmoCode, slotStart, slotEnd);
+    }
+
+    /**
+     * @return Strategy selecting the weather of past times
+     */
+    public SlotSelection getSlotSelection() {
+        return slotSelection;
+    }
+
+    /**
+     * Streams all weather data of a selected city (by WMO code) in the time range, oldest first.
+     * The stream must be consumed inside a transaction and closed afterwards.
+     *
+     * @param wmoCode WMO code of the weather station
+     * @param start Targeted UNIX time for the start of the range
+     * @param end Targeted UNIX time for the end of the range
+     * @return Stream of WeatherData entries in ascending order of time
+     */
+    public Stream<WeatherData> streamWeatherData(Integer wmoCode, long start, long end) {
+        return weatherStore.streamBetween(wmoCode, start, end);
+    }
+
+    /**
+     * @return Whether the projection has every import the cache has, false while their events are still on the way
+     */
+    private boolean isCurrent(WeatherReadModel.Projection projection) {
+        return projection.version() >= latestWeatherData.version();
+    }
+
+    private synchronized void publish(UnaryOperator<WeatherDataSnapshot> update) {
+        latestWeatherData = update.apply(latestWeatherData);
+        clearSlotCache();
+    }
+
+    private void cacheSlot(SlotKey key, Observation observation, long generation) {
+        if (slotCacheTtl <= 0) {
+            return;
+        }
+
+        long now = System.currentTimeMillis();
+        if (slotCache.size() >= slotCacheMaxSize) {
+            slotCache.values().removeIf(slot -> slot.expiresAt() <= now);
+            if (slotCache.size() >= slotCacheMaxSize) {
+                slotCache.clear();
+            }
+        }
+        slotCache.put(key, new CachedSlot(observation, now + slotCacheTtl));
+
+        // Stored weather changed while querying, the result may already be outdated
+        if (slotCacheGeneration.get() != generation) {
+            slotCache.remove(key);
+        }
+    }
+
+    private void clearSlotCache() {
+        slotCacheGeneration.incrementAndGet();
+        slotCache.clear();
+    }
+
+    /**
+     * Waits for a query started by another lookup, failing the same way it failed.
+     */
+    private static Observation await(CompletableFuture<Observation> query) {
+        try {
+            return query.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Runs the action once the current transaction commits, or right away outside a transaction.
+     */
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    private record SlotKey(int wmoCode, long start, long end) {
+    }
+
+    private record CachedSlot(Observation observation, long expiresAt) {
     }
 }
@@ -0,0 +1,67 @@
+package ee.taltech.fooddeliveryapp.service;
+
+import ee.taltech.fooddeliveryapp.database.WeatherData;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Immutable view of the latest weather of every station as of one snapshot version, as {@link Observation}s in an
+ * array indexed by station ID. A request that holds on to a snapshot keeps seeing the same weather while newer
+ * imports are published.
+ */
+public final class WeatherDataSnapshot {
+    public static final WeatherDataSnapshot EMPTY = new WeatherDataSnapshot(StationIds.EMPTY, new Observation[0], 0);
+
+    private final StationIds ids;
+    private final Observation[] data;
+    private final long version;
+
+    private WeatherDataSnapshot(StationIds ids, Observation[] data, long version) {
+        this.ids = ids;
+        this.data = data;
+        this.version = version;
+    }
+
+    /**
+     * @param wmoCode WMO code of a station
+     * @return Latest weather of the station, null if the snapshot has none
+     */
+    public Observation get(int wmoCode) {
+        int id = ids.indexOf(wmoCode);
+        return id >= 0 ? data[id] : null;
+    }
+
+    /**
+     * @return Snapshot version, 0 for the empty snapshot
+     */
+    public long version() {
+        return version;
+    }
+
+    /**
+     * Adds the weather data of newer imports, given in ascending order of version. A later entry of a station
+     * replaces an earlier one, stations missing from the newer imports keep their weather. The newer weather
+     * data is turned into observations here, once per import.
+     *
+     * @param newer Weather data of the newer imports
+     * @param newVersion Version of the newest import
+     * @return Snapshot with the newer weather
+     */
+    WeatherDataSnapshot merge(List<WeatherData> newer, long newVersion) {
+        List<Observation> all = new ArrayList<>(data.length + newer.size());
+        all.addAll(List.of(data));
+        for (WeatherData weatherData : newer) {
+            if (weatherData.getWmoCode() != null) {
+                all.add(Observation.of(weatherData));
+            }
+        }
+
+        StationIds newIds = StationIds.of(all.stream().mapToInt(Observation::wmoCode).toArray());
+        Observation[] newData = new Observation[newIds.size()];
+        for (Observation observation : all) {
+            newData[newIds.indexOf(observation.wmoCode())] = observation;
+        }
+        return new WeatherDataSnapshot(newIds, newData, newVersion);
+    }
+}
@@ -0,0 +1,85 @@
+package ee.taltech.fooddeliveryapp.service;
+
+import ee.taltech.fooddeliveryapp.database.WeatherData;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A change of the stored weather, published on the {@link WeatherEventBus} once it has been committed or loaded.
+ */
+public sealed interface WeatherEvent {
+
+    /**
+     * @return Version of the snapshot in use after the change, 0 if none
+     */
+    long version();
+
+    /**
+     * Observations of one or more imports were saved, or loaded from the imports of other nodes.
+     *
+     * @param observations Observations in the order they were imported
+     * @param version Version of the newest import
+     */
+    record ObservationsIngested(List<Observation> observations, long version) implements WeatherEvent {
+
+        /**
+         * @param weatherData Weather data of the imports, entries without a WMO code or time stamp are left out
+         * @param version Version of the newest import
+         * @return Event of the imports
+         */
+        public static ObservationsIngested of(List<WeatherData> weatherData, long version) {
+            return new ObservationsIngested(weatherData.stream()
+                    .filter(data -> data.getWmoCode() != null && data.getTimeStamp() != null)
+                    .map(Observation::of)
+                    .toList(), version);
+        }
+    }
+
+    /**
+     * The imports after a version were rolled back.
+     *
+     * @param version Version of the import now in use
+     */
+    record SnapshotRolledBack(long version) implements WeatherEvent {
+    }
+
+    /**
+     * All observations were deleted.
+     */
+    record ObservationsCleared() implements WeatherEvent {
+        @Override
+        public long version() {
+            return 0;
+        }
+    }
+
+    /**
+     * Stands for several changes that were merged because a subscriber fell behind and can't be told apart anymore.
+     * Anything derived from earlier events must be rebuilt or dropped.
+     *
+     * @param version Version of the snapshot in use after the changes
+     */
+    record Resync(long version) implements WeatherEvent {
+    }
+
+    /**
+     * Merges two events that follow each other into one. Consecutive imports become one import, a clear replaces
+     * whatever came before it, anything else becomes a {@link Resync}.
+     *
+     * @param earlier Earlier event
+     * @param later Later event
+     * @return Event with the effect of both
+     */
+    static WeatherEvent merge(WeatherEvent earlier, WeatherEvent later) {
+        if (earlier instanceof ObservationsIngested first && later instanceof ObservationsIngested second) {
+            List<Observation> observations = new ArrayList<>(first.observations());
+            observations.addAll(second.observations());
+            return new ObservationsIngested(List.copyOf(observations), second.version());
+        }
+        if (later instanceof ObservationsCleared) {
+            return later;
+        }
+        return new Resync(later.version());
+    }
+}
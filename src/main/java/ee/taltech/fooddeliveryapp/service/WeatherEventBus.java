@@ -0,0 +1,212 @@
+package ee.taltech.fooddeliveryapp.service;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Hands {@link WeatherEvent}s from the import to everything derived from the stored weather, off the import thread.
+ * <p>
+ * Every subscriber gets its own queue of at most {@code capacity} events, which is drained in order on one of
+ * {@code weather.events.threads} threads (2 by default), one event at a time. Publishing never blocks: when a queue
+ * is full, the event is either dropped or merged into the last one queued, so a slow subscriber falls behind on its
+ * own without holding up the import or the other subscribers.
+ */
+@Component
+public class WeatherEventBus {
+    private final Executor executor;
+    private final List<Subscription> subscriptions = new CopyOnWriteArrayList<>();
+
+    /**
+     * @param threads Number of threads delivering events
+     */
+    @Autowired
+    public WeatherEventBus(@Value("${weather.events.threads:2}") int threads) {
+        this(newExecutor(threads));
+    }
+
+    /**
+     * @param executor Runs the deliveries
+     */
+    WeatherEventBus(Executor executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * What to do with an event published to a full queue.
+     */
+    public enum Overflow {
+        /** Leave the event out, for subscribers that only need to see some of them. */
+        DROP,
+        /** Merge the event into the last one queued, see {@link WeatherEvent#merge(WeatherEvent, WeatherEvent)}. */
+        MERGE
+    }
+
+    /**
+     * Delivery statistics of a subscriber.
+     *
+     * @param name Name of the subscriber
+     * @param queued Events waiting to be delivered
+     * @param delivered Events delivered
+     * @param merged Events merged into another one
+     * @param dropped Events left out
+     * @param failed Deliveries the subscriber threw on
+     */
+    public record SubscriptionStats(String name, int queued, long delivered, long merged, long dropped, long failed) {
+    }
+
+    /**
+     * @param name Name of the subscriber, for the statistics
+     * @param capacity Maximum number of events queued for the subscriber
+     * @param overflow What to do with an event published to a full queue
+     * @param subscriber Receives the events
+     * @return Subscription
+     */
+    public Subscription subscribe(String name, int capacity, Overflow overflow, Consumer<WeatherEvent> subscriber) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Capacity must be at least 1");
+        }
+        Subscription subscription = new Subscription(name, capacity, overflow, subscriber);
+        subscriptions.add(subscription);
+        return subscription;
+    }
+
+    /**
+     * Queues an event for every subscriber, without waiting for any of them.
+     *
+     * @param event Event
+     */
+    public void publish(WeatherEvent event) {
+        for (Subscription subscription : subscriptions) {
+            subscription.offer(event);
+        }
+    }
+
+    /**
+     * @return Delivery statistics of every subscriber
+     */
+    public List<SubscriptionStats> getStats() {
+        return subscriptions.stream().map(Subscription::getStats).toList();
+    }
+
+    /**
+     * Stops the delivery threads, events still queued are not delivered.
+     */
+    @PreDestroy
+    public void shutdown() {
+        if (executor instanceof ExecutorService executorService) {
+            executorService.shutdownNow();
+        }
+    }
+
+    /**
+     * A subscriber and its queue.
+     */
+    public final class Subscription {
+        private final String name;
+        private final int capacity;
+        private final Overflow overflow;
+        private final Consumer<WeatherEvent> subscriber;
+        private final ArrayDeque<WeatherEvent> queue = new ArrayDeque<>();
+        private final AtomicLong delivered = new AtomicLong();
+        private final AtomicLong merged = new AtomicLong();
+        private final AtomicLong dropped = new AtomicLong();
+        private final AtomicLong failed = new AtomicLong();
+        private boolean draining;
+
+        private Subscription(String name, int capacity, Overflow overflow, Consumer<WeatherEvent> subscriber) {
+            this.name = name;
+            this.capacity = capacity;
+            this.overflow = overflow;
+            this.subscriber = subscriber;
+        }
+
+        /**
+         * Stops delivering events to the subscriber.
+         */
+        public void cancel() {
+            subscriptions.remove(this);
+            synchronized (this) {
+                queue.clear();
+            }
+        }
+
+        /**
+         * @return Delivery statistics of the subscriber
+         */
+        public SubscriptionStats getStats() {
+            int queued;
+            synchronized (this) {
+                queued = queue.size();
+            }
+            return new SubscriptionStats(name, queued, delivered.get(), merged.get(), dropped.get(), failed.get());
+        }
+
+        private void offer(WeatherEvent event) {
+            synchronized (this) {
+                if (queue.size() < capacity) {
+                    queue.addLast(event);
+                } else if (overflow == Overflow.MERGE) {
+                    queue.addLast(WeatherEvent.merge(queue.pollLast(), event));
+                    merged.incrementAndGet();
+                } else {
+                    dropped.incrementAndGet();
+                    return;
+                }
+                if (draining) {
+                    return;
+                }
+                draining = true;
+            }
+
+            try {
+                executor.execute(this::drain);
+            } catch (RejectedExecutionException e) {
+                synchronized (this) {
+                    draining = false;
+                }
+            }
+        }
+
+        private void drain() {
+            while (true) {
+                WeatherEvent event;
+                synchronized (this) {
+                    event = queue.pollFirst();
+                    if (event == null) {
+                        draining = false;
+                        return;
+                    }
+                }
+
+                try {
+                    subscriber.accept(event);
+                    delivered.incrementAndGet();
+                } catch (RuntimeException e) {
+                    failed.incrementAndGet();
+                }
+            }
+        }
+    }
+
+    private static ExecutorService newExecutor(int threads) {
+        AtomicInteger count = new AtomicInteger();
+        return Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "weather-events-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+}
@@ -0,0 +1,223 @@
+package ee.taltech.fooddeliveryapp.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.UnaryOperator;
+
+/**
+ * In-memory projection of the observations of the last {@code weather.read-model.retention-hours} hours (48 by
+ * default, 0 turns it off), which answers the lookups of recent slots without the database.
+ * <p>
+ * The projection is updated from the {@link WeatherEvent}s of committed imports on the {@link WeatherEventBus}, off
+ * the import thread, and replaced as a whole, so lookups never wait for an import and never see one half applied.
+ * When it falls behind, queued imports are merged into one update. It only covers slots starting after it was created
+ * or last resynced, as it doesn't hold the observations imported before; older slots are looked up in the store.
+ */
+@Component
+public class WeatherReadModel {
+    private static final Comparator<Observation> BY_TIME = Comparator.comparingLong(Observation::timeStamp)
+            .thenComparingLong(Observation::snapshotVersion);
+    private static final int QUEUE_CAPACITY = 16;
+
+    private final long retentionSeconds;
+    private volatile Projection projection;
+
+    /**
+     * @param retentionHours Hours of observations to keep, 0 to turn the projection off
+     * @param eventBus Delivers the events of committed imports
+     */
+    @Autowired
+    public WeatherReadModel(@Value("${weather.read-model.retention-hours:48}") long retentionHours,
+                            WeatherEventBus eventBus) {
+        this.retentionSeconds = retentionHours * 3600;
+        this.projection = new Projection(Map.of(), retentionHours > 0 ? now() : Long.MAX_VALUE, 0);
+        eventBus.subscribe("read-model", QUEUE_CAPACITY, WeatherEventBus.Overflow.MERGE, this::handle);
+    }
+
+    /**
+     * @return Current projection, to be used for the whole of a lookup
+     */
+    Projection current() {
+        return projection;
+    }
+
+    /**
+     * @return Version of the latest import applied to the projection, 0 if none
+     */
+    public long getVersion() {
+        return projection.version();
+    }
+
+    private void handle(WeatherEvent event) {
+        if (event instanceof WeatherEvent.ObservationsIngested ingested) {
+            apply(ingested.observations(), ingested.version());
+        } else if (event instanceof WeatherEvent.SnapshotRolledBack rolledBack) {
+            removeVersionsAfter(rolledBack.version());
+        } else if (event instanceof WeatherEvent.ObservationsCleared) {
+            update(stations -> Map.of(), 0);
+        } else if (event instanceof WeatherEvent.Resync resync) {
+            resync(resync.version());
+        }
+    }
+
+    private void apply(List<Observation> observations, long version) {
+        if (retentionSeconds <= 0) {
+            return;
+        }
+        update(stations -> {
+            Map<Integer, List<Observation>> added = new HashMap<>();
+            for (Observation observation : observations) {
+                added.computeIfAbsent(observation.wmoCode(), wmoCode -> new ArrayList<>()).add(observation);
+            }
+            Map<Integer, Observation[]> updated = new HashMap<>(stations);
+            added.forEach((wmoCode, newer) -> {
+                Observation[] current = updated.getOrDefault(wmoCode, new Observation[0]);
+                Observation[] merged = Arrays.copyOf(current, current.length + newer.size());
+                for (int i = 0; i < newer.size(); i++) {
+                    merged[current.length + i] = newer.get(i);
+                }
+                Arrays.sort(merged, BY_TIME);
+                updated.put(wmoCode, merged);
+            });
+            return updated;
+        }, version);
+    }
+
+    private void removeVersionsAfter(long version) {
+        update(stations -> {
+            Map<Integer, Observation[]> updated = new HashMap<>();
+            stations.forEach((wmoCode, observations) -> updated.put(wmoCode, Arrays.stream(observations)
+                    .filter(observation -> observation.snapshotVersion() <= version)
+                    .toArray(Observation[]::new)));
+            return updated;
+        }, version);
+    }
+
+    /**
+     * Drops every observation and starts covering anew from now, as the changes that were merged can't be replayed.
+     */
+    private void resync(long version) {
+        long coverageStart = projection.coverageStart() == Long.MAX_VALUE ? Long.MAX_VALUE : now();
+        projection = new Projection(Map.of(), coverageStart, version);
+    }
+
+    private void update(UnaryOperator<Map<Integer, Observation[]>> change, long version) {
+        Projection current = projection;
+        long coverageStart = current.coverageStart() == Long.MAX_VALUE ? Long.MAX_VALUE
+                : Math.max(current.coverageStart(), now() - retentionSeconds);
+
+        Map<Integer, Observation[]> stations = new HashMap<>();
+        change.apply(current.stations()).forEach((wmoCode, observations) -> {
+            Observation[] kept = Arrays.stream(observations)
+                    .filter(observation -> observation.timeStamp() >= coverageStart)
+                    .toArray(Observation[]::new);
+            if (kept.length > 0) {
+                stations.put(wmoCode, kept);
+            }
+        });
+        projection = new Projection(Map.copyOf(stations), coverageStart, version);
+    }
+
+    private static long now() {
+        return System.currentTimeMillis() / 1000;
+    }
+
+    /**
+     * Observations of every station in ascending order of time, starting at the coverage start.
+     *
+     * @param stations Observations by WMO code
+     * @param coverageStart UNIX time from which on the projection holds every observation
+     * @param version Version of the latest import applied
+     */
+    record Projection(Map<Integer, Observation[]> stations, long coverageStart, long version) {
+
+        /**
+         * @param start UNIX time of the start of a range
+         * @return Whether the projection holds every observation of ranges starting then
+         */
+        boolean covers(long start) {
+            return start >= coverageStart;
+        }
+
+        /**
+         * @param wmoCode WMO code of the station
+         * @param start Start of the range (inclusive)
+         * @param end End of the range (inclusive)
+         * @return Latest observation of the station in the range, null if there is none
+         */
+        Observation find(int wmoCode, long start, long end) {
+            Observation[] observations = stations.get(wmoCode);
+            if (observations == null) {
+                return null;
+            }
+
+            int after = firstAfter(observations, end);
+            return after > 0 && observations[after - 1].timeStamp() >= start ? observations[after - 1] : null;
+        }
+
+        /**
+         * Selects the weather of a time from the observations around it. The projection must cover
+         * {@code timeStamp - maxGap}.
+         *
+         * @param wmoCode WMO code of the station
+         * @param timeStamp UNIX time to select the weather for
+         * @param selection How to select, any but {@link SlotSelection#SLOT}
+         * @param maxGap Seconds an observation may be away from the time
+         * @return Selected weather, null if there is no observation close enough
+         */
+        Observation select(int wmoCode, long timeStamp, SlotSelection selection, long maxGap) {
+            Observation[] observations = stations.get(wmoCode);
+            if (observations == null) {
+                return null;
+            }
+
+            int after = firstAfter(observations, timeStamp);
+            Observation previous = after > 0 && observations[after - 1].timeStamp() >= timeStamp - maxGap
+                    ? observations[after - 1] : null;
+            Observation next = after < observations.length && observations[after].timeStamp() <= timeStamp + maxGap
+                    ? observations[after] : null;
+            if (selection == SlotSelection.PREVIOUS || next == null) {
+                return previous;
+            }
+            if (previous == null) {
+                return next;
+            }
+
+            Observation nearest = timeStamp - previous.timeStamp() <= next.timeStamp() - timeStamp ? previous : next;
+            if (selection == SlotSelection.NEAREST) {
+                return nearest;
+            }
+
+            double weight = (double) (timeStamp - previous.timeStamp()) / (next.timeStamp() - previous.timeStamp());
+            return new Observation(wmoCode,
+                    previous.airTemperature() + (next.airTemperature() - previous.airTemperature()) * weight,
+                    previous.windSpeed() + (next.windSpeed() - previous.windSpeed()) * weight,
+                    nearest.phenomenon(), nearest.timeStamp(), nearest.snapshotVersion());
+        }
+
+        /**
+         * @return Index of the first observation after the time, the number of observations if there is none
+         */
+        private static int firstAfter(Observation[] observations, long timeStamp) {
+            int low = 0;
+            int high = observations.length;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (observations[middle].timeStamp() <= timeStamp) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            return low;
+        }
+    }
+}
@@ -0,0 +1,52 @@
+-- Schema as generated by Hibernate from the entities before migrations were introduced, without the later
+-- station and time index. Databases created by ddl-auto are baselined at this version.
+
+create table weather_data (
+    id bigint generated by default as identity,
+    station_name varchar(255),
+    wmo_code integer,
+    air_temperature float(53),
+    wind_speed float(53),
+    weather_phenomenon varchar(255),
+    time_stamp bigint,
+    snapshot_version bigint,
+    primary key (id)
+);
+
+create index idx_weather_snapshot_version on weather_data (snapshot_version);
+
+create table weather_snapshot (
+    version bigint not null,
+    imported_at bigint,
+    observation_count integer,
+    rolled_back boolean,
+    primary key (version)
+);
+
+create table weather_station (
+    wmo_code integer not null,
+    name varchar(255),
+    latitude float(53),
+    longitude float(53),
+    primary key (wmo_code)
+);
+
+create table weather_forecast (
+    id bigint generated by default as identity,
+    wmo_code integer,
+    air_temperature float(53),
+    wind_speed float(53),
+    weather_phenomenon varchar(255),
+    valid_from bigint,
+    issued_at bigint,
+    primary key (id)
+);
+
+create index idx_forecast_valid_from on weather_forecast (valid_from);
+
+create table import_lease (
+    name varchar(255) not null,
+    holder varchar(255),
+    expires_at bigint,
+    primary key (name)
+);
@@ -0,0 +1,3 @@
+-- Covers the reading projections of WeatherDataRepository. Databases created by ddl-auto may have it already.
+create index if not exists idx_weather_station_time on weather_data (wmo_code, time_stamp, air_temperature,
+    wind_speed, weather_phenomenon, snapshot_version);
@@ -0,0 +1,240 @@
+package ee.taltech.fooddeliveryapp.database;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MappedWeatherStoreTest {
+
+    @TempDir
+    Path directory;
+
+    private MappedWeatherStore store;
+
+    @BeforeEach
+    public void setUp() {
+        store = new MappedWeatherStore(directory.toString());
+        // Saved out of order of time, as a late import of a missed observation would be
+        store.saveAll(List.of(
+                weatherData(26038, 1.0, 3.0, "Clear", 1647589500L, 1L),
+                weatherData(26038, 2.0, 1.0, "Clear", 1647594000L, 1L),
+                weatherData(26242, 5.0, 5.0, "Clear", 1647591500L, 1L)));
+        store.saveAll(List.of(weatherData(26038, -1.5, 6.0, "Light snow shower", 1647591000L, 2L)));
+    }
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        store.close();
+    }
+
+    /**
+     * Tests that the reading of a range is the latest observation of the station in the range.
+     */
+    @Test
+    public void testFindLatestReadingBetween() {
+        WeatherReading reading = store.findLatestReadingBetween(26038, 1647589200L, 1647592800L);
+
+        assertEquals(new WeatherReading(-1.5, 6.0, "Light snow shower", 1647591000L, 2L), reading);
+        assertNull(store.findLatestReadingBetween(26038, 1647585600L, 1647589200L));
+        assertNull(store.findLatestReadingBetween(26120, 1647589200L, 1647592800L));
+    }
+
+    /**
+     * Tests that the latest reading and weather data are those of the latest observation of the station.
+     */
+    @Test
+    public void testFindLatest() {
+        assertEquals(1647594000L, store.findLatestReading(26038).timeStamp());
+        assertEquals(1647591500L, store.findLatestReading(26242).timeStamp());
+        assertNull(store.findLatestReading(26120));
+
+        WeatherData latest = store.findLatest(26242);
+        assertEquals("Station 26242", latest.getStationName());
+        assertEquals(5.0, latest.getAirTemperature());
+        assertEquals(1L, latest.getSnapshotVersion());
+    }
+
+    /**
+     * Tests that a range is streamed oldest first, including observations on its bounds.
+     */
+    @Test
+    public void testStreamBetween() {
+        List<Long> timeStamps = store.streamBetween(26038, 1647589500L, 1647594000L)
+                .map(WeatherData::getTimeStamp)
+                .collect(Collectors.toList());
+
+        assertEquals(List.of(1647589500L, 1647591000L, 1647594000L), timeStamps);
+    }
+
+    /**
+     * Tests that the weather data of imports is found by version, and that a deleted import is skipped by every
+     * lookup.
+     */
+    @Test
+    public void testFindAndDeleteBySnapshotVersion() {
+        assertEquals(3, store.findBySnapshotVersion(1L).size());
+        assertEquals(1, store.findBySnapshotVersionGreaterThan(1L).size());
+        assertEquals(4, store.findBySnapshotVersionGreaterThan(0L).size());
+
+        store.deleteBySnapshotVersion(2L);
+
+        assertTrue(store.findBySnapshotVersion(2L).isEmpty());
+        assertTrue(store.findBySnapshotVersionGreaterThan(1L).isEmpty());
+        assertEquals(1647589500L, store.findLatestReadingBetween(26038, 1647589200L, 1647592800L).timeStamp());
+    }
+
+    /**
+     * Tests that an import saved inside a transaction is only found once the transaction commits.
+     */
+    @Test
+    public void testSaveInTransaction() {
+        inTransaction(() -> {
+            store.saveAll(List.of(weatherData(26038, 0.5, 2.0, "Clear", 1647597600L, 3L)));
+
+            assertEquals(1647594000L, store.findLatestReading(26038).timeStamp());
+            assertTrue(store.findBySnapshotVersionGreaterThan(2L).isEmpty());
+        });
+
+        assertEquals(1647597600L, store.findLatestReading(26038).timeStamp());
+        assertEquals(1, store.findBySnapshotVersion(3L).size());
+    }
+
+    /**
+     * Tests that an import whose transaction fails after saving, as when saving its snapshot fails, is never found,
+     * not even after reopening, and that its version can be used by the next import.
+     */
+    @Test
+    public void testSaveRolledBack() throws Exception {
+        assertThrows(DataIntegrityViolationException.class, () -> inTransaction(() -> {
+            store.saveAll(List.of(weatherData(26038, 0.5, 2.0, "Clear", 1647597600L, 3L)));
+            throw new DataIntegrityViolationException("Snapshot 3 already exists");
+        }));
+
+        assertEquals(1647594000L, store.findLatestReading(26038).timeStamp());
+        assertTrue(store.findBySnapshotVersion(3L).isEmpty());
+
+        store.saveAll(List.of(weatherData(26242, 4.0, 1.0, "Clear", 1647597600L, 3L)));
+        store.close();
+        store = new MappedWeatherStore(directory.toString());
+
+        assertEquals(1647594000L, store.findLatestReading(26038).timeStamp());
+        assertEquals(List.of(26242), store.findBySnapshotVersion(3L).stream()
+                .map(WeatherData::getWmoCode)
+                .collect(Collectors.toList()));
+    }
+
+    /**
+     * Tests that deleting an import inside a transaction that rolls back keeps it.
+     */
+    @Test
+    public void testDeleteRolledBack() {
+        assertThrows(IllegalStateException.class, () -> inTransaction(() -> {
+            store.deleteBySnapshotVersion(2L);
+            throw new IllegalStateException("Rollback");
+        }));
+
+        assertEquals(1, store.findBySnapshotVersion(2L).size());
+    }
+
+    /**
+     * Tests that missing values are kept as missing.
+     */
+    @Test
+    public void testMissingValues() {
+        store.saveAll(List.of(weatherData(26231, null, null, null, 1647589500L, 3L)));
+
+        assertEquals(new WeatherReading(null, null, null, 1647589500L, 3L), store.findLatestReading(26231));
+    }
+
+    /**
+     * Tests that the observations, strings and deleted imports are read back from the files after reopening.
+     */
+    @Test
+    public void testReopen() throws Exception {
+        store.deleteBySnapshotVersion(2L);
+        store.close();
+
+        store = new MappedWeatherStore(directory.toString());
+
+        assertEquals(new WeatherReading(1.0, 3.0, "Clear", 1647589500L, 1L),
+                store.findLatestReadingBetween(26038, 1647589200L, 1647592800L));
+        assertEquals("Station 26242", store.findLatest(26242).getStationName());
+        assertEquals(3, store.findBySnapshotVersionGreaterThan(0L).size());
+    }
+
+    /**
+     * Tests that the mapped file grows past its initial size.
+     */
+    @Test
+    public void testGrow() throws Exception {
+        List<WeatherData> weatherData = new ArrayList<>();
+        for (int i = 0; i < 10000; i++) {
+            weatherData.add(weatherData(30000 + i % 10, 0.0, 0.0, "Clear", 1647600000L + i, 3L));
+        }
+        store.saveAll(weatherData);
+        store.close();
+
+        store = new MappedWeatherStore(directory.toString());
+
+        assertEquals(1647600000L + 9999, store.findLatestReading(30009).timeStamp());
+        assertEquals(10000, store.findBySnapshotVersion(3L).size());
+    }
+
+    /**
+     * Tests that deleting everything empties the store.
+     */
+    @Test
+    public void testDeleteAll() {
+        store.deleteAll();
+
+        assertNull(store.findLatestReading(26038));
+        assertTrue(store.findBySnapshotVersionGreaterThan(0L).isEmpty());
+
+        store.saveAll(List.of(weatherData(26038, 1.0, 3.0, "Clear", 1647589500L, 3L)));
+        assertEquals(3L, store.findLatestReading(26038).snapshotVersion());
+    }
+
+    /**
+     * Runs the body as a transaction would, completing the registered synchronizations with its outcome.
+     */
+    private static void inTransaction(Runnable body) {
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            List<TransactionSynchronization> synchronizations;
+            try {
+                body.run();
+            } catch (RuntimeException e) {
+                synchronizations = TransactionSynchronizationManager.getSynchronizations();
+                TransactionSynchronizationUtils.invokeAfterCompletion(synchronizations,
+                        TransactionSynchronization.STATUS_ROLLED_BACK);
+                throw e;
+            }
+            synchronizations = TransactionSynchronizationManager.getSynchronizations();
+            TransactionSynchronizationUtils.invokeAfterCommit(synchronizations);
+            TransactionSynchronizationUtils.invokeAfterCompletion(synchronizations,
+                    TransactionSynchronization.STATUS_COMMITTED);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    private static WeatherData weatherData(int wmoCode, Double airTemperature, Double windSpeed, String phenomenon,
+                                           long timeStamp, long snapshotVersion) {
+        WeatherData weatherData = new WeatherData("Station " + wmoCode, wmoCode, airTemperature, windSpeed,
+                phenomenon, timeStamp);
+        weatherData.setSnapshotVersion(snapshotVersion);
+        return weatherData;
+    }
+}
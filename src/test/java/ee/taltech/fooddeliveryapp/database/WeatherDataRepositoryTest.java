@@ -0,0 +1,48 @@
+package ee.taltech.fooddeliveryapp.database;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+public class WeatherDataRepositoryTest {
+
+    @Autowired
+    private WeatherDataRepository weatherDataRepository;
+
+    @BeforeEach
+    public void setUp() {
+        WeatherData early = new WeatherData("Tallinn-Harku", 26038, 1.0, 3.0, "Clear", 1647589500L);
+        WeatherData late = new WeatherData("Tallinn-Harku", 26038, -1.5, 6.0, "Light snow shower", 1647591000L);
+        late.setSnapshotVersion(4L);
+        WeatherData next = new WeatherData("Tallinn-Harku", 26038, 2.0, 1.0, "Clear", 1647594000L);
+        WeatherData tartu = new WeatherData("Tartu-Tõravere", 26242, 5.0, 5.0, "Clear", 1647591500L);
+        weatherDataRepository.saveAll(List.of(early, late, next, tartu));
+    }
+
+    /**
+     * Tests that the reading of a range is the latest observation of the station in the range.
+     */
+    @Test
+    public void testFindLatestReadingBetween() {
+        WeatherReading reading = weatherDataRepository.findLatestReadingBetween(26038, 1647589200L, 1647592800L);
+
+        assertEquals(new WeatherReading(-1.5, 6.0, "Light snow shower", 1647591000L, 4L), reading);
+        assertNull(weatherDataRepository.findLatestReadingBetween(26038, 1647585600L, 1647589200L));
+    }
+
+    /**
+     * Tests that the latest reading is the latest observation of the station.
+     */
+    @Test
+    public void testFindLatestReading() {
+        assertEquals(1647594000L, weatherDataRepository.findLatestReading(26038).timeStamp());
+        assertEquals(1647591500L, weatherDataRepository.findLatestReading(26242).timeStamp());
+        assertNull(weatherDataRepository.findLatestReading(26120));
+    }
+}
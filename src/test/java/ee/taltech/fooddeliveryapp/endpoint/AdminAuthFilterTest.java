@@ -0,0 +1,48 @@
+package ee.taltech.fooddeliveryapp.endpoint;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AdminAuthFilterTest {
+
+    /**
+     * Tests that admin requests need the configured token, and that other requests don't.
+     */
+    @Test
+    void testRequiresToken() throws Exception {
+        AdminAuthFilter filter = new AdminAuthFilter("secret");
+
+        assertEquals(HttpStatus.UNAUTHORIZED.value(), send(filter, "POST", "/admin/snapshots/rollback", null));
+        assertEquals(HttpStatus.UNAUTHORIZED.value(), send(filter, "GET", "/admin/audit/1", "wrong"));
+        assertEquals(HttpStatus.OK.value(), send(filter, "POST", "/admin/snapshots/rollback", "secret"));
+        assertEquals(HttpStatus.OK.value(), send(filter, "POST", "/delivery/fee", null));
+        assertEquals(HttpStatus.OK.value(), send(filter, "GET", "/administration", null));
+    }
+
+    /**
+     * Tests that without a configured token every admin request is turned down.
+     */
+    @Test
+    void testTurnedOffWithoutToken() throws Exception {
+        AdminAuthFilter filter = new AdminAuthFilter("");
+
+        assertEquals(HttpStatus.FORBIDDEN.value(), send(filter, "GET", "/admin/snapshots", null));
+        assertEquals(HttpStatus.FORBIDDEN.value(), send(filter, "PUT", "/admin/admission", ""));
+        assertEquals(HttpStatus.OK.value(), send(filter, "POST", "/delivery/fee", null));
+    }
+
+    private static int send(AdminAuthFilter filter, String method, String path, String token) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest(method, path);
+        if (token != null) {
+            request.addHeader(AdminAuthFilter.TOKEN_HEADER, token);
+        }
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, new MockFilterChain());
+        return response.getStatus();
+    }
+}
@@ -0,0 +1,97 @@
+package ee.taltech.fooddeliveryapp.endpoint;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AdmissionFilterTest {
+
+    private AdmissionFilter filter;
+
+    /**
+     * Sets up a filter allowing bursts of 2 requests per client, which don't refill during a test.
+     */
+    @BeforeEach
+    void setUp() {
+        filter = new AdmissionFilter(new RateLimiter(new RateLimiter.Limits(0.001, 2, 1000), () -> 0L),
+                new ConcurrencyLimiter(new ConcurrencyLimiter.Limits(64, 8, 512, 200)), Set.of("partner-key"),
+                Set.of("10.0.1.1", "10.0.1.2"));
+    }
+
+    /**
+     * Tests that clients without a configured API key share the bucket of their address, whatever headers they
+     * send.
+     */
+    @Test
+    void testUnknownHeadersDontBuyBursts() throws Exception {
+        assertEquals(HttpStatus.OK.value(), send("10.0.0.1", null, "first"));
+        assertEquals(HttpStatus.OK.value(), send("10.0.0.1", "made-up-key", "second"));
+        assertEquals(HttpStatus.TOO_MANY_REQUESTS.value(), send("10.0.0.1", null, "third"));
+
+        assertEquals(HttpStatus.OK.value(), send("10.0.0.2", null, null));
+    }
+
+    /**
+     * Tests that a configured API key has a bucket of its own, wherever its requests come from.
+     */
+    @Test
+    void testConfiguredApiKey() throws Exception {
+        assertEquals(HttpStatus.OK.value(), send("10.0.0.1", "partner-key", null));
+        assertEquals(HttpStatus.OK.value(), send("10.0.0.2", "partner-key", null));
+        assertEquals(HttpStatus.TOO_MANY_REQUESTS.value(), send("10.0.0.3", "partner-key", null));
+
+        assertEquals(HttpStatus.OK.value(), send("10.0.0.1", null, null));
+    }
+
+    /**
+     * Tests that requests from trusted proxies are told apart by the client address they forward, and that other
+     * senders of the header are not.
+     */
+    @Test
+    void testForwardedForFromTrustedProxy() throws Exception {
+        assertEquals(HttpStatus.OK.value(), forward("10.0.1.1", "192.0.2.1"));
+        assertEquals(HttpStatus.OK.value(), forward("10.0.1.2", "192.0.2.1, 10.0.1.1"));
+        assertEquals(HttpStatus.TOO_MANY_REQUESTS.value(), forward("10.0.1.1", "198.51.100.7, 192.0.2.1"));
+
+        assertEquals(HttpStatus.OK.value(), forward("10.0.1.1", "192.0.2.2"));
+        assertEquals(HttpStatus.OK.value(), forward("10.0.0.1", "192.0.2.3"));
+        assertEquals(HttpStatus.OK.value(), forward("10.0.0.1", "192.0.2.4"));
+        assertEquals(HttpStatus.TOO_MANY_REQUESTS.value(), forward("10.0.0.1", "192.0.2.5"));
+    }
+
+    private int forward(String address, String forwardedFor) throws Exception {
+        MockHttpServletRequest request = request(address);
+        request.addHeader(AdmissionFilter.FORWARDED_FOR_HEADER, forwardedFor);
+        return send(request);
+    }
+
+    private int send(String address, String apiKey, String clientId) throws Exception {
+        MockHttpServletRequest request = request(address);
+        if (apiKey != null) {
+            request.addHeader(AdmissionFilter.API_KEY_HEADER, apiKey);
+        }
+        if (clientId != null) {
+            request.addHeader("X-Client-Id", clientId);
+        }
+        return send(request);
+    }
+
+    private static MockHttpServletRequest request(String address) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/delivery/fee/stream");
+        request.setRemoteAddr(address);
+        return request;
+    }
+
+    private int send(MockHttpServletRequest request) throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, new MockFilterChain());
+        return response.getStatus();
+    }
+}
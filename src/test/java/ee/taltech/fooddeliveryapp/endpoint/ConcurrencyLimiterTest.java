@@ -0,0 +1,90 @@
+package ee.taltech.fooddeliveryapp.endpoint;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConcurrencyLimiterTest {
+    private static final long MILLIS = 1_000_000L;
+
+    private AtomicLong now;
+    private ConcurrencyLimiter concurrencyLimiter;
+
+    /**
+     * Sets up a limiter starting at 4 requests at once, between 2 and 6, with a target latency of 100 ms, on a
+     * clock the tests move by hand.
+     */
+    @BeforeEach
+    void setUp() {
+        now = new AtomicLong();
+        concurrencyLimiter = new ConcurrencyLimiter(new ConcurrencyLimiter.Limits(4, 2, 6, 100), now::get);
+    }
+
+    /**
+     * Tests that requests over the limit are turned down until one is released.
+     */
+    @Test
+    void testRejectsOverLimit() {
+        for (int i = 0; i < 4; i++) {
+            assertTrue(concurrencyLimiter.tryAcquire());
+        }
+        assertFalse(concurrencyLimiter.tryAcquire());
+
+        concurrencyLimiter.release(10 * MILLIS);
+        assertTrue(concurrencyLimiter.tryAcquire());
+        assertEquals(1, concurrencyLimiter.getStats().rejected());
+    }
+
+    /**
+     * Tests that the limit grows while busy requests are fast, up to the maximum.
+     */
+    @Test
+    void testGrowsWhenFast() {
+        for (int i = 0; i < 10; i++) {
+            concurrencyLimiter.tryAcquire();
+            concurrencyLimiter.tryAcquire();
+            concurrencyLimiter.tryAcquire();
+            concurrencyLimiter.release(10 * MILLIS);
+            concurrencyLimiter.release(10 * MILLIS);
+            concurrencyLimiter.release(10 * MILLIS);
+        }
+
+        assertEquals(6, concurrencyLimiter.getStats().limit());
+    }
+
+    /**
+     * Tests that slow requests shrink the limit at most once per target latency, down to the minimum.
+     */
+    @Test
+    void testShrinksWhenSlow() {
+        now.set(100 * MILLIS);
+        concurrencyLimiter.tryAcquire();
+        concurrencyLimiter.release(500 * MILLIS);
+        concurrencyLimiter.tryAcquire();
+        concurrencyLimiter.release(500 * MILLIS);
+        assertEquals(3, concurrencyLimiter.getStats().limit());
+
+        for (int i = 0; i < 5; i++) {
+            now.addAndGet(100 * MILLIS);
+            concurrencyLimiter.tryAcquire();
+            concurrencyLimiter.release(500 * MILLIS);
+        }
+        assertEquals(2, concurrencyLimiter.getStats().limit());
+    }
+
+    /**
+     * Tests that new limits start over from their initial limit and limits out of order are refused.
+     */
+    @Test
+    void testSetLimits() {
+        concurrencyLimiter.setLimits(new ConcurrencyLimiter.Limits(1, 1, 1, 100));
+        assertTrue(concurrencyLimiter.tryAcquire());
+        assertFalse(concurrencyLimiter.tryAcquire());
+
+        assertThrows(IllegalArgumentException.class,
+                () -> concurrencyLimiter.setLimits(new ConcurrencyLimiter.Limits(8, 2, 6, 100)));
+    }
+}
@@ -7,20 +7,32 @@ import ee.taltech.fooddeliveryapp.exceptions.UnknownCityException;
 import ee.taltech.fooddeliveryapp.exceptions.UnknownVehicleException;
 import ee.taltech.fooddeliveryapp.exceptions.VehicleForbiddenException;
 import ee.taltech.fooddeliveryapp.service.DeliveryFeeCalculator;
+import ee.taltech.fooddeliveryapp.service.FeeAuditLog;
+import ee.taltech.fooddeliveryapp.service.FeeAuditRecord;
+import ee.taltech.fooddeliveryapp.service.FeeQuote;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.boot.test.mock.mockito.SpyBean;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.MvcResult;
 
-import java.math.BigDecimal;
+import java.nio.ByteBuffer;
 import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
@@ -35,6 +47,8 @@ public class DeliveryFeeControllerIntegrationTest {
     private ObjectMapper objectMapper;
     @MockBean
     private DeliveryFeeCalculator calculator;
+    @SpyBean
+    private FeeAuditLog auditLog;
 
     /**
      * Tests the case when a valid FeeRequest is provided, and the delivery fee is calculated successfully.
@@ -47,7 +61,7 @@ public class DeliveryFeeControllerIntegrationTest {
         // Arrange
         FeeRequest request = new FeeRequest("Tallinn", "Car", LocalDateTime.now());
         String requestJson = objectMapper.writeValueAsString(request);
-        when(calculator.calculateFee(any(), any(), any())).thenReturn(new BigDecimal("2.0"));
+        when(calculator.quoteFee(any(), any(), any(), any(), any())).thenReturn(new FeeQuote(200, 1L));
 
         // Act
         MvcResult result = mockMvc.perform(post("/delivery/fee")
@@ -59,6 +73,34 @@ public class DeliveryFeeControllerIntegrationTest {
         // Assert
         FeeResponse response = objectMapper.readValue(result.getResponse().getContentAsString(), FeeResponse.class);
         assertThat(response.getFee()).isNotNull();
+        assertThat(response.getSnapshotVersion()).isEqualTo(1L);
+        assertThat(response.getErrorMessage()).isNull();
+    }
+
+    /**
+     * Tests the case when the FeeRequest contains a delivery location.
+     * The fee should be calculated for the location.
+     */
+    @Test
+    void calculateFee_requestWithLocation_returnsFeeResponse()
+            throws Exception, InvalidTimeStampException, VehicleForbiddenException,
+            NoWeatherFoundException, UnknownVehicleException, UnknownCityException {
+        // Arrange
+        FeeRequest request = new FeeRequest("Tallinn", "Car", null, 59.43, 24.75);
+        String requestJson = objectMapper.writeValueAsString(request);
+        when(calculator.quoteFee(any(), any(), any(), eq(59.43), eq(24.75)))
+                .thenReturn(new FeeQuote(400, 7L));
+
+        // Act
+        MvcResult result = mockMvc.perform(post("/delivery/fee")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(requestJson))
+                .andExpect(status().isOk())
+                .andReturn();
+
+        // Assert
+        FeeResponse response = objectMapper.readValue(result.getResponse().getContentAsString(), FeeResponse.class);
+        assertThat(response.getFee()).isEqualByComparingTo("4.0");
         assertThat(response.getErrorMessage()).isNull();
     }
 
@@ -73,7 +115,7 @@ public class DeliveryFeeControllerIntegrationTest {
         // Arrange
         FeeRequest request = new FeeRequest("UnknownCity", "Car", LocalDateTime.now());
         String requestJson = objectMapper.writeValueAsString(request);
-        when(calculator.calculateFee(any(), any(), any())).thenThrow(new UnknownCityException("No weather for Tallinn for requested time found in database!"));
+        when(calculator.quoteFee(any(), any(), any(), any(), any())).thenThrow(new UnknownCityException("No weather for Tallinn for requested time found in database!"));
 
         // Act
         MvcResult result = mockMvc.perform(post("/delivery/fee")
@@ -99,7 +141,7 @@ public class DeliveryFeeControllerIntegrationTest {
         // Arrange
         FeeRequest request = new FeeRequest("Tallinn", "Car", LocalDateTime.of(2020, 1, 1, 0, 0));
         String requestJson = objectMapper.writeValueAsString(request);
-        when(calculator.calculateFee(any(), any(), any())).thenThrow(new InvalidTimeStampException("No weather for Tallinn for requested time found in database!"));
+        when(calculator.quoteFee(any(), any(), any(), any(), any())).thenThrow(new InvalidTimeStampException("No weather for Tallinn for requested time found in database!"));
 
         // Act
         MvcResult result = mockMvc.perform(post("/delivery/fee")
@@ -126,7 +168,7 @@ public class DeliveryFeeControllerIntegrationTest {
         // Arrange
         FeeRequest request = new FeeRequest("Tallinn", "UnknownVehicle", LocalDateTime.now());
         String requestJson = objectMapper.writeValueAsString(request);
-        when(calculator.calculateFee(any(), any(), any())).thenThrow(new UnknownVehicleException("Unknown vehicle type!"));
+        when(calculator.quoteFee(any(), any(), any(), any(), any())).thenThrow(new UnknownVehicleException("Unknown vehicle type!"));
 
         // Act
         MvcResult result = mockMvc.perform(post("/delivery/fee")
@@ -152,7 +194,7 @@ public class DeliveryFeeControllerIntegrationTest {
         // Arrange
         FeeRequest request = new FeeRequest("Tallinn", "Bicycle", LocalDateTime.now());
         String requestJson = objectMapper.writeValueAsString(request);
-        when(calculator.calculateFee(any(), any(), any())).thenThrow(new VehicleForbiddenException("Usage of selected vehicle type is forbidden!"));
+        when(calculator.quoteFee(any(), any(), any(), any(), any())).thenThrow(new VehicleForbiddenException("Usage of selected vehicle type is forbidden!"));
 
         // Act
         MvcResult result = mockMvc.perform(post("/delivery/fee")
@@ -178,7 +220,7 @@ public class DeliveryFeeControllerIntegrationTest {
         // Arrange
         FeeRequest request = new FeeRequest("Tallinn", "Car", LocalDateTime.now());
         String requestJson = objectMapper.writeValueAsString(request);
-        when(calculator.calculateFee(any(), any(), any())).thenThrow(new NoWeatherFoundException("No weather found in database!"));
+        when(calculator.quoteFee(any(), any(), any(), any(), any())).thenThrow(new NoWeatherFoundException("No weather found in database!"));
 
         // Act
         MvcResult result = mockMvc.perform(post("/delivery/fee")
@@ -204,7 +246,7 @@ public class DeliveryFeeControllerIntegrationTest {
         // Arrange
         FeeRequest request = new FeeRequest("Tallinn", "Car", LocalDateTime.now());
         String requestJson = objectMapper.writeValueAsString(request);
-        when(calculator.calculateFee(any(), any(), any())).thenThrow(new RuntimeException("Unexpected exception"));
+        when(calculator.quoteFee(any(), any(), any(), any(), any())).thenThrow(new RuntimeException("Unexpected exception"));
 
         // Act
         MvcResult result = mockMvc.perform(post("/delivery/fee")
@@ -219,4 +261,159 @@ public class DeliveryFeeControllerIntegrationTest {
         assertThat(response.getErrorMessage()).isEqualTo("An unexpected error occurred");
     }
 
+    /**
+     * Tests the binary format chosen by the content type. Every request of the body gets a response in the same
+     * order, with the fee in cents or the status of its error, and is recorded in the audit log under the quote ID
+     * of its response.
+     */
+    @Test
+    void calculateFeeBinary_severalRequests_returnsResponseForEach()
+            throws Exception, InvalidTimeStampException, VehicleForbiddenException,
+            NoWeatherFoundException, UnknownVehicleException, UnknownCityException {
+        // Arrange
+        ByteBuffer body = ByteBuffer.allocate(FeeWireFormat.requestSize(3));
+        FeeWireFormat.writeRequest(body, new FeeWireFormat.Request(0, 0, 1678818585L, null, null));
+        FeeWireFormat.writeRequest(body, new FeeWireFormat.Request(1, 2, null, 58.3, 26.5));
+        FeeWireFormat.writeRequest(body, new FeeWireFormat.Request(7, 0, null, null, null));
+        when(calculator.quoteFeeAt(eq("tallinn"), eq("car"), eq(1678818585L), isNull(), isNull()))
+                .thenReturn(new FeeQuote(400, 3L));
+        when(calculator.quoteFeeAt(eq("tartu"), eq("bike"), isNull(), eq(58.3), eq(26.5)))
+                .thenThrow(new VehicleForbiddenException("Usage of selected vehicle type is forbidden"));
+
+        // Act
+        MvcResult result = mockMvc.perform(post("/delivery/fee")
+                        .contentType(FeeWireFormat.MEDIA_TYPE)
+                        .content(body.array()))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(FeeWireFormat.MEDIA_TYPE))
+                .andReturn();
+
+        // Assert
+        List<FeeWireFormat.Response> responses = FeeWireFormat.readResponses(result.getResponse().getContentAsByteArray());
+        assertThat(responses).extracting(FeeWireFormat.Response::status, FeeWireFormat.Response::feeCents,
+                FeeWireFormat.Response::snapshotVersion).containsExactly(
+                tuple(FeeWireFormat.OK, 400, 3L),
+                tuple(FeeWireFormat.VEHICLE_FORBIDDEN, 0, 0L),
+                tuple(FeeWireFormat.UNKNOWN_CITY, 0, 0L));
+
+        ArgumentCaptor<FeeAuditRecord> records = ArgumentCaptor.forClass(FeeAuditRecord.class);
+        verify(auditLog, times(3)).record(records.capture());
+        assertThat(records.getAllValues()).extracting(FeeAuditRecord::quoteId)
+                .containsExactlyElementsOf(responses.stream().map(FeeWireFormat.Response::quoteId).toList())
+                .doesNotContain(0L);
+        assertThat(records.getAllValues()).extracting(FeeAuditRecord::city, FeeAuditRecord::status, FeeAuditRecord::feeCents)
+                .containsExactly(tuple("tallinn", 200, 400L), tuple("tartu", 400, 0L), tuple("7", 400, 0L));
+    }
+
+    /**
+     * Tests the binary format with a body that is cut off. The response should have a bad request status.
+     */
+    @Test
+    void calculateFeeBinary_truncatedBody_returnsBadRequest() throws Exception {
+        // Arrange
+        ByteBuffer body = ByteBuffer.allocate(FeeWireFormat.requestSize(1));
+        FeeWireFormat.writeRequest(body, new FeeWireFormat.Request(0, 0, null, null, null));
+
+        // Act & Assert
+        mockMvc.perform(post("/delivery/fee")
+                        .contentType(FeeWireFormat.MEDIA_TYPE)
+                        .content(Arrays.copyOf(body.array(), 10)))
+                .andExpect(status().isBadRequest());
+    }
+
+    /**
+     * Tests the bulk endpoint with newline-delimited requests. Every line should get a response line in the same
+     * order, with the fee or the error of its request, and a line that isn't a request should get an error message.
+     */
+    @Test
+    void calculateFeesBulk_severalRequests_streamsResponseForEach()
+            throws Exception, InvalidTimeStampException, VehicleForbiddenException,
+            NoWeatherFoundException, UnknownVehicleException, UnknownCityException {
+        // Arrange
+        LocalDateTime timeStamp = LocalDateTime.of(2023, 3, 17, 14, 30);
+        when(calculator.quoteFee(eq("Tallinn"), eq("car"), eq(timeStamp), any(), any(), any()))
+                .thenReturn(new FeeQuote(400, 3L));
+        when(calculator.quoteFee(eq("Tartu"), eq("bike"), eq(timeStamp), any(), any(), any()))
+                .thenThrow(new VehicleForbiddenException("Usage of selected vehicle type is forbidden"));
+        String body = objectMapper.writeValueAsString(new FeeRequest("Tallinn", "car", timeStamp)) + "\n"
+                + "\n"
+                + objectMapper.writeValueAsString(new FeeRequest("Tartu", "bike", timeStamp)) + "\r\n"
+                + "{not json\n"
+                + objectMapper.writeValueAsString(new FeeRequest("Tallinn", "car", timeStamp));
+
+        // Act
+        MvcResult result = mockMvc.perform(post("/delivery/fee/bulk")
+                        .contentType("application/x-ndjson")
+                        .content(body))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/x-ndjson"))
+                .andReturn();
+
+        // Assert
+        String[] lines = result.getResponse().getContentAsString().split("\n");
+        assertThat(lines).hasSize(4);
+        FeeResponse first = objectMapper.readValue(lines[0], FeeResponse.class);
+        assertThat(first.getFee()).isEqualByComparingTo("4");
+        assertThat(first.getSnapshotVersion()).isEqualTo(3L);
+        assertThat(objectMapper.readValue(lines[1], FeeResponse.class).getErrorMessage())
+                .isEqualTo("Usage of selected vehicle type is forbidden");
+        assertThat(objectMapper.readValue(lines[2], FeeResponse.class).getErrorMessage())
+                .isEqualTo("Malformed request");
+        assertThat(objectMapper.readValue(lines[3], FeeResponse.class).getFee()).isEqualByComparingTo("4");
+    }
+
+    /**
+     * Tests the bulk endpoint with a line longer than the limit. It should get an error message without being
+     * parsed, and the following lines should still be answered.
+     */
+    @Test
+    void calculateFeesBulk_tooLongLine_returnsErrorAndContinues()
+            throws Exception, InvalidTimeStampException, VehicleForbiddenException,
+            NoWeatherFoundException, UnknownVehicleException, UnknownCityException {
+        // Arrange
+        when(calculator.quoteFee(any(), any(), any(), any(), any(), any())).thenReturn(new FeeQuote(300, 1L));
+        String body = "{\"city\":\"" + "a".repeat(DeliveryFeeController.MAX_LINE_LENGTH) + "\"}\n"
+                + objectMapper.writeValueAsString(new FeeRequest("Tartu", "car", null)) + "\n";
+
+        // Act
+        MvcResult result = mockMvc.perform(post("/delivery/fee/bulk")
+                        .contentType("application/x-ndjson")
+                        .content(body))
+                .andExpect(status().isOk())
+                .andReturn();
+
+        // Assert
+        String[] lines = result.getResponse().getContentAsString().split("\n");
+        assertThat(lines).hasSize(2);
+        assertThat(objectMapper.readValue(lines[0], FeeResponse.class).getErrorMessage())
+                .isEqualTo("Request line is too long");
+        assertThat(objectMapper.readValue(lines[1], FeeResponse.class).getFee()).isEqualByComparingTo("3");
+    }
+
+    /**
+     * Tests the bulk endpoint with a line of null, which is valid JSON but no request. It should get an error
+     * message, and the following lines should still be answered.
+     */
+    @Test
+    void calculateFeesBulk_nullLine_returnsErrorAndContinues()
+            throws Exception, InvalidTimeStampException, VehicleForbiddenException,
+            NoWeatherFoundException, UnknownVehicleException, UnknownCityException {
+        // Arrange
+        when(calculator.quoteFee(any(), any(), any(), any(), any(), any())).thenReturn(new FeeQuote(300, 1L));
+        String body = "null\n" + objectMapper.writeValueAsString(new FeeRequest("Tartu", "car", null)) + "\n";
+
+        // Act
+        MvcResult result = mockMvc.perform(post("/delivery/fee/bulk")
+                        .contentType("application/x-ndjson")
+                        .content(body))
+                .andExpect(status().isOk())
+                .andReturn();
+
+        // Assert
+        String[] lines = result.getResponse().getContentAsString().split("\n");
+        assertThat(lines).hasSize(2);
+        assertThat(objectMapper.readValue(lines[0], FeeResponse.class).getErrorMessage())
+                .isEqualTo("Malformed request");
+        assertThat(objectMapper.readValue(lines[1], FeeResponse.class).getFee()).isEqualByComparingTo("3");
+    }
 }
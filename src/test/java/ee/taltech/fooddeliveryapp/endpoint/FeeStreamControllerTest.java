@@ -0,0 +1,73 @@
+package ee.taltech.fooddeliveryapp.endpoint;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import ee.taltech.fooddeliveryapp.service.FeeChangeBroadcaster;
+import ee.taltech.fooddeliveryapp.service.LiveFee;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class FeeStreamControllerTest {
+
+    private final List<Runnable> sends = new ArrayList<>();
+    private FeeStreamController controller;
+    private Consumer<List<LiveFee>> listener;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        FeeChangeBroadcaster broadcaster = mock(FeeChangeBroadcaster.class);
+        // Writes are only collected, never run, like writes to a client that doesn't read
+        controller = new FeeStreamController(broadcaster, new ObjectMapper(), sends::add);
+        ReflectionTestUtils.setField(controller, "maxConnections", 1);
+        ReflectionTestUtils.setField(controller, "queueSize", 2);
+
+        ArgumentCaptor<Consumer<List<LiveFee>>> captor = ArgumentCaptor.forClass(Consumer.class);
+        verify(broadcaster).addListener(captor.capture());
+        listener = captor.getValue();
+    }
+
+    /**
+     * Tests that changes and heartbeats are queued for the sending threads instead of being written by the caller,
+     * with a single write scheduled per stream however many events wait.
+     */
+    @Test
+    void testQueuesWithoutWriting() {
+        assertEquals(HttpStatus.OK, controller.streamFees(List.of("tallinn:car")).getStatusCode());
+
+        listener.accept(List.of(fee(1L)));
+        controller.sendHeartbeats();
+
+        assertEquals(1, sends.size());
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE,
+                controller.streamFees(List.of("tartu:bike")).getStatusCode());
+    }
+
+    /**
+     * Tests that a stream whose queue overflows is ended without waiting for it, freeing its connection.
+     */
+    @Test
+    void testEndsStreamThatFallsBehind() {
+        assertEquals(HttpStatus.OK, controller.streamFees(List.of("tallinn:car")).getStatusCode());
+
+        listener.accept(List.of(fee(1L)));
+        listener.accept(List.of(fee(2L)));
+        listener.accept(List.of(fee(3L)));
+
+        assertEquals(HttpStatus.OK, controller.streamFees(List.of("tallinn:car")).getStatusCode());
+    }
+
+    private static LiveFee fee(long snapshotVersion) {
+        return new LiveFee("tallinn", "car", BigDecimal.valueOf(4), false, snapshotVersion);
+    }
+}
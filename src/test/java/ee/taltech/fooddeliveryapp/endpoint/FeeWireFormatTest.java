@@ -0,0 +1,89 @@
+package ee.taltech.fooddeliveryapp.endpoint;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FeeWireFormatTest {
+
+    /**
+     * Tests that requests are read back as they were written, leaving out the timestamp and the location when
+     * their flags aren't set.
+     */
+    @Test
+    void testRequestRoundTrip() {
+        List<FeeWireFormat.Request> requests = List.of(
+                new FeeWireFormat.Request(0, 1, 1678818585L, 59.43, 24.75),
+                new FeeWireFormat.Request(2, 2, null, null, null));
+        ByteBuffer body = ByteBuffer.allocate(FeeWireFormat.requestSize(requests.size()));
+        requests.forEach(request -> FeeWireFormat.writeRequest(body, request));
+
+        assertFalse(body.hasRemaining());
+        assertEquals(requests, FeeWireFormat.readRequests(body.array()));
+    }
+
+    /**
+     * Tests that bytes beyond the known fields of a payload are skipped.
+     */
+    @Test
+    void testLongerPayloadIsSkipped() {
+        ByteBuffer body = ByteBuffer.allocate(2 + FeeWireFormat.REQUEST_LENGTH + 4);
+        body.putShort((short) (FeeWireFormat.REQUEST_LENGTH + 4))
+                .put((byte) 1).put((byte) 0).put((byte) FeeWireFormat.HAS_TIMESTAMP)
+                .putLong(1678818585L).putDouble(0).putDouble(0).putInt(-1);
+
+        assertEquals(List.of(new FeeWireFormat.Request(1, 0, 1678818585L, null, null)),
+                FeeWireFormat.readRequests(body.array()));
+    }
+
+    /**
+     * Tests that responses are read back as they were written.
+     */
+    @Test
+    void testResponseRoundTrip() {
+        ByteBuffer body = ByteBuffer.allocate(FeeWireFormat.responseSize(2));
+        FeeWireFormat.writeResponse(body, FeeWireFormat.OK, 450, 12L, 425590993715212288L);
+        FeeWireFormat.writeResponse(body, FeeWireFormat.NO_WEATHER, 0, 0, 425590993715212289L);
+
+        assertEquals(List.of(new FeeWireFormat.Response(FeeWireFormat.OK, 450, 12L, 425590993715212288L),
+                        new FeeWireFormat.Response(FeeWireFormat.NO_WEATHER, 0, 0L, 425590993715212289L)),
+                FeeWireFormat.readResponses(body.array()));
+    }
+
+    /**
+     * Tests that responses without a quote ID, as written before quote IDs, are read with a quote ID of 0.
+     */
+    @Test
+    void testResponseWithoutQuoteId() {
+        ByteBuffer body = ByteBuffer.allocate(2 + FeeWireFormat.MIN_RESPONSE_LENGTH);
+        body.putShort((short) FeeWireFormat.MIN_RESPONSE_LENGTH)
+                .put((byte) FeeWireFormat.OK).putInt(450).putLong(12L);
+
+        assertEquals(List.of(new FeeWireFormat.Response(FeeWireFormat.OK, 450, 12L, 0L)),
+                FeeWireFormat.readResponses(body.array()));
+    }
+
+    /**
+     * Tests that malformed bodies are rejected: cut off, with a too short payload, or with too many requests.
+     */
+    @Test
+    void testMalformedRequests() {
+        ByteBuffer body = ByteBuffer.allocate(FeeWireFormat.requestSize(1));
+        FeeWireFormat.writeRequest(body, new FeeWireFormat.Request(0, 0, null, null, null));
+        byte[] cutOff = new byte[body.capacity() - 1];
+        System.arraycopy(body.array(), 0, cutOff, 0, cutOff.length);
+        assertThrows(IllegalArgumentException.class, () -> FeeWireFormat.readRequests(cutOff));
+
+        byte[] shortPayload = ByteBuffer.allocate(4).putShort((short) 2).put((byte) 0).put((byte) 0).array();
+        assertThrows(IllegalArgumentException.class, () -> FeeWireFormat.readRequests(shortPayload));
+
+        ByteBuffer tooMany = ByteBuffer.allocate(FeeWireFormat.requestSize(FeeWireFormat.MAX_REQUESTS + 1));
+        for (int i = 0; i <= FeeWireFormat.MAX_REQUESTS; i++) {
+            FeeWireFormat.writeRequest(tooMany, new FeeWireFormat.Request(0, 0, null, null, null));
+        }
+        assertThrows(IllegalArgumentException.class, () -> FeeWireFormat.readRequests(tooMany.array()));
+    }
+}
@@ -0,0 +1,86 @@
+package ee.taltech.fooddeliveryapp.endpoint;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RateLimiterTest {
+
+    private AtomicLong now;
+    private RateLimiter rateLimiter;
+
+    /**
+     * Sets up a limiter of 2 requests a second with bursts of 3, on a clock the tests move by hand.
+     */
+    @BeforeEach
+    void setUp() {
+        now = new AtomicLong();
+        rateLimiter = new RateLimiter(new RateLimiter.Limits(2, 3, 1000), now::get);
+    }
+
+    /**
+     * Tests that a client may make a burst of requests and then only as many as have been refilled.
+     */
+    @Test
+    void testBurstThenRate() {
+        for (int i = 0; i < 3; i++) {
+            assertTrue(rateLimiter.tryAcquire("client"));
+        }
+        assertFalse(rateLimiter.tryAcquire("client"));
+
+        now.addAndGet(500_000_000L);
+        assertTrue(rateLimiter.tryAcquire("client"));
+        assertFalse(rateLimiter.tryAcquire("client"));
+
+        RateLimiter.Stats stats = rateLimiter.getStats();
+        assertEquals(4, stats.allowed());
+        assertEquals(2, stats.rejected());
+    }
+
+    /**
+     * Tests that clients have buckets of their own.
+     */
+    @Test
+    void testClientsAreSeparate() {
+        for (int i = 0; i < 3; i++) {
+            rateLimiter.tryAcquire("client");
+        }
+
+        assertFalse(rateLimiter.tryAcquire("client"));
+        assertTrue(rateLimiter.tryAcquire("other"));
+    }
+
+    /**
+     * Tests that buckets are evicted beyond the number of clients kept, and an evicted client starts over.
+     */
+    @Test
+    void testEviction() {
+        rateLimiter.setLimits(new RateLimiter.Limits(2, 1, 1));
+        assertTrue(rateLimiter.tryAcquire("client"));
+        assertFalse(rateLimiter.tryAcquire("client"));
+
+        for (int i = 0; i < 1000; i++) {
+            rateLimiter.tryAcquire("client-" + i);
+        }
+
+        assertTrue(rateLimiter.getStats().evicted() > 0);
+        assertTrue(rateLimiter.getStats().clients() <= 64);
+        assertTrue(rateLimiter.tryAcquire("client"));
+    }
+
+    /**
+     * Tests that a rate of 0 turns the limit off and that limits out of range are refused.
+     */
+    @Test
+    void testSetLimits() {
+        rateLimiter.setLimits(new RateLimiter.Limits(0, 1, 1000));
+        for (int i = 0; i < 10; i++) {
+            assertTrue(rateLimiter.tryAcquire("client"));
+        }
+
+        assertThrows(IllegalArgumentException.class, () -> rateLimiter.setLimits(new RateLimiter.Limits(1, 0, 1)));
+    }
+}
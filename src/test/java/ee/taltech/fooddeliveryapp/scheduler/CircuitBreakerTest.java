@@ -0,0 +1,95 @@
+package ee.taltech.fooddeliveryapp.scheduler;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CircuitBreakerTest {
+
+    private AtomicLong now;
+    private CircuitBreaker circuitBreaker;
+
+    /**
+     * Sets up a breaker opening after 3 failures in a row for 1000 ms, on a clock the tests move by hand.
+     */
+    @BeforeEach
+    void setUp() {
+        now = new AtomicLong();
+        circuitBreaker = new CircuitBreaker(3, 1000, now::get);
+    }
+
+    /**
+     * Tests that the breaker stays closed until the threshold of failures in a row is reached.
+     */
+    @Test
+    void testOpensAfterConsecutiveFailures() {
+        circuitBreaker.onFailure();
+        circuitBreaker.onFailure();
+        assertTrue(circuitBreaker.tryAcquirePermission());
+
+        circuitBreaker.onFailure();
+
+        assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.getState());
+        assertFalse(circuitBreaker.tryAcquirePermission());
+    }
+
+    /**
+     * Tests that a success in between resets the count of failures.
+     */
+    @Test
+    void testSuccessResetsFailures() {
+        circuitBreaker.onFailure();
+        circuitBreaker.onFailure();
+        circuitBreaker.onSuccess();
+        circuitBreaker.onFailure();
+        circuitBreaker.onFailure();
+
+        assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.getState());
+    }
+
+    /**
+     * Tests that once the open period ends a single probe is let through, and that a successful probe closes
+     * the breaker.
+     */
+    @Test
+    void testHalfOpenProbeSucceeds() {
+        open();
+        now.addAndGet(1000);
+
+        assertTrue(circuitBreaker.tryAcquirePermission());
+        assertEquals(CircuitBreaker.State.HALF_OPEN, circuitBreaker.getState());
+        assertFalse(circuitBreaker.tryAcquirePermission());
+
+        circuitBreaker.onSuccess();
+
+        assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.getState());
+        assertTrue(circuitBreaker.tryAcquirePermission());
+    }
+
+    /**
+     * Tests that a failed probe opens the breaker for another full period.
+     */
+    @Test
+    void testHalfOpenProbeFails() {
+        open();
+        now.addAndGet(1000);
+        assertTrue(circuitBreaker.tryAcquirePermission());
+
+        circuitBreaker.onFailure();
+
+        assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.getState());
+        now.addAndGet(999);
+        assertFalse(circuitBreaker.tryAcquirePermission());
+        now.addAndGet(1);
+        assertTrue(circuitBreaker.tryAcquirePermission());
+    }
+
+    private void open() {
+        for (int i = 0; i < 3; i++) {
+            circuitBreaker.onFailure();
+        }
+    }
+}
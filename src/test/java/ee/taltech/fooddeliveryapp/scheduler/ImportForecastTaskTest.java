@@ -0,0 +1,112 @@
+package ee.taltech.fooddeliveryapp.scheduler;
+
+import ee.taltech.fooddeliveryapp.database.ForecastData;
+import ee.taltech.fooddeliveryapp.exceptions.UpstreamUnavailableException;
+import ee.taltech.fooddeliveryapp.service.DeliveryFeeCalculator;
+import ee.taltech.fooddeliveryapp.service.ForecastService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.w3c.dom.Document;
+
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import java.io.InputStream;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+class ImportForecastTaskTest {
+
+    private ForecastService forecastService;
+    private DeliveryFeeCalculator calculator;
+    private WeatherFetcher forecastFetcher;
+    private ImportForecastTask importForecastTask;
+
+    /**
+     * Sets up the test environment, mocking the ForecastService, DeliveryFeeCalculator and WeatherFetcher and
+     * creating a new ImportForecastTask instance.
+     */
+    @BeforeEach
+    void setUp() {
+        forecastService = Mockito.mock(ForecastService.class);
+        calculator = Mockito.mock(DeliveryFeeCalculator.class);
+        forecastFetcher = Mockito.mock(WeatherFetcher.class);
+        importForecastTask = new ImportForecastTask(forecastService, calculator, forecastFetcher);
+    }
+
+    /**
+     * Tests the updateForecast method, ensuring it parses every forecast hour of every station, saves them and
+     * precomputes the fees from the upcoming forecasts.
+     */
+    @Test
+    void testUpdateForecast() throws Exception {
+        Document xmlDocument = readXmlFromFile("testForecastData.xml");
+        List<ForecastData> upcoming = List.of(new ForecastData());
+        when(forecastService.getUpcomingForecasts(anyLong())).thenReturn(upcoming);
+
+        importForecastTask.updateForecast(xmlDocument);
+
+        ForecastData expected1 = new ForecastData(26038, -2.5, 6.1, "Light snow shower", 1678820400L, 1678818585L);
+        ForecastData expected2 = new ForecastData(26038, -1.0, 0.0, "Overcast", 1678824000L, 1678818585L);
+        ForecastData expected3 = new ForecastData(41803, 1.2, 12.4, "NaN", 1678820400L, 1678818585L);
+
+        verify(forecastService, times(1)).saveAllForecastData(List.of(expected1, expected2, expected3));
+        verify(calculator, times(1)).precomputeForecastFees(upcoming);
+    }
+
+    /**
+     * Tests that nothing is fetched or saved when no forecast provider is configured.
+     */
+    @Test
+    void testUpdateForecastWithoutProvider() {
+        importForecastTask.updateForecast();
+
+        verifyNoInteractions(forecastService, calculator, forecastFetcher);
+    }
+
+    /**
+     * Tests that updateForecast imports the document fetched through the forecast fetcher.
+     */
+    @Test
+    @SuppressWarnings("unchecked")
+    void testUpdateForecastFetchesDocument() throws Exception {
+        Document xmlDocument = readXmlFromFile("testForecastData.xml");
+        when(forecastFetcher.fetch(anyString(), any())).thenAnswer(invocation ->
+                CompletableFuture.completedFuture(invocation.getArgument(1, Function.class).apply(xmlDocument)));
+        importForecastTask.setForecastServiceUrl("http://localhost/forecasts");
+
+        importForecastTask.updateForecast();
+
+        verify(forecastFetcher).fetch(eq("http://localhost/forecasts"), any());
+        verify(forecastService, times(1)).saveAllForecastData(anyList());
+        verify(calculator, times(1)).precomputeForecastFees(any());
+    }
+
+    /**
+     * Tests that nothing is saved and nothing is thrown when the forecast provider can't be fetched from.
+     */
+    @Test
+    void testUpdateForecastFetchFailure() {
+        when(forecastFetcher.fetch(anyString(), any())).thenReturn(
+                CompletableFuture.failedFuture(new UpstreamUnavailableException("Weather service circuit is open")));
+        importForecastTask.setForecastServiceUrl("http://localhost/forecasts");
+
+        importForecastTask.updateForecast();
+
+        verifyNoInteractions(forecastService, calculator);
+    }
+
+    private Document readXmlFromFile(String filePath) throws Exception {
+        DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+        DocumentBuilder builder = factory.newDocumentBuilder();
+        InputStream inputStream = getClass().getClassLoader().getResourceAsStream(filePath);
+        if (inputStream == null) {
+            throw new IllegalArgumentException("File not found: " + filePath);
+        }
+        return builder.parse(inputStream);
+    }
+}
@@ -1,6 +1,9 @@
 package ee.taltech.fooddeliveryapp.scheduler;
 
+import ee.taltech.fooddeliveryapp.database.Station;
 import ee.taltech.fooddeliveryapp.database.WeatherData;
+import ee.taltech.fooddeliveryapp.exceptions.UpstreamUnavailableException;
+import ee.taltech.fooddeliveryapp.service.StationRegistry;
 import ee.taltech.fooddeliveryapp.service.WeatherDataService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -11,21 +14,29 @@ import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
 import java.io.InputStream;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
 
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.Mockito.*;
 
 class ImportWeatherTaskTest {
 
     private WeatherDataService weatherDataService;
+    private StationRegistry stationRegistry;
+    private WeatherFetcher weatherFetcher;
     private ImportWeatherTask importWeatherTask;
 
     /**
-     * Sets up the test environment, mocking the WeatherDataService and creating a new ImportWeatherTask instance.
+     * Sets up the test environment, mocking the WeatherDataService, StationRegistry and WeatherFetcher and
+     * creating a new ImportWeatherTask instance.
      */
     @BeforeEach
     void setUp() {
         weatherDataService = Mockito.mock(WeatherDataService.class);
-        importWeatherTask = new ImportWeatherTask(weatherDataService);
+        stationRegistry = Mockito.mock(StationRegistry.class);
+        weatherFetcher = Mockito.mock(WeatherFetcher.class);
+        importWeatherTask = new ImportWeatherTask(weatherDataService, stationRegistry, weatherFetcher);
     }
 
     /**
@@ -48,6 +59,88 @@ class ImportWeatherTaskTest {
         verify(weatherDataService, times(1)).saveAllWeatherData(List.of(expectedWeatherData1, expectedWeatherData2, expectedWeatherData3));
     }
 
+    /**
+     * Tests that the updateWeather method passes the locations of the stations to the StationRegistry.
+     */
+    @Test
+    void testUpdateWeatherUpdatesStations() throws Exception {
+        Document xmlDocument = readXmlFromFile("testWeatherData.xml");
+
+        importWeatherTask.updateWeather(xmlDocument);
+
+        Station expectedStation1 = new Station(26038, "Tallinn-Harku", 59.398122222355134, 24.602891666624284);
+        Station expectedStation2 = new Station(26242, "Tartu-Tõravere", 58.264072222179834, 26.46130555576748);
+        Station expectedStation3 = new Station(41803, "Pärnu", 58.38456666634923, 24.485197221899487);
+
+        verify(stationRegistry, times(1)).updateStations(List.of(expectedStation1, expectedStation2, expectedStation3));
+    }
+
+    /**
+     * Tests that every station of the feed with a WMO code is imported, including the ones without a location.
+     */
+    @Test
+    void testUpdateWeatherAllStations() throws Exception {
+        Document xmlDocument = readXmlFromFile("testWeatherDataAllStations.xml");
+
+        importWeatherTask.updateWeather(xmlDocument);
+
+        verify(weatherDataService, times(1)).saveAllWeatherData(List.of(
+                new WeatherData("Tallinn-Harku", 26038, 6.0, 4.3, "Overcast", 1678818585L),
+                new WeatherData("Kunda", 26045, -1.2, 7.9, "Light snow shower", 1678818585L),
+                new WeatherData("Ruhnu", 41104, 3.8, 11.2, "Clear", 1678818585L)));
+        verify(stationRegistry, times(1)).updateStations(List.of(
+                new Station(26038, "Tallinn-Harku", 59.398122222355134, 24.602891666624284),
+                new Station(26045, "Kunda", 59.52141111111, 26.541397222114116),
+                new Station(41104, "Ruhnu", null, null)));
+    }
+
+    /**
+     * Tests that only the configured stations are imported when weather.ingest-stations is configured.
+     */
+    @Test
+    void testUpdateWeatherConfiguredStations() throws Exception {
+        Document xmlDocument = readXmlFromFile("testWeatherDataAllStations.xml");
+        importWeatherTask.setIngestStations("configured");
+
+        importWeatherTask.updateWeather(xmlDocument);
+
+        verify(weatherDataService, times(1)).saveAllWeatherData(List.of(
+                new WeatherData("Tallinn-Harku", 26038, 6.0, 4.3, "Overcast", 1678818585L)));
+    }
+
+    /**
+     * Tests that updateWeather imports the document fetched from the weather service.
+     */
+    @Test
+    @SuppressWarnings("unchecked")
+    void testUpdateWeatherFetchesDocument() throws Exception {
+        Document xmlDocument = readXmlFromFile("testWeatherData.xml");
+        when(weatherFetcher.fetch(anyString(), any())).thenAnswer(invocation ->
+                CompletableFuture.completedFuture(invocation.getArgument(1, Function.class).apply(xmlDocument)));
+
+        importWeatherTask.updateWeather().join();
+
+        verify(weatherFetcher).fetch(eq(importWeatherTask.getWeatherServiceUrl()), any());
+        verify(weatherDataService, times(1)).saveAllWeatherData(anyList());
+        verify(stationRegistry, times(1)).updateStations(anyList());
+    }
+
+    /**
+     * Tests that nothing is imported when the weather service can't be fetched from, and that the failure is
+     * returned rather than thrown.
+     */
+    @Test
+    void testUpdateWeatherFetchFailure() {
+        when(weatherFetcher.fetch(anyString(), any())).thenReturn(
+                CompletableFuture.failedFuture(new UpstreamUnavailableException("Weather service circuit is open")));
+
+        CompletableFuture<Void> result = importWeatherTask.updateWeather();
+
+        assertTrue(result.isCompletedExceptionally());
+        verify(weatherDataService, never()).saveAllWeatherData(anyList());
+        verify(stationRegistry, never()).updateStations(anyList());
+    }
+
     /**
      * Reads an XML file from the given file path and returns it as a Document object.
      *
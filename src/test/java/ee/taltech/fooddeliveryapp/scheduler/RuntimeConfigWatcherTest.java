@@ -0,0 +1,142 @@
+package ee.taltech.fooddeliveryapp.scheduler;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import ee.taltech.fooddeliveryapp.config.WeatherDataConstants;
+import ee.taltech.fooddeliveryapp.service.DeliveryFeeCalculator;
+import ee.taltech.fooddeliveryapp.service.FeeChangeBroadcaster;
+import ee.taltech.fooddeliveryapp.service.ForecastService;
+import ee.taltech.fooddeliveryapp.service.RuntimeConfig;
+import ee.taltech.fooddeliveryapp.service.StationIds;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class RuntimeConfigWatcherTest {
+
+    @Mock
+    private DeliveryFeeCalculator calculator;
+
+    @Mock
+    private ForecastService forecastService;
+
+    @Mock
+    private FeeChangeBroadcaster feeChangeBroadcaster;
+
+    @Mock
+    private Scheduler scheduler;
+
+    @Mock
+    private ImportWeatherTask importWeatherTask;
+
+    @TempDir
+    private Path directory;
+
+    private Path file;
+    private RuntimeConfigWatcher watcher;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        when(calculator.getConfig()).thenReturn(RuntimeConfig.DEFAULT);
+        when(forecastService.getUpcomingForecasts(anyLong())).thenReturn(List.of());
+        file = directory.resolve("runtime-config.json");
+        watcher = new RuntimeConfigWatcher(calculator, forecastService, feeChangeBroadcaster, scheduler,
+                importWeatherTask, new ObjectMapper(), file.toString());
+    }
+
+    /**
+     * Tests that a valid file is merged over the built-in configuration and switched over to everywhere.
+     */
+    @Test
+    void testReload() throws IOException {
+        Files.writeString(file, """
+                {
+                  "importCron": "0 */30 * * * *",
+                  "feeRules": {"stormAbove": 25, "vehicles": {"bike": {"windyFee": 100}}},
+                  "cityStations": {"pärnu": 41803}
+                }
+                """);
+
+        assertTrue(watcher.reload());
+
+        ArgumentCaptor<RuntimeConfig> config = ArgumentCaptor.forClass(RuntimeConfig.class);
+        verify(calculator).applyConfig(config.capture(), eq(List.of()));
+        RuntimeConfig active = config.getValue();
+        assertEquals(1, active.version());
+        assertEquals("0 */30 * * * *", active.importCron());
+        assertEquals(25, active.feeRules().stormAbove());
+        assertEquals(100, active.feeRules().vehicles().get("bike").windyFee());
+        assertEquals(50, active.feeRules().vehicles().get("bike").coldFee());
+        assertEquals(41803, active.cityStations().get("pärnu"));
+        assertEquals(WeatherDataConstants.TALLINN_HARKU, active.cityStations().get("tallinn"));
+
+        verify(scheduler).changeImportCron("0 */30 * * * *");
+        verify(importWeatherTask).setConfiguredStations(any(StationIds.class));
+        verify(feeChangeBroadcaster).recalculate();
+        assertEquals(active, watcher.getStatus().active());
+        assertNull(watcher.getStatus().lastError());
+    }
+
+    /**
+     * Tests that an unchanged file isn't switched over to again.
+     */
+    @Test
+    void testReloadUnchanged() throws IOException {
+        Files.writeString(file, "{\"importCron\": \"0 0 * * * *\"}");
+
+        assertTrue(watcher.reload());
+        assertFalse(watcher.reload());
+
+        verify(calculator, times(1)).applyConfig(any(), any());
+        assertEquals(1, watcher.getStatus().active().version());
+    }
+
+    /**
+     * Tests that invalid files are rejected while the active configuration stays in use, and that the error is
+     * cleared once the file is valid again.
+     */
+    @Test
+    void testReloadInvalid() throws IOException {
+        Files.writeString(file, "{\"importCron\": \"0 0 * * * *\"}");
+        watcher.reload();
+        RuntimeConfig active = watcher.getStatus().active();
+
+        for (String invalid : List.of("{\"importCron\": \"every hour\"}", "{\"feeRules\": {\"baseFee\": -1}}",
+                "{\"cityStations\": {\"narva\": 26058}}", "{\"feeRule\": {}}", "{\"feeRules\": ")) {
+            Files.writeString(file, invalid);
+
+            assertFalse(watcher.reload(), invalid);
+            assertEquals(active, watcher.getStatus().active());
+            assertNotNull(watcher.getStatus().lastError());
+        }
+
+        Files.writeString(file, "{\"importCron\": \"0 0 * * * *\"}");
+        assertFalse(watcher.reload());
+        assertNull(watcher.getStatus().lastError());
+        verify(calculator, times(1)).applyConfig(any(), any());
+        verify(scheduler, times(1)).changeImportCron(any());
+    }
+
+    /**
+     * Tests that a missing file keeps the built-in configuration.
+     */
+    @Test
+    void testReloadWithoutFile() {
+        assertFalse(watcher.reload());
+
+        assertEquals(RuntimeConfig.DEFAULT, watcher.getStatus().active());
+        assertEquals("Configuration file not found", watcher.getStatus().lastError());
+        verifyNoInteractions(scheduler, importWeatherTask, feeChangeBroadcaster);
+    }
+}
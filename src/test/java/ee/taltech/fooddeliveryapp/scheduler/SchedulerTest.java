@@ -1,12 +1,15 @@
 package ee.taltech.fooddeliveryapp.scheduler;
 
+import ee.taltech.fooddeliveryapp.service.ImportLeaseService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 import org.springframework.scheduling.TaskScheduler;
 import org.springframework.scheduling.support.CronTrigger;
 
+import java.time.Instant;
 import java.util.concurrent.ScheduledFuture;
 
 import static org.mockito.Mockito.*;
@@ -16,6 +19,9 @@ class SchedulerTest {
     @Mock
     private ImportWeatherTask importWeatherTask;
 
+    @Mock
+    private ImportLeaseService leaseService;
+
     @Mock
     private TaskScheduler taskScheduler;
 
@@ -27,7 +33,8 @@ class SchedulerTest {
     @BeforeEach
     void setUp() {
         MockitoAnnotations.openMocks(this);
-        scheduler = new Scheduler(importWeatherTask);
+        when(leaseService.tryAcquire()).thenReturn(true);
+        scheduler = new Scheduler(importWeatherTask, leaseService);
         scheduler.setTaskScheduler(taskScheduler);
         scheduler.setScheduledFuture(scheduledFuture);
     }
@@ -45,6 +52,35 @@ class SchedulerTest {
         verify(scheduledFuture).cancel(true);
     }
 
+    /**
+     * Tests that changing the timing reschedules the import without interrupting a running import, and that
+     * setting the timing it already has does nothing.
+     */
+    @Test
+    void testChangeImportCron() {
+        scheduler.changeImportCron("0 15 * * * *");
+        verify(scheduledFuture, never()).cancel(anyBoolean());
+
+        scheduler.changeImportCron("0 0 * * * *");
+
+        verify(scheduledFuture).cancel(false);
+        verify(taskScheduler).schedule(scheduler, new CronTrigger("0 0 * * * *"));
+    }
+
+    /**
+     * Tests that a timing changed before the scheduler is initialized is used once it is.
+     */
+    @Test
+    void testChangeImportCronBeforeInitialization() {
+        scheduler.setScheduledFuture(null);
+        scheduler.changeImportCron("0 0 * * * *");
+        verify(taskScheduler, never()).schedule(any(Runnable.class), any(CronTrigger.class));
+
+        scheduler.initializeScheduler();
+
+        verify(taskScheduler).schedule(any(Runnable.class), eq(new CronTrigger("0 0 * * * *")));
+    }
+
     /**
      * Tests the run() method by verifying the updateWeather() method of ImportWeatherTask is called.
      */
@@ -58,8 +94,23 @@ class SchedulerTest {
     }
 
     /**
-     * Tests the initialization of the scheduler, making sure updateWeather() is called
-     * and the scheduler is scheduled using the default cron expression.
+     * Tests that a node without the import lease doesn't import the weather itself.
+     */
+    @Test
+    public void testRunWithoutLease() {
+        // Arrange
+        when(leaseService.tryAcquire()).thenReturn(false);
+
+        // Act
+        scheduler.run();
+
+        // Assert
+        verify(importWeatherTask, never()).updateWeather();
+    }
+
+    /**
+     * Tests the initialization of the scheduler, making sure the scheduler is scheduled using the default cron
+     * expression and the first import is started on the scheduler instead of right away.
      */
     @Test
     public void testInitializeScheduler() {
@@ -67,8 +118,33 @@ class SchedulerTest {
         scheduler.initializeScheduler();
 
         // Assert
+        verify(taskScheduler).schedule(any(Runnable.class), eq(new CronTrigger("0 15 * * * *")));
+        verify(importWeatherTask, never()).updateWeather();
+
+        runFirstImport();
         verify(importWeatherTask).updateWeather();
+    }
+
+    /**
+     * Tests that a failing first import doesn't escape to the scheduler thread.
+     */
+    @Test
+    public void testInitializeSchedulerWithFailingImport() {
+        // Arrange
+        when(leaseService.tryAcquire()).thenThrow(new IllegalStateException("Database unavailable"));
+
+        // Act
+        scheduler.initializeScheduler();
+        runFirstImport();
+
+        // Assert
+        verify(importWeatherTask, never()).updateWeather();
         verify(taskScheduler).schedule(any(Runnable.class), eq(new CronTrigger("0 15 * * * *")));
     }
 
+    private void runFirstImport() {
+        ArgumentCaptor<Runnable> firstImport = ArgumentCaptor.forClass(Runnable.class);
+        verify(taskScheduler).schedule(firstImport.capture(), any(Instant.class));
+        firstImport.getValue().run();
+    }
 }
@@ -0,0 +1,212 @@
+package ee.taltech.fooddeliveryapp.scheduler;
+
+import com.sun.net.httpserver.HttpServer;
+import ee.taltech.fooddeliveryapp.exceptions.UpstreamUnavailableException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WeatherFetcherTest {
+    private static final String VALID = "<observations timestamp=\"1678818585\"><station><name>Tallinn-Harku</name>"
+            + "<wmocode>26038</wmocode></station></observations>";
+
+    private HttpServer server;
+    private String url;
+    private final AtomicInteger requests = new AtomicInteger();
+    private volatile int status = 200;
+    private volatile String body = VALID;
+    private volatile CountDownLatch release;
+
+    private WeatherFetcher weatherFetcher;
+
+    /**
+     * Starts a local stand-in for the weather service whose responses each test sets, and a fetcher opening its
+     * circuit after 2 failures in a row for 200 ms.
+     */
+    @BeforeEach
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.createContext("/observations", exchange -> {
+            requests.incrementAndGet();
+            try {
+                if (release != null) {
+                    release.await(5, TimeUnit.SECONDS);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(status, bytes.length == 0 ? -1 : bytes.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        });
+        server.start();
+        url = "http://localhost:" + server.getAddress().getPort() + "/observations";
+
+        weatherFetcher = new WeatherFetcher();
+        ReflectionTestUtils.setField(weatherFetcher, "failureThreshold", 2);
+        ReflectionTestUtils.setField(weatherFetcher, "openDuration", 200L);
+        ReflectionTestUtils.setField(weatherFetcher, "readTimeout", 1000);
+        weatherFetcher.initialize();
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (release != null) {
+            release.countDown();
+        }
+        weatherFetcher.shutdown();
+        server.stop(0);
+    }
+
+    /**
+     * Tests that a readable document is fetched and passed to the reader.
+     */
+    @Test
+    void testFetchDocument() {
+        String rootName = fetch().join();
+
+        assertEquals("observations", rootName);
+        assertEquals(1, weatherFetcher.getStats().successes());
+    }
+
+    /**
+     * Tests that a response that isn't XML counts as a parse failure and not as a network failure.
+     */
+    @Test
+    void testGarbageCountsAsParseFailure() {
+        body = "<html>Service temporarily unavailable";
+
+        assertUnavailable(fetch());
+
+        WeatherFetcher.FetchStats stats = weatherFetcher.getStats();
+        assertEquals(1, stats.parseFailures());
+        assertEquals(0, stats.networkFailures());
+    }
+
+    /**
+     * Tests that an exception thrown by the reader counts as a parse failure.
+     */
+    @Test
+    void testReaderFailureCountsAsParseFailure() {
+        CompletableFuture<Integer> result = weatherFetcher.fetch(url, doc -> Integer.parseInt("NaN"));
+
+        assertUnavailable(result);
+        assertEquals(1, weatherFetcher.getStats().parseFailures());
+    }
+
+    /**
+     * Tests that an error status counts as a network failure and not as a parse failure.
+     */
+    @Test
+    void testErrorStatusCountsAsNetworkFailure() {
+        status = 503;
+        body = "";
+
+        assertUnavailable(fetch());
+
+        WeatherFetcher.FetchStats stats = weatherFetcher.getStats();
+        assertEquals(1, stats.networkFailures());
+        assertEquals(0, stats.parseFailures());
+    }
+
+    /**
+     * Tests that a response slower than the read timeout counts as a network failure.
+     */
+    @Test
+    void testSlowResponseTimesOut() {
+        ReflectionTestUtils.setField(weatherFetcher, "readTimeout", 100);
+        release = new CountDownLatch(1);
+
+        assertUnavailable(fetch());
+
+        assertEquals(1, weatherFetcher.getStats().networkFailures());
+    }
+
+    /**
+     * Tests that after repeated failures the circuit opens and further fetches don't reach the service.
+     */
+    @Test
+    void testCircuitOpensAfterRepeatedFailures() {
+        status = 503;
+        body = "";
+        assertUnavailable(fetch());
+        assertUnavailable(fetch());
+
+        assertUnavailable(fetch());
+
+        assertEquals(2, requests.get());
+        WeatherFetcher.FetchStats stats = weatherFetcher.getStats();
+        assertEquals(CircuitBreaker.State.OPEN, stats.circuitState());
+        assertEquals(1, stats.shortCircuited());
+    }
+
+    /**
+     * Tests that once the open period ends a probe reaches the service, and that the circuit closes when the
+     * service has recovered.
+     */
+    @Test
+    void testProbeClosesCircuitOnceServiceRecovers() throws InterruptedException {
+        status = 503;
+        body = "";
+        assertUnavailable(fetch());
+        assertUnavailable(fetch());
+
+        Thread.sleep(250);
+        status = 200;
+        body = VALID;
+
+        assertEquals("observations", fetch().join());
+        assertEquals(CircuitBreaker.State.CLOSED, weatherFetcher.getStats().circuitState());
+        assertEquals(3, requests.get());
+    }
+
+    /**
+     * Tests that fetches beyond the running and waiting ones are turned down right away instead of piling up,
+     * and that the caller is never held up by a hanging service.
+     */
+    @Test
+    void testBulkheadRejectsWhenFull() {
+        release = new CountDownLatch(1);
+
+        long start = System.nanoTime();
+        CompletableFuture<String> running = fetch();
+        CompletableFuture<String> waiting = fetch();
+        CompletableFuture<String> rejected = fetch();
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        assertTrue(elapsedMillis < 500, "fetch held up the caller for " + elapsedMillis + " ms");
+        assertUnavailable(rejected);
+        assertEquals(1, weatherFetcher.getStats().rejected());
+
+        release.countDown();
+        assertEquals("observations", running.join());
+        assertEquals("observations", waiting.join());
+    }
+
+    private CompletableFuture<String> fetch() {
+        return weatherFetcher.fetch(url, doc -> doc.getDocumentElement().getNodeName());
+    }
+
+    private static void assertUnavailable(CompletableFuture<?> result) {
+        CompletionException e = assertThrows(CompletionException.class, result::join);
+        assertInstanceOf(UpstreamUnavailableException.class, e.getCause());
+    }
+}
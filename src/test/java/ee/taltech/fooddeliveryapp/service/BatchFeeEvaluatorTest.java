@@ -0,0 +1,110 @@
+package ee.taltech.fooddeliveryapp.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+public class BatchFeeEvaluatorTest {
+
+    private static final int SIZE = 10007;
+    private static final double[] EDGES = {0, -0.0, -10, 10, 20, 12.5, -4.25, Double.NaN,
+            Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY, Math.nextDown(0.0), Math.nextUp(20.0)};
+
+    private final Random random = new Random(42);
+
+    /**
+     * Tests that the vectorized evaluator gives exactly the fees of the scalar rules, for every vehicle type of the
+     * business rules and of changed rules, including thresholds hit exactly, NaN and uneven batch bounds.
+     */
+    @Test
+    public void testVectorMatchesScalarRules() {
+        Observations observations = observations();
+        FeeRules changed = new FeeRules(150, FeeRules.DEFAULT.cityFees(), Map.of(
+                "car", new FeeRules.VehicleRules(75, 25, 0, 10, 5, 0, true, false),
+                "scooter", new FeeRules.VehicleRules(50, 60, 110, 20, 40, 150, true, true),
+                "bike", new FeeRules.VehicleRules(0, 50, 100, 50, 50, 100, false, true)),
+                -0.0, -12.5, 12, 20);
+
+        for (FeeRules rules : List.of(FeeRules.DEFAULT, changed)) {
+            for (FeeRules.VehicleRules vehicle : rules.vehicles().values()) {
+                assertSameFees(new VectorBatchFeeEvaluator(), rules, vehicle, observations, 0, SIZE);
+                assertSameFees(new VectorBatchFeeEvaluator(), rules, vehicle, observations, 3, SIZE - 5);
+                assertSameFees(new VectorBatchFeeEvaluator(), rules, vehicle, observations, 7, 9);
+            }
+        }
+    }
+
+    /**
+     * Tests that fees too large for doubles to hold exactly are still calculated exactly.
+     */
+    @Test
+    public void testVectorExactForLargeFees() {
+        FeeRules.VehicleRules vehicle = new FeeRules.VehicleRules(0, 1, 3, 5, 7, 11, true, true);
+        long fixedFee = (1L << 53) + 1;
+        Observations observations = observations();
+        long[] fees = new long[SIZE];
+
+        new VectorBatchFeeEvaluator().evaluate(FeeRules.DEFAULT, fixedFee, vehicle, observations.airTemperatures,
+                observations.windSpeeds, observations.phenomena, 0, SIZE, fees);
+
+        for (int i = 0; i < SIZE; i++) {
+            assertEquals(FeeRules.DEFAULT.feeCents(fixedFee, vehicle, observations.airTemperatures[i],
+                    observations.windSpeeds[i], observations.phenomena[i]), fees[i]);
+        }
+    }
+
+    /**
+     * Tests that the scalar evaluator, used without the Vector API, gives the fees of the rules.
+     */
+    @Test
+    public void testScalarMatchesRules() {
+        Observations observations = observations();
+        for (FeeRules.VehicleRules vehicle : FeeRules.DEFAULT.vehicles().values()) {
+            assertSameFees(new ScalarBatchFeeEvaluator(), FeeRules.DEFAULT, vehicle, observations, 1, SIZE);
+        }
+    }
+
+    private static void assertSameFees(BatchFeeEvaluator evaluator, FeeRules rules, FeeRules.VehicleRules vehicle,
+                                       Observations observations, int from, int to) {
+        long fixedFee = rules.baseFee() + vehicle.fee();
+        long[] fees = new long[SIZE];
+        fees[0] = 12345;
+        fees[SIZE - 1] = 12345;
+
+        evaluator.evaluate(rules, fixedFee, vehicle, observations.airTemperatures, observations.windSpeeds,
+                observations.phenomena, from, to, fees);
+
+        for (int i = from; i < to; i++) {
+            long expected = rules.feeCents(fixedFee, vehicle, observations.airTemperatures[i],
+                    observations.windSpeeds[i], observations.phenomena[i]);
+            assertEquals(expected, fees[i], "Observation " + i);
+        }
+        // Nothing outside the bounds is written
+        if (from > 0) {
+            assertEquals(12345, fees[0]);
+        }
+        if (to < SIZE) {
+            assertEquals(12345, fees[SIZE - 1]);
+        }
+    }
+
+    private Observations observations() {
+        Observations observations = new Observations(new double[SIZE], new double[SIZE], new int[SIZE]);
+        for (int i = 0; i < SIZE; i++) {
+            observations.airTemperatures[i] = random.nextInt(4) == 0 ? EDGES[random.nextInt(EDGES.length)]
+                    : random.nextDouble() * 50 - 30;
+            observations.windSpeeds[i] = random.nextInt(4) == 0 ? EDGES[random.nextInt(EDGES.length)]
+                    : random.nextDouble() * 30;
+            // Codes of every phenomenon and one that isn't any of them
+            observations.phenomena[i] = random.nextInt(5);
+        }
+        return observations;
+    }
+
+    private record Observations(double[] airTemperatures, double[] windSpeeds, int[] phenomena) {
+    }
+}
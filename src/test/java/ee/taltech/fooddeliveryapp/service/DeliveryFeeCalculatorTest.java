@@ -1,5 +1,6 @@
 package ee.taltech.fooddeliveryapp.service;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.*;
@@ -7,8 +8,11 @@ import static org.mockito.Mockito.*;
 import java.math.BigDecimal;
 import java.time.Instant;
 import java.time.LocalDateTime;
+import java.time.ZoneId;
 import java.time.ZoneOffset;
-import java.util.Collections;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Map;
 
 import ee.taltech.fooddeliveryapp.config.WeatherDataConstants;
 import org.junit.jupiter.api.BeforeEach;
@@ -17,6 +21,7 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 
+import ee.taltech.fooddeliveryapp.database.ForecastData;
 import ee.taltech.fooddeliveryapp.database.WeatherData;
 import ee.taltech.fooddeliveryapp.exceptions.*;
 
@@ -24,12 +29,16 @@ public class DeliveryFeeCalculatorTest {
     @Mock
     private WeatherDataService weatherDataService;
 
+    @Mock
+    private StationRegistry stationRegistry;
+
     @InjectMocks
     private DeliveryFeeCalculator deliveryFeeCalculator;
 
     @BeforeEach
     void setUp() {
         MockitoAnnotations.openMocks(this);
+        when(weatherDataService.getSlotSelection()).thenReturn(SlotSelection.SLOT);
     }
 
     /**
@@ -50,8 +59,8 @@ public class DeliveryFeeCalculatorTest {
         weatherData.setWeatherPhenomenon("Clear");
         weatherData.setTimeStamp(1641045500L);
 
-        when(weatherDataService.getWeatherDataByTimeStamp(anyInt(), anyLong(), anyLong()))
-                .thenReturn(Collections.singletonList(weatherData));
+        when(weatherDataService.getObservationByTimeStamp(anyInt(), anyLong(), anyLong()))
+                .thenReturn(Observation.of(weatherData));
 
         // Act
         BigDecimal result = deliveryFeeCalculator.calculateFee(city, vehicleType, timeStamp);
@@ -102,7 +111,7 @@ public class DeliveryFeeCalculatorTest {
         String city = "tallinn";
         String vehicleType = "bike";
 
-        when(weatherDataService.getWeatherDataByTimeStamp(anyInt(), anyLong(), anyLong())).thenReturn(null);
+        when(weatherDataService.getObservationByTimeStamp(anyInt(), anyLong(), anyLong())).thenReturn(null);
 
         // Act & Assert
         assertThrows(NoWeatherFoundException.class, () -> {
@@ -126,7 +135,7 @@ public class DeliveryFeeCalculatorTest {
         weatherData.setWindSpeed(30.0);
         weatherData.setWeatherPhenomenon("glaze");
         weatherData.setTimeStamp(1641042000L);
-        when(weatherDataService.getLatestWeatherData(anyInt())).thenReturn(weatherData);
+        when(weatherDataService.getLatestObservation(anyInt())).thenReturn(Observation.of(weatherData));
 
         // Act & Assert
         assertThrows(VehicleForbiddenException.class, () -> {
@@ -150,7 +159,7 @@ public class DeliveryFeeCalculatorTest {
         weatherData.setWeatherPhenomenon("Clear");
         weatherData.setTimeStamp(1641052800L); // Timestamp for 11:00, not 10:00
 
-        when(weatherDataService.getWeatherDataByTimeStamp(anyInt(), anyLong(), anyLong()))
+        when(weatherDataService.getObservationByTimeStamp(anyInt(), anyLong(), anyLong()))
                 .thenReturn(null);
 
         // Act & Assert
@@ -177,7 +186,7 @@ public class DeliveryFeeCalculatorTest {
         weatherData.setWmoCode(WeatherDataConstants.WMO_CODES[0]);
         weatherData.setTimeStamp(1641042000L);
 
-        when(weatherDataService.getLatestWeatherData(anyInt())).thenReturn(weatherData);
+        when(weatherDataService.getLatestObservation(anyInt())).thenReturn(Observation.of(weatherData));
 
         // Act
         BigDecimal result = deliveryFeeCalculator.calculateFee(city, vehicleType, timeStamp);
@@ -186,4 +195,352 @@ public class DeliveryFeeCalculatorTest {
         BigDecimal expectedFee = new BigDecimal("4.0");
         assert result.equals(expectedFee);
     }
-}
\ No newline at end of file
+
+    /**
+     * Tests that future timestamps covered by the forecast are quoted from the precomputed forecast fees,
+     * without querying the observations.
+     */
+    @Test
+    public void testCalculateFeeWithForecast() throws InvalidTimeStampException, VehicleForbiddenException,
+            NoWeatherFoundException, UnknownVehicleException, UnknownCityException {
+        // Arrange
+        long nextHour = Instant.now().truncatedTo(ChronoUnit.HOURS).plus(1, ChronoUnit.HOURS).getEpochSecond();
+        deliveryFeeCalculator.precomputeForecastFees(List.of(
+                new ForecastData(WeatherDataConstants.TALLINN_HARKU, -5.0, 5.0, "Light snow", nextHour, 0L),
+                new ForecastData(WeatherDataConstants.TARTU_TORAVERE, 5.0, 5.0, "Thunderstorm", nextHour, 0L)));
+        LocalDateTime timeStamp = LocalDateTime.ofInstant(Instant.ofEpochSecond(nextHour + 1800),
+                ZoneId.systemDefault());
+
+        // Act
+        BigDecimal result = deliveryFeeCalculator.calculateFee("tallinn", "scooter", timeStamp);
+
+        // Assert
+        assert result.equals(new BigDecimal("5.0"));
+        assertThrows(VehicleForbiddenException.class,
+                () -> deliveryFeeCalculator.calculateFee("tartu", "bike", timeStamp));
+        verifyNoInteractions(weatherDataService);
+    }
+
+    /**
+     * Tests that a future time at a location resolved to another station than the city's isn't quoted from the
+     * city's forecast but from that station, while a location resolved to the city's station still is.
+     */
+    @Test
+    public void testCalculateFeeWithForecastAndLocation() throws InvalidTimeStampException,
+            VehicleForbiddenException, NoWeatherFoundException, UnknownVehicleException, UnknownCityException {
+        // Arrange
+        long nextHour = Instant.now().truncatedTo(ChronoUnit.HOURS).plus(1, ChronoUnit.HOURS).getEpochSecond();
+        deliveryFeeCalculator.precomputeForecastFees(List.of(
+                new ForecastData(WeatherDataConstants.TALLINN_HARKU, -5.0, 5.0, "Light snow", nextHour, 0L)));
+        LocalDateTime timeStamp = LocalDateTime.ofInstant(Instant.ofEpochSecond(nextHour + 1800),
+                ZoneId.systemDefault());
+        when(stationRegistry.resolve(58.3, 26.5)).thenReturn(StationWeights.single(WeatherDataConstants.TARTU_TORAVERE));
+        when(stationRegistry.resolve(59.4, 24.6)).thenReturn(StationWeights.single(WeatherDataConstants.TALLINN_HARKU));
+
+        // Act & Assert
+        assertThrows(InvalidTimeStampException.class,
+                () -> deliveryFeeCalculator.calculateFee("tallinn", "scooter", timeStamp, 58.3, 26.5));
+        verify(weatherDataService).getObservationByTimeStamp(eq(WeatherDataConstants.TARTU_TORAVERE), anyLong(),
+                anyLong());
+        assertEquals(new BigDecimal("5.0"),
+                deliveryFeeCalculator.calculateFee("tallinn", "scooter", timeStamp, 59.4, 24.6));
+        verify(weatherDataService, never()).getObservationByTimeStamp(eq(WeatherDataConstants.TALLINN_HARKU),
+                anyLong(), anyLong());
+    }
+
+    /**
+     * Tests that a new configuration switches the fee rules, the city's station and the forecast fees at once.
+     */
+    @Test
+    public void testApplyConfig() throws InvalidTimeStampException, VehicleForbiddenException,
+            NoWeatherFoundException, UnknownVehicleException, UnknownCityException {
+        // Arrange
+        WeatherData weatherData = new WeatherData();
+        weatherData.setAirTemperature(5.0);
+        weatherData.setWindSpeed(5.0);
+        weatherData.setWeatherPhenomenon("Clear");
+        weatherData.setWmoCode(WeatherDataConstants.TARTU_TORAVERE);
+        weatherData.setTimeStamp(1641042000L);
+        when(weatherDataService.getLatestObservation(WeatherDataConstants.TARTU_TORAVERE))
+                .thenReturn(Observation.of(weatherData));
+
+        FeeRules defaults = FeeRules.DEFAULT;
+        RuntimeConfig config = new RuntimeConfig(1, "checksum", RuntimeConfig.DEFAULT_IMPORT_CRON,
+                new FeeRules(300, defaults.cityFees(), defaults.vehicles(), defaults.coldBelow(),
+                        defaults.freezingBelow(), defaults.windyAbove(), defaults.stormAbove()),
+                Map.of("tallinn", WeatherDataConstants.TARTU_TORAVERE, "tartu", WeatherDataConstants.TARTU_TORAVERE,
+                        "pärnu", WeatherDataConstants.PARNU));
+        long nextHour = Instant.now().truncatedTo(ChronoUnit.HOURS).plus(1, ChronoUnit.HOURS).getEpochSecond();
+        LocalDateTime nextHourTime = LocalDateTime.ofInstant(Instant.ofEpochSecond(nextHour),
+                ZoneId.systemDefault());
+
+        // Act
+        deliveryFeeCalculator.applyConfig(config, List.of(
+                new ForecastData(WeatherDataConstants.TARTU_TORAVERE, 5.0, 5.0, "Clear", nextHour, 0L)));
+
+        // Assert
+        assertEquals(config, deliveryFeeCalculator.getConfig());
+        assertEquals(new BigDecimal("5.0"), deliveryFeeCalculator.calculateFee("tallinn", "car", null));
+        assertEquals(new BigDecimal("5.0"), deliveryFeeCalculator.calculateFee("tallinn", "car", nextHourTime));
+        verify(weatherDataService).getLatestObservation(WeatherDataConstants.TARTU_TORAVERE);
+    }
+
+    /**
+     * Tests that future timestamps beyond the forecast fall back to the observations,
+     * expecting an InvalidTimeStampException as there are none.
+     */
+    @Test
+    public void testCalculateFeeBeyondForecast() {
+        // Arrange
+        deliveryFeeCalculator.precomputeForecastFees(List.of());
+        LocalDateTime timeStamp = LocalDateTime.now().plusDays(5);
+
+        // Act & Assert
+        assertThrows(InvalidTimeStampException.class,
+                () -> deliveryFeeCalculator.calculateFee("tallinn", "car", timeStamp));
+    }
+
+    /**
+     * Tests that a delivery location uses the weather of the station nearest to it instead of the city's station.
+     */
+    @Test
+    public void testCalculateFeeWithLocation() throws InvalidTimeStampException, VehicleForbiddenException,
+            NoWeatherFoundException, UnknownVehicleException, UnknownCityException {
+        // Arrange
+        WeatherData tartu = new WeatherData("Tartu-Tõravere", WeatherDataConstants.TARTU_TORAVERE, -5.0, 5.0,
+                "Clear", 1641042000L);
+
+        when(stationRegistry.resolve(58.3, 26.5)).thenReturn(StationWeights.single(WeatherDataConstants.TARTU_TORAVERE));
+        when(weatherDataService.getLatestObservation(WeatherDataConstants.TARTU_TORAVERE))
+                .thenReturn(Observation.of(tartu));
+
+        // Act
+        BigDecimal result = deliveryFeeCalculator.calculateFee("tallinn", "scooter", null, 58.3, 26.5);
+
+        // Assert
+        assert result.equals(new BigDecimal("4.0"));
+        verify(weatherDataService, never()).getLatestObservation(WeatherDataConstants.TALLINN_HARKU);
+    }
+
+    /**
+     * Tests that blended stations average the air temperature by their weights, skipping stations without weather.
+     */
+    @Test
+    public void testCalculateFeeWithBlendedStations() throws InvalidTimeStampException, VehicleForbiddenException,
+            NoWeatherFoundException, UnknownVehicleException, UnknownCityException {
+        // Arrange
+        WeatherData tallinn = new WeatherData("Tallinn-Harku", WeatherDataConstants.TALLINN_HARKU, -4.0, 5.0,
+                "Clear", 1641042000L);
+        WeatherData tartu = new WeatherData("Tartu-Tõravere", WeatherDataConstants.TARTU_TORAVERE, 8.0, 5.0,
+                "Clear", 1641042000L);
+
+        when(stationRegistry.resolve(anyDouble(), anyDouble())).thenReturn(new StationWeights(
+                new int[]{WeatherDataConstants.TALLINN_HARKU, WeatherDataConstants.TARTU_TORAVERE,
+                        WeatherDataConstants.PARNU},
+                new double[]{0.6, 0.2, 0.2}));
+        when(weatherDataService.getLatestObservation(WeatherDataConstants.TALLINN_HARKU))
+                .thenReturn(Observation.of(tallinn));
+        when(weatherDataService.getLatestObservation(WeatherDataConstants.TARTU_TORAVERE))
+                .thenReturn(Observation.of(tartu));
+
+        // Act, the blended temperature is (-4.0 * 0.6 + 8.0 * 0.2) / 0.8 = -1.0
+        BigDecimal result = deliveryFeeCalculator.calculateFee("tallinn", "scooter", null, 59.4, 24.6);
+
+        // Assert
+        assert result.equals(new BigDecimal("4.0"));
+    }
+
+    /**
+     * Tests that a location falls back to the city's station while no station locations are known.
+     */
+    @Test
+    public void testCalculateFeeWithLocationWithoutStations() throws InvalidTimeStampException,
+            VehicleForbiddenException, NoWeatherFoundException, UnknownVehicleException, UnknownCityException {
+        // Arrange
+        WeatherData tallinn = new WeatherData("Tallinn-Harku", WeatherDataConstants.TALLINN_HARKU, 10.0, 5.0,
+                "Clear", 1641042000L);
+
+        when(stationRegistry.resolve(anyDouble(), anyDouble())).thenReturn(null);
+        when(weatherDataService.getLatestObservation(WeatherDataConstants.TALLINN_HARKU))
+                .thenReturn(Observation.of(tallinn));
+
+        // Act
+        BigDecimal result = deliveryFeeCalculator.calculateFee("tallinn", "car", null, 58.3, 26.5);
+
+        // Assert
+        assert result.equals(new BigDecimal("4.0"));
+    }
+
+    /**
+     * Tests that a quote tells the snapshot version of the weather it used, and that the latest weather is taken
+     * from the snapshot of the request.
+     */
+    @Test
+    public void testQuoteFeeWithSnapshotVersion() throws InvalidTimeStampException, VehicleForbiddenException,
+            NoWeatherFoundException, UnknownVehicleException, UnknownCityException {
+        // Arrange
+        WeatherData tallinn = new WeatherData("Tallinn-Harku", WeatherDataConstants.TALLINN_HARKU, -5.0, 5.0,
+                "Clear", 1641042000L);
+        tallinn.setSnapshotVersion(12L);
+        when(weatherDataService.getLatestSnapshot()).thenReturn(WeatherDataSnapshot.EMPTY.merge(List.of(tallinn), 12L));
+
+        // Act
+        FeeQuote quote = deliveryFeeCalculator.quoteFee("tallinn", "scooter", null, null, null);
+
+        // Assert
+        assert quote.fee().equals(new BigDecimal("4.0"));
+        assert quote.snapshotVersion() == 12L;
+        verify(weatherDataService, never()).getLatestObservation(anyInt());
+    }
+
+    /**
+     * Tests that quotes sharing a slot cache look the weather of a station and slot up once, also when the station
+     * has no weather for the slot.
+     */
+    @Test
+    public void testQuoteFeeWithSlotCache() throws InvalidTimeStampException, VehicleForbiddenException,
+            NoWeatherFoundException, UnknownVehicleException, UnknownCityException {
+        // Arrange
+        LocalDateTime morning = LocalDateTime.of(2022, 1, 1, 10, 20);
+        WeatherData weatherData = new WeatherData("Tallinn-Harku", WeatherDataConstants.TALLINN_HARKU, -5.0, 5.0,
+                "Clear", 1641042000L);
+        when(weatherDataService.getObservationByTimeStamp(eq(WeatherDataConstants.TALLINN_HARKU), anyLong(), anyLong()))
+                .thenReturn(Observation.of(weatherData));
+        when(weatherDataService.getObservationByTimeStamp(eq(WeatherDataConstants.TARTU_TORAVERE), anyLong(),
+                anyLong())).thenReturn(null);
+        SlotWeatherCache cache = new SlotWeatherCache(16);
+
+        // Act
+        FeeQuote first = deliveryFeeCalculator.quoteFee("tallinn", "scooter", morning, null, null, cache);
+        FeeQuote second = deliveryFeeCalculator.quoteFee("tallinn", "car", morning.plusMinutes(40), null, null, cache);
+        for (int i = 0; i < 2; i++) {
+            assertThrows(InvalidTimeStampException.class,
+                    () -> deliveryFeeCalculator.quoteFee("tartu", "car", morning, null, null, cache));
+        }
+
+        // Assert
+        assertEquals(new BigDecimal("4.0"), first.fee());
+        assertEquals(new BigDecimal("4.0"), second.fee());
+        verify(weatherDataService, times(1))
+                .getObservationByTimeStamp(eq(WeatherDataConstants.TALLINN_HARKU), anyLong(), anyLong());
+        verify(weatherDataService, times(1))
+                .getObservationByTimeStamp(eq(WeatherDataConstants.TARTU_TORAVERE), anyLong(), anyLong());
+        assertEquals(2, cache.getHits());
+        assertEquals(2, cache.getMisses());
+    }
+
+    /**
+     * Tests that with a slot selection other than the slot, the weather is selected for the exact time and isn't
+     * taken from the slot cache.
+     */
+    @Test
+    public void testQuoteFeeWithInterpolation() throws InvalidTimeStampException, VehicleForbiddenException,
+            NoWeatherFoundException, UnknownVehicleException, UnknownCityException {
+        // Arrange
+        LocalDateTime morning = LocalDateTime.of(2022, 1, 1, 10, 20);
+        long timeStamp = morning.atZone(ZoneId.systemDefault()).toEpochSecond();
+        when(weatherDataService.getSlotSelection()).thenReturn(SlotSelection.INTERPOLATE);
+        when(weatherDataService.getObservationAt(eq(WeatherDataConstants.TALLINN_HARKU), anyLong(), anyLong(),
+                anyLong())).thenReturn(new Observation(WeatherDataConstants.TALLINN_HARKU, -5.0, 5.0,
+                Observation.CLEAR, timeStamp, 1L));
+        SlotWeatherCache cache = new SlotWeatherCache(16);
+
+        // Act
+        deliveryFeeCalculator.quoteFee("tallinn", "scooter", morning, null, null, cache);
+        deliveryFeeCalculator.quoteFee("tallinn", "scooter", morning.plusMinutes(40), null, null, cache);
+
+        // Assert
+        verify(weatherDataService).getObservationAt(eq(WeatherDataConstants.TALLINN_HARKU), eq(timeStamp),
+                anyLong(), anyLong());
+        verify(weatherDataService).getObservationAt(eq(WeatherDataConstants.TALLINN_HARKU), eq(timeStamp + 2400),
+                anyLong(), anyLong());
+        verify(weatherDataService, never()).getObservationByTimeStamp(anyInt(), anyLong(), anyLong());
+        assertEquals(0, cache.getHits() + cache.getMisses());
+    }
+
+    /**
+     * Tests that the fees calculated in cents equal, scale included, the fees of the original BigDecimal rules for
+     * every city, vehicle type and phenomenon, over temperatures and wind speeds in half-degree and half-metre
+     * steps around every threshold of the rules.
+     */
+    @Test
+    public void testCalculateFeeMatchesBigDecimalRules() throws VehicleForbiddenException {
+        String[] phenomena = {"Clear", "Few clouds", "Light rain", "Moderate shower", "Light snow shower",
+                "Moderate snowfall", "Light sleet", "Glaze", "Hail", "Thunderstorm", "Thunder", "Mist", "NaN"};
+        double[] temperatures = range(-15, 5);
+        double[] windSpeeds = range(0, 25);
+
+        for (String city : List.of("tallinn", "tartu", "pärnu")) {
+            for (String vehicleType : List.of("car", "scooter", "bike")) {
+                for (String phenomenon : phenomena) {
+                    for (double airTemperature : temperatures) {
+                        for (double windSpeed : windSpeeds) {
+                            WeatherData weatherData = new WeatherData("Station", 26038, airTemperature, windSpeed,
+                                    phenomenon, 1641042000L);
+                            BigDecimal expected = bigDecimalFee(city, vehicleType, airTemperature, windSpeed,
+                                    phenomenon);
+
+                            if (expected == null) {
+                                assertThrows(VehicleForbiddenException.class,
+                                        () -> deliveryFeeCalculator.calculateFee(city, vehicleType, weatherData));
+                            } else {
+                                assertEquals(expected,
+                                        deliveryFeeCalculator.calculateFee(city, vehicleType, weatherData));
+                            }
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    private static double[] range(double from, double to) {
+        double[] values = new double[(int) ((to - from) * 2) + 1];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = from + i * 0.5;
+        }
+        return values;
+    }
+
+    /**
+     * The fee rules as they were first written with BigDecimal, null if the vehicle is forbidden.
+     */
+    private static BigDecimal bigDecimalFee(String city, String vehicleType, double airTemperature,
+                                            double windSpeed, String phenomenon) {
+        BigDecimal fee = new BigDecimal("2.0")
+                .add(Map.of("tallinn", BigDecimal.ONE, "tartu", new BigDecimal("0.5"), "pärnu", BigDecimal.ZERO)
+                        .get(city))
+                .add(Map.of("car", BigDecimal.ONE, "scooter", new BigDecimal("0.5"), "bike", BigDecimal.ZERO)
+                        .get(vehicleType));
+
+        if (!vehicleType.equals("car")) {
+            if (airTemperature < 0 && airTemperature >= -10) {
+                fee = fee.add(new BigDecimal("0.5"));
+            } else if (airTemperature < -10) {
+                fee = fee.add(BigDecimal.ONE);
+            }
+        }
+
+        if (vehicleType.equals("bike")) {
+            if (windSpeed > 20) {
+                return null;
+            } else if (windSpeed > 10) {
+                fee = fee.add(new BigDecimal("0.5"));
+            }
+        }
+
+        if (!vehicleType.equals("car")) {
+            if (phenomenon.equalsIgnoreCase("glaze") || phenomenon.equalsIgnoreCase("hail")
+                    || phenomenon.toLowerCase().contains("thunder")) {
+                return null;
+            }
+            if (phenomenon.toLowerCase().contains("snow") || phenomenon.toLowerCase().contains("sleet")) {
+                fee = fee.add(BigDecimal.ONE);
+            } else if (phenomenon.toLowerCase().contains("rain") || phenomenon.toLowerCase().contains("shower")) {
+                fee = fee.add(new BigDecimal("0.5"));
+            }
+        }
+
+        return fee;
+    }
+}
@@ -0,0 +1,233 @@
+package ee.taltech.fooddeliveryapp.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import java.io.BufferedReader;
+import java.io.StringReader;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import ee.taltech.fooddeliveryapp.config.WeatherDataConstants;
+import ee.taltech.fooddeliveryapp.database.WeatherData;
+import ee.taltech.fooddeliveryapp.exceptions.UnknownCityException;
+
+public class FeeAnalyticsServiceTest {
+
+    private static final LocalDateTime FROM = LocalDateTime.of(2023, 3, 14, 10, 15);
+    private static final LocalDateTime TO = LocalDateTime.of(2023, 3, 14, 13, 15);
+
+    private WeatherDataService weatherDataService;
+    private FeeAnalyticsService analyticsService;
+
+    @BeforeEach
+    public void setUp() {
+        weatherDataService = mock(WeatherDataService.class);
+        analyticsService = new FeeAnalyticsService(weatherDataService, new DeliveryFeeCalculator(weatherDataService,
+                mock(StationRegistry.class)));
+    }
+
+    /**
+     * Three slots (10:15, 11:15, 12:15), the first with two observations of which the later one is used,
+     * the second with a storm that forbids bikes, and the third without any data.
+     */
+    private void mockObservations() {
+        when(weatherDataService.streamWeatherData(eq(WeatherDataConstants.TALLINN_HARKU), anyLong(), anyLong()))
+                .thenAnswer(invocation -> Stream.of(
+                        weatherData(-20.0, 30.0, "Snow", LocalDateTime.of(2023, 3, 14, 10, 20)),
+                        weatherData(5.0, 15.0, "Light rain", LocalDateTime.of(2023, 3, 14, 10, 50)),
+                        weatherData(-5.0, 25.0, "Clear", LocalDateTime.of(2023, 3, 14, 11, 30))));
+    }
+
+    /**
+     * Tests that the aggregates count slots with and without data and forbidden slots, and average the fees of
+     * the slots that were allowed.
+     */
+    @Test
+    public void testAggregateFees() throws Exception {
+        mockObservations();
+
+        List<FeeAggregate> aggregates = analyticsService.aggregateFees(List.of("Tallinn"), List.of("bike", "car"),
+                FROM, TO);
+
+        assertEquals(2, aggregates.size());
+
+        FeeAggregate bike = aggregates.get(0);
+        assertEquals("bike", bike.getVehicleType());
+        assertEquals(3, bike.getSlots());
+        assertEquals(1, bike.getSlotsWithoutData());
+        assertEquals(1, bike.getForbiddenSlots());
+        assertEquals(50.0, bike.getForbiddenPercentage());
+        // 2.0 base + 1 Tallinn + 0.5 wind + 0.5 rain
+        assertEquals(new BigDecimal("4.00"), bike.getAverageFee());
+
+        FeeAggregate car = aggregates.get(1);
+        assertEquals(0, car.getForbiddenSlots());
+        assertEquals(new BigDecimal("4.00"), car.getAverageFee());
+        assertEquals(new BigDecimal("4.0"), car.getMinFee());
+        assertEquals(new BigDecimal("4.0"), car.getMaxFee());
+
+        verify(weatherDataService, times(1)).streamWeatherData(eq(WeatherDataConstants.TALLINN_HARKU),
+                anyLong(), anyLong());
+    }
+
+    /**
+     * Tests that per-slot fees are produced in slot order and only for slots with data.
+     */
+    @Test
+    public void testForEachSlotFee() throws Exception {
+        mockObservations();
+
+        List<SlotFee> slotFees = new ArrayList<>();
+        analyticsService.forEachSlotFee(List.of("tallinn"), List.of("bike"), FROM, TO, slotFees::add);
+
+        assertEquals(2, slotFees.size());
+        assertEquals(FROM, slotFees.get(0).slotStart());
+        assertEquals(new BigDecimal("4.0"), slotFees.get(0).fee());
+        assertFalse(slotFees.get(0).forbidden());
+        assertEquals(FROM.plusHours(1), slotFees.get(1).slotStart());
+        assertNull(slotFees.get(1).fee());
+        assertTrue(slotFees.get(1).forbidden());
+    }
+
+    /**
+     * Tests that an observation exactly at a slot boundary is used for the slot ending there, of which it is the
+     * latest observation, and for the slot starting there if that slot has no later observation.
+     */
+    @Test
+    public void testObservationOnSlotBoundary() throws Exception {
+        when(weatherDataService.streamWeatherData(anyInt(), anyLong(), anyLong()))
+                .thenAnswer(invocation -> Stream.of(weatherData(1.0, 1.0, "Clear", FROM.plusHours(1))));
+
+        List<SlotFee> slotFees = new ArrayList<>();
+        analyticsService.forEachSlotFee(List.of("tartu"), List.of("car"), FROM, TO, slotFees::add);
+
+        assertEquals(2, slotFees.size());
+        assertEquals(FROM, slotFees.get(0).slotStart());
+        assertEquals(FROM.plusHours(1), slotFees.get(1).slotStart());
+    }
+
+    /**
+     * Tests that an observation exactly at a slot boundary isn't used for the slot starting there if that slot has
+     * a later observation.
+     */
+    @Test
+    public void testLaterObservationAfterSlotBoundary() throws Exception {
+        when(weatherDataService.streamWeatherData(anyInt(), anyLong(), anyLong()))
+                .thenAnswer(invocation -> Stream.of(
+                        weatherData(1.0, 1.0, "Clear", FROM.plusMinutes(30)),
+                        weatherData(1.0, 1.0, "Clear", FROM.plusHours(1)),
+                        weatherData(1.0, 1.0, "Heavy rain", FROM.plusHours(1).plusMinutes(10))));
+
+        List<SlotFee> slotFees = new ArrayList<>();
+        analyticsService.forEachSlotFee(List.of("tartu"), List.of("scooter"), FROM, TO, slotFees::add);
+
+        assertEquals(2, slotFees.size());
+        // 2.0 base + 0.5 Tartu + 0.5 scooter
+        assertEquals(new BigDecimal("3.0"), slotFees.get(0).fee());
+        assertEquals(new BigDecimal("3.5"), slotFees.get(1).fee());
+    }
+
+    /**
+     * Tests that variants of the rules are compared to the rules in use from a single read of the observations.
+     */
+    @Test
+    public void testSimulate() throws Exception {
+        mockObservations();
+        FeeRules current = FeeRules.DEFAULT;
+        FeeRules calm = new FeeRules(current.baseFee(), current.cityFees(), current.vehicles(), current.coldBelow(),
+                current.freezingBelow(), 16, 30);
+
+        List<FeeSimulation> simulations = analyticsService.simulate(List.of("tallinn"), List.of("bike"), FROM, TO,
+                Map.of("calm", calm), OrderVolumes.UNIFORM);
+
+        assertEquals(2, simulations.size());
+        SimulatedFees currentFees = simulations.get(0).total();
+        assertEquals(FeeAnalyticsService.CURRENT_RULES, simulations.get(0).name());
+        assertEquals(2, currentFees.getSlots());
+        assertEquals(1, currentFees.getForbiddenSlots());
+        assertEquals(50.0, currentFees.getForbiddenPercentage());
+        assertEquals(Money.toBigDecimal(400), currentFees.getRevenue());
+        assertEquals(Money.toBigDecimal(0), currentFees.getRevenueChange());
+
+        // 3.0 base in both slots, 0.5 rain in the first one, 0.5 cold and 0.5 wind in the second one
+        SimulatedFees calmFees = simulations.get(1).fees().get(0);
+        assertEquals("calm", simulations.get(1).name());
+        assertEquals("bike", calmFees.getVehicleType());
+        assertEquals(0, calmFees.getForbiddenSlots());
+        assertEquals(Money.toBigDecimal(750), calmFees.getRevenue());
+        assertEquals(Money.toBigDecimal(350), calmFees.getRevenueChange());
+        assertEquals(87.5, calmFees.getRevenueChangePercentage());
+
+        verify(weatherDataService, times(1)).streamWeatherData(anyInt(), anyLong(), anyLong());
+    }
+
+    /**
+     * Tests that the fee of every slot is weighed by the orders of the slot, which add up by slot.
+     */
+    @Test
+    public void testSimulateWithOrderVolumes() throws Exception {
+        mockObservations();
+        OrderVolumes orders = OrderVolumes.parse(new BufferedReader(new StringReader("""
+                time,city,vehicleType,orders
+                2023-03-14T10:30,tallinn,bike,3
+                2023-03-14T11:20,Tallinn,Bike
+                2023-03-14T11:40,tallinn,bike,2
+                2023-03-14T11:40,tallinn,car,100
+                """)));
+
+        SimulatedFees fees = analyticsService.simulate(List.of("tallinn"), List.of("bike"), FROM, TO, Map.of(),
+                orders).get(0).total();
+
+        assertEquals(6, fees.getOrders());
+        assertEquals(3, fees.getForbiddenOrders());
+        assertEquals(Money.toBigDecimal(1200), fees.getRevenue());
+        assertEquals(new BigDecimal("4.00"), fees.getAverageFee());
+    }
+
+    /**
+     * Tests that malformed order volume lines are rejected with their line number.
+     */
+    @Test
+    public void testMalformedOrderVolumes() {
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> OrderVolumes.parse(
+                new BufferedReader(new StringReader("2023-03-14T10:30,tallinn,bike\n2023-03-14T10:30,paris,bike"))));
+        assertTrue(e.getMessage().contains("line 2"));
+        assertThrows(IllegalArgumentException.class, () -> analyticsService.simulate(List.of(), List.of(), FROM, TO,
+                Map.of(FeeAnalyticsService.CURRENT_RULES, FeeRules.DEFAULT), OrderVolumes.UNIFORM));
+    }
+
+    /**
+     * Tests that an unknown city is rejected before anything is read from the database.
+     */
+    @Test
+    public void testUnknownCity() {
+        assertThrows(UnknownCityException.class,
+                () -> analyticsService.aggregateFees(List.of("paris"), List.of(), FROM, TO));
+        verifyNoInteractions(weatherDataService);
+    }
+
+    /**
+     * Tests that a range which ends before it starts is rejected.
+     */
+    @Test
+    public void testInvalidRange() {
+        assertThrows(IllegalArgumentException.class,
+                () -> analyticsService.aggregateFees(List.of(), List.of(), TO, FROM));
+    }
+
+    private static WeatherData weatherData(double airTemperature, double windSpeed, String phenomenon,
+                                           LocalDateTime time) {
+        return new WeatherData("Tallinn-Harku", WeatherDataConstants.TALLINN_HARKU, airTemperature, windSpeed,
+                phenomenon, time.atZone(ZoneId.systemDefault()).toEpochSecond());
+    }
+}
@@ -0,0 +1,210 @@
+package ee.taltech.fooddeliveryapp.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class FeeAuditLogTest {
+
+    @TempDir
+    Path directory;
+
+    /**
+     * Tests that every queued record is written by the time the log is closed and can be looked up by its ID.
+     */
+    @Test
+    public void testWritesEveryRecordOnClose() throws IOException {
+        FeeAuditLog auditLog = new FeeAuditLog(true, directory.toString(), 10000, 64 * 1024 * 1024, 10000, 1000, 1);
+        List<Long> quoteIds = new ArrayList<>();
+        for (int i = 0; i < 2500; i++) {
+            long quoteId = auditLog.nextQuoteId();
+            quoteIds.add(quoteId);
+            assertTrue(auditLog.record(record(quoteId)));
+        }
+        auditLog.close();
+
+        assertEquals(2500, auditLog.getStats().written());
+        assertEquals(record(quoteIds.get(1234)), FeeAuditLog.find(directory, quoteIds.get(1234)).orElseThrow());
+        assertTrue(FeeAuditLog.find(directory, quoteIds.get(2499) + 1).isEmpty());
+        assertFalse(auditLog.record(record(auditLog.nextQuoteId())));
+    }
+
+    /**
+     * Tests that a new file is started once a file is full, and records are found in any of them.
+     */
+    @Test
+    public void testRotates() throws IOException {
+        FeeAuditLog auditLog = new FeeAuditLog(true, directory.toString(), 10000, 1024, 1, 1000, 1);
+        List<Long> quoteIds = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            long quoteId = auditLog.nextQuoteId();
+            quoteIds.add(quoteId);
+            auditLog.record(record(quoteId));
+            if (i % 10 == 9) {
+                awaitWritten(auditLog, i + 1);
+            }
+        }
+        auditLog.close();
+
+        try (Stream<Path> files = Files.list(directory)) {
+            assertTrue(files.count() > 1);
+        }
+        for (long quoteId : quoteIds) {
+            assertEquals(quoteId, FeeAuditLog.find(directory, quoteId).orElseThrow().quoteId());
+        }
+    }
+
+    /**
+     * Tests that quotes wait for room in a full queue instead of dropping their records.
+     */
+    @Test
+    public void testWaitsWhenFull() throws IOException {
+        // The writer only wakes up by itself after a minute, so every record past the second waits for it
+        FeeAuditLog auditLog = new FeeAuditLog(true, directory.toString(), 2, 64 * 1024 * 1024, 60000, 5000, 1);
+        List<Long> quoteIds = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            long quoteId = auditLog.nextQuoteId();
+            quoteIds.add(quoteId);
+            assertTrue(auditLog.record(record(quoteId)));
+        }
+        auditLog.close();
+
+        assertEquals(20, auditLog.getStats().written());
+        assertEquals(0, auditLog.getStats().dropped());
+        assertTrue(FeeAuditLog.find(directory, quoteIds.get(19)).isPresent());
+    }
+
+    /**
+     * Tests that records that find no room in the queue before the timeout are dropped and counted.
+     */
+    @Test
+    public void testDropsWhenFull() {
+        FeeAuditLog auditLog = new FeeAuditLog(true, directory.toString(), 2, 64 * 1024 * 1024, 60000, 0, 1);
+        // The writer may have taken some already, so fill the queue until one is dropped
+        boolean dropped = false;
+        for (int i = 0; i < 10000 && !dropped; i++) {
+            dropped = !auditLog.record(record(auditLog.nextQuoteId()));
+        }
+        auditLog.close();
+
+        assertTrue(dropped);
+        assertTrue(auditLog.getStats().dropped() > 0);
+    }
+
+    /**
+     * Tests that every record reported as queued while the log is closing gets written, so no quote ID is given out
+     * that can't be looked up.
+     */
+    @Test
+    public void testRecordsRacingClose() throws Exception {
+        FeeAuditLog auditLog = new FeeAuditLog(true, directory.toString(), 100000, 64 * 1024 * 1024, 1, 1000, 1);
+        ConcurrentLinkedQueue<Long> queued = new ConcurrentLinkedQueue<>();
+        CountDownLatch started = new CountDownLatch(4);
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            Thread thread = new Thread(() -> {
+                started.countDown();
+                for (int j = 0; j < 20000; j++) {
+                    long quoteId = auditLog.nextQuoteId();
+                    if (auditLog.record(record(quoteId))) {
+                        queued.add(quoteId);
+                    }
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        started.await();
+        auditLog.close();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(queued.size(), auditLog.getStats().written());
+        assertEquals(0, auditLog.getStats().queued());
+    }
+
+    /**
+     * Tests that quote IDs grow and carry the time they were made at and the node that made them.
+     */
+    @Test
+    public void testQuoteIds() {
+        FeeAuditLog auditLog = new FeeAuditLog(false, directory.toString(), 1, 1, 1, 0, 5);
+        long before = System.currentTimeMillis();
+        long first = auditLog.nextQuoteId();
+        long second = auditLog.nextQuoteId();
+
+        assertTrue(second > first);
+        assertTrue(FeeAuditLog.quotedAt(first) >= before);
+        assertTrue(FeeAuditLog.quotedAt(first) <= System.currentTimeMillis());
+        assertEquals(5, FeeAuditLog.nodeOf(first));
+    }
+
+    /**
+     * Tests that nodes quoting at the same time never give out the same ID, even past 4096 IDs in a millisecond.
+     */
+    @Test
+    public void testQuoteIdsUniqueAcrossNodes() {
+        FeeAuditLog first = new FeeAuditLog(false, directory.toString(), 1, 1, 1, 0, 1);
+        FeeAuditLog second = new FeeAuditLog(false, directory.toString(), 1, 1, 1, 0, 2);
+        Set<Long> quoteIds = new HashSet<>();
+        for (int i = 0; i < 10000; i++) {
+            long quoteId = first.nextQuoteId();
+            assertEquals(1, FeeAuditLog.nodeOf(quoteId));
+            assertTrue(quoteIds.add(quoteId));
+            quoteId = second.nextQuoteId();
+            assertEquals(2, FeeAuditLog.nodeOf(quoteId));
+            assertTrue(quoteIds.add(quoteId));
+        }
+
+        assertThrows(IllegalArgumentException.class,
+                () -> new FeeAuditLog(false, directory.toString(), 1, 1, 1, 0, 1024));
+    }
+
+    /**
+     * Tests that an enabled log refuses to start without a node ID instead of making one up.
+     */
+    @Test
+    public void testRequiresNodeId() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new FeeAuditLog(true, directory.toString(), 1, 1, 1, 0, -1));
+        assertEquals(0, FeeAuditLog.nodeOf(new FeeAuditLog(false, directory.toString(), 1, 1, 1, 0, -1)
+                .nextQuoteId()));
+    }
+
+    /**
+     * Tests that records without an observation and with text containing tabs are read back as written.
+     */
+    @Test
+    public void testRecordLine() {
+        FeeAuditRecord record = new FeeAuditRecord(7L, 1000L, "Tal\tlinn", "bike", null, null, 24.75, 400, 0, null);
+
+        assertEquals(new FeeAuditRecord(7L, 1000L, "Tal linn", "bike", null, null, 24.75, 400, 0, null),
+                FeeAuditRecord.parse(record.toLine()));
+        assertEquals(record(5L), FeeAuditRecord.parse(record(5L).toLine()));
+    }
+
+    private static void awaitWritten(FeeAuditLog auditLog, long count) {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (auditLog.getStats().written() < count && System.currentTimeMillis() < deadline) {
+            Thread.onSpinWait();
+        }
+    }
+
+    private static FeeAuditRecord record(long quoteId) {
+        return new FeeAuditRecord(quoteId, 1680000000000L, "Tallinn", "Scooter", "2023-03-28T10:00", 59.43, 24.75,
+                200, 350, new Observation(26038, -2.5, 4.0, Observation.SNOW, 1679997600L, 12L));
+    }
+}
@@ -0,0 +1,77 @@
+package ee.taltech.fooddeliveryapp.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import ee.taltech.fooddeliveryapp.exceptions.*;
+
+public class FeeChangeBroadcasterTest {
+
+    private DeliveryFeeCalculator calculator;
+    private WeatherEventBus eventBus;
+    private FeeChangeBroadcaster broadcaster;
+    private final List<List<LiveFee>> received = new ArrayList<>();
+
+    @BeforeEach
+    public void setUp() throws Throwable {
+        calculator = mock(DeliveryFeeCalculator.class);
+        WeatherDataService weatherDataService = mock(WeatherDataService.class);
+        when(weatherDataService.getSnapshotVersion()).thenReturn(2L);
+        when(calculator.quoteFeeAt(anyString(), anyString(), isNull(), isNull(), isNull()))
+                .thenThrow(new NoWeatherFoundException("No weather"));
+        doReturn(new FeeQuote(400, 1L))
+                .when(calculator).quoteFeeAt(eq("tallinn"), eq("car"), isNull(), isNull(), isNull());
+
+        eventBus = new WeatherEventBus(Runnable::run);
+        broadcaster = new FeeChangeBroadcaster(calculator, weatherDataService, eventBus);
+        broadcaster.addListener(received::add);
+    }
+
+    /**
+     * Tests that the fees are calculated once per weather change and only the changed ones are handed on.
+     */
+    @Test
+    public void testOnlyChangesAreBroadcast() throws Throwable {
+        eventBus.publish(new WeatherEvent.ObservationsCleared());
+        assertEquals(List.of(List.of(new LiveFee("tallinn", "car", Money.toBigDecimal(400), false, 1L))), received);
+
+        eventBus.publish(new WeatherEvent.ObservationsCleared());
+        assertEquals(1, received.size());
+
+        doThrow(new VehicleForbiddenException("Forbidden"))
+                .when(calculator).quoteFeeAt(eq("tallinn"), eq("car"), isNull(), isNull(), isNull());
+        eventBus.publish(new WeatherEvent.ObservationsCleared());
+        assertEquals(List.of(new LiveFee("tallinn", "car", null, true, 2L)), received.get(1));
+        verify(calculator, times(3)).quoteFeeAt(eq("tallinn"), eq("car"), isNull(), isNull(), isNull());
+    }
+
+    /**
+     * Tests that the current fee is calculated on first use, and a city without weather has none.
+     */
+    @Test
+    public void testGetFee() {
+        assertEquals(Money.toBigDecimal(400), broadcaster.getFee("tallinn", "car").fee());
+        assertNull(broadcaster.getFee("tartu", "car"));
+    }
+
+    /**
+     * Tests that fees of the same amount at a different scale don't count as a change, but a new status does.
+     */
+    @Test
+    public void testChangedFrom() {
+        LiveFee fee = new LiveFee("tallinn", "car", new BigDecimal("4.00"), false, 1L);
+
+        assertFalse(fee.changedFrom(new LiveFee("tallinn", "car", new BigDecimal("4.0"), false, 0L)));
+        assertTrue(fee.changedFrom(new LiveFee("tallinn", "car", new BigDecimal("4.50"), false, 0L)));
+        assertTrue(fee.changedFrom(new LiveFee("tallinn", "car", null, true, 0L)));
+        assertTrue(fee.changedFrom(null));
+    }
+}
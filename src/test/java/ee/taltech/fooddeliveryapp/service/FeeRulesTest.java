@@ -0,0 +1,52 @@
+package ee.taltech.fooddeliveryapp.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+public class FeeRulesTest {
+
+    /**
+     * Tests that the default rules are the business rules.
+     */
+    @Test
+    public void testDefaultRules() {
+        FeeRules rules = FeeRules.DEFAULT;
+
+        assertEquals(400, rules.feeCents("tallinn", "car", observation(-20, 30, Observation.FORBIDDEN)));
+        // 2.0 base + 0.5 Tartu + 0.5 scooter + 1.0 freezing + 1.0 snow
+        assertEquals(500, rules.feeCents("tartu", "scooter", observation(-10.1, 30, Observation.SNOW)));
+        // 2.0 base + 0.5 cold + 0.5 wind + 0.5 rain
+        assertEquals(350, rules.feeCents("pärnu", "bike", observation(-10, 20, Observation.RAIN)));
+        assertEquals(200, rules.feeCents("pärnu", "bike", observation(0, 10, Observation.CLEAR)));
+        assertEquals(FeeRules.FORBIDDEN, rules.feeCents("pärnu", "bike", observation(5, 20.1, Observation.CLEAR)));
+        assertEquals(FeeRules.FORBIDDEN, rules.feeCents("pärnu", "scooter",
+                observation(5, 0, Observation.FORBIDDEN)));
+    }
+
+    /**
+     * Tests that rules with missing or negative fees or thresholds out of order are rejected.
+     */
+    @Test
+    public void testInvalidRules() {
+        FeeRules rules = FeeRules.DEFAULT;
+        Map<String, Long> cityFees = new HashMap<>(rules.cityFees());
+        cityFees.remove("tartu");
+
+        assertThrows(IllegalArgumentException.class, () -> new FeeRules(rules.baseFee(), cityFees,
+                rules.vehicles(), 0, -10, 10, 20));
+        assertThrows(IllegalArgumentException.class, () -> new FeeRules(-1, rules.cityFees(),
+                rules.vehicles(), 0, -10, 10, 20));
+        assertThrows(IllegalArgumentException.class, () -> new FeeRules(rules.baseFee(), rules.cityFees(),
+                rules.vehicles(), -10, 0, 10, 20));
+        assertThrows(IllegalArgumentException.class, () -> new FeeRules(rules.baseFee(), rules.cityFees(),
+                rules.vehicles(), 0, -10, 20, 10));
+    }
+
+    private static Observation observation(double airTemperature, double windSpeed, int phenomenon) {
+        return new Observation(26038, airTemperature, windSpeed, phenomenon, 0, Observation.NO_VERSION);
+    }
+}
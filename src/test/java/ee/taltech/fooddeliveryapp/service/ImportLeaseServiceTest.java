@@ -0,0 +1,65 @@
+package ee.taltech.fooddeliveryapp.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import ee.taltech.fooddeliveryapp.database.ImportLease;
+import ee.taltech.fooddeliveryapp.database.ImportLeaseRepository;
+
+public class ImportLeaseServiceTest {
+
+    private ImportLeaseRepository importLeaseRepository;
+    private ImportLeaseService importLeaseService;
+
+    @BeforeEach
+    void setUp() {
+        importLeaseRepository = mock(ImportLeaseRepository.class);
+        importLeaseService = new ImportLeaseService(importLeaseRepository);
+        importLeaseService.initializeNodeId();
+    }
+
+    /**
+     * Tests that the node becomes the leader when the conditional update takes the lease.
+     */
+    @Test
+    public void testTryAcquireTakesLease() {
+        when(importLeaseRepository.acquire(eq(ImportLeaseService.WEATHER_IMPORT),
+                eq(importLeaseService.getNodeId()), anyLong(), anyLong())).thenReturn(1);
+
+        assertTrue(importLeaseService.tryAcquire());
+        assertTrue(importLeaseService.isLeader());
+    }
+
+    /**
+     * Tests that the node doesn't become the leader while another node holds the lease.
+     */
+    @Test
+    public void testTryAcquireLeaseHeldByOtherNode() {
+        when(importLeaseRepository.acquire(any(), any(), anyLong(), anyLong())).thenReturn(0);
+        when(importLeaseRepository.existsById(ImportLeaseService.WEATHER_IMPORT)).thenReturn(true);
+
+        assertFalse(importLeaseService.tryAcquire());
+        assertFalse(importLeaseService.isLeader());
+        verify(importLeaseRepository, never()).saveAndFlush(any());
+    }
+
+    /**
+     * Tests that the first node creates the lease, and that losing the race to create it doesn't make a leader.
+     */
+    @Test
+    public void testTryAcquireCreatesLease() {
+        when(importLeaseRepository.acquire(any(), any(), anyLong(), anyLong())).thenReturn(0);
+        when(importLeaseRepository.existsById(ImportLeaseService.WEATHER_IMPORT)).thenReturn(false);
+
+        assertTrue(importLeaseService.tryAcquire());
+        verify(importLeaseRepository).saveAndFlush(any(ImportLease.class));
+
+        when(importLeaseRepository.saveAndFlush(any())).thenThrow(new DataIntegrityViolationException("duplicate"));
+        assertFalse(importLeaseService.tryAcquire());
+    }
+}
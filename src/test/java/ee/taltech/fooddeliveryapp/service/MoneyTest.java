@@ -0,0 +1,34 @@
+package ee.taltech.fooddeliveryapp.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MoneyTest {
+
+    /**
+     * Tests that fees are shown with one decimal place when they are a multiple of ten cents and with two
+     * otherwise, and that cached fees are the same instance every time.
+     */
+    @Test
+    void testToBigDecimal() {
+        assertEquals(new BigDecimal("4.0"), Money.toBigDecimal(400));
+        assertEquals(new BigDecimal("3.5"), Money.toBigDecimal(350));
+        assertEquals(new BigDecimal("0.0"), Money.toBigDecimal(0));
+        assertEquals(new BigDecimal("2.25"), Money.toBigDecimal(225));
+        assertEquals(new BigDecimal("123.0"), Money.toBigDecimal(12300));
+        assertSame(Money.toBigDecimal(450), Money.toBigDecimal(450));
+    }
+
+    /**
+     * Tests that amounts in euros are converted to cents, and that fractions of a cent are rejected.
+     */
+    @Test
+    void testToCents() {
+        assertEquals(250, Money.toCents(new BigDecimal("2.5")));
+        assertEquals(100, Money.toCents(BigDecimal.ONE));
+        assertThrows(ArithmeticException.class, () -> Money.toCents(new BigDecimal("0.125")));
+    }
+}
@@ -0,0 +1,39 @@
+package ee.taltech.fooddeliveryapp.service;
+
+import ee.taltech.fooddeliveryapp.database.WeatherData;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ObservationTest {
+
+    /**
+     * Tests that the phenomena reported by the weather service are classified by the fee rule they fall under.
+     */
+    @Test
+    void testPhenomenonCode() {
+        assertEquals(Observation.CLEAR, Observation.phenomenonCode("Few clouds"));
+        assertEquals(Observation.CLEAR, Observation.phenomenonCode(null));
+        assertEquals(Observation.RAIN, Observation.phenomenonCode("Light rain"));
+        assertEquals(Observation.RAIN, Observation.phenomenonCode("Moderate shower"));
+        assertEquals(Observation.SNOW, Observation.phenomenonCode("Light snow shower"));
+        assertEquals(Observation.SNOW, Observation.phenomenonCode("Light sleet"));
+        assertEquals(Observation.FORBIDDEN, Observation.phenomenonCode("Glaze"));
+        assertEquals(Observation.FORBIDDEN, Observation.phenomenonCode("Hail"));
+        assertEquals(Observation.FORBIDDEN, Observation.phenomenonCode("Thunderstorm"));
+    }
+
+    /**
+     * Tests that an entity is converted with its values, and missing values read as 0.
+     */
+    @Test
+    void testOf() {
+        WeatherData weatherData = new WeatherData("Pärnu", 41803, 4.3, 9.4, "Light rain", 1678818585L);
+        weatherData.setSnapshotVersion(3L);
+
+        assertEquals(new Observation(41803, 4.3, 9.4, Observation.RAIN, 1678818585L, 3L),
+                Observation.of(weatherData));
+        assertEquals(new Observation(0, 0.0, 0.0, Observation.CLEAR, 0L, Observation.NO_VERSION),
+                Observation.of(new WeatherData()));
+    }
+}
@@ -0,0 +1,97 @@
+package ee.taltech.fooddeliveryapp.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+public class StationIndexTest {
+
+    /**
+     * Tests that the nearest station matches a brute force search over random stations.
+     */
+    @Test
+    public void testNearestMatchesBruteForce() {
+        Random random = new Random(42);
+        int size = 500;
+        int[] codes = new int[size];
+        double[] latitudes = new double[size];
+        double[] longitudes = new double[size];
+        for (int i = 0; i < size; i++) {
+            codes[i] = 10000 + i;
+            latitudes[i] = 57.5 + random.nextDouble() * 2.2;
+            longitudes[i] = 21.5 + random.nextDouble() * 6.5;
+        }
+        StationIndex index = StationIndex.build(codes, latitudes, longitudes);
+
+        for (int query = 0; query < 2000; query++) {
+            double latitude = 57.5 + random.nextDouble() * 2.2;
+            double longitude = 21.5 + random.nextDouble() * 6.5;
+
+            int expected = bruteForceNearest(codes, latitudes, longitudes, latitude, longitude);
+            assertEquals(expected, index.nearest(latitude, longitude));
+            assertEquals(expected, index.nearest(latitude, longitude, 3).wmoCodes()[0]);
+        }
+    }
+
+    /**
+     * Tests that blended stations are ordered by distance and their weights add up to one.
+     */
+    @Test
+    public void testNearestWeights() {
+        StationIndex index = StationIndex.build(new int[]{26038, 26242, 41803},
+                new double[]{59.398, 58.264, 58.385}, new double[]{24.603, 26.461, 24.485});
+
+        StationWeights weights = index.nearest(59.3, 24.6, 2);
+
+        assertArrayEquals(new int[]{26038, 41803}, weights.wmoCodes());
+        assertEquals(1.0, weights.weights()[0] + weights.weights()[1], 1e-9);
+        assertTrue(weights.weights()[0] > weights.weights()[1]);
+    }
+
+    /**
+     * Tests that a location at a station gets all of its weight from that station.
+     */
+    @Test
+    public void testNearestWeightsAtStation() {
+        StationIndex index = StationIndex.build(new int[]{26038, 26242},
+                new double[]{59.398, 58.264}, new double[]{24.603, 26.461});
+
+        StationWeights weights = index.nearest(59.398, 24.603, 2);
+
+        assertEquals(1, weights.size());
+        assertEquals(26038, weights.wmoCodes()[0]);
+        assertEquals(1.0, weights.weights()[0]);
+    }
+
+    /**
+     * Tests that an empty index finds no stations.
+     */
+    @Test
+    public void testEmptyIndex() {
+        StationIndex index = StationIndex.build(new int[0], new double[0], new double[0]);
+
+        assertEquals(-1, index.nearest(59.4, 24.7));
+        assertNull(index.nearest(59.4, 24.7, 3));
+    }
+
+    private static int bruteForceNearest(int[] codes, double[] latitudes, double[] longitudes,
+                                         double latitude, double longitude) {
+        double meanLatitude = Arrays.stream(latitudes).average().orElse(0);
+        double scale = Math.cos(Math.toRadians(meanLatitude));
+        int best = -1;
+        double bestDistance = Double.POSITIVE_INFINITY;
+        for (int i = 0; i < codes.length; i++) {
+            double dx = (longitudes[i] - longitude) * scale;
+            double dy = latitudes[i] - latitude;
+            double distance = dx * dx + dy * dy;
+            if (distance < bestDistance) {
+                bestDistance = distance;
+                best = codes[i];
+            }
+        }
+        return best;
+    }
+}
@@ -0,0 +1,79 @@
+package ee.taltech.fooddeliveryapp.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import ee.taltech.fooddeliveryapp.database.Station;
+import ee.taltech.fooddeliveryapp.database.StationRepository;
+
+public class StationRegistryTest {
+    private static final Station TALLINN = new Station(26038, "Tallinn-Harku", 59.398, 24.603);
+    private static final Station TARTU = new Station(26242, "Tartu-Tõravere", 58.264, 26.461);
+
+    private StationRepository stationRepository;
+    private StationRegistry stationRegistry;
+
+    @BeforeEach
+    void setUp() {
+        stationRepository = mock(StationRepository.class);
+        stationRegistry = new StationRegistry(stationRepository);
+    }
+
+    /**
+     * Tests that the stations saved by earlier imports are used before the first import.
+     */
+    @Test
+    public void testResolveLoadedStations() {
+        when(stationRepository.findAll()).thenReturn(List.of(TALLINN, TARTU));
+
+        stationRegistry.loadStations();
+
+        assertEquals(26242, stationRegistry.resolve(58.4, 26.7).wmoCodes()[0]);
+    }
+
+    /**
+     * Tests that no stations are resolved while no station locations are known.
+     */
+    @Test
+    public void testResolveWithoutStations() {
+        stationRegistry.updateStations(List.of(new Station(41803, "Pärnu", null, null)));
+
+        assertNull(stationRegistry.resolve(58.4, 24.5));
+    }
+
+    /**
+     * Tests that the stations are only saved when they change.
+     */
+    @Test
+    public void testUpdateStationsOnlyWhenChanged() {
+        stationRegistry.updateStations(List.of(TALLINN, TARTU));
+        stationRegistry.updateStations(List.of(TALLINN, TARTU));
+        verify(stationRepository, times(1)).saveAll(anyIterable());
+
+        Station movedTartu = new Station(26242, "Tartu-Tõravere", 58.3, 26.5);
+        stationRegistry.updateStations(List.of(TALLINN, movedTartu));
+        verify(stationRepository, times(2)).saveAll(anyIterable());
+        assertEquals(movedTartu, stationRegistry.getStation(26242));
+    }
+
+    /**
+     * Tests that all imported stations are known, but only the served ones are used to resolve locations.
+     */
+    @Test
+    public void testResolveServedStationsOnly() {
+        ReflectionTestUtils.setField(stationRegistry, "servedStations", new int[]{26038});
+
+        stationRegistry.updateStations(List.of(TALLINN, TARTU));
+
+        assertEquals(2, stationRegistry.getStationCount());
+        assertEquals(TARTU, stationRegistry.getStation(26242));
+        assertEquals(26038, stationRegistry.resolve(58.4, 26.7).wmoCodes()[0]);
+    }
+}
@@ -5,22 +5,36 @@ import static org.junit.jupiter.api.Assertions.*;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import org.springframework.test.util.ReflectionTestUtils;
+
 import ee.taltech.fooddeliveryapp.database.WeatherData;
-import ee.taltech.fooddeliveryapp.database.WeatherDataRepository;
+import ee.taltech.fooddeliveryapp.database.WeatherReading;
+import ee.taltech.fooddeliveryapp.database.WeatherSnapshot;
+import ee.taltech.fooddeliveryapp.database.WeatherSnapshotRepository;
+import ee.taltech.fooddeliveryapp.database.WeatherStore;
 
 public class WeatherDataServiceTest {
 
-    private WeatherDataRepository weatherDataRepository;
+    private WeatherStore weatherStore;
+    private WeatherSnapshotRepository weatherSnapshotRepository;
     private WeatherDataService weatherDataService;
 
     @BeforeEach
     public void setUp() {
-        weatherDataRepository = mock(WeatherDataRepository.class);
-        weatherDataService = new WeatherDataService(weatherDataRepository);
+        weatherStore = mock(WeatherStore.class);
+        weatherSnapshotRepository = mock(WeatherSnapshotRepository.class);
+        WeatherEventBus eventBus = new WeatherEventBus(Runnable::run);
+        weatherDataService = new WeatherDataService(weatherStore, weatherSnapshotRepository,
+                new WeatherReadModel(48, eventBus), eventBus);
     }
 
     /**
@@ -32,12 +46,27 @@ public class WeatherDataServiceTest {
         expected.setWmoCode(12345);
         expected.setTimeStamp(1647589200L);
 
-        when(weatherDataRepository.findFirstByWmoCodeOrderByTimeStampDesc(12345)).thenReturn(expected);
+        when(weatherStore.findLatest(12345)).thenReturn(expected);
 
         WeatherData actual = weatherDataService.getLatestWeatherData(12345);
 
         assertEquals(expected, actual);
-        verify(weatherDataRepository, times(1)).findFirstByWmoCodeOrderByTimeStampDesc(12345);
+        verify(weatherStore, times(1)).findLatest(12345);
+    }
+
+    /**
+     * Tests that the latest observation is loaded from the database and converted when the cache doesn't have the
+     * station.
+     */
+    @Test
+    public void testGetLatestObservationFromDatabase() {
+        WeatherReading stored = new WeatherReading(-2.5, 4.0, "Light snow shower", 1647589200L, 3L);
+        when(weatherStore.findLatestReading(26038)).thenReturn(stored);
+
+        Observation actual = weatherDataService.getLatestObservation(26038);
+
+        assertEquals(new Observation(26038, -2.5, 4.0, Observation.SNOW, 1647589200L, 3L), actual);
+        assertNull(weatherDataService.getLatestObservation(26242));
     }
 
     /**
@@ -52,7 +81,116 @@ public class WeatherDataServiceTest {
 
         weatherDataService.saveAllWeatherData(weatherDataList);
 
-        verify(weatherDataRepository, times(1)).saveAll(weatherDataList);
+        verify(weatherStore, times(1)).saveAll(weatherDataList);
+    }
+
+    /**
+     * Tests that the latest weather of every imported station is served from the cache after saving.
+     */
+    @Test
+    public void testGetLatestObservationFromCache() {
+        List<WeatherData> weatherDataList = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            weatherDataList.add(new WeatherData("Station-" + i, 90000 + i, 1.0, 2.0, "Clear", 1647589200L));
+        }
+
+        weatherDataService.saveAllWeatherData(weatherDataList);
+
+        for (WeatherData expected : weatherDataList) {
+            assertEquals(Observation.of(expected), weatherDataService.getLatestObservation(expected.getWmoCode()));
+        }
+        verify(weatherStore, never()).findLatestReading(anyInt());
+    }
+
+    /**
+     * Tests that saving weather data records it as the snapshot version after the latest one.
+     */
+    @Test
+    public void testSaveAllWeatherDataAssignsSnapshotVersion() {
+        WeatherData weatherData = new WeatherData("Tallinn-Harku", 26038, 1.0, 2.0, "Clear", 1647589200L);
+        when(weatherSnapshotRepository.findMaxVersion()).thenReturn(6L);
+
+        weatherDataService.saveAllWeatherData(List.of(weatherData));
+
+        assertEquals(7L, weatherData.getSnapshotVersion());
+        assertEquals(7L, weatherDataService.getSnapshotVersion());
+        verify(weatherSnapshotRepository).save(argThat((WeatherSnapshot snapshot) -> snapshot.getVersion() == 7L));
+    }
+
+    /**
+     * Tests that a node loads only the weather data of the imports it hasn't seen yet.
+     */
+    @Test
+    public void testRefreshLatestWeatherLoadsDelta() {
+        WeatherData first = new WeatherData("Tallinn-Harku", 26038, 1.0, 2.0, "Clear", 1647589200L);
+        WeatherData second = new WeatherData("Tallinn-Harku", 26038, 3.0, 2.0, "Clear", 1647592800L);
+        second.setSnapshotVersion(5L);
+        when(weatherSnapshotRepository.findMaxVersion()).thenReturn(3L);
+        weatherDataService.saveAllWeatherData(List.of(first));
+
+        when(weatherSnapshotRepository.findLatestVersion()).thenReturn(4L);
+        assertFalse(weatherDataService.refreshLatestWeather());
+
+        when(weatherSnapshotRepository.findLatestVersion()).thenReturn(5L);
+        when(weatherStore.findBySnapshotVersionGreaterThan(4L)).thenReturn(List.of(second));
+        assertTrue(weatherDataService.refreshLatestWeather());
+
+        assertEquals(Observation.of(second), weatherDataService.getLatestObservation(26038));
+        assertEquals(5L, weatherDataService.getSnapshotVersion());
+        verify(weatherStore, never()).findBySnapshotVersion(anyLong());
+    }
+
+    /**
+     * Tests that a failed import leaves the cache on the previous snapshot.
+     */
+    @Test
+    public void testSaveAllWeatherDataFailureKeepsSnapshot() {
+        WeatherData first = new WeatherData("Tallinn-Harku", 26038, 1.0, 2.0, "Clear", 1647589200L);
+        WeatherData second = new WeatherData("Tallinn-Harku", 26038, 3.0, 2.0, "Clear", 1647592800L);
+        when(weatherSnapshotRepository.findMaxVersion()).thenReturn(0L);
+        weatherDataService.saveAllWeatherData(List.of(first));
+
+        when(weatherSnapshotRepository.findMaxVersion()).thenReturn(1L);
+        doThrow(new RuntimeException("Insert failed")).when(weatherStore).saveAll(any());
+        assertThrows(RuntimeException.class, () -> weatherDataService.saveAllWeatherData(List.of(second)));
+
+        assertEquals(1L, weatherDataService.getSnapshotVersion());
+        assertEquals(Observation.of(first), weatherDataService.getLatestObservation(26038));
+    }
+
+    /**
+     * Tests that rolling back deletes the latest import and serves the previous snapshot again.
+     */
+    @Test
+    public void testRollbackLatestSnapshot() {
+        WeatherData previous = new WeatherData("Tallinn-Harku", 26038, 1.0, 2.0, "Clear", 1647589200L);
+        previous.setSnapshotVersion(4L);
+        WeatherData latest = new WeatherData("Tallinn-Harku", 26038, 3.0, 2.0, "Clear", 1647592800L);
+        when(weatherSnapshotRepository.findMaxVersion()).thenReturn(4L);
+        weatherDataService.saveAllWeatherData(List.of(latest));
+
+        when(weatherSnapshotRepository.findLatestVersion()).thenReturn(5L);
+        when(weatherSnapshotRepository.findLatestVersionBefore(5L)).thenReturn(4L);
+        when(weatherStore.findBySnapshotVersion(4L)).thenReturn(List.of(previous));
+
+        assertEquals(4L, weatherDataService.rollbackLatestSnapshot());
+
+        verify(weatherSnapshotRepository).markRolledBack(5L);
+        verify(weatherStore).deleteBySnapshotVersion(5L);
+        assertEquals(4L, weatherDataService.getSnapshotVersion());
+        assertEquals(Observation.of(previous), weatherDataService.getLatestObservation(26038));
+    }
+
+    /**
+     * Tests that the only snapshot can't be rolled back.
+     */
+    @Test
+    public void testRollbackWithoutPreviousSnapshot() {
+        when(weatherSnapshotRepository.findLatestVersion()).thenReturn(1L);
+        when(weatherSnapshotRepository.findLatestVersionBefore(1L)).thenReturn(null);
+
+        assertThrows(IllegalStateException.class, () -> weatherDataService.rollbackLatestSnapshot());
+        verify(weatherStore, never()).deleteBySnapshotVersion(anyLong());
     }
 
     /**
@@ -62,28 +200,169 @@ public class WeatherDataServiceTest {
     public void testClearAllWeatherData() {
         weatherDataService.clearAllWeatherData();
 
-        verify(weatherDataRepository, times(1)).deleteAll();
+        verify(weatherStore, times(1)).deleteAll();
     }
 
     /**
-     * Tests the getWeatherDataByTimeStamp method by checking if the correct weather data list
-     * is returned for the given WMO code and time range.
+     * Tests the getObservationByTimeStamp method by checking if the reading of the given WMO code and time range is
+     * returned as an observation.
      */
     @Test
-    public void testGetWeatherDataByTimeStamp() {
-        List<WeatherData> expected = new ArrayList<>();
-        expected.add(new WeatherData());
-        expected.add(new WeatherData());
-        expected.add(new WeatherData());
+    public void testGetObservationByTimeStamp() {
+        when(weatherStore.findLatestReadingBetween(12345, 1647589200L, 1647603600L))
+                .thenReturn(new WeatherReading(1.0, 12.0, "Light rain", 1647590000L, 7L));
 
-        when(weatherDataRepository.findByWmoCodeAndTimeStampBetweenOrderByTimeStampDesc
-                (12345, 1647589200L, 1647603600L)).thenReturn(expected);
+        Observation actual = weatherDataService.getObservationByTimeStamp(12345, 1647589200L, 1647603600L);
 
-        List<WeatherData> actual = weatherDataService
-                .getWeatherDataByTimeStamp(12345, 1647589200L, 1647603600L);
+        assertEquals(new Observation(12345, 1.0, 12.0, Observation.RAIN, 1647590000L, 7L), actual);
+        assertNull(weatherDataService.getObservationByTimeStamp(12345, 1647603600L, 1647607200L));
+        verify(weatherStore, times(1)).findLatestReadingBetween(12345, 1647589200L, 1647603600L);
+    }
 
-        assertEquals(expected, actual);
-        verify(weatherDataRepository, times(1))
-                .findByWmoCodeAndTimeStampBetweenOrderByTimeStampDesc(12345, 1647589200L, 1647603600L);
+    /**
+     * Tests that concurrent lookups of the same station and range wait for a single database query and all get its
+     * result.
+     */
+    @Test
+    public void testGetObservationByTimeStampCoalescesConcurrentLookups() throws Exception {
+        int lookups = 8;
+        WeatherReading reading = new WeatherReading(1.0, 2.0, "Clear", 1647590000L, 1L);
+        CountDownLatch release = new CountDownLatch(1);
+        when(weatherStore.findLatestReadingBetween(26038, 1647589200L, 1647592800L))
+                .thenAnswer(invocation -> {
+                    release.await(5, TimeUnit.SECONDS);
+                    return reading;
+                });
+
+        ExecutorService executor = Executors.newFixedThreadPool(lookups);
+        try {
+            List<Future<Observation>> results = new ArrayList<>();
+            for (int i = 0; i < lookups; i++) {
+                results.add(executor.submit(() -> weatherDataService
+                        .getObservationByTimeStamp(26038, 1647589200L, 1647592800L)));
+            }
+
+            // Let the query finish once every lookup has had time to start waiting
+            Thread.sleep(200);
+            release.countDown();
+
+            for (Future<Observation> result : results) {
+                assertEquals(Observation.of(26038, reading), result.get(5, TimeUnit.SECONDS));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        verify(weatherStore, times(1)).findLatestReadingBetween(26038, 1647589200L, 1647592800L);
+    }
+
+    /**
+     * Tests that a failed query isn't cached, so the next lookup queries again.
+     */
+    @Test
+    public void testGetObservationByTimeStampFailureIsNotCached() {
+        when(weatherStore.findLatestReadingBetween(26038, 1647589200L, 1647592800L))
+                .thenThrow(new IllegalStateException("Database down")).thenReturn(null);
+
+        assertThrows(IllegalStateException.class,
+                () -> weatherDataService.getObservationByTimeStamp(26038, 1647589200L, 1647592800L));
+        assertNull(weatherDataService.getObservationByTimeStamp(26038, 1647589200L, 1647592800L));
+        assertNull(weatherDataService.getObservationByTimeStamp(26038, 1647589200L, 1647592800L));
+
+        verify(weatherStore, times(2)).findLatestReadingBetween(26038, 1647589200L, 1647592800L);
+    }
+
+    /**
+     * Tests that a new import empties the slot cache, so lookups see the weather it saved.
+     */
+    @Test
+    public void testGetObservationByTimeStampAfterImport() {
+        weatherDataService.getObservationByTimeStamp(26038, 1647589200L, 1647592800L);
+
+        weatherDataService.saveAllWeatherData(new ArrayList<>());
+        weatherDataService.getObservationByTimeStamp(26038, 1647589200L, 1647592800L);
+
+        verify(weatherStore, times(2)).findLatestReadingBetween(26038, 1647589200L, 1647592800L);
+    }
+
+    /**
+     * Tests that a slot after the start of the read model is answered from the imports it was given, without
+     * querying the store, that a rolled back import is removed from it, and that a slot it has no observation of is
+     * looked up in the store.
+     */
+    @Test
+    public void testGetObservationByTimeStampFromReadModel() {
+        long slotStart = System.currentTimeMillis() / 1000 + 3600;
+        WeatherData first = new WeatherData("Tallinn-Harku", 26038, 1.0, 2.0, "Clear", slotStart + 600);
+        WeatherData second = new WeatherData("Tallinn-Harku", 26038, 3.0, 4.0, "Light rain", slotStart + 1800);
+
+        when(weatherSnapshotRepository.findMaxVersion()).thenReturn(0L);
+        weatherDataService.saveAllWeatherData(List.of(first));
+        when(weatherSnapshotRepository.findMaxVersion()).thenReturn(1L);
+        weatherDataService.saveAllWeatherData(List.of(second));
+
+        assertEquals(Observation.of(second),
+                weatherDataService.getObservationByTimeStamp(26038, slotStart, slotStart + 3600));
+        assertNull(weatherDataService.getObservationByTimeStamp(26242, slotStart, slotStart + 3600));
+
+        when(weatherSnapshotRepository.findLatestVersion()).thenReturn(2L);
+        when(weatherSnapshotRepository.findLatestVersionBefore(2L)).thenReturn(1L);
+        weatherDataService.rollbackLatestSnapshot();
+
+        assertEquals(Observation.of(first),
+                weatherDataService.getObservationByTimeStamp(26038, slotStart, slotStart + 3600));
+        verify(weatherStore, never()).findLatestReadingBetween(eq(26038), anyLong(), anyLong());
+        verify(weatherStore).findLatestReadingBetween(26242, slotStart, slotStart + 3600);
+    }
+
+    /**
+     * Tests that while the read model hasn't received the latest import yet, its slots are looked up in the store
+     * rather than answered without the import.
+     */
+    @Test
+    public void testGetObservationByTimeStampWhileReadModelBehind() {
+        List<Runnable> deliveries = new ArrayList<>();
+        WeatherEventBus eventBus = new WeatherEventBus(deliveries::add);
+        weatherDataService = new WeatherDataService(weatherStore, weatherSnapshotRepository,
+                new WeatherReadModel(48, eventBus), eventBus);
+        long slotStart = System.currentTimeMillis() / 1000 + 3600;
+        WeatherData observed = new WeatherData("Tallinn-Harku", 26038, 1.0, 2.0, "Clear", slotStart + 600);
+        when(weatherSnapshotRepository.findMaxVersion()).thenReturn(0L);
+        weatherDataService.saveAllWeatherData(List.of(observed));
+        when(weatherStore.findLatestReadingBetween(26038, slotStart, slotStart + 3600))
+                .thenReturn(new WeatherReading(1.0, 2.0, "Clear", slotStart + 600, 1L));
+
+        assertEquals(Observation.of(observed),
+                weatherDataService.getObservationByTimeStamp(26038, slotStart, slotStart + 3600));
+        verify(weatherStore).findLatestReadingBetween(26038, slotStart, slotStart + 3600);
+
+        deliveries.forEach(Runnable::run);
+        weatherDataService.saveAllWeatherData(new ArrayList<>());
+        deliveries.forEach(Runnable::run);
+        assertEquals(Observation.of(observed),
+                weatherDataService.getObservationByTimeStamp(26038, slotStart, slotStart + 3600));
+        verify(weatherStore).findLatestReadingBetween(26038, slotStart, slotStart + 3600);
+    }
+
+    /**
+     * Tests that a selection other than the slot is served from the read model for the times it covers, and falls
+     * back to the slot's observation from the store for older times.
+     */
+    @Test
+    public void testGetObservationAtWithSelection() {
+        ReflectionTestUtils.setField(weatherDataService, "slotSelection", SlotSelection.PREVIOUS);
+        long now = System.currentTimeMillis() / 1000;
+        WeatherData observed = new WeatherData("Tallinn-Harku", 26038, 1.0, 2.0, "Clear", now + 4000);
+        when(weatherSnapshotRepository.findMaxVersion()).thenReturn(0L);
+        weatherDataService.saveAllWeatherData(List.of(observed));
+
+        assertEquals(Observation.of(observed), weatherDataService.getObservationAt(26038, now + 7000, 0, 0));
+        verify(weatherStore, never()).findLatestReadingBetween(anyInt(), anyLong(), anyLong());
+        // Nothing selected, so the slot is looked up in case the read model doesn't have it yet
+        assertNull(weatherDataService.getObservationAt(26038, now + 9000, now + 7200, now + 10800));
+        verify(weatherStore).findLatestReadingBetween(26038, now + 7200, now + 10800);
+
+        weatherDataService.getObservationAt(26038, 1647590000L, 1647589200L, 1647592800L);
+        verify(weatherStore).findLatestReadingBetween(26038, 1647589200L, 1647592800L);
     }
 }
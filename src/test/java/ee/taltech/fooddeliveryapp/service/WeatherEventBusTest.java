@@ -0,0 +1,120 @@
+package ee.taltech.fooddeliveryapp.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+public class WeatherEventBusTest {
+
+    private static final Observation OBSERVATION = new Observation(26038, 1.0, 2.0, 0, 1000L, 1L);
+
+    /**
+     * Tests that publishing only queues the events and one delivery hands them over in order.
+     */
+    @Test
+    public void testDeliversInOrder() {
+        List<Runnable> pending = new ArrayList<>();
+        WeatherEventBus eventBus = new WeatherEventBus(pending::add);
+        List<WeatherEvent> received = new ArrayList<>();
+        eventBus.subscribe("test", 4, WeatherEventBus.Overflow.DROP, received::add);
+
+        eventBus.publish(new WeatherEvent.SnapshotRolledBack(1L));
+        eventBus.publish(new WeatherEvent.ObservationsCleared());
+        assertTrue(received.isEmpty());
+        assertEquals(1, pending.size());
+
+        pending.forEach(Runnable::run);
+        assertEquals(List.of(new WeatherEvent.SnapshotRolledBack(1L), new WeatherEvent.ObservationsCleared()),
+                received);
+        assertEquals(new WeatherEventBus.SubscriptionStats("test", 0, 2, 0, 0, 0), eventBus.getStats().get(0));
+    }
+
+    /**
+     * Tests that events published to a full queue are dropped.
+     */
+    @Test
+    public void testDropsWhenFull() {
+        List<Runnable> pending = new ArrayList<>();
+        WeatherEventBus eventBus = new WeatherEventBus(pending::add);
+        List<WeatherEvent> received = new ArrayList<>();
+        eventBus.subscribe("test", 1, WeatherEventBus.Overflow.DROP, received::add);
+
+        eventBus.publish(new WeatherEvent.SnapshotRolledBack(1L));
+        eventBus.publish(new WeatherEvent.SnapshotRolledBack(2L));
+        pending.forEach(Runnable::run);
+
+        assertEquals(List.of(new WeatherEvent.SnapshotRolledBack(1L)), received);
+        assertEquals(1, eventBus.getStats().get(0).dropped());
+    }
+
+    /**
+     * Tests that events published to a full queue are merged into the last one queued.
+     */
+    @Test
+    public void testMergesWhenFull() {
+        List<Runnable> pending = new ArrayList<>();
+        WeatherEventBus eventBus = new WeatherEventBus(pending::add);
+        List<WeatherEvent> received = new ArrayList<>();
+        eventBus.subscribe("test", 1, WeatherEventBus.Overflow.MERGE, received::add);
+
+        eventBus.publish(new WeatherEvent.ObservationsIngested(List.of(OBSERVATION), 1L));
+        eventBus.publish(new WeatherEvent.ObservationsIngested(List.of(OBSERVATION), 2L));
+        eventBus.publish(new WeatherEvent.SnapshotRolledBack(1L));
+        pending.forEach(Runnable::run);
+
+        assertEquals(List.of(new WeatherEvent.Resync(1L)), received);
+        assertEquals(2, eventBus.getStats().get(0).merged());
+    }
+
+    /**
+     * Tests the merging of consecutive imports, of a clear and of anything else.
+     */
+    @Test
+    public void testMerge() {
+        WeatherEvent first = new WeatherEvent.ObservationsIngested(List.of(OBSERVATION), 1L);
+        WeatherEvent second = new WeatherEvent.ObservationsIngested(List.of(OBSERVATION), 2L);
+
+        assertEquals(new WeatherEvent.ObservationsIngested(List.of(OBSERVATION, OBSERVATION), 2L),
+                WeatherEvent.merge(first, second));
+        assertEquals(new WeatherEvent.ObservationsCleared(),
+                WeatherEvent.merge(first, new WeatherEvent.ObservationsCleared()));
+        assertEquals(new WeatherEvent.Resync(2L), WeatherEvent.merge(new WeatherEvent.ObservationsCleared(), second));
+    }
+
+    /**
+     * Tests that a failing subscriber neither stops its own later deliveries nor those of other subscribers.
+     */
+    @Test
+    public void testFailingSubscriber() {
+        WeatherEventBus eventBus = new WeatherEventBus(Runnable::run);
+        List<WeatherEvent> received = new ArrayList<>();
+        eventBus.subscribe("failing", 4, WeatherEventBus.Overflow.DROP, event -> {
+            throw new IllegalStateException();
+        });
+        eventBus.subscribe("test", 4, WeatherEventBus.Overflow.DROP, received::add);
+
+        eventBus.publish(new WeatherEvent.SnapshotRolledBack(1L));
+        eventBus.publish(new WeatherEvent.SnapshotRolledBack(2L));
+
+        assertEquals(2, received.size());
+        assertEquals(2, eventBus.getStats().get(0).failed());
+    }
+
+    /**
+     * Tests that a cancelled subscription receives nothing more.
+     */
+    @Test
+    public void testCancel() {
+        WeatherEventBus eventBus = new WeatherEventBus(Runnable::run);
+        List<WeatherEvent> received = new ArrayList<>();
+        eventBus.subscribe("test", 4, WeatherEventBus.Overflow.DROP, received::add).cancel();
+
+        eventBus.publish(new WeatherEvent.ObservationsCleared());
+
+        assertTrue(received.isEmpty());
+        assertTrue(eventBus.getStats().isEmpty());
+    }
+}
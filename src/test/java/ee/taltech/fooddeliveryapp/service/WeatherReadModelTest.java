@@ -0,0 +1,154 @@
+package ee.taltech.fooddeliveryapp.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import ee.taltech.fooddeliveryapp.database.WeatherData;
+
+public class WeatherReadModelTest {
+
+    private static final long NOW = System.currentTimeMillis() / 1000;
+
+    /**
+     * Tests that the projection only covers ranges starting after it was created and finds the latest observation
+     * of a range, including one on its bounds.
+     */
+    @Test
+    public void testFind() {
+        WeatherEventBus eventBus = new WeatherEventBus(Runnable::run);
+        WeatherReadModel readModel = new WeatherReadModel(48, eventBus);
+        ingest(eventBus, List.of(weatherData(26038, NOW + 600, 1L), weatherData(26038, NOW + 3600, 1L),
+                weatherData(26038, NOW + 1200, 1L)), 1L);
+
+        WeatherReadModel.Projection projection = readModel.current();
+        assertFalse(projection.covers(NOW - 3600));
+        assertTrue(projection.covers(NOW));
+        assertEquals(NOW + 3600, projection.find(26038, NOW, NOW + 3600).timeStamp());
+        assertEquals(NOW + 1200, projection.find(26038, NOW, NOW + 3599).timeStamp());
+        assertNull(projection.find(26038, NOW, NOW + 599));
+        assertNull(projection.find(26242, NOW, NOW + 3600));
+        assertEquals(1L, readModel.getVersion());
+    }
+
+    /**
+     * Tests every selection between an observation before and one after the time, and that observations further
+     * away than the gap aren't selected.
+     */
+    @Test
+    public void testSelect() {
+        WeatherEventBus eventBus = new WeatherEventBus(Runnable::run);
+        WeatherReadModel readModel = new WeatherReadModel(48, eventBus);
+        WeatherData before = weatherData(26038, NOW + 600, 1L);
+        before.setAirTemperature(-1.0);
+        before.setWindSpeed(4.0);
+        WeatherData after = weatherData(26038, NOW + 1800, 2L);
+        after.setAirTemperature(2.0);
+        after.setWindSpeed(10.0);
+        after.setWeatherPhenomenon("Light snow");
+        ingest(eventBus, List.of(before, after), 2L);
+        WeatherReadModel.Projection projection = readModel.current();
+
+        assertEquals(Observation.of(before), projection.select(26038, NOW + 1500, SlotSelection.PREVIOUS, 3600));
+        assertEquals(Observation.of(after), projection.select(26038, NOW + 1500, SlotSelection.NEAREST, 3600));
+        assertEquals(Observation.of(before), projection.select(26038, NOW + 1200, SlotSelection.NEAREST, 3600));
+        assertEquals(new Observation(26038, 1.25, 8.5, Observation.SNOW, NOW + 1800, 2L),
+                projection.select(26038, NOW + 1500, SlotSelection.INTERPOLATE, 3600));
+        assertEquals(Observation.of(after), projection.select(26038, NOW + 1800, SlotSelection.INTERPOLATE, 3600));
+        assertEquals(Observation.of(before), projection.select(26038, NOW + 100, SlotSelection.INTERPOLATE, 3600));
+
+        assertNull(projection.select(26038, NOW + 100, SlotSelection.PREVIOUS, 3600));
+        assertNull(projection.select(26038, NOW + 9000, SlotSelection.NEAREST, 3600));
+        assertEquals(Observation.of(after), projection.select(26038, NOW + 1500, SlotSelection.INTERPOLATE, 600));
+    }
+
+    /**
+     * Tests that updates run on the event threads only, so lookups keep the previous projection until then.
+     */
+    @Test
+    public void testUpdatesInBackground() {
+        List<Runnable> pending = new ArrayList<>();
+        WeatherEventBus eventBus = new WeatherEventBus(pending::add);
+        WeatherReadModel readModel = new WeatherReadModel(48, eventBus);
+
+        ingest(eventBus, List.of(weatherData(26038, NOW + 600, 1L)), 1L);
+        assertNull(readModel.current().find(26038, NOW, NOW + 3600));
+
+        pending.forEach(Runnable::run);
+        assertNotNull(readModel.current().find(26038, NOW, NOW + 3600));
+    }
+
+    /**
+     * Tests that a rollback removes the observations of the later imports and a clear removes all of them.
+     */
+    @Test
+    public void testRollbackAndClear() {
+        WeatherEventBus eventBus = new WeatherEventBus(Runnable::run);
+        WeatherReadModel readModel = new WeatherReadModel(48, eventBus);
+        ingest(eventBus, List.of(weatherData(26038, NOW + 600, 1L)), 1L);
+        ingest(eventBus, List.of(weatherData(26038, NOW + 1200, 2L)), 2L);
+
+        eventBus.publish(new WeatherEvent.SnapshotRolledBack(1L));
+        assertEquals(NOW + 600, readModel.current().find(26038, NOW, NOW + 3600).timeStamp());
+        assertEquals(1L, readModel.getVersion());
+
+        eventBus.publish(new WeatherEvent.ObservationsCleared());
+        assertNull(readModel.current().find(26038, NOW, NOW + 3600));
+        assertEquals(0L, readModel.getVersion());
+    }
+
+    /**
+     * Tests that a resync drops everything and only covers ranges from then on.
+     */
+    @Test
+    public void testResync() {
+        WeatherEventBus eventBus = new WeatherEventBus(Runnable::run);
+        WeatherReadModel readModel = new WeatherReadModel(48, eventBus);
+        ingest(eventBus, List.of(weatherData(26038, NOW + 600, 1L)), 1L);
+
+        eventBus.publish(new WeatherEvent.Resync(3L));
+        WeatherReadModel.Projection projection = readModel.current();
+        assertTrue(projection.stations().isEmpty());
+        assertTrue(projection.coverageStart() >= NOW);
+        assertEquals(3L, projection.version());
+    }
+
+    /**
+     * Tests that observations older than the retention are dropped, and the coverage moves with them.
+     */
+    @Test
+    public void testRetention() {
+        WeatherEventBus eventBus = new WeatherEventBus(Runnable::run);
+        WeatherReadModel readModel = new WeatherReadModel(1, eventBus);
+        ingest(eventBus, List.of(weatherData(26038, NOW - 7200, 1L), weatherData(26038, NOW + 600, 1L)), 1L);
+
+        WeatherReadModel.Projection projection = readModel.current();
+        assertEquals(1, projection.stations().get(26038).length);
+        assertTrue(projection.covers(NOW));
+    }
+
+    /**
+     * Tests that a projection with no retention covers nothing.
+     */
+    @Test
+    public void testDisabled() {
+        WeatherEventBus eventBus = new WeatherEventBus(Runnable::run);
+        WeatherReadModel readModel = new WeatherReadModel(0, eventBus);
+        ingest(eventBus, List.of(weatherData(26038, NOW + 600, 1L)), 1L);
+
+        assertFalse(readModel.current().covers(NOW + 3600));
+    }
+
+    private static void ingest(WeatherEventBus eventBus, List<WeatherData> weatherData, long version) {
+        eventBus.publish(WeatherEvent.ObservationsIngested.of(weatherData, version));
+    }
+
+    private static WeatherData weatherData(int wmoCode, long timeStamp, long snapshotVersion) {
+        WeatherData weatherData = new WeatherData("Station", wmoCode, 1.0, 2.0, "Clear", timeStamp);
+        weatherData.setSnapshotVersion(snapshotVersion);
+        return weatherData;
+    }
+}